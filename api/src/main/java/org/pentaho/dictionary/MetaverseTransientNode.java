@@ -33,6 +33,7 @@ public class MetaverseTransientNode extends PropertiesHolder implements IMetaver
   protected List<IMetaverseLink> links = new ArrayList<IMetaverseLink>();
   protected ILogicalIdGenerator logicalIdGenerator = DictionaryConst.LOGICAL_ID_GENERATOR_DEFAULT;
   private String logicalId;
+  private String readableLogicalId;
 
   /**
    * Instantiates a new (empty) metaverse transient node.
@@ -134,16 +135,41 @@ public class MetaverseTransientNode extends PropertiesHolder implements IMetaver
     if ( logicalIdGenerator == null ) {
       return getStringID();
     } else if ( logicalId == null || isDirty() ) {
+      readableLogicalId = null;
       logicalId = logicalIdGenerator.generateId( this );
     }
 
     return logicalId == null ? getStringID() : logicalId;
   }
 
+  /**
+   * Gets the readable (JSON) form of the logical id. It differs from {@link #getLogicalId()} when logical ids are
+   * generated as fingerprints, and lets the namespaces built on this node be navigated without the fingerprint
+   * dictionary.
+   *
+   * @return the readable logical id
+   * @see org.pentaho.metaverse.api.LogicalIdFingerprints
+   */
+  public String getReadableLogicalId() {
+    final String id = getLogicalId();
+    final String readable = readableLogicalId;
+    return readable == null ? id : readable;
+  }
+
+  /**
+   * Sets the readable form of the logical id, called by the logical id generator when it fingerprints the id.
+   *
+   * @param readableLogicalId the readable logical id
+   */
+  public void setReadableLogicalId( String readableLogicalId ) {
+    this.readableLogicalId = readableLogicalId;
+  }
+
   @Override
   public void setLogicalIdGenerator( ILogicalIdGenerator idGenerator ) {
     // clear out the logicalId so it will be re-generated on the next call to getLogicalId
     logicalId = null;
+    readableLogicalId = null;
     logicalIdGenerator = idGenerator;
   }
 }
@@ -0,0 +1,40 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The content of a document that is read only when it is analyzed, rather than when the document is located. It can
+ * be used as the content of an {@link IDocument}, in place of the String holding the whole document.
+ */
+public interface IDocumentContent {
+
+  /**
+   * Opens a new stream on the content. The caller is responsible for closing it.
+   *
+   * @return the content stream
+   * @throws IOException if the content cannot be read
+   */
+  InputStream openStream() throws IOException;
+
+  /**
+   * Gets the size of the content, in bytes
+   *
+   * @return the size, or -1 if unknown
+   */
+  long getSize();
+
+}
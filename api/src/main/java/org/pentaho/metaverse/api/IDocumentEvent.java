@@ -19,6 +19,21 @@ package org.pentaho.metaverse.api;
  */
 public interface IDocumentEvent {
 
+  /**
+   * A document was found for the first time
+   */
+  String EVENT_TYPE_ADD = "add";
+
+  /**
+   * The content of a document changed since it was last found
+   */
+  String EVENT_TYPE_UPDATE = "update";
+
+  /**
+   * A document that was found before no longer exists
+   */
+  String EVENT_TYPE_DELETE = "delete";
+
   /**
    * Gets the document to which this event occurred.
    *
@@ -17,6 +17,8 @@ package org.pentaho.metaverse.api;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.Vertex;
 
+import java.util.Collection;
+
 /**
  * The IMetaverseBuilder is a Builder that creates and maintains a metaverse model, which contains nodes and links.
  */
@@ -58,6 +60,38 @@ public interface IMetaverseBuilder {
    */
   void addLink( Vertex fromVertex, String label, Vertex toVertex );
 
+  /**
+   * Adds the given nodes, then the given links, to the metaverse model as a single batch. The result is the same as
+   * adding each node and then each link on its own; implementations may resolve each distinct node only once and
+   * apply the whole batch under a single lock.
+   *
+   * @param nodes the nodes to add, may be empty
+   * @param links the links to add, may be empty
+   * @return the metaverse builder (for chaining)
+   */
+  default IMetaverseBuilder addAll( Collection<IMetaverseNode> nodes, Collection<IMetaverseLink> links ) {
+    if ( nodes != null ) {
+      for ( IMetaverseNode node : nodes ) {
+        addNode( node );
+      }
+    }
+    if ( links != null ) {
+      for ( IMetaverseLink link : links ) {
+        addLink( link );
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns a new batch that buffers nodes and links until it is committed to this builder.
+   *
+   * @return the batch
+   */
+  default MetaverseBatch batch() {
+    return new MetaverseBatch( this );
+  }
+
   /**
    * Deletes the specified node from the metaverse model.
    *
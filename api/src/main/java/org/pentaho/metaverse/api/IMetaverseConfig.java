@@ -24,6 +24,27 @@ public interface IMetaverseConfig {
   String KETTLE_LINEAGE_GENERATE_SUBGRAPHS = "KETTLE_LINEAGE_GENERATE_SUBGRAPHS";
   String KETTLE_LINEAGE_CONSOLIDATE_SUBGRAPHS = "KETTLE_LINEAGE_CONSOLIDATE_SUBGRAPHS";
   String KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_EXPIRE_TIME = "KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_EXPIRE_TIME";
+  String KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_MAX_SIZE = "KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_MAX_SIZE";
+  String KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_MAX_WEIGHT = "KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_MAX_WEIGHT";
+  String KETTLE_LINEAGE_LOGICAL_ID_MODE = "KETTLE_LINEAGE_LOGICAL_ID_MODE";
+  String KETTLE_LINEAGE_LOGICAL_ID_DICTIONARY_SIZE = "KETTLE_LINEAGE_LOGICAL_ID_DICTIONARY_SIZE";
+  String KETTLE_LINEAGE_PARALLEL_STEP_ANALYSIS = "KETTLE_LINEAGE_PARALLEL_STEP_ANALYSIS";
+  String KETTLE_LINEAGE_STEP_ANALYSIS_THREADS = "KETTLE_LINEAGE_STEP_ANALYSIS_THREADS";
+  String KETTLE_LINEAGE_SUB_TRANS_CACHE_SIZE = "KETTLE_LINEAGE_SUB_TRANS_CACHE_SIZE";
+  String KETTLE_LINEAGE_RESOURCE_SAMPLING_MODE = "KETTLE_LINEAGE_RESOURCE_SAMPLING_MODE";
+  String KETTLE_LINEAGE_RESOURCE_SAMPLING_INTERVAL = "KETTLE_LINEAGE_RESOURCE_SAMPLING_INTERVAL";
+  String KETTLE_LINEAGE_RESOURCE_SAMPLING_IDLE_ROWS = "KETTLE_LINEAGE_RESOURCE_SAMPLING_IDLE_ROWS";
+  String KETTLE_LINEAGE_WRITER_THREADS = "KETTLE_LINEAGE_WRITER_THREADS";
+  String KETTLE_LINEAGE_WRITER_QUEUE_SIZE = "KETTLE_LINEAGE_WRITER_QUEUE_SIZE";
+  String KETTLE_LINEAGE_WRITER_OVERFLOW_POLICY = "KETTLE_LINEAGE_WRITER_OVERFLOW_POLICY";
+  String KETTLE_LINEAGE_WRITER_VIRTUAL_THREADS = "KETTLE_LINEAGE_WRITER_VIRTUAL_THREADS";
+  String KETTLE_LINEAGE_ANALYSIS_THREADS = "KETTLE_LINEAGE_ANALYSIS_THREADS";
+  String KETTLE_LINEAGE_DESIGN_TIME_DEBOUNCE = "KETTLE_LINEAGE_DESIGN_TIME_DEBOUNCE";
+  String KETTLE_LINEAGE_LOCATOR_THREADS = "KETTLE_LINEAGE_LOCATOR_THREADS";
+  String KETTLE_LINEAGE_SEARCH_MAX_DEPTH = "KETTLE_LINEAGE_SEARCH_MAX_DEPTH";
+  String KETTLE_LINEAGE_SEARCH_MAX_RESULTS = "KETTLE_LINEAGE_SEARCH_MAX_RESULTS";
+  String KETTLE_LINEAGE_ARTIFACT_COMPRESSION_LEVEL = "KETTLE_LINEAGE_ARTIFACT_COMPRESSION_LEVEL";
+  String KETTLE_LINEAGE_ARTIFACT_COMPRESSION_THREADS = "KETTLE_LINEAGE_ARTIFACT_COMPRESSION_THREADS";
 
 
   void setExecutionRuntime( final String executionRuntime );
@@ -53,4 +74,32 @@ public interface IMetaverseConfig {
   void setExternalResourceCacheExpireTime( final String cacheExpire );
 
   String getExternalResourceCacheExpireTime();
+
+  /**
+   * Sets the maximum number of steps whose resources are cached, 0 or less meaning unbounded.
+   */
+  default void setExternalResourceCacheMaxSize( final String cacheMaxSize ) {
+    // the default cache size is used
+  }
+
+  /**
+   * @return the maximum number of steps whose resources are cached, or null for the default
+   */
+  default String getExternalResourceCacheMaxSize() {
+    return null;
+  }
+
+  /**
+   * Sets the maximum number of resources cached for all steps together, 0 or less meaning unbounded.
+   */
+  default void setExternalResourceCacheMaxWeight( final String cacheMaxWeight ) {
+    // the default cache weight is used
+  }
+
+  /**
+   * @return the maximum number of resources cached for all steps together, or null for the default
+   */
+  default String getExternalResourceCacheMaxWeight() {
+    return null;
+  }
 }
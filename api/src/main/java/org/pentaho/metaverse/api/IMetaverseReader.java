@@ -16,7 +16,11 @@ package org.pentaho.metaverse.api;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Graph;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The IMetaverseReader provides low-level methods for retrieving entities from the metaverse, such as nodes, links, and
@@ -86,13 +90,19 @@ public interface IMetaverseReader {
   String exportFormat( String format );
 
   /**
-   * Export the metaverse to a String.
+   * Export the metaverse to an output stream in the given format. Implementations should write the graph as they read
+   * it; by default, the result of {@link #exportFormat(String)} is written as UTF-8.
    * 
-   * @param resultTypes The export format. One of "JSON", "GRAPHML", "CSV"
+   * @param format The export format. One of "JSON", "GRAPHML", "CSV"
    * @param out The output stream to export to
    * @throws IOException If the output stream cannot be written to
-   * /
-  public void exportToStream( String format, OutputStream out ) throws IOException;
+   */
+  default void exportToStream( String format, OutputStream out ) throws IOException {
+    String export = exportFormat( format );
+    if ( export != null ) {
+      out.write( export.getBytes( StandardCharsets.UTF_8 ) );
+    }
+  }
 
   /**
    * Searches the metaverse for nodes of the specified result types, by traversing the graph model from the specified
@@ -105,6 +115,22 @@ public interface IMetaverseReader {
    */
   Graph search( List<String> resultTypes, List<String> startNodeIDs, boolean shortestOnly );
 
+  /**
+   * Searches the metaverse for nodes of the specified result types, following only links with the given labels and
+   * going no further than the given depth from the starting node(s). By default, the depth and labels are ignored.
+   *
+   * @param resultTypes the result types
+   * @param startNodeIDs the start node ids
+   * @param shortestOnly only return the shortest paths
+   * @param maxDepth the maximum number of links between a start node and a result, 0 for no limit
+   * @param linkLabels the labels of the links to follow, null for any
+   * @return the graph
+   */
+  default Graph search( List<String> resultTypes, List<String> startNodeIDs, boolean shortestOnly, int maxDepth,
+                        Set<String> linkLabels ) {
+    return search( resultTypes, startNodeIDs, shortestOnly );
+  }
+
   /**
    * Returns the graph for a given element
    * @param id The id of the root node
@@ -112,6 +138,18 @@ public interface IMetaverseReader {
    */
   Graph getGraph( String id );
 
+  /**
+   * Returns the graph for a given element, following only links with the given labels and going no further than the
+   * given depth from the element. By default, the depth and labels are ignored.
+   * @param id The id of the root node
+   * @param maxDepth The maximum number of links between the root node and any other node, 0 for no limit
+   * @param linkLabels The labels of the links to follow, null for any
+   * @return A graph of the upstream and downstream nodes that are connected, null if there is no such node
+   */
+  default Graph getGraph( String id, int maxDepth, Set<String> linkLabels ) {
+    return getGraph( id );
+  }
+
   /**
    * Returns a list of nodes that match a given property value
    * @param property The name of the property
@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Support for the "fingerprint" logical id mode, in which logical ids are fixed-size 128-bit hashes of their readable
+ * (JSON) form rather than the readable form itself.
+ * <p>
+ * Readable logical ids embed the logical id of their namespace, so they grow with the nesting depth of the document,
+ * step and field they identify. Fingerprints keep vertex ids, edge ids and {@code logicalId} properties at 32
+ * characters regardless of nesting. A bounded side dictionary maps fingerprints back to their readable form; it is what
+ * allows a {@link Namespace} built from a fingerprint to find its parent and siblings.
+ * <p>
+ * Nodes keep the readable form of their own fingerprinted logical id next to it (see
+ * {@link org.pentaho.dictionary.MetaverseTransientNode#getReadableLogicalId()}), so namespaces built on a node never
+ * depend on the dictionary; only navigating further up the namespace chain does. Fingerprints are only generated while
+ * the dictionary is enabled: with a dictionary size of 0, logical ids stay readable whatever the mode.
+ */
+public final class LogicalIdFingerprints {
+
+  public static final String MODE_JSON = "json";
+
+  public static final String MODE_FINGERPRINT = "fingerprint";
+
+  public static final long DEFAULT_DICTIONARY_SIZE = 100000L;
+
+  private static final Pattern FINGERPRINT_PATTERN = Pattern.compile( "[0-9a-f]{32}" );
+
+  private static final Logger log = LoggerFactory.getLogger( LogicalIdFingerprints.class );
+
+  private static volatile boolean fingerprintMode;
+
+  private static volatile boolean dictionaryEnabled = true;
+
+  private static volatile Cache<String, String> dictionary = newDictionary( DEFAULT_DICTIONARY_SIZE );
+
+  private LogicalIdFingerprints() {
+  }
+
+  /**
+   * @return true if logical ids are generated as fingerprints: the fingerprint mode is selected and the dictionary is
+   * enabled
+   */
+  public static boolean isEnabled() {
+    return fingerprintMode && dictionaryEnabled;
+  }
+
+  /**
+   * Selects the logical id mode, one of {@link #MODE_JSON} (the default) or {@link #MODE_FINGERPRINT}.
+   */
+  public static void setMode( final String mode ) {
+    fingerprintMode = MODE_FINGERPRINT.equalsIgnoreCase( mode == null ? null : mode.trim() );
+    warnIfDisabled();
+  }
+
+  /**
+   * Sets the maximum number of readable ids remembered by the side dictionary; 0 disables the dictionary, and with it
+   * the generation of fingerprints. Any entries already registered are discarded.
+   */
+  public static void setDictionarySize( final long size ) {
+    dictionary = newDictionary( size );
+    dictionaryEnabled = size > 0;
+    warnIfDisabled();
+  }
+
+  /**
+   * @return the 128-bit fingerprint of the given readable id, as 32 lower-case hex characters
+   */
+  public static String fingerprint( final String readable ) {
+    if ( readable == null ) {
+      return null;
+    }
+    return Hashing.murmur3_128().hashString( readable, StandardCharsets.UTF_8 ).toString();
+  }
+
+  /**
+   * Fingerprints the given readable id and remembers it in the side dictionary.
+   *
+   * @return the fingerprint
+   */
+  public static String register( final String readable ) {
+    final String fingerprint = fingerprint( readable );
+    if ( fingerprint != null ) {
+      dictionary.put( fingerprint, readable );
+    }
+    return fingerprint;
+  }
+
+  /**
+   * @return true if the given id has the shape of a fingerprint
+   */
+  public static boolean isFingerprint( final String id ) {
+    return id != null && FINGERPRINT_PATTERN.matcher( id ).matches();
+  }
+
+  /**
+   * Returns the readable form of the given id: the dictionary entry if the id is a known fingerprint, or the id itself
+   * otherwise. Nested namespaces within the readable form are left as fingerprints. A fingerprint missing from the
+   * dictionary, because it was evicted or registered before the dictionary was reset, is logged as a warning.
+   */
+  public static String resolve( final String id ) {
+    if ( isFingerprint( id ) ) {
+      final String readable = dictionary.getIfPresent( id );
+      if ( readable != null ) {
+        return readable;
+      }
+      if ( fingerprintMode ) {
+        log.warn( "Logical id {} is not in the fingerprint dictionary; its namespace cannot be navigated. Consider "
+          + "increasing the dictionary size", id );
+      }
+    }
+    return id;
+  }
+
+  private static void warnIfDisabled() {
+    if ( fingerprintMode && !dictionaryEnabled ) {
+      log.warn( "The logical id fingerprint dictionary is disabled, logical ids are generated in readable form" );
+    }
+  }
+
+  private static Cache<String, String> newDictionary( final long size ) {
+    return CacheBuilder.newBuilder().maximumSize( Math.max( 0L, size ) ).build();
+  }
+}
@@ -0,0 +1,164 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import org.pentaho.metaverse.api.model.BaseMetaverseBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers the nodes and links produced while analyzing a document or a step, and adds them to an
+ * {@link IMetaverseBuilder} in one go when {@link #commit()} is called.
+ * <p>
+ * Committing to a {@link BaseMetaverseBuilder} adds the nodes first and the links second, through
+ * {@link IMetaverseBuilder#addAll}, which resolves every distinct node once and applies the batch under a single
+ * graph lock; so does a {@link RecordingMetaverseBuilder} recording for one. Any other builder receives the buffered calls one at a time, in the order they were made.
+ * <p>
+ * A batch is meant to be used by a single thread and can be reused once committed.
+ */
+public class MetaverseBatch {
+
+  private final IMetaverseBuilder builder;
+
+  /**
+   * Buffered operations in call order: nodes and {@link PendingLink}s.
+   */
+  private final List<Object> operations = new ArrayList<>();
+
+  public MetaverseBatch( IMetaverseBuilder builder ) {
+    this.builder = builder;
+  }
+
+  /**
+   * @return the builder this batch is committed to
+   */
+  public IMetaverseBuilder getBuilder() {
+    return builder;
+  }
+
+  public MetaverseBatch addNode( IMetaverseNode node ) {
+    if ( node != null ) {
+      operations.add( node );
+    }
+    return this;
+  }
+
+  public MetaverseBatch addLink( IMetaverseLink link ) {
+    if ( link != null ) {
+      operations.add( new PendingLink( link, null, null, null ) );
+    }
+    return this;
+  }
+
+  public MetaverseBatch addLink( IMetaverseNode fromNode, String label, IMetaverseNode toNode ) {
+    operations.add( new PendingLink( null, fromNode, label, toNode ) );
+    return this;
+  }
+
+  /**
+   * @return the number of buffered nodes and links
+   */
+  public int size() {
+    return operations.size();
+  }
+
+  public boolean isEmpty() {
+    return operations.isEmpty();
+  }
+
+  /**
+   * Adds all buffered nodes and links to the builder and clears the batch.
+   */
+  public void commit() {
+    if ( operations.isEmpty() ) {
+      return;
+    }
+    try {
+      if ( appliesBatches( builder ) ) {
+        final List<IMetaverseNode> nodes = new ArrayList<>();
+        final List<IMetaverseLink> links = new ArrayList<>();
+        for ( final Object operation : operations ) {
+          if ( operation instanceof PendingLink ) {
+            links.add( ( (PendingLink) operation ).toLink( builder ) );
+          } else {
+            nodes.add( (IMetaverseNode) operation );
+          }
+        }
+        builder.addAll( nodes, links );
+      } else {
+        for ( final Object operation : operations ) {
+          if ( operation instanceof PendingLink ) {
+            ( (PendingLink) operation ).replay( builder );
+          } else {
+            builder.addNode( (IMetaverseNode) operation );
+          }
+        }
+      }
+    } finally {
+      operations.clear();
+    }
+  }
+
+  /**
+   * @return true if the builder adds batches through {@link IMetaverseBuilder#addAll}, either directly or by recording
+   * them for a builder that does
+   */
+  private static boolean appliesBatches( final IMetaverseBuilder builder ) {
+    if ( builder instanceof RecordingMetaverseBuilder ) {
+      return appliesBatches( ( (RecordingMetaverseBuilder) builder ).getTarget() );
+    }
+    return builder instanceof BaseMetaverseBuilder;
+  }
+
+  /**
+   * A buffered link, either a link object or the from node / label / to node triple it was given as.
+   */
+  private static final class PendingLink {
+
+    private final IMetaverseLink link;
+
+    private final IMetaverseNode fromNode;
+
+    private final String label;
+
+    private final IMetaverseNode toNode;
+
+    PendingLink( IMetaverseLink link, IMetaverseNode fromNode, String label, IMetaverseNode toNode ) {
+      this.link = link;
+      this.fromNode = fromNode;
+      this.label = label;
+      this.toNode = toNode;
+    }
+
+    IMetaverseLink toLink( final IMetaverseBuilder builder ) {
+      if ( link != null ) {
+        return link;
+      }
+      final IMetaverseLink newLink = builder.getMetaverseObjectFactory().createLinkObject();
+      newLink.setFromNode( fromNode );
+      newLink.setLabel( label );
+      newLink.setToNode( toNode );
+      return newLink;
+    }
+
+    void replay( final IMetaverseBuilder builder ) {
+      if ( link != null ) {
+        builder.addLink( link );
+      } else {
+        builder.addLink( fromNode, label, toNode );
+      }
+    }
+  }
+}
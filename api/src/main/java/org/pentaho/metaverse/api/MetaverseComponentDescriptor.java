@@ -47,7 +47,7 @@ public class MetaverseComponentDescriptor implements IComponentDescriptor {
     this.name = name;
     this.type = type;
     if ( parentNode != null ) {
-      namespace = new Namespace( parentNode.getLogicalId() );
+      namespace = StructuredNamespace.ofNode( parentNode );
     }
     this.context = context;
   }
@@ -15,6 +15,7 @@ package org.pentaho.metaverse.api;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.dictionary.MetaverseTransientNode;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -110,6 +111,15 @@ public class MetaverseLogicalIdGenerator implements ILogicalIdGenerator {
         sb.append( RIGHT_BRACE );
       }
       logicalId = sb.toString();
+      if ( LogicalIdFingerprints.isEnabled() ) {
+        // the namespace is itself a fingerprint, so the readable form only ever holds one level of nesting
+        final String readable = logicalId;
+        logicalId = LogicalIdFingerprints.register( readable );
+        if ( propertiesNode instanceof MetaverseTransientNode ) {
+          // namespaces built on the node then resolve its id without the dictionary, which may evict it
+          ( (MetaverseTransientNode) propertiesNode ).setReadableLogicalId( readable );
+        }
+      }
       propertiesNode.setProperty( DictionaryConst.PROPERTY_LOGICAL_ID, logicalId );
     }
     return logicalId;
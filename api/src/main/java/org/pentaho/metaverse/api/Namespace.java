@@ -29,8 +29,23 @@ public class Namespace implements INamespace {
 
   private String namespace;
 
+  /**
+   * The readable form of a fingerprinted namespace id, when it is known without the fingerprint dictionary
+   */
+  private String readableNamespace;
+
   public Namespace( String namespace ) {
+    this( namespace, null );
+  }
+
+  /**
+   * @param namespace         the namespace id
+   * @param readableNamespace the readable form of the namespace id if it is a fingerprint, or null to look it up in the
+   *                          fingerprint dictionary
+   */
+  public Namespace( String namespace, String readableNamespace ) {
     this.namespace = namespace;
+    this.readableNamespace = readableNamespace;
   }
 
   @Override
@@ -42,7 +57,7 @@ public class Namespace implements INamespace {
   public INamespace getParentNamespace() {
     if ( namespace != null ) {
       try {
-        JsonNode jsonObject = objectMapper.readTree( namespace );
+        JsonNode jsonObject = objectMapper.readTree( getReadableNamespace() );
         JsonNode namespaceNode = jsonObject.get( DictionaryConst.PROPERTY_NAMESPACE );
         if ( namespaceNode == null ) {
           return null;
@@ -67,7 +82,7 @@ public class Namespace implements INamespace {
   public INamespace getSiblingNamespace( String name, String type ) {
     if ( namespace != null ) {
       try {
-        JsonNode jsonObject = objectMapper.readTree( namespace );
+        JsonNode jsonObject = objectMapper.readTree( getReadableNamespace() );
 
         if ( jsonObject.isObject() ) {
           ObjectNode object = (ObjectNode) jsonObject;
@@ -75,11 +90,19 @@ public class Namespace implements INamespace {
           object.put( DictionaryConst.PROPERTY_TYPE, type );
         }
 
-        return new Namespace( objectMapper.writeValueAsString( jsonObject ) );
+        String sibling = objectMapper.writeValueAsString( jsonObject );
+        if ( LogicalIdFingerprints.isFingerprint( namespace ) ) {
+          return new Namespace( LogicalIdFingerprints.register( sibling ), sibling );
+        }
+        return new Namespace( sibling );
       } catch ( Exception e ) {
         return null;
       }
     }
     return null;
   }
+
+  private String getReadableNamespace() {
+    return readableNamespace != null ? readableNamespace : LogicalIdFingerprints.resolve( namespace );
+  }
 }
@@ -0,0 +1,309 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.pentaho.dictionary.MetaverseLink;
+import org.pentaho.dictionary.MetaverseTransientNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An {@link IMetaverseBuilder} that records the changes made through it instead of applying them, so that they can be
+ * applied to another builder later, in the order they were made, with {@link #replay()}.
+ * <p>
+ * Reads ({@link #getGraph()}, {@link #getMetaverseObjectFactory()}) go to the target builder, and therefore do not see
+ * the recorded changes. This lets the steps of a transformation be analyzed concurrently while the graph is still
+ * built one step at a time. Setting the graph or the object factory on a recording builder only changes what it
+ * returns for these reads, never the target builder.
+ * <p>
+ * Nodes and links are recorded as snapshots of their properties and logical ids at the time of the call, so changes
+ * made to them afterwards are not replayed, as they would not have been applied had the call gone to the target.
+ * <p>
+ * A recording builder is meant to be used by a single thread.
+ */
+public class RecordingMetaverseBuilder implements IMetaverseBuilder {
+
+  private final IMetaverseBuilder target;
+
+  private final List<Consumer<IMetaverseBuilder>> operations = new ArrayList<>();
+
+  private boolean graphIndependent = true;
+
+  private IMetaverseObjectFactory metaverseObjectFactory;
+
+  private Graph graph;
+
+  public RecordingMetaverseBuilder( final IMetaverseBuilder target ) {
+    this.target = target;
+  }
+
+  /**
+   * @return the builder the recorded changes are replayed on
+   */
+  public IMetaverseBuilder getTarget() {
+    return target;
+  }
+
+  /**
+   * @return the number of recorded changes
+   */
+  public int size() {
+    return operations.size();
+  }
+
+  /**
+   * Applies the recorded changes to the target builder, in the order they were made, and clears them.
+   */
+  public void replay() {
+    try {
+      for ( final Consumer<IMetaverseBuilder> operation : operations ) {
+        operation.accept( target );
+      }
+    } finally {
+      operations.clear();
+    }
+  }
+
+  /**
+   * Applies the recorded changes to the given builder, in the order they were made, and keeps them.
+   *
+   * @see #isGraphIndependent()
+   */
+  public void replay( final IMetaverseBuilder builder ) {
+    for ( final Consumer<IMetaverseBuilder> operation : operations ) {
+      operation.accept( builder );
+    }
+  }
+
+  /**
+   * @return a copy of the recorded changes that does not reference the target builder (or its graph), to be replayed
+   * with {@link #replay(IMetaverseBuilder)}
+   */
+  public RecordingMetaverseBuilder detach() {
+    final RecordingMetaverseBuilder copy = new RecordingMetaverseBuilder( null );
+    copy.operations.addAll( operations );
+    copy.graphIndependent = graphIndependent;
+    copy.metaverseObjectFactory = getMetaverseObjectFactory();
+    copy.graph = graph;
+    return copy;
+  }
+
+  /**
+   * @return false if a recorded change refers to vertices of the target's graph, in which case the changes can only
+   * be replayed on the target builder
+   */
+  public boolean isGraphIndependent() {
+    return graphIndependent;
+  }
+
+  @Override
+  public IMetaverseBuilder addNode( final IMetaverseNode node ) {
+    final IMetaverseNode snapshot = snapshot( node );
+    operations.add( builder -> builder.addNode( snapshot ) );
+    return this;
+  }
+
+  @Override
+  public IMetaverseBuilder addLink( final IMetaverseLink link ) {
+    final IMetaverseLink snapshot = snapshot( link );
+    operations.add( builder -> builder.addLink( snapshot ) );
+    return this;
+  }
+
+  @Override
+  public IMetaverseBuilder addLink( final IMetaverseNode fromNode, final String label, final IMetaverseNode toNode ) {
+    final IMetaverseNode fromSnapshot = snapshot( fromNode );
+    final IMetaverseNode toSnapshot = snapshot( toNode );
+    operations.add( builder -> builder.addLink( fromSnapshot, label, toSnapshot ) );
+    return this;
+  }
+
+  @Override
+  public void addLink( final Vertex fromVertex, final String label, final Vertex toVertex ) {
+    graphIndependent = false;
+    operations.add( builder -> builder.addLink( fromVertex, label, toVertex ) );
+  }
+
+  /**
+   * Records the nodes and links as one change, so that the target builder receives them as one batch.
+   */
+  @Override
+  public IMetaverseBuilder addAll( final Collection<IMetaverseNode> nodes, final Collection<IMetaverseLink> links ) {
+    List<IMetaverseNode> nodesCopy = null;
+    if ( nodes != null ) {
+      nodesCopy = new ArrayList<>( nodes.size() );
+      for ( final IMetaverseNode node : nodes ) {
+        nodesCopy.add( snapshot( node ) );
+      }
+    }
+    List<IMetaverseLink> linksCopy = null;
+    if ( links != null ) {
+      linksCopy = new ArrayList<>( links.size() );
+      for ( final IMetaverseLink link : links ) {
+        linksCopy.add( snapshot( link ) );
+      }
+    }
+    final List<IMetaverseNode> recordedNodes = nodesCopy;
+    final List<IMetaverseLink> recordedLinks = linksCopy;
+    operations.add( builder -> builder.addAll( recordedNodes, recordedLinks ) );
+    return this;
+  }
+
+  @Override
+  public IMetaverseBuilder deleteNode( final IMetaverseNode node ) {
+    final IMetaverseNode snapshot = snapshot( node );
+    operations.add( builder -> builder.deleteNode( snapshot ) );
+    return this;
+  }
+
+  @Override
+  public IMetaverseBuilder deleteLink( final IMetaverseLink link ) {
+    final IMetaverseLink snapshot = snapshot( link );
+    operations.add( builder -> builder.deleteLink( snapshot ) );
+    return this;
+  }
+
+  @Override
+  public IMetaverseBuilder updateNode( final IMetaverseNode updatedNode ) {
+    final IMetaverseNode snapshot = snapshot( updatedNode );
+    operations.add( builder -> builder.updateNode( snapshot ) );
+    return this;
+  }
+
+  @Override
+  public IMetaverseBuilder updateLinkLabel( final IMetaverseLink link, final String newLabel ) {
+    final IMetaverseLink snapshot = snapshot( link );
+    operations.add( builder -> builder.updateLinkLabel( snapshot, newLabel ) );
+    return this;
+  }
+
+  @Override
+  public IMetaverseObjectFactory getMetaverseObjectFactory() {
+    if ( metaverseObjectFactory != null || target == null ) {
+      return metaverseObjectFactory;
+    }
+    return target.getMetaverseObjectFactory();
+  }
+
+  /**
+   * Sets the object factory returned by this builder; the target builder keeps its own.
+   */
+  @Override
+  public void setMetaverseObjectFactory( final IMetaverseObjectFactory metaverseObjectFactory ) {
+    this.metaverseObjectFactory = metaverseObjectFactory;
+  }
+
+  @Override
+  public Graph getGraph() {
+    if ( graph != null || target == null ) {
+      return graph;
+    }
+    return target.getGraph();
+  }
+
+  /**
+   * Sets the graph returned by this builder; the target builder keeps its own, and the recorded changes are still
+   * replayed on the target.
+   */
+  @Override
+  public void setGraph( final Graph graph ) {
+    this.graph = graph;
+  }
+
+  /**
+   * @return a copy of the node's logical id, ids, name, type and properties at the time of the call
+   */
+  public static IMetaverseNode snapshot( final IMetaverseNode node ) {
+    return node == null || node instanceof NodeSnapshot ? node : new NodeSnapshot( node );
+  }
+
+  private static IMetaverseLink snapshot( final IMetaverseLink link ) {
+    if ( link == null ) {
+      return null;
+    }
+    final MetaverseLink snapshot = new MetaverseLink();
+    copyProperties( link, snapshot );
+    snapshot.setFromNode( snapshot( link.getFromNode() ) );
+    snapshot.setToNode( snapshot( link.getToNode() ) );
+    snapshot.setLabel( link.getLabel() );
+    return snapshot;
+  }
+
+  private static void copyProperties( final IHasProperties from, final IHasProperties to ) {
+    final Map<String, Object> properties = from.getProperties();
+    if ( properties != null ) {
+      to.setProperties( new HashMap<>( properties ) );
+    }
+  }
+
+  /**
+   * A copy of a node's properties and logical id at the time it was recorded.
+   */
+  private static final class NodeSnapshot extends MetaverseTransientNode {
+
+    private final String stringId;
+
+    private final String name;
+
+    private final String type;
+
+    private final String logicalId;
+
+    private final String readableLogicalId;
+
+    NodeSnapshot( final IMetaverseNode node ) {
+      // the logical id is generated first, as generating it sets the logical id property
+      logicalId = node.getLogicalId();
+      readableLogicalId =
+        node instanceof MetaverseTransientNode ? ( (MetaverseTransientNode) node ).getReadableLogicalId() : logicalId;
+      stringId = node.getStringID();
+      name = node.getName();
+      type = node.getType();
+      copyProperties( node, this );
+      setDirty( node.isDirty() );
+    }
+
+    @Override
+    public String getStringID() {
+      return stringId;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public String getLogicalId() {
+      return logicalId == null ? getStringID() : logicalId;
+    }
+
+    @Override
+    public String getReadableLogicalId() {
+      return readableLogicalId == null ? getLogicalId() : readableLogicalId;
+    }
+  }
+}
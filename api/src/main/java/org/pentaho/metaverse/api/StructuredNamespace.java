@@ -0,0 +1,264 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.dictionary.MetaverseTransientNode;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable {@link INamespace} that keeps its parent chain and its properties (name, type, ...) in parsed form.
+ * <p>
+ * {@link Namespace} parses the namespace JSON on every call to {@link #getParentNamespace()} and
+ * {@link #getSiblingNamespace(String, String)}, and re-serializes it for siblings. A structured namespace parses its
+ * id at most once, the first time it is navigated, and shares the parsed parent with all of its siblings. The JSON
+ * form of a derived namespace is only built when {@link #getNamespaceId()} is called. Parent and sibling ids are
+ * identical to the ones {@link Namespace} produces.
+ * <p>
+ * Use {@link #of(String)} or {@link #ofNode(IMetaverseNode)} to obtain instances; namespaces created from the same
+ * id are shared. A namespace built on a node keeps the readable form of a fingerprinted id next to it, and never
+ * needs the fingerprint dictionary to find its parent and siblings.
+ */
+public final class StructuredNamespace implements INamespace {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private static final int MAX_SHARED_NAMESPACES = 1000;
+
+  private static final Cache<String, StructuredNamespace> sharedNamespaces =
+    CacheBuilder.newBuilder().maximumSize( MAX_SHARED_NAMESPACES ).build();
+
+  /**
+   * Structure of a namespace id that is not a JSON object: no parent, no siblings.
+   */
+  private static final Structure OPAQUE = new Structure( null, false, null, false );
+
+  private volatile String namespaceId;
+
+  /**
+   * The readable form of a fingerprinted namespace id, when it is known without the fingerprint dictionary.
+   */
+  private volatile String readableId;
+
+  private volatile Structure structure;
+
+  private StructuredNamespace( final String namespaceId, final Structure structure ) {
+    this.namespaceId = namespaceId;
+    this.structure = structure;
+  }
+
+  /**
+   * Returns the namespace with the given id. The id is not parsed until the namespace is navigated.
+   *
+   * @param namespaceId the namespace id, typically the logical id of the containing node
+   * @return the namespace
+   */
+  public static StructuredNamespace of( final String namespaceId ) {
+    if ( namespaceId == null ) {
+      return new StructuredNamespace( null, OPAQUE );
+    }
+    StructuredNamespace namespace = sharedNamespaces.getIfPresent( namespaceId );
+    if ( namespace == null ) {
+      namespace = new StructuredNamespace( namespaceId, null );
+      sharedNamespaces.put( namespaceId, namespace );
+    }
+    return namespace;
+  }
+
+  /**
+   * Returns the namespace whose id is the logical id of the given node, keeping the readable form of the id if the
+   * node has one.
+   *
+   * @param node the containing node
+   * @return the namespace
+   */
+  public static StructuredNamespace ofNode( final IMetaverseNode node ) {
+    if ( node == null ) {
+      return of( (String) null );
+    }
+    final String namespaceId = node.getLogicalId();
+    final StructuredNamespace namespace = of( namespaceId );
+    if ( node instanceof MetaverseTransientNode && namespace.readableId == null ) {
+      final String readable = ( (MetaverseTransientNode) node ).getReadableLogicalId();
+      if ( readable != null && !readable.equals( namespaceId ) ) {
+        namespace.readableId = readable;
+      }
+    }
+    return namespace;
+  }
+
+  @Override
+  public String getNamespaceId() {
+    String id = namespaceId;
+    if ( id == null && structure != OPAQUE ) {
+      final Structure s = structure;
+      id = s.fingerprinted ? LogicalIdFingerprints.register( s.toJson() ) : s.toJson();
+      namespaceId = id;
+    }
+    return id;
+  }
+
+  @Override
+  public INamespace getParentNamespace() {
+    return getStructure().parent;
+  }
+
+  @Override
+  public INamespace getSiblingNamespace( final String name, final String type ) {
+    final Structure s = getStructure();
+    if ( s == OPAQUE ) {
+      return null;
+    }
+    final Map<String, Object> values = new LinkedHashMap<>( s.values );
+    values.put( DictionaryConst.PROPERTY_NAME, name );
+    values.put( DictionaryConst.PROPERTY_TYPE, type );
+    return new StructuredNamespace( null, new Structure( s.parent, s.parentIsText, values, s.fingerprinted ) );
+  }
+
+  @Override
+  public String toString() {
+    return getNamespaceId();
+  }
+
+  private Structure getStructure() {
+    Structure s = structure;
+    if ( s == null ) {
+      s = parse( namespaceId, readableId );
+      // a fingerprint missing from the dictionary may be registered later, so it is parsed again on the next call
+      if ( s != OPAQUE || readableId != null || !LogicalIdFingerprints.isFingerprint( namespaceId ) ) {
+        structure = s;
+      }
+    }
+    return s;
+  }
+
+  private static Structure parse( final String namespaceId, final String readableId ) {
+    final String json = readableId != null ? readableId : LogicalIdFingerprints.resolve( namespaceId );
+    if ( json == null || !json.startsWith( "{" ) ) {
+      return OPAQUE;
+    }
+    try {
+      final JsonNode node = objectMapper.readTree( json );
+      return node != null && node.isObject()
+        ? toStructure( node, LogicalIdFingerprints.isFingerprint( namespaceId ) )
+        : OPAQUE;
+    } catch ( Exception e ) {
+      return OPAQUE;
+    }
+  }
+
+  private static Structure toStructure( final JsonNode object, final boolean fingerprinted ) {
+    StructuredNamespace parent = null;
+    boolean parentIsText = false;
+    final Map<String, Object> values = new LinkedHashMap<>();
+    final Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+    while ( fields.hasNext() ) {
+      final Map.Entry<String, JsonNode> field = fields.next();
+      final JsonNode value = field.getValue();
+      if ( DictionaryConst.PROPERTY_NAMESPACE.equals( field.getKey() ) ) {
+        if ( value.isTextual() ) {
+          parent = of( value.asText() );
+          parentIsText = true;
+        } else if ( value.isObject() ) {
+          parent = new StructuredNamespace( null, toStructure( value, false ) );
+        } else {
+          parent = of( value.toString() );
+        }
+        values.put( field.getKey(), parent );
+      } else {
+        values.put( field.getKey(), value.isTextual() ? value.asText() : new RawJson( value.toString() ) );
+      }
+    }
+    return new Structure( parent, parentIsText, values, fingerprinted );
+  }
+
+  /**
+   * The parsed form of a namespace id: its parent and its properties, in their original order.
+   */
+  private static final class Structure {
+
+    private final StructuredNamespace parent;
+
+    private final boolean parentIsText;
+
+    /**
+     * Property values: plain strings, {@link RawJson} values, or the parent namespace for the namespace property.
+     */
+    private final Map<String, Object> values;
+
+    private final boolean fingerprinted;
+
+    Structure( final StructuredNamespace parent, final boolean parentIsText, final Map<String, Object> values,
+               final boolean fingerprinted ) {
+      this.parent = parent;
+      this.parentIsText = parentIsText;
+      this.values = values == null ? Collections.emptyMap() : Collections.unmodifiableMap( values );
+      this.fingerprinted = fingerprinted;
+    }
+
+    /**
+     * Serializes the namespace the way Jackson serializes the equivalent JSON object.
+     */
+    String toJson() {
+      final StringBuilder sb = new StringBuilder( "{" );
+      for ( final Map.Entry<String, Object> entry : values.entrySet() ) {
+        if ( sb.length() > 1 ) {
+          sb.append( ',' );
+        }
+        appendQuoted( sb, entry.getKey() ).append( ':' );
+        final Object value = entry.getValue();
+        if ( value instanceof StructuredNamespace ) {
+          final String parentId = ( (StructuredNamespace) value ).getNamespaceId();
+          if ( parentIsText ) {
+            appendQuoted( sb, parentId );
+          } else {
+            sb.append( parentId );
+          }
+        } else if ( value instanceof RawJson ) {
+          sb.append( ( (RawJson) value ).json );
+        } else if ( value == null ) {
+          sb.append( "null" );
+        } else {
+          appendQuoted( sb, value.toString() );
+        }
+      }
+      return sb.append( '}' ).toString();
+    }
+
+    private static StringBuilder appendQuoted( final StringBuilder sb, final String value ) {
+      return sb.append( '"' ).append( JsonStringEncoder.getInstance().quoteAsString( value ) ).append( '"' );
+    }
+  }
+
+  /**
+   * A non-string property value, kept in its serialized form.
+   */
+  private static final class RawJson {
+
+    private final String json;
+
+    RawJson( final String json ) {
+      this.json = json;
+    }
+  }
+}
@@ -14,11 +14,11 @@
 package org.pentaho.metaverse.api.analyzer.kettle;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import flexjson.JSONSerializer;
 import org.pentaho.metaverse.api.ChangeType;
 import org.pentaho.metaverse.api.StepField;
 import org.pentaho.metaverse.api.model.IInfo;
 import org.pentaho.metaverse.api.model.IOperation;
+import org.pentaho.metaverse.api.model.ImmutableOperations;
 import org.pentaho.metaverse.api.model.Operation;
 import org.pentaho.metaverse.api.model.Operations;
 
@@ -212,6 +212,6 @@ public class ComponentDerivationRecord {
 
   @Override
   public String toString() {
-    return new JSONSerializer().include( "*" ).serialize( operations );
+    return operations == null ? "null" : ImmutableOperations.of( operations ).toJson();
   }
 }
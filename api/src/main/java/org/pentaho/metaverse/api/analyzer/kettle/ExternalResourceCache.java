@@ -15,6 +15,7 @@ package org.pentaho.metaverse.api.analyzer.kettle;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import org.pentaho.di.core.bowl.Bowl;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
@@ -25,16 +26,25 @@ import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A cache of resources encountered when a transformation is run that can be used to access these run-time resources at
  * a later time, when data lineage analysis occurs.
+ * <p>
+ * The cache is safe for concurrent use without further locking. It is bounded both by the number of steps and by the
+ * number of resources they encountered, and the least recently used steps are evicted once either maximum is reached.
+ * Both bounds are enforced through the weight of each step: one plus the number of its resources, but never less than
+ * the maximum weight divided by the maximum size.
  */
 public class ExternalResourceCache {
 
@@ -42,9 +52,19 @@ public class ExternalResourceCache {
 
   protected static final long DEFAULT_TIMEOUT_SECONDS = 6L * 60 * 60; // 6 hours
 
+  protected static final long DEFAULT_MAX_SIZE = 10000L;
+
+  protected static final long DEFAULT_MAX_WEIGHT = 100000L;
+
   protected Cache<String, ExternalResourceValues> resourceCache;
 
-  private static ExternalResourceCache INSTANCE;
+  /**
+   * The unique id of each step, by identity, with the values it was computed from: normalizing the transformation path
+   * is costly, and the id is needed for every row a data-driven step reads.
+   */
+  private final Cache<StepMeta, UniqueId> uniqueIds = CacheBuilder.newBuilder().weakKeys().build();
+
+  private static volatile ExternalResourceCache INSTANCE;
 
   public static ExternalResourceCache getInstance() {
     if ( INSTANCE == null ) {
@@ -63,7 +83,7 @@ public class ExternalResourceCache {
 
   protected ExternalResourceCache( IMetaverseConfig config ) {
     long cacheExpireTime = getCacheExpireTime( config );
-    initCache( cacheExpireTime, TimeUnit.SECONDS );
+    initCache( cacheExpireTime, TimeUnit.SECONDS, getCacheMaxSize( config ), getCacheMaxWeight( config ) );
   }
 
   protected long getCacheExpireTime( IMetaverseConfig config ) {
@@ -71,9 +91,52 @@ public class ExternalResourceCache {
     return ( expireTime != null ) ? Long.parseLong( expireTime ) : DEFAULT_TIMEOUT_SECONDS;
   }
 
+  /**
+   * @return the configured maximum number of cached steps, 0 or less meaning unbounded
+   */
+  protected long getCacheMaxSize( IMetaverseConfig config ) {
+    String maxSize = ( config != null ) ? config.getExternalResourceCacheMaxSize() : null;
+    try {
+      return ( maxSize != null ) ? Long.parseLong( maxSize.trim() ) : DEFAULT_MAX_SIZE;
+    } catch ( NumberFormatException e ) {
+      return DEFAULT_MAX_SIZE;
+    }
+  }
+
+  /**
+   * @return the configured maximum number of resources cached for all steps together, 0 or less meaning unbounded
+   */
+  protected long getCacheMaxWeight( IMetaverseConfig config ) {
+    String maxWeight = ( config != null ) ? config.getExternalResourceCacheMaxWeight() : null;
+    try {
+      return ( maxWeight != null ) ? Long.parseLong( maxWeight.trim() ) : DEFAULT_MAX_WEIGHT;
+    } catch ( NumberFormatException e ) {
+      return DEFAULT_MAX_WEIGHT;
+    }
+  }
+
   void initCache( long time, TimeUnit timeUnit ) {
-    resourceCache = CacheBuilder.newBuilder().expireAfterAccess( time, timeUnit ).build();
-    log.debug( "{} cache expire time set to {} {}", this.getClass().getSimpleName(), time, timeUnit );
+    initCache( time, timeUnit, DEFAULT_MAX_SIZE );
+  }
+
+  void initCache( long time, TimeUnit timeUnit, long maxSize ) {
+    initCache( time, timeUnit, maxSize, DEFAULT_MAX_WEIGHT );
+  }
+
+  void initCache( long time, TimeUnit timeUnit, long maxSize, long maxWeight ) {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().expireAfterAccess( time, timeUnit ).recordStats();
+    if ( maxWeight > 0 ) {
+      // a step weighs at least its share of the maximum weight, so that there are never more than maxSize steps
+      final long minWeight = maxSize > 0 ? Math.max( 1L, maxWeight / maxSize ) : 1L;
+      // a single segment, or a step could not weigh more than the share of the maximum weight of its segment
+      builder.concurrencyLevel( 1 ).maximumWeight( maxWeight ).weigher(
+        ( String key, ExternalResourceValues values ) -> values.weigh( minWeight ) );
+    } else if ( maxSize > 0 ) {
+      builder.maximumSize( maxSize );
+    }
+    resourceCache = builder.build();
+    log.debug( "{} cache expire time set to {} {}, maximum size {}, maximum weight {}",
+      this.getClass().getSimpleName(), time, timeUnit, maxSize, maxWeight );
   }
 
   protected String getUniqueId( final StepMeta meta ) {
@@ -84,7 +147,15 @@ public class ExternalResourceCache {
     final TransMeta transMeta = meta.getParentTransMeta();
     if ( transMeta.getRepository() == null ) {
       String transName = transMeta.getFilename() == null ? transMeta.getName() : transMeta.getFilename();
-      return KettleAnalyzerUtil.normalizeFilePathSafely( transMeta.getBowl(), transName ) + "::" + meta.getName();
+      final Bowl bowl = transMeta.getBowl();
+      final String stepName = meta.getName();
+      final UniqueId uniqueId = uniqueIds.getIfPresent( meta );
+      if ( uniqueId != null && uniqueId.matches( bowl, transName, stepName ) ) {
+        return uniqueId.id;
+      }
+      final String id = KettleAnalyzerUtil.normalizeFilePathSafely( bowl, transName ) + "::" + stepName;
+      uniqueIds.put( meta, new UniqueId( bowl, transName, stepName, id ) );
+      return id;
     } else {
       return transMeta.getPathAndName() + "." + transMeta.getDefaultExtension()
         + "::" + meta.getName();
@@ -96,7 +167,9 @@ public class ExternalResourceCache {
     final List<StepMeta> steps = transMeta.getSteps();
     for ( final StepMeta step : steps ) {
       final String uniqueMetaId = getUniqueId( step );
-      resourceCache.invalidate( uniqueMetaId );
+      if ( uniqueMetaId != null ) {
+        resourceCache.invalidate( uniqueMetaId );
+      }
     }
   }
 
@@ -105,16 +178,60 @@ public class ExternalResourceCache {
       return null;
     }
     final String uniqueMetaId = getUniqueId( meta.getParentStepMeta() );
-    synchronized ( this ) {
-      return resourceCache.getIfPresent( uniqueMetaId );
+    return uniqueMetaId == null ? null : resourceCache.getIfPresent( uniqueMetaId );
+  }
+
+  /**
+   * Returns the resources cached for a step, caching new empty resources if there are none. Concurrent callers for the
+   * same step get the same resources.
+   *
+   * @param meta the step
+   * @return the cached resources, or new uncached resources if the step is not part of a transformation
+   */
+  public ExternalResourceValues getOrCreate( final BaseStepMeta meta ) {
+    final String uniqueMetaId = meta == null ? null : getUniqueId( meta.getParentStepMeta() );
+    if ( uniqueMetaId == null ) {
+      return newExternalResourceValues();
+    }
+    try {
+      return resourceCache.get( uniqueMetaId, () -> {
+        final ExternalResourceValues resources = newExternalResourceValues();
+        resources.cacheKey = uniqueMetaId;
+        return resources;
+      } );
+    } catch ( ExecutionException e ) {
+      // creating empty resources does not fail
+      throw new IllegalStateException( e.getCause() );
     }
   }
 
   public void cache( final BaseStepMeta meta, final ExternalResourceValues resources ) {
     final String uniqueMetaId = getUniqueId( meta.getParentStepMeta() );
-    synchronized ( this ) {
-      resourceCache.put( uniqueMetaId, resources );
-    }
+    resources.cacheKey = uniqueMetaId;
+    resourceCache.put( uniqueMetaId, resources );
+  }
+
+  /**
+   * @return the number of steps with cached resources
+   */
+  public long size() {
+    return resourceCache.size();
+  }
+
+  public long getHitCount() {
+    return resourceCache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return resourceCache.stats().missCount();
+  }
+
+  /**
+   * @return the number of steps evicted because the cache reached its maximum size or weight (expired steps are not
+   * counted)
+   */
+  public long getEvictionCount() {
+    return resourceCache.stats().evictionCount();
   }
 
   @Override
@@ -138,6 +255,36 @@ public class ExternalResourceCache {
 
   public class ExternalResourceValues extends Resources<IExternalResourceInfo> {
 
+    /**
+     * The key these resources are cached under, if they are cached
+     */
+    private volatile String cacheKey;
+
+    /**
+     * The number of resources when the cache last weighed them
+     */
+    private volatile int weighedSize;
+
+    /**
+     * Called by the cache when these resources are put in it.
+     */
+    int weigh( final long minWeight ) {
+      final int size = size();
+      weighedSize = size;
+      return (int) Math.min( Integer.MAX_VALUE, Math.max( minWeight, 1L + size ) );
+    }
+
+    @Override
+    protected void modified() {
+      super.modified();
+      final String key = cacheKey;
+      if ( key != null && size() > 2 * weighedSize ) {
+        // the cache only weighs values when they are put: put them again each time they doubled, so that their
+        // weight never falls below half their size and they are put a logarithmic number of times
+        resourceCache.asMap().replace( key, this, this );
+      }
+    }
+
     @Override
     public String toString() {
       final StringBuilder sb = new StringBuilder();
@@ -159,12 +306,22 @@ public class ExternalResourceCache {
 
     protected Set<V> internal = ConcurrentHashMap.newKeySet();
 
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot<V> snapshot;
+
     public void add( final V value ) {
-      internal.add( value );
+      if ( internal.add( value ) ) {
+        modified();
+      }
     }
 
     public boolean remove( final V value ) {
-      return internal.remove( value );
+      final boolean removed = internal.remove( value );
+      if ( removed ) {
+        modified();
+      }
+      return removed;
     }
 
     public int size() {
@@ -176,12 +333,27 @@ public class ExternalResourceCache {
     }
 
     /**
-     * Returns a copy of the original {@code internal} {@link Set}
+     * Called after a value has been added or removed.
+     */
+    protected void modified() {
+      version.incrementAndGet();
+    }
+
+    /**
+     * Returns an immutable snapshot of the original {@code internal} {@link Set}. The same snapshot is returned until
+     * values are added or removed.
      *
-     * @return a copy of the original {@code internal} {@link Set}
+     * @return an immutable snapshot of the original {@code internal} {@link Set}
      */
     public Set<V> getInternal() {
-      return new HashSet( this.internal );
+      // read the version first: a value added while copying makes the snapshot stale, never wrongly current
+      final long current = version.get();
+      Snapshot<V> values = snapshot;
+      if ( values == null || values.version != current ) {
+        values = new Snapshot<>( current, Collections.unmodifiableSet( new HashSet<>( internal ) ) );
+        snapshot = values;
+      }
+      return values.values;
     }
 
     @Override
@@ -194,4 +366,46 @@ public class ExternalResourceCache {
       return sb.toString();
     }
   }
+
+  /**
+   * The values of a {@link Resources} at a given version.
+   */
+  private static final class Snapshot<V> {
+
+    private final long version;
+
+    private final Set<V> values;
+
+    Snapshot( final long version, final Set<V> values ) {
+      this.version = version;
+      this.values = values;
+    }
+  }
+
+  /**
+   * The unique id of a step and what it was computed from. It holds no reference to the step or its transformation, so
+   * that the step can be garbage collected.
+   */
+  private static final class UniqueId {
+
+    private final Bowl bowl;
+
+    private final String transName;
+
+    private final String stepName;
+
+    private final String id;
+
+    UniqueId( final Bowl bowl, final String transName, final String stepName, final String id ) {
+      this.bowl = bowl;
+      this.transName = transName;
+      this.stepName = stepName;
+      this.id = id;
+    }
+
+    boolean matches( final Bowl bowl, final String transName, final String stepName ) {
+      return this.bowl == bowl && Objects.equals( this.transName, transName )
+        && Objects.equals( this.stepName, stepName );
+    }
+  }
 }
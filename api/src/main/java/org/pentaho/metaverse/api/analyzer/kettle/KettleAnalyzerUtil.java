@@ -29,8 +29,11 @@ import org.pentaho.di.core.util.FileUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.job.JobMeta;
+import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectoryInterface;
+import org.pentaho.di.repository.RepositoryElementMetaInterface;
+import org.pentaho.di.repository.RepositoryObjectType;
 import org.pentaho.di.trans.ISubTransAwareMeta;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
@@ -58,6 +61,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URLConnection;
 import java.util.Collection;
 import java.util.List;
@@ -207,12 +211,7 @@ public class KettleAnalyzerUtil {
     if ( meta == null ) {
       meta = (BaseFileInputMeta) step.getStepMeta().getStepMetaInterface();
     }
-    ExternalResourceCache.ExternalResourceValues resources =
-      (ExternalResourceCache.ExternalResourceValues) rowResourceCache.get( meta );
-    if ( resources == null ) {
-      resources = rowResourceCache.newExternalResourceValues();
-      rowResourceCache.cache( meta, resources );
-    }
+    ExternalResourceCache.ExternalResourceValues resources = rowResourceCache.getOrCreate( meta );
 
     try {
       String filename = meta == null ? null : step.environmentSubstitute(
@@ -250,7 +249,7 @@ public class KettleAnalyzerUtil {
       case REPOSITORY_BY_REFERENCE:
         if ( repo != null ) {
           try {
-            subTransMeta = repo.loadTransformation( meta.getTransObjectId(), null );
+            subTransMeta = loadTransformation( repo, meta.getTransObjectId() );
           } catch ( KettleException e ) {
             throw new MetaverseAnalyzerException( Messages.getString( "ERROR.SubTransNotFoundInParentTrans",
               ( meta.getTransObjectId() == null ? "N/A" : meta.getTransObjectId().toString() ), parentTransMeta
@@ -293,7 +292,7 @@ public class KettleAnalyzerUtil {
     TransMeta subTransMeta;
     try {
       RepositoryDirectoryInterface rdi = repo.findDirectory( dir );
-      subTransMeta = repo.loadTransformation( file, rdi, null, true, null );
+      subTransMeta = loadTransformation( repo, file, rdi );
     } catch ( KettleException e ) {
       throw new MetaverseAnalyzerException( Messages.getString( "ERROR.SubTransNotFoundInParentTrans",
         file, parentTransMeta.toString() ), e );
@@ -346,10 +345,92 @@ public class KettleAnalyzerUtil {
     return transPath;
   }
 
+  /**
+   * Parses the transformation at the given file path, or returns a copy of it from the {@link SubTransMetaCache}.
+   */
   public static TransMeta getSubTransMeta( final String filePath ) throws FileNotFoundException, KettleXMLException,
     KettleMissingPluginsException {
-    FileInputStream fis = new FileInputStream( filePath );
-    return new TransMeta( fis, null, true, null, null );
+    final File file = new File( filePath );
+    final String location = "file:" + file.getAbsolutePath();
+    final long lastModified = file.lastModified();
+    TransMeta subTransMeta = SubTransMetaCache.get( location, lastModified );
+    if ( subTransMeta == null ) {
+      FileInputStream fis = new FileInputStream( filePath );
+      try {
+        subTransMeta = new TransMeta( fis, null, true, null, null );
+      } finally {
+        try {
+          fis.close();
+        } catch ( IOException e ) {
+          // nothing to do
+        }
+      }
+      SubTransMetaCache.put( location, lastModified, subTransMeta );
+    }
+    return subTransMeta;
+  }
+
+  /**
+   * Loads the named transformation from the repository, or returns a copy of it from the {@link SubTransMetaCache}.
+   */
+  public static TransMeta loadTransformation( final Repository repo, final String name,
+                                              final RepositoryDirectoryInterface directory ) throws KettleException {
+    ObjectId objectId = null;
+    try {
+      objectId = repo.getTransformationID( name, directory );
+    } catch ( KettleException | RuntimeException e ) {
+      // not cached, the load below reports any problem
+    }
+    final String location = getRepositoryLocation( repo, objectId );
+    final long lastModified = getLastModified( repo, objectId );
+    TransMeta subTransMeta = SubTransMetaCache.get( location, lastModified );
+    if ( subTransMeta == null ) {
+      subTransMeta = repo.loadTransformation( name, directory, null, true, null );
+      SubTransMetaCache.put( location, lastModified, subTransMeta );
+    }
+    return subTransMeta;
+  }
+
+  /**
+   * Loads the transformation with the given id from the repository, or returns a copy of it from the
+   * {@link SubTransMetaCache}.
+   */
+  public static TransMeta loadTransformation( final Repository repo, final ObjectId objectId )
+    throws KettleException {
+    final String location = getRepositoryLocation( repo, objectId );
+    final long lastModified = getLastModified( repo, objectId );
+    TransMeta subTransMeta = SubTransMetaCache.get( location, lastModified );
+    if ( subTransMeta == null ) {
+      subTransMeta = repo.loadTransformation( objectId, null );
+      SubTransMetaCache.put( location, lastModified, subTransMeta );
+    }
+    return subTransMeta;
+  }
+
+  private static String getRepositoryLocation( final Repository repo, final ObjectId objectId ) {
+    if ( objectId == null || objectId.getId() == null ) {
+      return null;
+    }
+    return "repo:" + repo.getName() + ":" + objectId.getId();
+  }
+
+  /**
+   * @return the modification time of the transformation with the given id, or -1 if it cannot be determined
+   */
+  private static long getLastModified( final Repository repo, final ObjectId objectId ) {
+    if ( objectId == null ) {
+      return -1L;
+    }
+    try {
+      final RepositoryElementMetaInterface info =
+        repo.getObjectInformation( objectId, RepositoryObjectType.TRANSFORMATION );
+      if ( info != null && info.getModifiedDate() != null ) {
+        return info.getModifiedDate().getTime();
+      }
+    } catch ( KettleException | RuntimeException e ) {
+      // not cached
+    }
+    return -1L;
   }
 
   /**
@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.analyzer.kettle;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.pentaho.di.trans.TransMeta;
+
+import java.util.Objects;
+
+/**
+ * A bounded cache of parsed sub-transformations, so that a transformation referenced from many mapping, executor,
+ * single threader or job entry steps is read and parsed once.
+ * <p>
+ * Entries are keyed by where the transformation was loaded from (a normalized file path, or a repository object id)
+ * together with its last modification time, so a changed file or repository object is parsed again. The cached
+ * {@link TransMeta} is a template that is never handed out: every lookup returns a {@link TransMeta#clone()} of it,
+ * which callers are free to modify.
+ */
+public final class SubTransMetaCache {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 100L;
+
+  private static volatile Cache<Key, TransMeta> templates = newCache( DEFAULT_MAXIMUM_SIZE );
+
+  private SubTransMetaCache() {
+  }
+
+  /**
+   * Sets the maximum number of parsed transformations kept; 0 disables the cache. Any cached transformations and
+   * statistics are discarded.
+   */
+  public static void setMaximumSize( final long maximumSize ) {
+    templates = newCache( maximumSize );
+  }
+
+  /**
+   * Returns a copy of the cached transformation loaded from the given location, or null if there is none.
+   *
+   * @param location     where the transformation is loaded from, e.g. a normalized path or a repository object id
+   * @param lastModified the last modification time of the transformation at that location; when it is not known (0 or
+   *                     less), nothing is cached
+   */
+  public static TransMeta get( final String location, final long lastModified ) {
+    if ( location == null || lastModified <= 0 ) {
+      return null;
+    }
+    final TransMeta template = templates.getIfPresent( new Key( location, lastModified ) );
+    return template == null ? null : (TransMeta) template.clone();
+  }
+
+  /**
+   * Caches a copy of a transformation just loaded from the given location; later changes made to {@code transMeta}
+   * do not affect the cached copy.
+   *
+   * @see #get(String, long)
+   */
+  public static void put( final String location, final long lastModified, final TransMeta transMeta ) {
+    if ( location != null && lastModified > 0 && transMeta != null ) {
+      templates.put( new Key( location, lastModified ), (TransMeta) transMeta.clone() );
+    }
+  }
+
+  /**
+   * @return the hit, miss and eviction counts since the cache was last resized or cleared
+   */
+  public static CacheStats getStats() {
+    return templates.stats();
+  }
+
+  /**
+   * @return the number of cached transformations
+   */
+  public static long size() {
+    return templates.size();
+  }
+
+  public static void clear() {
+    templates.invalidateAll();
+  }
+
+  private static Cache<Key, TransMeta> newCache( final long maximumSize ) {
+    return CacheBuilder.newBuilder().maximumSize( Math.max( 0L, maximumSize ) ).recordStats().build();
+  }
+
+  private static final class Key {
+
+    private final String location;
+
+    private final long lastModified;
+
+    Key( final String location, final long lastModified ) {
+      this.location = location;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals( final Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof Key ) ) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return lastModified == key.lastModified && location.equals( key.location );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash( location, lastModified );
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.analyzer.kettle.step;
+
+import org.pentaho.di.core.ProgressNullMonitorListener;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the row metadata of the steps of one transformation while it is being analyzed, so that every step
+ * analyzer reads its input and output fields from here instead of asking the {@link TransMeta} again, which walks all
+ * upstream steps on each call.
+ * <p>
+ * Entries are keyed by {@link StepMeta}, which Kettle compares by step name, so a copy of the transformation made with
+ * {@link TransMeta#clone()} and registered with {@link #addCopy(TransMeta)} shares the same entries. Missing entries
+ * are computed on the transformation (or copy) passed in by the caller, so the cache can be read from several threads
+ * as long as each works on its own copy. The cached rows are shared and must not be modified.
+ */
+public class RowMetaCache {
+
+  private final TransMeta transMeta;
+
+  private final Set<TransMeta> copies = Collections.synchronizedSet(
+    Collections.newSetFromMap( new IdentityHashMap<>() ) );
+
+  private final Map<StepMeta, RowMetaInterface> stepFields = new ConcurrentHashMap<>();
+
+  private final Map<StepMeta, RowMetaInterface> prevStepFields = new ConcurrentHashMap<>();
+
+  private final Map<StepMeta, Map<String, RowMetaInterface>> prevStepFieldsByStep = new ConcurrentHashMap<>();
+
+  public RowMetaCache( final TransMeta transMeta ) {
+    this.transMeta = transMeta;
+  }
+
+  /**
+   * Creates a cache for the given transformation, filled with the output fields of every step. The steps are
+   * resolved in topological order, so that each one finds the fields of its upstream steps already computed.
+   */
+  public static RowMetaCache build( final TransMeta transMeta ) {
+    final RowMetaCache cache = new RowMetaCache( transMeta );
+    for ( final StepMeta stepMeta : getStepsInTopologicalOrder( transMeta ) ) {
+      try {
+        cache.getStepFields( transMeta, stepMeta );
+      } catch ( final KettleStepException e ) {
+        // left for the step analyzer to run into and report
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Registers a copy of the transformation whose lookups may be answered by this cache.
+   */
+  public void addCopy( final TransMeta copy ) {
+    copies.add( copy );
+  }
+
+  /**
+   * @return true if lookups made on the given transformation are answered by this cache
+   */
+  public boolean covers( final TransMeta meta ) {
+    return meta != null && ( meta == transMeta || copies.contains( meta ) );
+  }
+
+  /**
+   * @see TransMeta#getStepFields(StepMeta, org.pentaho.di.core.ProgressMonitorListener)
+   */
+  public RowMetaInterface getStepFields( final TransMeta meta, final StepMeta stepMeta )
+    throws KettleStepException {
+    if ( stepMeta == null || !covers( meta ) ) {
+      return computeStepFields( meta, stepMeta );
+    }
+    RowMetaInterface rowMeta = stepFields.get( stepMeta );
+    if ( rowMeta == null ) {
+      rowMeta = computeStepFields( meta, stepMeta );
+      if ( rowMeta != null ) {
+        stepFields.putIfAbsent( stepMeta, rowMeta );
+      }
+    }
+    return rowMeta;
+  }
+
+  /**
+   * @see TransMeta#getPrevStepFields(StepMeta, org.pentaho.di.core.ProgressMonitorListener)
+   */
+  public RowMetaInterface getPrevStepFields( final TransMeta meta, final StepMeta stepMeta )
+    throws KettleStepException {
+    if ( stepMeta == null || !covers( meta ) ) {
+      return computePrevStepFields( meta, stepMeta );
+    }
+    RowMetaInterface rowMeta = prevStepFields.get( stepMeta );
+    if ( rowMeta == null ) {
+      rowMeta = computePrevStepFields( meta, stepMeta );
+      if ( rowMeta != null ) {
+        prevStepFields.putIfAbsent( stepMeta, rowMeta );
+      }
+    }
+    return rowMeta;
+  }
+
+  /**
+   * @see TransMeta#getPrevStepFields(StepMeta, String, org.pentaho.di.core.ProgressMonitorListener)
+   */
+  public RowMetaInterface getPrevStepFields( final TransMeta meta, final StepMeta stepMeta,
+                                             final String prevStepName ) throws KettleStepException {
+    if ( stepMeta == null || prevStepName == null || !covers( meta ) ) {
+      return meta.getPrevStepFields( stepMeta, prevStepName, null );
+    }
+    final Map<String, RowMetaInterface> byPrevStep =
+      prevStepFieldsByStep.computeIfAbsent( stepMeta, key -> new ConcurrentHashMap<>() );
+    RowMetaInterface rowMeta = byPrevStep.get( prevStepName );
+    if ( rowMeta == null ) {
+      rowMeta = meta.getPrevStepFields( stepMeta, prevStepName, null );
+      if ( rowMeta != null ) {
+        byPrevStep.putIfAbsent( prevStepName, rowMeta );
+      }
+    }
+    return rowMeta;
+  }
+
+  private static RowMetaInterface computeStepFields( final TransMeta meta, final StepMeta stepMeta )
+    throws KettleStepException {
+    final ProgressNullMonitorListener progressMonitor = new ProgressNullMonitorListener();
+    final RowMetaInterface rowMeta = meta.getStepFields( stepMeta, progressMonitor );
+    progressMonitor.done();
+    return rowMeta;
+  }
+
+  private static RowMetaInterface computePrevStepFields( final TransMeta meta, final StepMeta stepMeta )
+    throws KettleStepException {
+    final ProgressNullMonitorListener progressMonitor = new ProgressNullMonitorListener();
+    final RowMetaInterface rowMeta = meta.getPrevStepFields( stepMeta, progressMonitor );
+    progressMonitor.done();
+    return rowMeta;
+  }
+
+  /**
+   * Orders the steps so that every step comes after the steps with an enabled hop into it. Steps that are part of a
+   * loop are appended in their original order.
+   */
+  static List<StepMeta> getStepsInTopologicalOrder( final TransMeta transMeta ) {
+    final List<StepMeta> steps = transMeta.getSteps();
+    final Map<StepMeta, List<StepMeta>> nextSteps = new HashMap<>();
+    final Map<StepMeta, Integer> inDegrees = new HashMap<>();
+    for ( final StepMeta stepMeta : steps ) {
+      inDegrees.put( stepMeta, 0 );
+    }
+    for ( int i = 0; i < transMeta.nrTransHops(); i++ ) {
+      final TransHopMeta hop = transMeta.getTransHop( i );
+      if ( hop != null && hop.isEnabled() && inDegrees.containsKey( hop.getFromStep() )
+        && inDegrees.containsKey( hop.getToStep() ) ) {
+        nextSteps.computeIfAbsent( hop.getFromStep(), key -> new ArrayList<>() ).add( hop.getToStep() );
+        inDegrees.merge( hop.getToStep(), 1, Integer::sum );
+      }
+    }
+
+    final Set<StepMeta> ordered = new LinkedHashSet<>();
+    final Deque<StepMeta> ready = new ArrayDeque<>();
+    for ( final StepMeta stepMeta : steps ) {
+      if ( inDegrees.get( stepMeta ) == 0 ) {
+        ready.add( stepMeta );
+      }
+    }
+    while ( !ready.isEmpty() ) {
+      final StepMeta stepMeta = ready.poll();
+      ordered.add( stepMeta );
+      for ( final StepMeta nextStep : nextSteps.getOrDefault( stepMeta, Collections.emptyList() ) ) {
+        if ( inDegrees.merge( nextStep, -1, Integer::sum ) == 0 ) {
+          ready.add( nextStep );
+        }
+      }
+    }
+    ordered.addAll( steps );
+    return new ArrayList<>( ordered );
+  }
+}
@@ -15,6 +15,7 @@ package org.pentaho.metaverse.api.analyzer.kettle.step;
 
 import com.google.common.base.Joiner;
 import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.Vertex;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -41,9 +42,10 @@ import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.IMetaverseObjectFactory;
 import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseAnalyzerException;
+import org.pentaho.metaverse.api.MetaverseBatch;
 import org.pentaho.metaverse.api.MetaverseComponentDescriptor;
-import org.pentaho.metaverse.api.Namespace;
 import org.pentaho.metaverse.api.StepField;
+import org.pentaho.metaverse.api.StructuredNamespace;
 import org.pentaho.metaverse.api.analyzer.kettle.BaseKettleMetaverseComponent;
 import org.pentaho.metaverse.api.analyzer.kettle.ComponentDerivationRecord;
 import org.pentaho.metaverse.api.analyzer.kettle.KettleAnalyzerUtil;
@@ -64,6 +66,16 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
   IClonableStepAnalyzer<T>, IFieldLineageMetadataProvider<T> {
 
   private static final Logger LOGGER = LogManager.getLogger( StepAnalyzer.class );
+
+  /**
+   * Key-indexed vertex properties used to narrow down vertex lookups, ordered from the most to the least selective.
+   */
+  private static final String[] INDEXED_LOOKUP_KEYS = new String[] {
+    DictionaryConst.PROPERTY_LOGICAL_ID,
+    DictionaryConst.PROPERTY_PATH,
+    DictionaryConst.PROPERTY_NAME,
+    DictionaryConst.PROPERTY_TYPE,
+    DictionaryConst.PROPERTY_CATEGORY };
   public static final String NONE = "_none_";
 
   protected IClonableDocumentAnalyzer documentAnalyzer;
@@ -110,6 +122,11 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
    */
   protected RowMetaInterface stepFields = null;
 
+  /**
+   * The row metadata of the transformation's steps, shared by the analyzers of all its steps; may be null
+   */
+  private RowMetaCache rowMetaCache = null;
+
   @Override
   public IMetaverseNode analyze( IComponentDescriptor descriptor, T meta ) throws MetaverseAnalyzerException {
 
@@ -295,10 +312,12 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
       }
 
       // no input step was defined, link all field name matches together, regardless of origin step
+      // the operations are the same for every pair, write their JSON once
+      final String operations = change.getOperations().size() > 0 ? change.toString() : null;
       for ( IMetaverseNode inputNode : inputNodes ) {
         for ( IMetaverseNode outputNode : outputNodes ) {
-          if ( change.getOperations().size() > 0 ) {
-            outputNode.setProperty( DictionaryConst.PROPERTY_OPERATIONS, change.toString() );
+          if ( operations != null ) {
+            outputNode.setProperty( DictionaryConst.PROPERTY_OPERATIONS, operations );
           }
           linkChangeNodes( inputNode, outputNode );
         }
@@ -320,6 +339,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
    */
   protected StepNodes processOutputs( T meta ) {
     StepNodes outputs = new StepNodes();
+    final MetaverseBatch batch = new MetaverseBatch( getMetaverseBuilder() );
 
     Map<String, RowMetaInterface> outputRowMetaInterfaces = getOutputRowMetaInterfaces( meta );
     if ( MapUtils.isNotEmpty( outputRowMetaInterfaces ) ) {
@@ -333,7 +353,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
               createOutputFieldNode( getDescriptor().getContext(), valueMetaInterface, nextStepName,
                 getOutputNodeType() );
             // Add link to show that this step created the field
-            getMetaverseBuilder().addLink( rootNode, DictionaryConst.LINK_OUTPUTS, fieldNode );
+            batch.addLink( rootNode, DictionaryConst.LINK_OUTPUTS, fieldNode );
             outputs.addNode( nextStepName, valueMetaInterface.getName(), fieldNode );
           }
         } else {
@@ -341,6 +361,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
         }
       }
     }
+    batch.commit();
     return outputs;
   }
 
@@ -394,6 +415,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
    */
   protected StepNodes processInputs( T meta ) {
     StepNodes inputs = new StepNodes();
+    final MetaverseBatch batch = new MetaverseBatch( getMetaverseBuilder() );
 
     // get all input steps
     Map<String, RowMetaInterface> inputRowMetaInterfaces = getInputRowMetaInterfaces( meta );
@@ -406,8 +428,8 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
           String[] stepInputFieldNames = inputFields.getFieldNames();
           try {
             if ( !ExternalResourceStepAnalyzer.RESOURCE.equals( prevStepName ) ) {
-              final RowMetaInterface stepInputFields = parentTransMeta.getPrevStepFields(
-                parentStepMeta, prevStepName, null );
+              final RowMetaInterface stepInputFields = getPrevStepFields(
+                parentTransMeta, parentStepMeta, prevStepName );
               if ( stepInputFields != null ) {
                 stepInputFieldNames = stepInputFields.getFieldNames();
               }
@@ -421,7 +443,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
               createInputFieldNode( getDescriptor().getContext(), valueMetaInterface, prevStepName,
                 getInputNodeType() );
             if ( addLink ) {
-              getMetaverseBuilder().addLink( prevFieldNode, DictionaryConst.LINK_INPUTS, rootNode );
+              batch.addLink( prevFieldNode, DictionaryConst.LINK_INPUTS, rootNode );
               inputs.addNode( prevStepName, valueMetaInterface.getName(), prevFieldNode );
             }
           }
@@ -430,6 +452,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
         }
       }
     }
+    batch.commit();
 
     return inputs;
   }
@@ -445,11 +468,11 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
     IComponentDescriptor prevFieldDescriptor = null;
     if ( StringUtils.isNotEmpty( prevStepName ) ) {
       Object nsObj = rootNode.getProperty( DictionaryConst.PROPERTY_NAMESPACE );
-      INamespace ns = new Namespace( nsObj != null ? nsObj.toString() : null );
+      INamespace ns = StructuredNamespace.of( nsObj != null ? nsObj.toString() : null );
       IMetaverseNode tmpOriginNode =
         getMetaverseObjectFactory().createNodeObject( ns, prevStepName, DictionaryConst.NODE_TYPE_TRANS_STEP );
 
-      INamespace stepFieldNamespace = new Namespace( tmpOriginNode.getLogicalId() );
+      INamespace stepFieldNamespace = StructuredNamespace.ofNode( tmpOriginNode );
 
       prevFieldDescriptor =
         new MetaverseComponentDescriptor( fieldName, getInputNodeType(), stepFieldNamespace, getDescriptor()
@@ -600,10 +623,8 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
     if ( parentTransMeta != null ) {
       try {
         rowMeta = new HashMap();
-        ProgressNullMonitorListener progressMonitor = new ProgressNullMonitorListener();
         prevStepNames = parentTransMeta.getPrevStepNames( parentStepMeta );
-        RowMetaInterface rmi = parentTransMeta.getPrevStepFields( parentStepMeta, progressMonitor );
-        progressMonitor.done();
+        RowMetaInterface rmi = getPrevStepFields( parentTransMeta, parentStepMeta );
         if ( !ArrayUtils.isEmpty( prevStepNames ) ) {
           populateInputFieldsRowMeta( rowMeta, rmi );
         }
@@ -649,9 +670,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
     RowMetaInterface rmi = null;
     if ( transMeta != null ) {
       try {
-        ProgressNullMonitorListener progressMonitor = new ProgressNullMonitorListener();
-        rmi = transMeta.getStepFields( stepMeta, progressMonitor );
-        progressMonitor.done();
+        rmi = getStepFields( transMeta, stepMeta );
       } catch ( KettleStepException e ) {
         rmi = null;
       }
@@ -659,6 +678,68 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
     return rmi;
   }
 
+  /**
+   * Sets the row metadata cache of the transformation being analyzed, used to look up the fields of its steps.
+   */
+  public void setRowMetaCache( final RowMetaCache rowMetaCache ) {
+    this.rowMetaCache = rowMetaCache;
+  }
+
+  public RowMetaCache getRowMetaCache() {
+    return rowMetaCache;
+  }
+
+  /**
+   * Returns the output fields of the given step, from the {@link RowMetaCache} when there is one.
+   */
+  protected RowMetaInterface getStepFields( final TransMeta transMeta, final StepMeta stepMeta )
+    throws KettleStepException {
+    if ( rowMetaCache != null ) {
+      return rowMetaCache.getStepFields( transMeta, stepMeta );
+    }
+    ProgressNullMonitorListener progressMonitor = new ProgressNullMonitorListener();
+    RowMetaInterface rmi = transMeta.getStepFields( stepMeta, progressMonitor );
+    progressMonitor.done();
+    return rmi;
+  }
+
+  /**
+   * Returns the output fields of the step with the given name, from the {@link RowMetaCache} when there is one.
+   */
+  protected RowMetaInterface getStepFields( final TransMeta transMeta, final String stepName )
+    throws KettleStepException {
+    if ( rowMetaCache != null ) {
+      return rowMetaCache.getStepFields( transMeta, transMeta.findStep( stepName ) );
+    }
+    return transMeta.getStepFields( stepName );
+  }
+
+  /**
+   * Returns the fields coming into the given step, from the {@link RowMetaCache} when there is one.
+   */
+  protected RowMetaInterface getPrevStepFields( final TransMeta transMeta, final StepMeta stepMeta )
+    throws KettleStepException {
+    if ( rowMetaCache != null ) {
+      return rowMetaCache.getPrevStepFields( transMeta, stepMeta );
+    }
+    ProgressNullMonitorListener progressMonitor = new ProgressNullMonitorListener();
+    RowMetaInterface rmi = transMeta.getPrevStepFields( stepMeta, progressMonitor );
+    progressMonitor.done();
+    return rmi;
+  }
+
+  /**
+   * Returns the fields coming into the given step from the named previous step, from the {@link RowMetaCache} when
+   * there is one.
+   */
+  protected RowMetaInterface getPrevStepFields( final TransMeta transMeta, final StepMeta stepMeta,
+                                                final String prevStepName ) throws KettleStepException {
+    if ( rowMetaCache != null ) {
+      return rowMetaCache.getPrevStepFields( transMeta, stepMeta, prevStepName );
+    }
+    return transMeta.getPrevStepFields( stepMeta, prevStepName, null );
+  }
+
   @Override
   public Set<IFieldMapping> getFieldMappings( T meta ) throws MetaverseAnalyzerException {
     return null;
@@ -696,7 +777,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
         DictionaryConst.NODE_TYPE_TRANS_STEP );
     tmpOriginNode.setProperty( DictionaryConst.PROPERTY_NAMESPACE, rootNode
       .getProperty( DictionaryConst.PROPERTY_NAMESPACE ) );
-    INamespace stepFieldNamespace = new Namespace( tmpOriginNode.getLogicalId() );
+    INamespace stepFieldNamespace = StructuredNamespace.ofNode( tmpOriginNode );
 
     MetaverseComponentDescriptor d =
       new MetaverseComponentDescriptor( fieldName, DictionaryConst.NODE_TYPE_TRANS_FIELD, tmpOriginNode, descriptor
@@ -749,7 +830,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
    */
   protected IMetaverseNode getNode( final String name, final String type, final String namespaceId,
                                     final String nodeKey, final Map<String, IMetaverseNode> nodeMap ) {
-    return getNode( name, type, new Namespace( namespaceId ), nodeKey, nodeMap );
+    return getNode( name, type, StructuredNamespace.of( namespaceId ), nodeKey, nodeMap );
   }
 
   /**
@@ -822,7 +903,18 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
    * @return a @{link List} of {@link Vertex} objects containing the requested properties
    */
   protected List<Vertex> findVertices( final Map<String, String> properties ) {
-    return findVertices( getMetaverseBuilder().getGraph().getVertices().iterator(), properties );
+    final Graph graph = getMetaverseBuilder().getGraph();
+    if ( properties != null ) {
+      // narrow down the candidates through the most selective key-indexed property available, rather than scanning
+      // every vertex in the graph
+      for ( final String key : INDEXED_LOOKUP_KEYS ) {
+        final String value = properties.get( key );
+        if ( value != null ) {
+          return findVertices( graph.getVertices( key, value ).iterator(), properties );
+        }
+      }
+    }
+    return findVertices( graph.getVertices().iterator(), properties );
   }
 
   /**
@@ -988,15 +1080,7 @@ public abstract class StepAnalyzer<T extends BaseStepMeta> extends BaseKettleMet
    * @return the {@link Vertex} with the matching id or null
    */
   protected Vertex findVertexById( final String id ) {
-
-    final Iterator<Vertex> allVertices = getMetaverseBuilder().getGraph().getVertices().iterator();
-    while ( allVertices.hasNext() ) {
-      final Vertex vertex = allVertices.next();
-      if ( vertex.getId().equals( id ) ) {
-        return vertex;
-      }
-    }
-    return null;
+    return id == null ? null : getMetaverseBuilder().getGraph().getVertex( id );
   }
 
   /**
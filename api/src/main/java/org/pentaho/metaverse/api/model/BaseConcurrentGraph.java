@@ -0,0 +1,288 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model;
+
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Features;
+import com.tinkerpop.blueprints.GraphQuery;
+import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.DefaultGraphQuery;
+import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link BaseSynchronizedGraph} that guards the underlying graph with a read/write lock rather than a single monitor.
+ * <p>
+ * Any number of readers proceed in parallel, and every read returns a consistent snapshot: iterables handed out by the
+ * graph and by its elements are materialized while the read lock is held, so they can be traversed while other
+ * threads keep writing. Writes (including element property changes, which are routed through {@link ConcurrentVertex}
+ * and {@link ConcurrentEdge}) are exclusive, since the in-memory backing graphs and their key indices are not safe for
+ * concurrent modification. Id-based "get or add" operations are atomic.
+ */
+public class BaseConcurrentGraph extends BaseSynchronizedGraph {
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Creates a new concurrent graph
+   *
+   * @param graph The underlying graph
+   */
+  public BaseConcurrentGraph( IdGraph<KeyIndexableGraph> graph ) {
+    super( graph );
+  }
+
+  Lock readLock() {
+    return lock.readLock();
+  }
+
+  Lock writeLock() {
+    return lock.writeLock();
+  }
+
+  @Override
+  public Features getFeatures() {
+    return graph.getFeatures();
+  }
+
+  @Override
+  public Vertex addVertex( Object id ) {
+    writeLock().lock();
+    try {
+      Vertex vertex = id == null ? null : graph.getVertex( id );
+      if ( vertex == null ) {
+        vertex = graph.addVertex( id );
+      }
+      return wrapVertex( vertex );
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Vertex getVertex( Object id ) {
+    readLock().lock();
+    try {
+      return wrapVertex( graph.getVertex( id ) );
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeVertex( Vertex vertex ) {
+    writeLock().lock();
+    try {
+      graph.removeVertex( unwrapVertex( vertex ) );
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices() {
+    readLock().lock();
+    try {
+      return snapshotVertices( graph.getVertices() );
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices( String key, Object value ) {
+    readLock().lock();
+    try {
+      return snapshotVertices( graph.getVertices( key, value ) );
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  @Override
+  public Edge addEdge( Object id, Vertex outVertex, Vertex inVertex, String label ) {
+    writeLock().lock();
+    try {
+      Edge edge = id == null ? null : graph.getEdge( id );
+      if ( edge == null ) {
+        edge = graph.addEdge( id, unwrapVertex( outVertex ), unwrapVertex( inVertex ), label );
+      }
+      return wrapEdge( edge );
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Edge getEdge( Object id ) {
+    readLock().lock();
+    try {
+      return wrapEdge( graph.getEdge( id ) );
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeEdge( Edge edge ) {
+    writeLock().lock();
+    try {
+      graph.removeEdge( unwrapEdge( edge ) );
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Iterable<Edge> getEdges() {
+    readLock().lock();
+    try {
+      return snapshotEdges( graph.getEdges() );
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  @Override
+  public Iterable<Edge> getEdges( String key, Object value ) {
+    readLock().lock();
+    try {
+      return snapshotEdges( graph.getEdges( key, value ) );
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  /**
+   * Queries are evaluated against this graph, so they use its key indices and return snapshots of wrapped elements.
+   */
+  @Override
+  public GraphQuery query() {
+    return new DefaultGraphQuery( this );
+  }
+
+  @Override
+  public <T extends Element> void createKeyIndex( String key, Class<T> elementClass,
+                                                  Parameter... indexParameters ) {
+    writeLock().lock();
+    try {
+      graph.createKeyIndex( key, elementClass, indexParameters );
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public <T extends Element> void dropKeyIndex( String key, Class<T> elementClass ) {
+    writeLock().lock();
+    try {
+      graph.dropKeyIndex( key, elementClass );
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public <T extends Element> Set<String> getIndexedKeys( Class<T> elementClass ) {
+    readLock().lock();
+    try {
+      return new HashSet<>( graph.getIndexedKeys( elementClass ) );
+    } finally {
+      readLock().unlock();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    writeLock().lock();
+    try {
+      graph.shutdown();
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void executeExclusively( Runnable operation ) {
+    writeLock().lock();
+    try {
+      operation.run();
+    } finally {
+      writeLock().unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return graph.toString();
+  }
+
+  /**
+   * Copies the given vertices into a list of wrapped vertices. Must be called with the read lock held.
+   */
+  List<Vertex> snapshotVertices( final Iterable<Vertex> vertices ) {
+    final List<Vertex> snapshot = new ArrayList<>();
+    if ( vertices != null ) {
+      for ( final Vertex vertex : vertices ) {
+        snapshot.add( wrapVertex( vertex ) );
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Copies the given edges into a list of wrapped edges. Must be called with the read lock held.
+   */
+  List<Edge> snapshotEdges( final Iterable<Edge> edges ) {
+    final List<Edge> snapshot = new ArrayList<>();
+    if ( edges != null ) {
+      for ( final Edge edge : edges ) {
+        snapshot.add( wrapEdge( edge ) );
+      }
+    }
+    return snapshot;
+  }
+
+  Vertex wrapVertex( final Vertex vertex ) {
+    if ( vertex == null || vertex instanceof ConcurrentVertex ) {
+      return vertex;
+    }
+    return new ConcurrentVertex( vertex, this );
+  }
+
+  Edge wrapEdge( final Edge edge ) {
+    if ( edge == null || edge instanceof ConcurrentEdge ) {
+      return edge;
+    }
+    return new ConcurrentEdge( edge, this );
+  }
+
+  private Vertex unwrapVertex( final Vertex vertex ) {
+    return vertex instanceof ConcurrentVertex ? ( (ConcurrentVertex) vertex ).getBaseVertex() : vertex;
+  }
+
+  private Edge unwrapEdge( final Edge edge ) {
+    return edge instanceof ConcurrentEdge ? ( (ConcurrentEdge) edge ).getBaseEdge() : edge;
+  }
+}
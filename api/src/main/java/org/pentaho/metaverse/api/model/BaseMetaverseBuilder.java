@@ -23,10 +23,17 @@ import org.pentaho.metaverse.api.IMetaverseBuilder;
 import org.pentaho.metaverse.api.IMetaverseLink;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.IMetaverseObjectFactory;
+import org.pentaho.metaverse.api.LogicalIdFingerprints;
 import org.pentaho.metaverse.api.MetaverseObjectFactory;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This is the reference implementation for IMetaverseBuilder, offering the ability to add nodes, links, etc. to an
@@ -127,7 +134,8 @@ public class BaseMetaverseBuilder extends MetaverseObjectFactory implements IMet
    * @return the String edge ID
    */
   public static String getEdgeId( Vertex fromVertex, String label, Vertex toVertex ) {
-    return fromVertex.getId() + SEPARATOR + label + SEPARATOR + toVertex.getId();
+    final String edgeId = fromVertex.getId() + SEPARATOR + label + SEPARATOR + toVertex.getId();
+    return LogicalIdFingerprints.isEnabled() ? LogicalIdFingerprints.fingerprint( edgeId ) : edgeId;
   }
 
   /**
@@ -154,6 +162,105 @@ public class BaseMetaverseBuilder extends MetaverseObjectFactory implements IMet
     return this;
   }
 
+  /**
+   * Adds the nodes, then the links, in one pass. Each distinct node is resolved to its vertex and has its properties
+   * copied only once, each distinct edge is looked up only once, and the whole batch is applied under the graph's
+   * write guard when the graph provides one.
+   *
+   * @param nodes the nodes to add
+   * @param links the links to add
+   * @return the builder
+   */
+  @Override
+  public IMetaverseBuilder addAll( final Collection<IMetaverseNode> nodes, final Collection<IMetaverseLink> links ) {
+    final Runnable apply = () -> new Batch().apply( nodes, links );
+    if ( graph instanceof BaseSynchronizedGraph ) {
+      ( (BaseSynchronizedGraph) graph ).executeExclusively( apply );
+    } else {
+      apply.run();
+    }
+    return this;
+  }
+
+  /**
+   * The state of a single {@link #addAll} call: vertices, edges and entity types already resolved in the batch.
+   */
+  private class Batch {
+
+    private final Map<String, Vertex> vertices = new HashMap<>();
+
+    private final Set<IMetaverseNode> copiedNodes = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+    private final Map<String, Edge> edges = new HashMap<>();
+
+    private final Map<String, Vertex> entityTypes = new HashMap<>();
+
+    void apply( final Collection<IMetaverseNode> nodes, final Collection<IMetaverseLink> links ) {
+      if ( nodes != null ) {
+        for ( final IMetaverseNode node : nodes ) {
+          if ( node != null ) {
+            final Vertex vertex = resolve( node, false );
+            // adding this node means that it is no longer a virtual node
+            vertex.setProperty( DictionaryConst.NODE_VIRTUAL, false );
+            copyOnce( node, vertex );
+          }
+        }
+      }
+      if ( links != null ) {
+        for ( final IMetaverseLink link : links ) {
+          if ( link != null ) {
+            final Vertex fromVertex = resolve( link.getFromNode(), true );
+            copyOnce( link.getFromNode(), fromVertex );
+            final Vertex toVertex = resolve( link.getToNode(), true );
+            copyOnce( link.getToNode(), toVertex );
+
+            final String edgeId = getEdgeId( fromVertex, link.getLabel(), toVertex );
+            Edge edge = edges.get( edgeId );
+            if ( edge == null ) {
+              edge = addEdge( fromVertex, link.getLabel(), toVertex );
+              edges.put( edgeId, edge );
+            }
+            copyLinkPropertiesToEdge( link, edge );
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the vertex of the given node, adding it (as a virtual vertex if requested) when it does not exist yet.
+     */
+    private Vertex resolve( final IMetaverseNode node, final boolean virtual ) {
+      Vertex vertex = vertices.get( node.getStringID() );
+      if ( vertex == null ) {
+        vertex = getVertexForNode( node );
+        if ( vertex == null ) {
+          vertex = graph.addVertex( node.getStringID() );
+          if ( DictionaryHelper.isEntityType( node.getType() ) ) {
+            Vertex entityType = entityTypes.get( node.getType() );
+            if ( entityType == null ) {
+              entityType = addEntityType( node.getType() );
+              entityTypes.put( node.getType(), entityType );
+            }
+            addEdge( entityType, DictionaryHelper.getNonEntityToEntityLinkType(), vertex,
+              DictionaryHelper.addNonEntityToEntityLinkTypeLabel() );
+          }
+          if ( virtual ) {
+            // set the virtual node property to true since this is an implicit adding of a node
+            vertex.setProperty( DictionaryConst.NODE_VIRTUAL, true );
+          }
+        }
+        vertices.put( node.getStringID(), vertex );
+      }
+      return vertex;
+    }
+
+    private void copyOnce( final IMetaverseNode node, final Vertex vertex ) {
+      if ( copiedNodes.add( node ) ) {
+        copyNodePropertiesToVertex( node, vertex );
+      }
+    }
+  }
+
   /**
    * adds a node as a Vertex in the graph
    *
@@ -15,17 +15,21 @@ package org.pentaho.metaverse.api.model;
 
 
 import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Features;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.GraphQuery;
 import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Parameter;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
 
+import java.util.Set;
+
 /**
  * A Graph that provides thread-safe modification
  */
-public class BaseSynchronizedGraph implements Graph {
+public class BaseSynchronizedGraph implements KeyIndexableGraph {
 
   /**
    * The underlying graph
@@ -129,6 +133,26 @@ public class BaseSynchronizedGraph implements Graph {
     return graph.query();
   }
 
+  @Override
+  public <T extends Element> void createKeyIndex( String key, Class<T> elementClass,
+                                                  Parameter... indexParameters ) {
+    synchronized ( graph ) {
+      graph.createKeyIndex( key, elementClass, indexParameters );
+    }
+  }
+
+  @Override
+  public <T extends Element> void dropKeyIndex( String key, Class<T> elementClass ) {
+    synchronized ( graph ) {
+      graph.dropKeyIndex( key, elementClass );
+    }
+  }
+
+  @Override
+  public <T extends Element> Set<String> getIndexedKeys( Class<T> elementClass ) {
+    return graph.getIndexedKeys( elementClass );
+  }
+
   @Override
   public void shutdown() {
     synchronized ( graph ) {
@@ -136,7 +160,26 @@ public class BaseSynchronizedGraph implements Graph {
     }
   }
 
+  /**
+   * Returns the wrapped graph. It is meant for the graph implementation and its tests: it is not thread-safe, and
+   * reading or modifying it bypasses the write guard of this graph. Callers that must use it while other threads may
+   * modify the graph do so from an operation passed to {@link #executeExclusively(Runnable)}.
+   *
+   * @return the underlying, unsynchronized graph
+   */
   public Graph getGraph() {
     return this.graph;
   }
+
+  /**
+   * Runs the given operation while holding this graph's write guard, so a group of modifications is applied without
+   * other threads' modifications interleaving.
+   *
+   * @param operation the operation to run
+   */
+  public void executeExclusively( Runnable operation ) {
+    synchronized ( graph ) {
+      operation.run();
+    }
+  }
 }
@@ -16,12 +16,17 @@ package org.pentaho.metaverse.api.model;
 
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
 import org.apache.commons.configuration.Configuration;
+import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.api.messages.Messages;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 
@@ -33,8 +38,22 @@ import java.util.ResourceBundle;
 public class BaseSynchronizedGraphFactory {
   private static final Map<String, String> configMap = new HashMap<>();
 
+  /**
+   * Vertex property keys that are looked up by value while the graph is being built and adjusted. Automatic key
+   * indices are maintained on these so that {@link Graph#getVertices(String, Object)} does not scan every vertex.
+   */
+  public static final List<String> INDEXED_VERTEX_KEYS = Collections.unmodifiableList( Arrays.asList(
+    DictionaryConst.PROPERTY_LOGICAL_ID,
+    DictionaryConst.PROPERTY_TYPE,
+    DictionaryConst.PROPERTY_NAME,
+    DictionaryConst.PROPERTY_CATEGORY,
+    DictionaryConst.PROPERTY_PATH ) );
+
+  private static final Map<String, String> compactConfigMap = new HashMap<>();
+
   static {
     configMap.put( "blueprints.graph", "com.tinkerpop.blueprints.impls.tg.TinkerGraph" );
+    compactConfigMap.put( "blueprints.graph", "org.pentaho.metaverse.api.model.compact.CompactGraph" );
   }
 
   /**
@@ -48,6 +67,16 @@ public class BaseSynchronizedGraphFactory {
     return open( configMap );
   }
 
+  /**
+   * Opens a graph backed by a {@link org.pentaho.metaverse.api.model.compact.CompactGraph}, which takes a fraction of
+   * the heap of the default graph; meant for the short-lived graphs built for each execution.
+   *
+   * @return {@link BaseSynchronizedGraph} instance backed by a compact graph
+   */
+  public static Graph getCompactGraph() {
+    return open( compactConfigMap );
+  }
+
   /**
    * Opens a Graph based on a Configuration
    *
@@ -103,18 +132,38 @@ public class BaseSynchronizedGraphFactory {
   }
 
   /**
-   * Wraps the underlying graph with a synchronized one
+   * Wraps the underlying graph with a thread-safe one. Readers of the returned {@link BaseConcurrentGraph} run
+   * concurrently and get consistent snapshots, while writes are serialized through a read/write lock.
    *
    * @param graph The graph to wrap
-   * @return The synchronized graph
+   * @return The thread-safe graph
    */
   public static Graph wrapGraph( Graph graph ) {
     if ( graph instanceof KeyIndexableGraph ) {
       KeyIndexableGraph keyIndexableGraph = (KeyIndexableGraph) graph;
       IdGraph<KeyIndexableGraph> idGraph = new IdGraph<>( keyIndexableGraph );
-      return new BaseSynchronizedGraph( idGraph );
+      createKeyIndices( idGraph );
+      return new BaseConcurrentGraph( idGraph );
     } else {
       throw new IllegalArgumentException( Messages.getString( "ERROR.BackingGraph.MustImplement.KeyIndexableGraph" ) );
     }
   }
+
+  /**
+   * Creates automatic vertex key indices for all {@link #INDEXED_VERTEX_KEYS} that are not already indexed on the given
+   * graph. Existing vertices are indexed as well.
+   *
+   * @param graph The graph to index
+   * @return the same graph, for convenience
+   */
+  public static <T extends KeyIndexableGraph> T createKeyIndices( final T graph ) {
+    if ( graph != null ) {
+      for ( final String key : INDEXED_VERTEX_KEYS ) {
+        if ( !graph.getIndexedKeys( Vertex.class ).contains( key ) ) {
+          graph.createKeyIndex( key, Vertex.class );
+        }
+      }
+    }
+    return graph;
+  }
 }
@@ -0,0 +1,50 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+
+/**
+ * An {@link Edge} of a {@link BaseConcurrentGraph}. The label and the endpoints of an edge never change, so they are
+ * read without locking.
+ */
+public class ConcurrentEdge extends ConcurrentElement implements Edge {
+
+  public ConcurrentEdge( final Edge baseEdge, final BaseConcurrentGraph graph ) {
+    super( baseEdge, graph );
+  }
+
+  @Override
+  public Vertex getVertex( Direction direction ) throws IllegalArgumentException {
+    return graph.wrapVertex( getBaseEdge().getVertex( direction ) );
+  }
+
+  @Override
+  public String getLabel() {
+    return getBaseEdge().getLabel();
+  }
+
+  @Override
+  public void remove() {
+    graph.removeEdge( this );
+  }
+
+  public Edge getBaseEdge() {
+    return (Edge) baseElement;
+  }
+}
@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model;
+
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.util.ElementHelper;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Base class for the elements handed out by a {@link BaseConcurrentGraph}; reads and writes of element properties go
+ * through the read/write lock of the owning graph.
+ */
+abstract class ConcurrentElement implements Element {
+
+  protected final Element baseElement;
+
+  protected final BaseConcurrentGraph graph;
+
+  protected ConcurrentElement( final Element baseElement, final BaseConcurrentGraph graph ) {
+    this.baseElement = baseElement;
+    this.graph = graph;
+  }
+
+  @Override
+  public <T> T getProperty( String key ) {
+    graph.readLock().lock();
+    try {
+      return baseElement.getProperty( key );
+    } finally {
+      graph.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Set<String> getPropertyKeys() {
+    graph.readLock().lock();
+    try {
+      return new HashSet<>( baseElement.getPropertyKeys() );
+    } finally {
+      graph.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void setProperty( String key, Object value ) {
+    graph.writeLock().lock();
+    try {
+      baseElement.setProperty( key, value );
+    } finally {
+      graph.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public <T> T removeProperty( String key ) {
+    graph.writeLock().lock();
+    try {
+      return baseElement.removeProperty( key );
+    } finally {
+      graph.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Object getId() {
+    return baseElement.getId();
+  }
+
+  @Override
+  public boolean equals( Object object ) {
+    return ElementHelper.areEqual( this, object );
+  }
+
+  @Override
+  public int hashCode() {
+    return getId().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return baseElement.toString();
+  }
+}
@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.VertexQuery;
+import com.tinkerpop.blueprints.util.DefaultVertexQuery;
+
+/**
+ * A {@link Vertex} of a {@link BaseConcurrentGraph}. Adjacent edges and vertices are returned as snapshots taken under
+ * the read lock of the graph.
+ */
+public class ConcurrentVertex extends ConcurrentElement implements Vertex {
+
+  public ConcurrentVertex( final Vertex baseVertex, final BaseConcurrentGraph graph ) {
+    super( baseVertex, graph );
+  }
+
+  @Override
+  public Iterable<Edge> getEdges( Direction direction, String... labels ) {
+    graph.readLock().lock();
+    try {
+      return graph.snapshotEdges( getBaseVertex().getEdges( direction, labels ) );
+    } finally {
+      graph.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices( Direction direction, String... labels ) {
+    graph.readLock().lock();
+    try {
+      return graph.snapshotVertices( getBaseVertex().getVertices( direction, labels ) );
+    } finally {
+      graph.readLock().unlock();
+    }
+  }
+
+  @Override
+  public VertexQuery query() {
+    return new DefaultVertexQuery( this );
+  }
+
+  @Override
+  public Edge addEdge( String label, Vertex inVertex ) {
+    return graph.addEdge( null, this, inVertex, label );
+  }
+
+  @Override
+  public void remove() {
+    graph.removeVertex( this );
+  }
+
+  public Vertex getBaseVertex() {
+    return (Vertex) baseElement;
+  }
+}
@@ -31,6 +31,7 @@ public interface IExecutionData {
   public static final String JSON_PROPERTY_LOGGING_CHANNEL_ID = "loggingChannelId";
   public static final String JSON_PROPERTY_PARAMETERS = "parameters";
   public static final String JSON_PROPERTY_EXTERNAL_RESOURCES = "externalResources";
+  public static final String JSON_PROPERTY_SAMPLED_ROWS = "sampledRows";
   public static final String JSON_PROPERTY_VARIABLES = "variables";
   public static final String JSON_PROPERTY_ARGUMENTS = "arguments";
   public static final String JSON_PROPERTY_ARTIFACT_META = "artifactMeta";
@@ -85,6 +86,16 @@ public interface IExecutionData {
 
   public void addExternalResource( String consumerName, IExternalResourceInfo externalResource );
 
+  /**
+   * @return for each data-driven step, the number of rows its external resource consumers inspected
+   */
+  @JsonProperty( JSON_PROPERTY_SAMPLED_ROWS )
+  public Map<String, Long> getSampledRows();
+
+  public void setSampledRows( Map<String, Long> sampledRows );
+
+  public void addSampledRows( String stepName, long sampledRows );
+
   @JsonProperty( JSON_PROPERTY_VARIABLES )
   public Map<Object, Object> getVariables();
 
@@ -0,0 +1,267 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.pentaho.metaverse.api.ChangeType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable copy of a set of operations. The operations property of a lineage graph element holds their JSON,
+ * which is written once per change record and read back through {@link #valueOf(Object)}.
+ * <p>
+ * The JSON is the one flexjson used to produce, e.g. <code>{"metadataOperations":[{"category":"changeMetadata",
+ * "class":"...Operation","description":"name","name":"modified","type":"METADATA"}]}</code>, so graphs written before
+ * and after read the same.
+ */
+public final class ImmutableOperations {
+
+  private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+
+  private static final String OPERATION_CLASS = Operation.class.getName();
+
+  // Single re-usable ObjectMapper for JSON-to-Java conversions
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private static final ObjectReader reader =
+    objectMapper.reader().with( DeserializationFeature.FAIL_ON_TRAILING_TOKENS );
+
+  /**
+   * The operations of each change type, indexed by ordinal, null where there are none
+   */
+  private final Operation[][] operations;
+
+  private volatile String json;
+
+  private ImmutableOperations( final Operation[][] operations ) {
+    this.operations = operations;
+  }
+
+  /**
+   * @return an immutable copy of the given operations, or null if they are null
+   */
+  public static ImmutableOperations of( final Operations operations ) {
+    if ( operations == null ) {
+      return null;
+    }
+    final Operation[][] copy = new Operation[ CHANGE_TYPES.length ][];
+    for ( final ChangeType changeType : CHANGE_TYPES ) {
+      final List<IOperation> values = operations.get( changeType );
+      if ( values != null ) {
+        final Operation[] typed = new Operation[ values.size() ];
+        for ( int i = 0; i < typed.length; i++ ) {
+          typed[ i ] = copy( values.get( i ) );
+        }
+        copy[ changeType.ordinal() ] = typed;
+      }
+    }
+    return new ImmutableOperations( copy );
+  }
+
+  /**
+   * Returns the operations held in an operations property, which is their JSON or an {@link ImmutableOperations}.
+   *
+   * @param property the property value
+   * @return the operations, or null if there are none or the JSON cannot be read
+   */
+  public static ImmutableOperations valueOf( final Object property ) {
+    if ( property instanceof ImmutableOperations ) {
+      return (ImmutableOperations) property;
+    }
+    if ( property == null || property.toString().isEmpty() ) {
+      return null;
+    }
+    try {
+      return fromJson( property.toString() );
+    } catch ( IllegalArgumentException e ) {
+      return null;
+    }
+  }
+
+  /**
+   * @param json the operations as JSON
+   * @return the operations
+   * @throws IllegalArgumentException if the JSON does not describe operations
+   */
+  public static ImmutableOperations fromJson( final String json ) {
+    final JsonNode node;
+    try {
+      node = reader.readTree( json );
+    } catch ( IOException e ) {
+      throw new IllegalArgumentException( e.getMessage(), e );
+    }
+    if ( node == null || !node.isObject() ) {
+      throw new IllegalArgumentException( "Operations expected: " + json );
+    }
+    final Operation[][] operations = new Operation[ CHANGE_TYPES.length ][];
+    final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+    while ( fields.hasNext() ) {
+      final Map.Entry<String, JsonNode> field = fields.next();
+      final ChangeType changeType = ChangeType.forValue( field.getKey() );
+      if ( changeType == null ) {
+        throw new IllegalArgumentException( "Unknown change type " + field.getKey() + ": " + json );
+      }
+      operations[ changeType.ordinal() ] = readOperations( field.getValue(), json );
+    }
+    final ImmutableOperations value = new ImmutableOperations( operations );
+    value.json = json;
+    return value;
+  }
+
+  private static Operation[] readOperations( final JsonNode list, final String json ) {
+    if ( list.isNull() ) {
+      return null;
+    }
+    if ( !list.isArray() ) {
+      throw new IllegalArgumentException( "List of operations expected: " + json );
+    }
+    final Operation[] values = new Operation[ list.size() ];
+    for ( int i = 0; i < values.length; i++ ) {
+      final JsonNode operation = list.get( i );
+      if ( !operation.isNull() ) {
+        // other properties, such as the class name written by flexjson, are skipped
+        values[ i ] = new Operation( text( operation, IOperation.JSON_PROPERTY_CATEGORY ),
+          toChangeType( text( operation, IOperation.JSON_PROPERTY_TYPE ) ),
+          text( operation, IInfo.JSON_PROPERTY_NAME ), text( operation, IInfo.JSON_PROPERTY_DESCRIPTION ) );
+      }
+    }
+    return values;
+  }
+
+  private static String text( final JsonNode node, final String property ) {
+    final JsonNode value = node.get( property );
+    return value == null || value.isNull() ? null : value.asText();
+  }
+
+  private static ChangeType toChangeType( final String value ) {
+    if ( value == null ) {
+      return null;
+    }
+    for ( final ChangeType changeType : CHANGE_TYPES ) {
+      if ( changeType.name().equals( value ) ) {
+        return changeType;
+      }
+    }
+    return ChangeType.forValue( value );
+  }
+
+  private static Operation copy( final IOperation operation ) {
+    return operation == null ? null : new Operation( operation.getCategory(), operation.getType(),
+      operation.getName(), operation.getDescription() );
+  }
+
+  /**
+   * @return a new, mutable copy of these operations
+   */
+  public Operations toOperations() {
+    final Operations result = new Operations();
+    for ( final ChangeType changeType : CHANGE_TYPES ) {
+      final Operation[] values = operations[ changeType.ordinal() ];
+      if ( values != null ) {
+        final List<IOperation> list = new ArrayList<>( values.length );
+        for ( final Operation operation : values ) {
+          list.add( copy( operation ) );
+        }
+        result.put( changeType, list );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return true if there are no operations of any change type
+   */
+  public boolean isEmpty() {
+    for ( final Operation[] values : operations ) {
+      if ( values != null ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public String toJson() {
+    String result = json;
+    if ( result == null ) {
+      final ObjectNode node = objectMapper.createObjectNode();
+      for ( final ChangeType changeType : CHANGE_TYPES ) {
+        final Operation[] values = operations[ changeType.ordinal() ];
+        if ( values != null ) {
+          final ArrayNode list = node.putArray( changeType.toString() );
+          for ( final Operation operation : values ) {
+            if ( operation == null ) {
+              list.addNull();
+            } else {
+              // flexjson writes bean properties in alphabetical order
+              list.addObject()
+                .put( IOperation.JSON_PROPERTY_CATEGORY, operation.getCategory() )
+                .put( "class", OPERATION_CLASS )
+                .put( IInfo.JSON_PROPERTY_DESCRIPTION, operation.getDescription() )
+                .put( IInfo.JSON_PROPERTY_NAME, operation.getName() )
+                .put( IOperation.JSON_PROPERTY_TYPE, operation.getType() == null ? null : operation.getType().name() );
+            }
+          }
+        }
+      }
+      try {
+        result = objectMapper.writeValueAsString( node );
+      } catch ( JsonProcessingException e ) {
+        // a tree of strings can always be written
+        throw new IllegalStateException( e );
+      }
+      json = result;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals( final Object o ) {
+    return this == o || o instanceof ImmutableOperations
+      && Arrays.deepEquals( operations, ( (ImmutableOperations) o ).operations );
+  }
+
+  @Override
+  public int hashCode() {
+    // Operation.hashCode() does not allow a null type
+    int result = 1;
+    for ( final Operation[] values : operations ) {
+      result = 31 * result + ( values == null ? 0 : values.length );
+      if ( values != null ) {
+        for ( final Operation operation : values ) {
+          result = 31 * result + ( operation == null ? 0 : Objects.hash( operation.getCategory(),
+            operation.getType(), operation.getName(), operation.getDescription() ) );
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+}
@@ -40,6 +40,8 @@ public class LineageHolder implements IRequiresMetaverseBuilder {
 
   private Future lineageTask;
 
+  private final List<Runnable> beforeWriteActions = new ArrayList<>();
+
 
   public LineageHolder() {
   }
@@ -87,6 +89,16 @@ public class LineageHolder implements IRequiresMetaverseBuilder {
     this.lineageTask = lineageTask;
   }
 
+  /**
+   * Stops the analysis of the execution, if it is still running, when its lineage graph will not be written.
+   */
+  public void cancelLineageTask() {
+    final Future task = lineageTask;
+    if ( task != null && !task.isDone() ) {
+      task.cancel( true );
+    }
+  }
+
   public String getId() {
     if ( id == null && executionProfile != null ) {
       id = executionProfile.getPath();
@@ -110,4 +122,33 @@ public class LineageHolder implements IRequiresMetaverseBuilder {
     return this.subTransAndJobs;
   }
 
+  /**
+   * Registers an action to run before the lineage of the execution is written, such as publishing what a step
+   * listener collected, in case the listener is notified that its step finished after the lineage is written, or not
+   * at all.
+   *
+   * @param action the action, which may run more than once: also when its step finishes
+   */
+  public void addBeforeWriteAction( final Runnable action ) {
+    if ( action != null ) {
+      synchronized ( beforeWriteActions ) {
+        beforeWriteActions.add( action );
+      }
+    }
+  }
+
+  /**
+   * Runs the registered actions in the order they were added, and forgets them.
+   */
+  public void runBeforeWriteActions() {
+    final List<Runnable> actions;
+    synchronized ( beforeWriteActions ) {
+      actions = new ArrayList<>( beforeWriteActions );
+      beforeWriteActions.clear();
+    }
+    for ( final Runnable action : actions ) {
+      action.run();
+    }
+  }
+
 }
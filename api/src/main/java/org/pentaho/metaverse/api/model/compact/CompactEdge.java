@@ -0,0 +1,56 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.StringFactory;
+
+/**
+ * A flyweight {@link Edge} of a {@link CompactGraph}.
+ */
+public class CompactEdge extends CompactElement implements Edge {
+
+  CompactEdge( final CompactGraph graph, final int id ) {
+    super( graph, id );
+  }
+
+  @Override
+  protected ElementStore store() {
+    return graph.edgeStore();
+  }
+
+  @Override
+  public Vertex getVertex( final Direction direction ) throws IllegalArgumentException {
+    return new CompactVertex( graph, graph.getEdgeVertexId( id, direction ) );
+  }
+
+  @Override
+  public String getLabel() {
+    return graph.getEdgeLabel( id );
+  }
+
+  @Override
+  public void remove() {
+    graph.removeEdge( this );
+  }
+
+  @Override
+  public String toString() {
+    return StringFactory.edgeString( this );
+  }
+}
@@ -0,0 +1,77 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.util.ElementHelper;
+
+import java.util.Set;
+
+/**
+ * Base class of the flyweight elements of a {@link CompactGraph}: an element is just its graph and its int id, all
+ * state lives in the graph.
+ */
+abstract class CompactElement implements Element {
+
+  protected final CompactGraph graph;
+
+  protected final int id;
+
+  protected CompactElement( final CompactGraph graph, final int id ) {
+    this.graph = graph;
+    this.id = id;
+  }
+
+  protected abstract ElementStore store();
+
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public <T> T getProperty( final String key ) {
+    return (T) store().get( key, id );
+  }
+
+  @Override
+  public Set<String> getPropertyKeys() {
+    return store().getKeys( id );
+  }
+
+  @Override
+  public void setProperty( final String key, final Object value ) {
+    ElementHelper.validateProperty( this, key, value );
+    store().set( key, id, value );
+  }
+
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public <T> T removeProperty( final String key ) {
+    return (T) store().remove( key, id );
+  }
+
+  @Override
+  public Object getId() {
+    return id;
+  }
+
+  @Override
+  public boolean equals( final Object object ) {
+    return ElementHelper.areEqual( this, object );
+  }
+
+  @Override
+  public int hashCode() {
+    return id;
+  }
+}
@@ -0,0 +1,471 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Features;
+import com.tinkerpop.blueprints.GraphQuery;
+import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.util.DefaultGraphQuery;
+import com.tinkerpop.blueprints.util.ExceptionFactory;
+import com.tinkerpop.blueprints.util.StringFactory;
+import org.apache.commons.configuration.Configuration;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A memory-compact, in-memory {@link KeyIndexableGraph} meant for the many small, short-lived lineage graphs built for
+ * each execution.
+ * <p>
+ * Vertices and edges are identified by dense int ids and have no per-element object: {@link CompactVertex} and
+ * {@link CompactEdge} are flyweights created on access. Edge endpoints and labels are kept in parallel int arrays,
+ * adjacency as int arrays per vertex, and properties in one column per interned property key. Supplied ids are ignored,
+ * so the graph is meant to be used through an {@link com.tinkerpop.blueprints.util.wrappers.id.IdGraph}, which is what
+ * {@link org.pentaho.metaverse.api.model.BaseSynchronizedGraphFactory} does.
+ * <p>
+ * Like {@link com.tinkerpop.blueprints.impls.tg.TinkerGraph}, this graph is not thread-safe on its own.
+ */
+public class CompactGraph implements KeyIndexableGraph {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final int[] NO_IDS = new int[ 0 ];
+
+  private static final Features FEATURES = new Features();
+
+  static {
+    FEATURES.supportsDuplicateEdges = true;
+    FEATURES.supportsSelfLoops = true;
+    FEATURES.supportsSerializableObjectProperty = true;
+    FEATURES.supportsBooleanProperty = true;
+    FEATURES.supportsDoubleProperty = true;
+    FEATURES.supportsFloatProperty = true;
+    FEATURES.supportsIntegerProperty = true;
+    FEATURES.supportsPrimitiveArrayProperty = true;
+    FEATURES.supportsUniformListProperty = true;
+    FEATURES.supportsMixedListProperty = true;
+    FEATURES.supportsLongProperty = true;
+    FEATURES.supportsMapProperty = true;
+    FEATURES.supportsStringProperty = true;
+    FEATURES.ignoresSuppliedIds = true;
+    FEATURES.isPersistent = false;
+    FEATURES.isWrapper = false;
+    FEATURES.supportsIndices = false;
+    FEATURES.supportsVertexIndex = false;
+    FEATURES.supportsEdgeIndex = false;
+    FEATURES.supportsKeyIndices = true;
+    FEATURES.supportsVertexKeyIndex = true;
+    FEATURES.supportsEdgeKeyIndex = true;
+    FEATURES.supportsEdgeIteration = true;
+    FEATURES.supportsVertexIteration = true;
+    FEATURES.supportsEdgeRetrieval = true;
+    FEATURES.supportsVertexProperties = true;
+    FEATURES.supportsEdgeProperties = true;
+    FEATURES.supportsTransactions = false;
+    FEATURES.supportsThreadedTransactions = false;
+  }
+
+  private final PropertyKeys propertyKeys = new PropertyKeys();
+
+  private final PropertyKeys labels = new PropertyKeys();
+
+  private final ElementStore vertices = new ElementStore( propertyKeys );
+
+  private final ElementStore edges = new ElementStore( propertyKeys );
+
+  private IntList[] outAdjacency = new IntList[ INITIAL_CAPACITY ];
+
+  private IntList[] inAdjacency = new IntList[ INITIAL_CAPACITY ];
+
+  private int[] edgeOut = new int[ INITIAL_CAPACITY ];
+
+  private int[] edgeIn = new int[ INITIAL_CAPACITY ];
+
+  private int[] edgeLabel = new int[ INITIAL_CAPACITY ];
+
+  public CompactGraph() {
+  }
+
+  /**
+   * Constructor used by {@link com.tinkerpop.blueprints.GraphFactory}; there is nothing to configure.
+   *
+   * @param configuration the graph configuration
+   */
+  public CompactGraph( final Configuration configuration ) {
+    this();
+  }
+
+  public static CompactGraph open( final Configuration configuration ) {
+    return new CompactGraph( configuration );
+  }
+
+  @Override
+  public Features getFeatures() {
+    return FEATURES;
+  }
+
+  @Override
+  public Vertex addVertex( final Object id ) {
+    final int vertexId = vertices.allocate();
+    if ( vertexId >= outAdjacency.length ) {
+      final int capacity = Math.max( vertexId + 1, outAdjacency.length + ( outAdjacency.length >> 1 ) );
+      outAdjacency = Arrays.copyOf( outAdjacency, capacity );
+      inAdjacency = Arrays.copyOf( inAdjacency, capacity );
+    }
+    return new CompactVertex( this, vertexId );
+  }
+
+  @Override
+  public Vertex getVertex( final Object id ) {
+    if ( id == null ) {
+      throw ExceptionFactory.vertexIdCanNotBeNull();
+    }
+    final int vertexId = toIntId( id );
+    return vertices.isLive( vertexId ) ? new CompactVertex( this, vertexId ) : null;
+  }
+
+  @Override
+  public void removeVertex( final Vertex vertex ) {
+    final int vertexId = vertexId( vertex );
+    if ( !vertices.isLive( vertexId ) ) {
+      throw ExceptionFactory.vertexWithIdDoesNotExist( vertex.getId() );
+    }
+    for ( final int edgeId : adjacentEdgeIds( vertexId, Direction.BOTH, null ) ) {
+      if ( edges.isLive( edgeId ) ) {
+        removeEdge( edgeId );
+      }
+    }
+    outAdjacency[ vertexId ] = null;
+    inAdjacency[ vertexId ] = null;
+    vertices.release( vertexId );
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices() {
+    return () -> new LiveIterator<Vertex>( vertices ) {
+      @Override
+      Vertex create( final int id ) {
+        return new CompactVertex( CompactGraph.this, id );
+      }
+    };
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices( final String key, final Object value ) {
+    return vertexIterable( vertices.find( key, value ) );
+  }
+
+  @Override
+  public Edge addEdge( final Object id, final Vertex outVertex, final Vertex inVertex, final String label ) {
+    if ( label == null ) {
+      throw ExceptionFactory.edgeLabelCanNotBeNull();
+    }
+    final int outId = vertexId( outVertex );
+    final int inId = vertexId( inVertex );
+    if ( !vertices.isLive( outId ) || !vertices.isLive( inId ) ) {
+      throw new IllegalArgumentException( "Both edge endpoints must be vertices of this graph" );
+    }
+    final int edgeId = edges.allocate();
+    if ( edgeId >= edgeOut.length ) {
+      final int capacity = Math.max( edgeId + 1, edgeOut.length + ( edgeOut.length >> 1 ) );
+      edgeOut = Arrays.copyOf( edgeOut, capacity );
+      edgeIn = Arrays.copyOf( edgeIn, capacity );
+      edgeLabel = Arrays.copyOf( edgeLabel, capacity );
+    }
+    edgeOut[ edgeId ] = outId;
+    edgeIn[ edgeId ] = inId;
+    edgeLabel[ edgeId ] = labels.intern( label );
+    adjacency( outAdjacency, outId ).add( edgeId );
+    adjacency( inAdjacency, inId ).add( edgeId );
+    return new CompactEdge( this, edgeId );
+  }
+
+  @Override
+  public Edge getEdge( final Object id ) {
+    if ( id == null ) {
+      throw ExceptionFactory.edgeIdCanNotBeNull();
+    }
+    final int edgeId = toIntId( id );
+    return edges.isLive( edgeId ) ? new CompactEdge( this, edgeId ) : null;
+  }
+
+  @Override
+  public void removeEdge( final Edge edge ) {
+    final int edgeId = edgeId( edge );
+    if ( !edges.isLive( edgeId ) ) {
+      throw ExceptionFactory.edgeWithIdDoesNotExist( edge.getId() );
+    }
+    removeEdge( edgeId );
+  }
+
+  private void removeEdge( final int edgeId ) {
+    final IntList out = outAdjacency[ edgeOut[ edgeId ] ];
+    if ( out != null ) {
+      out.remove( edgeId );
+    }
+    final IntList in = inAdjacency[ edgeIn[ edgeId ] ];
+    if ( in != null ) {
+      in.remove( edgeId );
+    }
+    edges.release( edgeId );
+  }
+
+  @Override
+  public Iterable<Edge> getEdges() {
+    return () -> new LiveIterator<Edge>( edges ) {
+      @Override
+      Edge create( final int id ) {
+        return new CompactEdge( CompactGraph.this, id );
+      }
+    };
+  }
+
+  @Override
+  public Iterable<Edge> getEdges( final String key, final Object value ) {
+    return edgeIterable( edges.find( key, value ) );
+  }
+
+  @Override
+  public GraphQuery query() {
+    return new DefaultGraphQuery( this );
+  }
+
+  @Override
+  public void shutdown() {
+    // nothing to release, this graph is not persisted
+  }
+
+  @Override
+  public <T extends Element> void createKeyIndex( final String key, final Class<T> elementClass,
+                                                  final Parameter... indexParameters ) {
+    store( elementClass ).createIndex( key );
+  }
+
+  @Override
+  public <T extends Element> void dropKeyIndex( final String key, final Class<T> elementClass ) {
+    store( elementClass ).dropIndex( key );
+  }
+
+  @Override
+  public <T extends Element> Set<String> getIndexedKeys( final Class<T> elementClass ) {
+    return store( elementClass ).getIndexedKeys();
+  }
+
+  @Override
+  public String toString() {
+    return StringFactory.graphString( this, "vertices:" + vertices.size() + " edges:" + edges.size() );
+  }
+
+  // ---- element support ------------------------------------------------------------------------------------------
+
+  ElementStore vertexStore() {
+    return vertices;
+  }
+
+  ElementStore edgeStore() {
+    return edges;
+  }
+
+  int getEdgeVertexId( final int edgeId, final Direction direction ) {
+    if ( direction == Direction.OUT ) {
+      return edgeOut[ edgeId ];
+    } else if ( direction == Direction.IN ) {
+      return edgeIn[ edgeId ];
+    }
+    throw ExceptionFactory.bothIsNotSupported();
+  }
+
+  String getEdgeLabel( final int edgeId ) {
+    return labels.key( edgeLabel[ edgeId ] );
+  }
+
+  /**
+   * Returns the ids of the edges adjacent to the given vertex, in the given direction and with any of the given
+   * labels (all labels when none are given). The result is a copy, so the graph may be modified while it is used.
+   */
+  int[] adjacentEdgeIds( final int vertexId, final Direction direction, final String[] edgeLabels ) {
+    final int[] labelIds = labelIds( edgeLabels );
+    if ( labelIds != null && labelIds.length == 0 ) {
+      return NO_IDS;
+    }
+    final IntList result = new IntList();
+    if ( direction == Direction.OUT || direction == Direction.BOTH ) {
+      collect( outAdjacency[ vertexId ], labelIds, result );
+    }
+    if ( direction == Direction.IN || direction == Direction.BOTH ) {
+      collect( inAdjacency[ vertexId ], labelIds, result );
+    }
+    return result.toArray();
+  }
+
+  Iterable<Vertex> vertexIterable( final int[] ids ) {
+    return () -> new ArrayIterator<Vertex>( ids ) {
+      @Override
+      Vertex create( final int id ) {
+        return new CompactVertex( CompactGraph.this, id );
+      }
+    };
+  }
+
+  Iterable<Edge> edgeIterable( final int[] ids ) {
+    return () -> new ArrayIterator<Edge>( ids ) {
+      @Override
+      Edge create( final int id ) {
+        return new CompactEdge( CompactGraph.this, id );
+      }
+    };
+  }
+
+  private void collect( final IntList edgeIds, final int[] labelIds, final IntList result ) {
+    if ( edgeIds == null ) {
+      return;
+    }
+    for ( int i = 0; i < edgeIds.size(); i++ ) {
+      final int edgeId = edgeIds.get( i );
+      if ( labelIds == null || contains( labelIds, edgeLabel[ edgeId ] ) ) {
+        result.add( edgeId );
+      }
+    }
+  }
+
+  /**
+   * @return the interned ids of the known labels, or null if no labels were given (meaning "any label")
+   */
+  private int[] labelIds( final String[] edgeLabels ) {
+    if ( edgeLabels == null || edgeLabels.length == 0 ) {
+      return null;
+    }
+    final IntList ids = new IntList();
+    for ( final String label : edgeLabels ) {
+      final int id = labels.lookup( label );
+      if ( id >= 0 ) {
+        ids.add( id );
+      }
+    }
+    return ids.toArray();
+  }
+
+  private static boolean contains( final int[] values, final int value ) {
+    for ( final int candidate : values ) {
+      if ( candidate == value ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static IntList adjacency( final IntList[] adjacency, final int vertexId ) {
+    IntList edgeIds = adjacency[ vertexId ];
+    if ( edgeIds == null ) {
+      edgeIds = new IntList();
+      adjacency[ vertexId ] = edgeIds;
+    }
+    return edgeIds;
+  }
+
+  private ElementStore store( final Class<? extends Element> elementClass ) {
+    if ( Vertex.class.isAssignableFrom( elementClass ) ) {
+      return vertices;
+    } else if ( Edge.class.isAssignableFrom( elementClass ) ) {
+      return edges;
+    }
+    throw ExceptionFactory.classIsNotIndexable( elementClass );
+  }
+
+  private int vertexId( final Vertex vertex ) {
+    if ( vertex instanceof CompactVertex && ( (CompactVertex) vertex ).graph == this ) {
+      return ( (CompactVertex) vertex ).id;
+    }
+    throw new IllegalArgumentException( "The vertex does not belong to this graph: " + vertex );
+  }
+
+  private int edgeId( final Edge edge ) {
+    if ( edge instanceof CompactEdge && ( (CompactEdge) edge ).graph == this ) {
+      return ( (CompactEdge) edge ).id;
+    }
+    throw new IllegalArgumentException( "The edge does not belong to this graph: " + edge );
+  }
+
+  private static int toIntId( final Object id ) {
+    if ( id instanceof Integer ) {
+      return (Integer) id;
+    }
+    try {
+      return Integer.parseInt( id.toString() );
+    } catch ( NumberFormatException e ) {
+      return -1;
+    }
+  }
+
+  /**
+   * Iterates over the live elements of a store. Elements added or removed while iterating may or may not be seen.
+   */
+  private abstract static class LiveIterator<T> implements Iterator<T> {
+    private final ElementStore store;
+    private int next;
+
+    LiveIterator( final ElementStore store ) {
+      this.store = store;
+      this.next = store.nextLive( 0 );
+    }
+
+    abstract T create( int id );
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public T next() {
+      if ( next < 0 ) {
+        throw new NoSuchElementException();
+      }
+      final int id = next;
+      next = store.nextLive( id + 1 );
+      return create( id );
+    }
+  }
+
+  private abstract static class ArrayIterator<T> implements Iterator<T> {
+    private final int[] ids;
+    private int position;
+
+    ArrayIterator( final int[] ids ) {
+      this.ids = ids;
+    }
+
+    abstract T create( int id );
+
+    @Override
+    public boolean hasNext() {
+      return position < ids.length;
+    }
+
+    @Override
+    public T next() {
+      if ( position >= ids.length ) {
+        throw new NoSuchElementException();
+      }
+      return create( ids[ position++ ] );
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.VertexQuery;
+import com.tinkerpop.blueprints.util.DefaultVertexQuery;
+import com.tinkerpop.blueprints.util.StringFactory;
+
+/**
+ * A flyweight {@link Vertex} of a {@link CompactGraph}.
+ */
+public class CompactVertex extends CompactElement implements Vertex {
+
+  CompactVertex( final CompactGraph graph, final int id ) {
+    super( graph, id );
+  }
+
+  @Override
+  protected ElementStore store() {
+    return graph.vertexStore();
+  }
+
+  @Override
+  public Iterable<Edge> getEdges( final Direction direction, final String... labels ) {
+    return graph.edgeIterable( graph.adjacentEdgeIds( id, direction, labels ) );
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices( final Direction direction, final String... labels ) {
+    final int[] edgeIds = graph.adjacentEdgeIds( id, direction, labels );
+    final int[] vertexIds = new int[ edgeIds.length ];
+    for ( int i = 0; i < edgeIds.length; i++ ) {
+      final int outId = graph.getEdgeVertexId( edgeIds[ i ], Direction.OUT );
+      final int inId = graph.getEdgeVertexId( edgeIds[ i ], Direction.IN );
+      if ( direction == Direction.OUT ) {
+        vertexIds[ i ] = inId;
+      } else if ( direction == Direction.IN ) {
+        vertexIds[ i ] = outId;
+      } else {
+        // for BOTH, the adjacent vertex is whichever end is not this one (this one, for self loops)
+        vertexIds[ i ] = outId == id ? inId : outId;
+      }
+    }
+    return graph.vertexIterable( vertexIds );
+  }
+
+  @Override
+  public VertexQuery query() {
+    return new DefaultVertexQuery( this );
+  }
+
+  @Override
+  public Edge addEdge( final String label, final Vertex inVertex ) {
+    return graph.addEdge( null, this, inVertex, label );
+  }
+
+  @Override
+  public void remove() {
+    graph.removeVertex( this );
+  }
+
+  @Override
+  public String toString() {
+    return StringFactory.vertexString( this );
+  }
+}
@@ -0,0 +1,225 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Storage for one kind of element (vertices or edges) of a {@link CompactGraph}. Elements are identified by dense int
+ * ids that are never reused, and their properties are kept in one column per property key, indexed by element id.
+ */
+class ElementStore {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final PropertyKeys propertyKeys;
+
+  private final BitSet live = new BitSet();
+
+  private int nextId;
+
+  private int liveCount;
+
+  /**
+   * Property columns, indexed by interned property key id and then by element id. Columns are created and grown
+   * lazily, so a key that is only set on a few elements only costs about as much as the highest element id holding
+   * it, with some room to grow.
+   */
+  private Object[][] columns = new Object[ INITIAL_CAPACITY ][];
+
+  /**
+   * Automatic key indices: property key -> property value -> ids of the elements holding that value. Values such as
+   * node types are held by many elements, so the ids are kept in hash sets to keep updates constant time.
+   */
+  private final Map<String, Map<Object, IntSet>> indices = new HashMap<>();
+
+  ElementStore( final PropertyKeys propertyKeys ) {
+    this.propertyKeys = propertyKeys;
+  }
+
+  int allocate() {
+    final int id = nextId++;
+    live.set( id );
+    liveCount++;
+    return id;
+  }
+
+  boolean isLive( final int id ) {
+    return id >= 0 && live.get( id );
+  }
+
+  int nextLive( final int fromId ) {
+    return fromId < 0 ? -1 : live.nextSetBit( fromId );
+  }
+
+  int size() {
+    return liveCount;
+  }
+
+  /**
+   * @return the number of element ids handed out so far, including removed ones
+   */
+  int capacity() {
+    return nextId;
+  }
+
+  void release( final int id ) {
+    if ( !isLive( id ) ) {
+      return;
+    }
+    for ( int keyId = 0; keyId < columns.length; keyId++ ) {
+      if ( get( keyId, id ) != null ) {
+        remove( keyId, id );
+      }
+    }
+    live.clear( id );
+    liveCount--;
+  }
+
+  Object get( final int keyId, final int id ) {
+    if ( keyId < 0 || keyId >= columns.length ) {
+      return null;
+    }
+    final Object[] column = columns[ keyId ];
+    return column == null || id >= column.length ? null : column[ id ];
+  }
+
+  Object get( final String key, final int id ) {
+    return get( propertyKeys.lookup( key ), id );
+  }
+
+  void set( final String key, final int id, final Object value ) {
+    final int keyId = propertyKeys.intern( key );
+    if ( keyId >= columns.length ) {
+      columns = Arrays.copyOf( columns, Math.max( keyId + 1, columns.length * 2 ) );
+    }
+    Object[] column = columns[ keyId ];
+    if ( column == null ) {
+      column = new Object[ Math.max( INITIAL_CAPACITY, id + 1 ) ];
+      columns[ keyId ] = column;
+    } else if ( id >= column.length ) {
+      column = Arrays.copyOf( column, Math.max( id + 1, column.length + ( column.length >> 1 ) ) );
+      columns[ keyId ] = column;
+    }
+    final Object oldValue = column[ id ];
+    if ( Objects.equals( oldValue, value ) ) {
+      // the builder sets the same properties again whenever a node is linked, the index is already right
+      return;
+    }
+    column[ id ] = value;
+    final Map<Object, IntSet> index = indices.get( key );
+    if ( index != null ) {
+      unindex( index, oldValue, id );
+      index( index, value, id );
+    }
+  }
+
+  Object remove( final String key, final int id ) {
+    return remove( propertyKeys.lookup( key ), id );
+  }
+
+  private Object remove( final int keyId, final int id ) {
+    final Object oldValue = get( keyId, id );
+    if ( oldValue != null ) {
+      columns[ keyId ][ id ] = null;
+      final Map<Object, IntSet> index = indices.get( propertyKeys.key( keyId ) );
+      if ( index != null ) {
+        unindex( index, oldValue, id );
+      }
+    }
+    return oldValue;
+  }
+
+  Set<String> getKeys( final int id ) {
+    final Set<String> keys = new HashSet<>();
+    for ( int keyId = 0; keyId < columns.length; keyId++ ) {
+      if ( get( keyId, id ) != null ) {
+        keys.add( propertyKeys.key( keyId ) );
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the ids of all live elements whose property {@code key} equals {@code value}, through the key index when
+   * there is one, or by scanning the property column otherwise.
+   */
+  int[] find( final String key, final Object value ) {
+    final Map<Object, IntSet> index = indices.get( key );
+    if ( index != null ) {
+      final IntSet ids = index.get( value );
+      return ids == null ? new int[ 0 ] : ids.toArray();
+    }
+    final IntList ids = new IntList();
+    final int keyId = propertyKeys.lookup( key );
+    if ( keyId >= 0 && keyId < columns.length && columns[ keyId ] != null ) {
+      final Object[] column = columns[ keyId ];
+      for ( int id = live.nextSetBit( 0 ); id >= 0 && id < column.length; id = live.nextSetBit( id + 1 ) ) {
+        if ( column[ id ] != null && column[ id ].equals( value ) ) {
+          ids.add( id );
+        }
+      }
+    }
+    return ids.toArray();
+  }
+
+  void createIndex( final String key ) {
+    if ( indices.containsKey( key ) ) {
+      return;
+    }
+    final Map<Object, IntSet> index = new HashMap<>();
+    final int keyId = propertyKeys.lookup( key );
+    for ( int id = live.nextSetBit( 0 ); id >= 0; id = live.nextSetBit( id + 1 ) ) {
+      index( index, get( keyId, id ), id );
+    }
+    indices.put( key, index );
+  }
+
+  void dropIndex( final String key ) {
+    indices.remove( key );
+  }
+
+  Set<String> getIndexedKeys() {
+    return new HashSet<>( indices.keySet() );
+  }
+
+  private static void index( final Map<Object, IntSet> index, final Object value, final int id ) {
+    if ( value != null ) {
+      IntSet ids = index.get( value );
+      if ( ids == null ) {
+        ids = new IntSet();
+        index.put( value, ids );
+      }
+      ids.add( id );
+    }
+  }
+
+  private static void unindex( final Map<Object, IntSet> index, final Object value, final int id ) {
+    if ( value != null ) {
+      final IntSet ids = index.get( value );
+      if ( ids != null ) {
+        ids.remove( id );
+        if ( ids.isEmpty() ) {
+          index.remove( value );
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import java.util.Arrays;
+
+/**
+ * A minimal growable list of primitive ints, used for adjacency lists.
+ */
+class IntList {
+
+  private static final int[] EMPTY = new int[ 0 ];
+
+  private int[] values = EMPTY;
+
+  private int size;
+
+  void add( final int value ) {
+    if ( size == values.length ) {
+      values = Arrays.copyOf( values, size == 0 ? 2 : size + ( size >> 1 ) + 1 );
+    }
+    values[ size++ ] = value;
+  }
+
+  /**
+   * Removes the first occurrence of the given value, preserving the order of the remaining values.
+   *
+   * @return true if the value was found
+   */
+  boolean remove( final int value ) {
+    for ( int i = 0; i < size; i++ ) {
+      if ( values[ i ] == value ) {
+        System.arraycopy( values, i + 1, values, i, size - i - 1 );
+        size--;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int get( final int index ) {
+    return values[ index ];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int[] toArray() {
+    return size == 0 ? EMPTY : Arrays.copyOf( values, size );
+  }
+}
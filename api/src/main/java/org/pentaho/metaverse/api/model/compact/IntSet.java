@@ -0,0 +1,134 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import java.util.Arrays;
+
+/**
+ * A minimal hash set of non-negative primitive ints, used for key index buckets. Adding and removing a value take
+ * constant time however many values share the bucket.
+ */
+class IntSet {
+
+  private static final int FREE = -1;
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  /**
+   * Open addressing table with linear probing; its length is always a power of two
+   */
+  private int[] slots = newSlots( INITIAL_CAPACITY );
+
+  private int size;
+
+  /**
+   * @return true if the value was not in the set yet
+   */
+  boolean add( final int value ) {
+    if ( ( size + 1 ) * 4 > slots.length * 3 ) {
+      rehash( slots.length * 2 );
+    }
+    int slot = slotOf( value );
+    while ( slots[ slot ] != FREE ) {
+      if ( slots[ slot ] == value ) {
+        return false;
+      }
+      slot = ( slot + 1 ) & ( slots.length - 1 );
+    }
+    slots[ slot ] = value;
+    size++;
+    return true;
+  }
+
+  /**
+   * @return true if the value was found
+   */
+  boolean remove( final int value ) {
+    final int mask = slots.length - 1;
+    int slot = slotOf( value );
+    while ( slots[ slot ] != value ) {
+      if ( slots[ slot ] == FREE ) {
+        return false;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    // shift the values of the probe sequence back, so that lookups never stop at the freed slot
+    int free = slot;
+    for ( int next = ( free + 1 ) & mask; slots[ next ] != FREE; next = ( next + 1 ) & mask ) {
+      final int home = slotOf( slots[ next ] );
+      if ( ( ( next - home ) & mask ) >= ( ( next - free ) & mask ) ) {
+        slots[ free ] = slots[ next ];
+        free = next;
+      }
+    }
+    slots[ free ] = FREE;
+    size--;
+    return true;
+  }
+
+  boolean contains( final int value ) {
+    for ( int slot = slotOf( value ); slots[ slot ] != FREE; slot = ( slot + 1 ) & ( slots.length - 1 ) ) {
+      if ( slots[ slot ] == value ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the values of the set, in ascending order
+   */
+  int[] toArray() {
+    final int[] values = new int[ size ];
+    int i = 0;
+    for ( final int value : slots ) {
+      if ( value != FREE ) {
+        values[ i++ ] = value;
+      }
+    }
+    Arrays.sort( values );
+    return values;
+  }
+
+  private int slotOf( final int value ) {
+    // spread the bits, ids are dense and would otherwise cluster
+    final int hash = value * 0x9E3779B9;
+    return ( hash ^ ( hash >>> 16 ) ) & ( slots.length - 1 );
+  }
+
+  private void rehash( final int capacity ) {
+    final int[] old = slots;
+    slots = newSlots( capacity );
+    size = 0;
+    for ( final int value : old ) {
+      if ( value != FREE ) {
+        add( value );
+      }
+    }
+  }
+
+  private static int[] newSlots( final int capacity ) {
+    final int[] slots = new int[ capacity ];
+    Arrays.fill( slots, FREE );
+    return slots;
+  }
+}
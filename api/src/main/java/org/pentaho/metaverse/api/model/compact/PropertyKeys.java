@@ -0,0 +1,54 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns strings (property keys, edge labels) of a {@link CompactGraph} into dense int ids.
+ */
+class PropertyKeys {
+
+  private final Map<String, Integer> ids = new HashMap<>();
+
+  private final List<String> keys = new ArrayList<>();
+
+  /**
+   * @return the id of the given key, registering it if it is not known yet
+   */
+  int intern( final String key ) {
+    Integer id = ids.get( key );
+    if ( id == null ) {
+      id = keys.size();
+      keys.add( key );
+      ids.put( key, id );
+    }
+    return id;
+  }
+
+  /**
+   * @return the id of the given key, or -1 if it was never registered
+   */
+  int lookup( final String key ) {
+    final Integer id = ids.get( key );
+    return id == null ? -1 : id;
+  }
+
+  String key( final int id ) {
+    return keys.get( id );
+  }
+}
@@ -0,0 +1,141 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.dictionary.MetaverseTransientNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogicalIdFingerprintsTest {
+
+  @Before
+  public void setUp() {
+    LogicalIdFingerprints.setDictionarySize( LogicalIdFingerprints.DEFAULT_DICTIONARY_SIZE );
+    LogicalIdFingerprints.setMode( LogicalIdFingerprints.MODE_FINGERPRINT );
+  }
+
+  @After
+  public void tearDown() {
+    LogicalIdFingerprints.setMode( LogicalIdFingerprints.MODE_JSON );
+  }
+
+  @Test
+  public void testFingerprint() {
+    String fingerprint = LogicalIdFingerprints.fingerprint( "{\"name\":\"a\"}" );
+    assertEquals( 32, fingerprint.length() );
+    assertTrue( LogicalIdFingerprints.isFingerprint( fingerprint ) );
+    assertEquals( fingerprint, LogicalIdFingerprints.fingerprint( "{\"name\":\"a\"}" ) );
+    assertNotEquals( fingerprint, LogicalIdFingerprints.fingerprint( "{\"name\":\"b\"}" ) );
+    assertFalse( LogicalIdFingerprints.isFingerprint( "{\"name\":\"a\"}" ) );
+  }
+
+  @Test
+  public void testRegisterAndResolve() {
+    String readable = "{\"name\":\"a\"}";
+    String fingerprint = LogicalIdFingerprints.register( readable );
+    assertEquals( readable, LogicalIdFingerprints.resolve( fingerprint ) );
+    // unknown ids resolve to themselves
+    assertEquals( readable, LogicalIdFingerprints.resolve( readable ) );
+    String unknown = LogicalIdFingerprints.fingerprint( "unknown" );
+    assertEquals( unknown, LogicalIdFingerprints.resolve( unknown ) );
+  }
+
+  @Test
+  public void testDisabledDictionary() {
+    LogicalIdFingerprints.setDictionarySize( 0 );
+    String fingerprint = LogicalIdFingerprints.register( "{\"name\":\"a\"}" );
+    assertEquals( fingerprint, LogicalIdFingerprints.resolve( fingerprint ) );
+    assertFalse( LogicalIdFingerprints.isEnabled() );
+  }
+
+  @Test
+  public void testDisabledDictionary_readableIds() {
+    LogicalIdFingerprints.setDictionarySize( 0 );
+    MetaverseTransientNode parent = newNode( "PDI Engine", "disabled trans", DictionaryConst.NODE_TYPE_TRANS );
+    MetaverseTransientNode child = newNode( parent.getLogicalId(), "step", DictionaryConst.NODE_TYPE_TRANS_STEP );
+
+    assertFalse( LogicalIdFingerprints.isFingerprint( child.getLogicalId() ) );
+    assertEquals( child.getLogicalId(), child.getReadableLogicalId() );
+    assertEquals( parent.getLogicalId(), new Namespace( child.getLogicalId() ).getParentNamespace().getNamespaceId() );
+    assertEquals( parent.getLogicalId(), StructuredNamespace.ofNode( child ).getParentNamespace().getNamespaceId() );
+  }
+
+  @Test
+  public void testEvictedDictionary_namespaceOfNode() {
+    MetaverseTransientNode parent = newNode( "PDI Engine", "evicted trans", DictionaryConst.NODE_TYPE_TRANS );
+    MetaverseTransientNode child = newNode( parent.getLogicalId(), "step", DictionaryConst.NODE_TYPE_TRANS_STEP );
+    assertTrue( LogicalIdFingerprints.isFingerprint( child.getLogicalId() ) );
+    assertEquals( LogicalIdFingerprints.resolve( child.getLogicalId() ), child.getReadableLogicalId() );
+
+    // drop every registered id, as if evicted
+    LogicalIdFingerprints.setDictionarySize( LogicalIdFingerprints.DEFAULT_DICTIONARY_SIZE );
+
+    INamespace namespace = StructuredNamespace.ofNode( child );
+    assertEquals( parent.getLogicalId(), namespace.getParentNamespace().getNamespaceId() );
+    INamespace sibling = namespace.getSiblingNamespace( "other", DictionaryConst.NODE_TYPE_TRANS_STEP );
+    assertEquals( parent.getLogicalId(), sibling.getParentNamespace().getNamespaceId() );
+
+    Namespace plain = new Namespace( child.getLogicalId(), child.getReadableLogicalId() );
+    assertEquals( parent.getLogicalId(), plain.getParentNamespace().getNamespaceId() );
+    assertEquals( sibling.getNamespaceId(),
+      plain.getSiblingNamespace( "other", DictionaryConst.NODE_TYPE_TRANS_STEP ).getNamespaceId() );
+  }
+
+  private static MetaverseTransientNode newNode( String namespace, String name, String type ) {
+    MetaverseTransientNode node = new MetaverseTransientNode();
+    node.setProperty( DictionaryConst.PROPERTY_NAMESPACE, namespace );
+    node.setProperty( DictionaryConst.PROPERTY_NAME, name );
+    node.setProperty( DictionaryConst.PROPERTY_TYPE, type );
+    node.setLogicalIdGenerator( new MetaverseLogicalIdGenerator(
+      DictionaryConst.PROPERTY_NAMESPACE, DictionaryConst.PROPERTY_NAME, DictionaryConst.PROPERTY_TYPE ) );
+    return node;
+  }
+
+  @Test
+  public void testGeneratedIdsDoNotGrowWithNesting() {
+    MetaverseLogicalIdGenerator generator = new MetaverseLogicalIdGenerator(
+      DictionaryConst.PROPERTY_NAMESPACE, DictionaryConst.PROPERTY_NAME, DictionaryConst.PROPERTY_TYPE );
+
+    MetaverseTransientNode parent = new MetaverseTransientNode();
+    parent.setProperty( DictionaryConst.PROPERTY_NAMESPACE, "PDI Engine" );
+    parent.setProperty( DictionaryConst.PROPERTY_NAME, "trans" );
+    parent.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS );
+    String parentId = generator.generateId( parent );
+
+    MetaverseTransientNode child = new MetaverseTransientNode();
+    child.setProperty( DictionaryConst.PROPERTY_NAMESPACE, parentId );
+    child.setProperty( DictionaryConst.PROPERTY_NAME, "step" );
+    child.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP );
+    String childId = generator.generateId( child );
+
+    assertEquals( 32, parentId.length() );
+    assertEquals( 32, childId.length() );
+    assertEquals( childId, child.getProperty( DictionaryConst.PROPERTY_LOGICAL_ID ) );
+
+    Namespace namespace = new Namespace( childId );
+    assertEquals( parentId, namespace.getParentNamespace().getNamespaceId() );
+    assertEquals( "PDI Engine", namespace.getParentNamespace().getParentNamespace().getNamespaceId() );
+
+    INamespace sibling = namespace.getSiblingNamespace( "other", DictionaryConst.NODE_TYPE_TRANS_STEP );
+    assertTrue( LogicalIdFingerprints.isFingerprint( sibling.getNamespaceId() ) );
+    assertEquals( parentId, sibling.getParentNamespace().getNamespaceId() );
+  }
+}
@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import com.tinkerpop.blueprints.Graph;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.dictionary.MetaverseLink;
+import org.pentaho.dictionary.MetaverseTransientNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RecordingMetaverseBuilderTest {
+
+  private IMetaverseBuilder target;
+  private RecordingMetaverseBuilder recording;
+
+  @Before
+  public void setUp() {
+    target = mock( IMetaverseBuilder.class );
+    recording = new RecordingMetaverseBuilder( target );
+  }
+
+  @Test
+  public void testReplay_nodeAsRecorded() {
+    MetaverseTransientNode node = new MetaverseTransientNode( "step" );
+    node.setName( "Table output" );
+    node.setType( DictionaryConst.NODE_TYPE_TRANS_STEP );
+    recording.addNode( node );
+
+    node.setName( "renamed" );
+    node.setProperty( "late", "value" );
+    recording.replay();
+
+    ArgumentCaptor<IMetaverseNode> replayed = ArgumentCaptor.forClass( IMetaverseNode.class );
+    verify( target ).addNode( replayed.capture() );
+    assertEquals( "step", replayed.getValue().getStringID() );
+    assertEquals( "Table output", replayed.getValue().getName() );
+    assertEquals( DictionaryConst.NODE_TYPE_TRANS_STEP, replayed.getValue().getType() );
+    assertNull( replayed.getValue().getProperty( "late" ) );
+  }
+
+  @Test
+  public void testReplay_linkAsRecorded() {
+    MetaverseTransientNode from = new MetaverseTransientNode( "from" );
+    MetaverseTransientNode to = new MetaverseTransientNode( "to" );
+    MetaverseLink link = new MetaverseLink( from, DictionaryConst.LINK_CONTAINS, to );
+    recording.addLink( link );
+
+    link.setLabel( DictionaryConst.LINK_DERIVES );
+    to.setStringID( "other" );
+    recording.replay();
+
+    ArgumentCaptor<IMetaverseLink> replayed = ArgumentCaptor.forClass( IMetaverseLink.class );
+    verify( target ).addLink( replayed.capture() );
+    assertEquals( DictionaryConst.LINK_CONTAINS, replayed.getValue().getLabel() );
+    assertEquals( "from", replayed.getValue().getFromNode().getStringID() );
+    assertEquals( "to", replayed.getValue().getToNode().getStringID() );
+  }
+
+  @Test
+  public void testSetGraphAndFactory_doNotChangeTarget() {
+    Graph targetGraph = mock( Graph.class );
+    IMetaverseObjectFactory targetFactory = mock( IMetaverseObjectFactory.class );
+    when( target.getGraph() ).thenReturn( targetGraph );
+    when( target.getMetaverseObjectFactory() ).thenReturn( targetFactory );
+    assertSame( targetGraph, recording.getGraph() );
+    assertSame( targetFactory, recording.getMetaverseObjectFactory() );
+
+    Graph graph = mock( Graph.class );
+    IMetaverseObjectFactory factory = mock( IMetaverseObjectFactory.class );
+    recording.setGraph( graph );
+    recording.setMetaverseObjectFactory( factory );
+
+    assertSame( graph, recording.getGraph() );
+    assertSame( factory, recording.getMetaverseObjectFactory() );
+    assertSame( factory, recording.detach().getMetaverseObjectFactory() );
+    verify( target, never() ).setGraph( any() );
+    verify( target, never() ).setMetaverseObjectFactory( any() );
+  }
+}
@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pentaho.dictionary.DictionaryConst;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StructuredNamespaceTest {
+
+  private static final String TRANS_ID = "{\"namespace\":{\"name\":\"FILE_SYSTEM_REPO\",\"type\":\"Locator\"},"
+    + "\"path\":\"repo/Table Output - DataGrid to H2.ktr\",\"type\":\"Transformation\"}";
+
+  private static final String STEP_ID = "{\"name\":\"Table output\",\"namespace\":" + TRANS_ID
+    + ",\"type\":\"Transformation Step\"}";
+
+  @After
+  public void tearDown() {
+    LogicalIdFingerprints.setMode( LogicalIdFingerprints.MODE_JSON );
+  }
+
+  @Test
+  public void testOf_shared() {
+    assertSame( StructuredNamespace.of( STEP_ID ), StructuredNamespace.of( STEP_ID ) );
+    assertEquals( STEP_ID, StructuredNamespace.of( STEP_ID ).getNamespaceId() );
+  }
+
+  @Test
+  public void testGetParentNamespace_matchesNamespace() {
+    INamespace expected = new Namespace( STEP_ID ).getParentNamespace();
+    INamespace parent = StructuredNamespace.of( STEP_ID ).getParentNamespace();
+    assertEquals( expected.getNamespaceId(), parent.getNamespaceId() );
+    assertEquals( expected.getParentNamespace().getNamespaceId(), parent.getParentNamespace().getNamespaceId() );
+    assertSame( parent, StructuredNamespace.of( STEP_ID ).getParentNamespace() );
+  }
+
+  @Test
+  public void testGetParentNamespace_stringParent() {
+    StructuredNamespace ns = StructuredNamespace.of( "{\"namespace\":\"PDI Engine\","
+      + "\"path\":\"C:\\\\repo\\\\Table Output - DataGrid to H2.ktr\",\"type\":\"Transformation\"}" );
+    assertEquals( "PDI Engine", ns.getParentNamespace().getNamespaceId() );
+    assertNull( ns.getParentNamespace().getParentNamespace() );
+  }
+
+  @Test
+  public void testGetParentNamespace_nullAndInvalid() {
+    assertNull( StructuredNamespace.of( null ).getNamespaceId() );
+    assertNull( StructuredNamespace.of( null ).getParentNamespace() );
+    assertNull( StructuredNamespace.of( "{namespace\"={\"name\":\"FILE_SYSTEM_REPO\"}" ).getParentNamespace() );
+    assertNull( StructuredNamespace.of( null ).getSiblingNamespace( "any", "any" ) );
+  }
+
+  @Test
+  public void testGetSiblingNamespace_matchesNamespace() {
+    assertEquals( new Namespace( STEP_ID ).getSiblingNamespace( "brother", "newType" ).getNamespaceId(),
+      StructuredNamespace.of( STEP_ID ).getSiblingNamespace( "brother", "newType" ).getNamespaceId() );
+
+    INamespace sibling = StructuredNamespace.of( STEP_ID ).getSiblingNamespace( "brother", "newType" );
+    assertSame( StructuredNamespace.of( STEP_ID ).getParentNamespace(), sibling.getParentNamespace() );
+    assertEquals( new Namespace( STEP_ID ).getSiblingNamespace( "brother", "newType" )
+        .getSiblingNamespace( "cousin", null ).getNamespaceId(),
+      sibling.getSiblingNamespace( "cousin", null ).getNamespaceId() );
+  }
+
+  @Test
+  public void testUnresolvedFingerprint_parsedAgainOnceRegistered() {
+    LogicalIdFingerprints.setMode( LogicalIdFingerprints.MODE_FINGERPRINT );
+    String readable = "{\"name\":\"late step\",\"namespace\":\"PDI Engine\",\"type\":\"Transformation Step\"}";
+    String fingerprint = LogicalIdFingerprints.fingerprint( readable );
+
+    assertNull( StructuredNamespace.of( fingerprint ).getParentNamespace() );
+    LogicalIdFingerprints.register( readable );
+    assertEquals( "PDI Engine", StructuredNamespace.of( fingerprint ).getParentNamespace().getNamespaceId() );
+  }
+
+  @Test
+  public void testFingerprintedNamespace() {
+    LogicalIdFingerprints.setMode( LogicalIdFingerprints.MODE_FINGERPRINT );
+    String parentId = LogicalIdFingerprints.register( TRANS_ID );
+    String stepId = LogicalIdFingerprints.register( "{\"name\":\"Table output\",\"namespace\":\"" + parentId
+      + "\",\"type\":\"" + DictionaryConst.NODE_TYPE_TRANS_STEP + "\"}" );
+
+    StructuredNamespace ns = StructuredNamespace.of( stepId );
+    assertEquals( parentId, ns.getParentNamespace().getNamespaceId() );
+    assertEquals( new Namespace( stepId ).getSiblingNamespace( "brother", "newType" ).getNamespaceId(),
+      ns.getSiblingNamespace( "brother", "newType" ).getNamespaceId() );
+  }
+}
@@ -30,11 +30,15 @@ import org.pentaho.metaverse.api.model.IExternalResourceInfo;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
@@ -191,8 +195,149 @@ public class ExternalResourceCacheTest {
     resourceValues.remove( resource2 );
     assertEquals( 0, resourceValues.size() );
 
-    // make sure we're getting a copy, not the original
-    assertFalse( resourceValues.getInternal() == resourceValues.getInternal() );
+    // the same snapshot is returned until the values change
+    assertSame( resourceValues.getInternal(), resourceValues.getInternal() );
+    final Set snapshot = resourceValues.getInternal();
+    resourceValues.add( resource1 );
+    assertTrue( snapshot.isEmpty() );
+    assertNotSame( snapshot, resourceValues.getInternal() );
+    assertTrue( resourceValues.getInternal().contains( resource1 ) );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void test_getInternal_immutable() {
+    final ExternalResourceCache.ExternalResourceValues resourceValues = testInstance.newExternalResourceValues();
+    resourceValues.getInternal().add( Mockito.mock( IExternalResourceInfo.class ) );
+  }
+
+  @Test
+  public void test_getOrCreate() {
+    initMetas();
+
+    final ExternalResourceCache.ExternalResourceValues resources = testInstance.getOrCreate( meta1 );
+    assertSame( resources, testInstance.getOrCreate( meta1 ) );
+    assertSame( resources, testInstance.get( meta1 ) );
+    assertEquals( 1, testInstance.size() );
+    assertEquals( 2, testInstance.getHitCount() );
+    assertEquals( 1, testInstance.getMissCount() );
+
+    // not part of a transformation: new values each time, nothing cached
+    final ExternalResourceCache.ExternalResourceValues uncached = testInstance.getOrCreate( null );
+    assertNotNull( uncached );
+    assertNotSame( uncached, testInstance.getOrCreate( null ) );
+    assertEquals( 1, testInstance.size() );
+  }
+
+  @Test
+  public void test_sizeEviction() {
+    initMetas();
+    testInstance.initCache( 1, TimeUnit.HOURS, 1 );
+
+    final ExternalResourceCache.ExternalResourceValues resources1 = testInstance.getOrCreate( meta1 );
+    resources1.add( Mockito.mock( IExternalResourceInfo.class ) );
+    assertEquals( 1, testInstance.size() );
+    assertEquals( 0, testInstance.getEvictionCount() );
+
+    final ExternalResourceCache.ExternalResourceValues resources2 = testInstance.getOrCreate( meta2 );
+    assertEquals( 1, testInstance.size() );
+    assertEquals( 1, testInstance.getEvictionCount() );
+    assertNull( testInstance.get( meta1 ) );
+    assertSame( resources2, testInstance.get( meta2 ) );
+  }
+
+  @Test
+  public void test_heavyStepNotEvicted() {
+    initMetas();
+    testInstance.initCache( 1, TimeUnit.HOURS, 2 );
+
+    // a step encountering far more resources than there are cached steps keeps them all
+    final ExternalResourceCache.ExternalResourceValues resources1 = testInstance.getOrCreate( meta1 );
+    for ( int i = 0; i < 1000; i++ ) {
+      resources1.add( Mockito.mock( IExternalResourceInfo.class ) );
+      assertSame( resources1, testInstance.getOrCreate( meta1 ) );
+    }
+    final ExternalResourceCache.ExternalResourceValues resources2 = testInstance.getOrCreate( meta2 );
+    resources2.add( Mockito.mock( IExternalResourceInfo.class ) );
+
+    assertEquals( 2, testInstance.size() );
+    assertEquals( 0, testInstance.getEvictionCount() );
+    assertSame( resources1, testInstance.get( meta1 ) );
+    assertSame( resources2, testInstance.get( meta2 ) );
+    assertEquals( 1000, resources1.size() );
+    assertEquals( 1000, testInstance.get( meta1 ).getInternal().size() );
+  }
+
+  @Test
+  public void test_weightEviction() {
+    initMetas();
+    testInstance.initCache( 1, TimeUnit.HOURS, 100, 10 );
+
+    final ExternalResourceCache.ExternalResourceValues resources2 = testInstance.getOrCreate( meta2 );
+    resources2.add( Mockito.mock( IExternalResourceInfo.class ) );
+
+    // a step encountering more resources than the cache may hold is evicted, the other steps are kept
+    final ExternalResourceCache.ExternalResourceValues resources1 = testInstance.getOrCreate( meta1 );
+    for ( int i = 0; i < 20; i++ ) {
+      resources1.add( Mockito.mock( IExternalResourceInfo.class ) );
+    }
+    assertEquals( 20, resources1.size() );
+    assertNull( testInstance.get( meta1 ) );
+    assertSame( resources2, testInstance.get( meta2 ) );
+    assertEquals( 1, testInstance.size() );
+    assertEquals( 1, testInstance.getEvictionCount() );
+  }
+
+  @Test
+  public void test_sizeEvictionWithinWeight() {
+    initMetas();
+    // each step weighs at least half the maximum weight
+    testInstance.initCache( 1, TimeUnit.HOURS, 2, 1000 );
+
+    testInstance.getOrCreate( meta1 );
+    final ExternalResourceCache.ExternalResourceValues resources2 = testInstance.getOrCreate( meta2 );
+    assertEquals( 2, testInstance.size() );
+
+    final BaseFileInputMeta meta3 = mock( BaseFileInputMeta.class );
+    final StepMeta stepMeta3 = spy( new StepMeta( "test3", meta3 ) );
+    when( stepMeta3.getParentTransMeta() ).thenReturn( transMeta2 );
+    when( meta3.getParentStepMeta() ).thenReturn( stepMeta3 );
+    testInstance.getOrCreate( meta3 );
+
+    assertEquals( 2, testInstance.size() );
+    assertNull( testInstance.get( meta1 ) );
+    assertSame( resources2, testInstance.get( meta2 ) );
+  }
+
+  @Test
+  public void test_GetCacheMaxWeight() {
+    assertEquals( ExternalResourceCache.DEFAULT_MAX_WEIGHT, testInstance.getCacheMaxWeight( null ) );
+
+    IMetaverseConfig metaverseConfig = mock( IMetaverseConfig.class );
+    when( metaverseConfig.getExternalResourceCacheMaxWeight() ).thenReturn( "42", "not a number" );
+    assertEquals( 42L, testInstance.getCacheMaxWeight( metaverseConfig ) );
+    assertEquals( ExternalResourceCache.DEFAULT_MAX_WEIGHT, testInstance.getCacheMaxWeight( metaverseConfig ) );
+  }
+
+  @Test
+  public void test_GetCacheMaxSize() {
+    assertEquals( ExternalResourceCache.DEFAULT_MAX_SIZE, testInstance.getCacheMaxSize( null ) );
+
+    IMetaverseConfig metaverseConfig = mock( IMetaverseConfig.class );
+    when( metaverseConfig.getExternalResourceCacheMaxSize() ).thenReturn( "42", "not a number" );
+    assertEquals( 42L, testInstance.getCacheMaxSize( metaverseConfig ) );
+    assertEquals( ExternalResourceCache.DEFAULT_MAX_SIZE, testInstance.getCacheMaxSize( metaverseConfig ) );
+  }
+
+  @Test
+  public void test_getUniqueId_renamedStep() {
+    initMetas();
+
+    final String id = testInstance.getUniqueId( spyMeta1 );
+    assertSame( id, testInstance.getUniqueId( spyMeta1 ) );
+
+    spyMeta1.setName( "renamed" );
+    assertEquals( System.getProperty( "user.dir" ) + File.separator + "my_file::renamed",
+      testInstance.getUniqueId( spyMeta1 ) );
   }
 
   @Test
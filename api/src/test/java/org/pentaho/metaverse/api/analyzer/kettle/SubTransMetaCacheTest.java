@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.analyzer.kettle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.trans.TransMeta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SubTransMetaCacheTest {
+
+  private TransMeta loaded;
+
+  private TransMeta template;
+
+  private TransMeta copy;
+
+  @Before
+  public void setUp() {
+    SubTransMetaCache.setMaximumSize( SubTransMetaCache.DEFAULT_MAXIMUM_SIZE );
+    loaded = mock( TransMeta.class );
+    template = mock( TransMeta.class );
+    copy = mock( TransMeta.class );
+    when( loaded.clone() ).thenReturn( template );
+    when( template.clone() ).thenReturn( copy );
+  }
+
+  @After
+  public void tearDown() {
+    SubTransMetaCache.setMaximumSize( SubTransMetaCache.DEFAULT_MAXIMUM_SIZE );
+  }
+
+  @Test
+  public void testGetReturnsCopiesOfTemplate() {
+    assertNull( SubTransMetaCache.get( "file:/mapping.ktr", 10L ) );
+    SubTransMetaCache.put( "file:/mapping.ktr", 10L, loaded );
+
+    assertSame( copy, SubTransMetaCache.get( "file:/mapping.ktr", 10L ) );
+    assertSame( copy, SubTransMetaCache.get( "file:/mapping.ktr", 10L ) );
+    assertEquals( 2L, SubTransMetaCache.getStats().hitCount() );
+    assertEquals( 1L, SubTransMetaCache.getStats().missCount() );
+  }
+
+  @Test
+  public void testModifiedTransformationIsNotReused() {
+    SubTransMetaCache.put( "file:/mapping.ktr", 10L, loaded );
+    assertNull( SubTransMetaCache.get( "file:/mapping.ktr", 11L ) );
+  }
+
+  @Test
+  public void testUnknownModificationTimeIsNotCached() {
+    SubTransMetaCache.put( "file:/mapping.ktr", 0L, loaded );
+    assertEquals( 0L, SubTransMetaCache.size() );
+    assertNull( SubTransMetaCache.get( "file:/mapping.ktr", 0L ) );
+    assertNull( SubTransMetaCache.get( null, 10L ) );
+  }
+
+  @Test
+  public void testDisabled() {
+    SubTransMetaCache.setMaximumSize( 0L );
+    SubTransMetaCache.put( "file:/mapping.ktr", 10L, loaded );
+    assertNull( SubTransMetaCache.get( "file:/mapping.ktr", 10L ) );
+  }
+}
@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.analyzer.kettle.step;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.ProgressMonitorListener;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RowMetaCacheTest {
+
+  private TransMeta transMeta;
+
+  private StepMeta first;
+
+  private StepMeta second;
+
+  private StepMeta third;
+
+  private RowMetaInterface secondFields;
+
+  @Before
+  public void setUp() throws Exception {
+    transMeta = mock( TransMeta.class );
+    first = mock( StepMeta.class );
+    second = mock( StepMeta.class );
+    third = mock( StepMeta.class );
+    // listed out of order: third <- first -> second -> third
+    when( transMeta.getSteps() ).thenReturn( Arrays.asList( third, second, first ) );
+    when( transMeta.nrTransHops() ).thenReturn( 3 );
+    final TransHopMeta firstToSecond = hop( first, second );
+    final TransHopMeta secondToThird = hop( second, third );
+    final TransHopMeta firstToThird = hop( first, third );
+    when( transMeta.getTransHop( 0 ) ).thenReturn( secondToThird );
+    when( transMeta.getTransHop( 1 ) ).thenReturn( firstToThird );
+    when( transMeta.getTransHop( 2 ) ).thenReturn( firstToSecond );
+
+    secondFields = new RowMeta();
+    when( transMeta.getStepFields( eq( second ), any( ProgressMonitorListener.class ) ) ).thenReturn( secondFields );
+  }
+
+  private static TransHopMeta hop( final StepMeta from, final StepMeta to ) {
+    final TransHopMeta hop = mock( TransHopMeta.class );
+    when( hop.isEnabled() ).thenReturn( true );
+    when( hop.getFromStep() ).thenReturn( from );
+    when( hop.getToStep() ).thenReturn( to );
+    return hop;
+  }
+
+  @Test
+  public void testGetStepsInTopologicalOrder() {
+    assertEquals( Arrays.asList( first, second, third ), RowMetaCache.getStepsInTopologicalOrder( transMeta ) );
+  }
+
+  @Test
+  public void testBuild_resolvesEachStepOnce() throws Exception {
+    final RowMetaCache cache = RowMetaCache.build( transMeta );
+    assertSame( secondFields, cache.getStepFields( transMeta, second ) );
+    assertSame( secondFields, cache.getStepFields( transMeta, second ) );
+    verify( transMeta, times( 1 ) ).getStepFields( eq( second ), any( ProgressMonitorListener.class ) );
+  }
+
+  @Test
+  public void testCopies() throws Exception {
+    final RowMetaCache cache = RowMetaCache.build( transMeta );
+    final TransMeta copy = mock( TransMeta.class );
+    assertFalse( cache.covers( copy ) );
+    // lookups on a transformation the cache does not cover are not cached
+    cache.getStepFields( copy, second );
+    cache.getStepFields( copy, second );
+    verify( copy, times( 2 ) ).getStepFields( eq( second ), any( ProgressMonitorListener.class ) );
+
+    cache.addCopy( copy );
+    assertTrue( cache.covers( copy ) );
+    assertSame( secondFields, cache.getStepFields( copy, second ) );
+    verify( copy, times( 2 ) ).getStepFields( eq( second ), any( ProgressMonitorListener.class ) );
+  }
+
+  @Test
+  public void testGetPrevStepFields() throws Exception {
+    final RowMetaCache cache = new RowMetaCache( transMeta );
+    final RowMetaInterface prevFields = new RowMeta();
+    when( transMeta.getPrevStepFields( eq( third ), any( ProgressMonitorListener.class ) ) ).thenReturn( prevFields );
+    when( transMeta.getPrevStepFields( third, "second", null ) ).thenReturn( secondFields );
+
+    assertSame( prevFields, cache.getPrevStepFields( transMeta, third ) );
+    assertSame( prevFields, cache.getPrevStepFields( transMeta, third ) );
+    assertSame( secondFields, cache.getPrevStepFields( transMeta, third, "second" ) );
+    assertSame( secondFields, cache.getPrevStepFields( transMeta, third, "second" ) );
+    verify( transMeta, times( 1 ) ).getPrevStepFields( eq( third ), any( ProgressMonitorListener.class ) );
+    verify( transMeta, times( 1 ) ).getPrevStepFields( third, "second", null );
+  }
+}
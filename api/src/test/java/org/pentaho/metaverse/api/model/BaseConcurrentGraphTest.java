@@ -0,0 +1,172 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BaseConcurrentGraphTest {
+
+  private BaseConcurrentGraph graph;
+
+  @Before
+  public void setUp() throws Exception {
+    graph = new BaseConcurrentGraph( new IdGraph<KeyIndexableGraph>( new TinkerGraph() ) );
+  }
+
+  @Test
+  public void testAddVertex_existingIdReturnsSameVertex() throws Exception {
+    Vertex v1 = graph.addVertex( "id" );
+    Vertex v2 = graph.addVertex( "id" );
+    assertTrue( v1 instanceof ConcurrentVertex );
+    assertEquals( v1, v2 );
+    assertEquals( v1.hashCode(), v2.hashCode() );
+    assertEquals( v1, graph.getVertex( "id" ) );
+    assertNull( graph.getVertex( "missing" ) );
+  }
+
+  @Test
+  public void testAddEdge_existingIdReturnsSameEdge() throws Exception {
+    Vertex from = graph.addVertex( "from" );
+    Vertex to = graph.addVertex( "to" );
+    Edge e1 = graph.addEdge( "edge", from, to, "link" );
+    Edge e2 = graph.addEdge( "edge", from, to, "link" );
+    assertTrue( e1 instanceof ConcurrentEdge );
+    assertEquals( e1, e2 );
+    assertEquals( from, e1.getVertex( Direction.OUT ) );
+    assertEquals( to, e1.getVertex( Direction.IN ) );
+    assertEquals( "link", e1.getLabel() );
+    assertEquals( to, from.getVertices( Direction.OUT, "link" ).iterator().next() );
+
+    Edge e3 = from.addEdge( "other", to );
+    assertNotNull( e3.getId() );
+    assertEquals( 2, count( from.getEdges( Direction.OUT ) ) );
+
+    e3.remove();
+    assertEquals( 1, count( graph.getEdges() ) );
+  }
+
+  @Test
+  public void testRemoveVertex() throws Exception {
+    Vertex from = graph.addVertex( "from" );
+    Vertex to = graph.addVertex( "to" );
+    graph.addEdge( "edge", from, to, "link" );
+    to.remove();
+    assertNull( graph.getVertex( "to" ) );
+    assertNull( graph.getEdge( "edge" ) );
+    assertEquals( 1, count( graph.getVertices() ) );
+  }
+
+  @Test
+  public void testProperties() throws Exception {
+    graph.createKeyIndex( "name", Vertex.class );
+    assertTrue( graph.getIndexedKeys( Vertex.class ).contains( "name" ) );
+
+    Vertex v = graph.addVertex( "id" );
+    v.setProperty( "name", "value" );
+    assertEquals( "value", v.getProperty( "name" ) );
+    assertTrue( v.getPropertyKeys().contains( "name" ) );
+    assertEquals( v, graph.getVertices( "name", "value" ).iterator().next() );
+    assertEquals( v, graph.query().has( "name", "value" ).vertices().iterator().next() );
+    assertEquals( "value", v.removeProperty( "name" ) );
+    assertFalse( graph.getVertices( "name", "value" ).iterator().hasNext() );
+
+    graph.dropKeyIndex( "name", Vertex.class );
+    assertFalse( graph.getIndexedKeys( Vertex.class ).contains( "name" ) );
+  }
+
+  @Test
+  public void testReadsAreSnapshots() throws Exception {
+    graph.addVertex( "a" );
+    Iterator<Vertex> vertices = graph.getVertices().iterator();
+    // modifying the graph while iterating must not fail
+    graph.addVertex( "b" );
+    assertTrue( vertices.hasNext() );
+    vertices.next();
+    assertFalse( vertices.hasNext() );
+  }
+
+  @Test
+  public void testConcurrentReadersAndWriters() throws Exception {
+    final int writers = 4;
+    final int readers = 4;
+    final int verticesPerWriter = 500;
+    final ExecutorService executor = Executors.newFixedThreadPool( writers + readers );
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for ( int w = 0; w < writers; w++ ) {
+        final int writer = w;
+        futures.add( executor.submit( () -> {
+          Vertex previous = null;
+          for ( int i = 0; i < verticesPerWriter; i++ ) {
+            final Vertex vertex = graph.addVertex( writer + "_" + i );
+            vertex.setProperty( "writer", writer );
+            if ( previous != null ) {
+              graph.addEdge( previous.getId() + "~" + vertex.getId(), previous, vertex, "next" );
+            }
+            previous = vertex;
+          }
+        } ) );
+      }
+      for ( int r = 0; r < readers; r++ ) {
+        futures.add( executor.submit( () -> {
+          for ( int i = 0; i < 50; i++ ) {
+            for ( final Vertex vertex : graph.getVertices() ) {
+              vertex.getProperty( "writer" );
+              count( vertex.getEdges( Direction.BOTH ) );
+            }
+          }
+        } ) );
+      }
+      for ( final Future<?> future : futures ) {
+        // rethrows any ConcurrentModificationException raised by a reader or writer
+        future.get( 60, TimeUnit.SECONDS );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals( writers * verticesPerWriter, count( graph.getVertices() ) );
+    assertEquals( writers * ( verticesPerWriter - 1 ), count( graph.getEdges() ) );
+  }
+
+  private static int count( final Iterable<?> iterable ) {
+    int count = 0;
+    for ( final Object ignored : iterable ) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.api.model;
+
+import org.junit.Test;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.api.ChangeType;
+
+import static org.junit.Assert.*;
+
+public class ImmutableOperationsTest {
+
+  private static final String FLEXJSON = "{\"metadataOperations\":[{\"category\":\"changeMetadata\",\"class\":"
+    + "\"org.pentaho.metaverse.api.model.Operation\",\"description\":\"name\",\"name\":\"modified\","
+    + "\"type\":\"METADATA\"}],\"dataOperations\":[{\"category\":\"calculation\",\"class\":"
+    + "\"org.pentaho.metaverse.api.model.Operation\",\"description\":\"a \\\"quoted\\\" \\\\ value\","
+    + "\"name\":\"calc\",\"type\":\"DATA\"}]}";
+
+  private static Operations operations() {
+    Operations operations = new Operations();
+    operations.addOperation( ChangeType.DATA,
+      new Operation( IOperation.CALC_CATEGORY, ChangeType.DATA, "calc", "a \"quoted\" \\ value" ) );
+    operations.addOperation( ChangeType.METADATA, Operation.getRenameOperation() );
+    return operations;
+  }
+
+  @Test
+  public void testToJson() {
+    assertEquals( FLEXJSON, ImmutableOperations.of( operations() ).toJson() );
+    assertEquals( FLEXJSON, ImmutableOperations.of( operations() ).toString() );
+    assertEquals( "{}", ImmutableOperations.of( new Operations() ).toJson() );
+    assertNull( ImmutableOperations.of( null ) );
+  }
+
+  @Test
+  public void testFromJson() {
+    ImmutableOperations value = ImmutableOperations.fromJson( FLEXJSON );
+    assertEquals( ImmutableOperations.of( operations() ), value );
+    assertEquals( ImmutableOperations.of( operations() ).hashCode(), value.hashCode() );
+    assertEquals( operations(), value.toOperations() );
+
+    // class names and unknown properties are ignored, whitespace is allowed
+    value = ImmutableOperations.fromJson( " { \"metadataOperations\" : [ { \"class\" : \"Operation\", \"extra\" : 1,"
+      + " \"type\" : \"METADATA\", \"name\" : \"modified\", \"description\" : \"name\", "
+      + "\"category\" : \"changeMetadata\" } ] } " );
+    IOperation operation = value.toOperations().get( ChangeType.METADATA ).get( 0 );
+    assertEquals( DictionaryConst.PROPERTY_MODIFIED, operation.getName() );
+    assertEquals( ChangeType.METADATA, operation.getType() );
+
+    assertTrue( ImmutableOperations.fromJson( "{}" ).isEmpty() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testFromJson_unknownChangeType() {
+    ImmutableOperations.fromJson( "{\"otherOperations\":[]}" );
+  }
+
+  @Test
+  public void testValueOf() {
+    ImmutableOperations value = ImmutableOperations.of( operations() );
+    assertSame( value, ImmutableOperations.valueOf( value ) );
+    assertEquals( value, ImmutableOperations.valueOf( FLEXJSON ) );
+    assertNull( ImmutableOperations.valueOf( null ) );
+    assertNull( ImmutableOperations.valueOf( "" ) );
+    assertNull( ImmutableOperations.valueOf( "{" ) );
+    assertNull( ImmutableOperations.valueOf( "{\"metadataOperations\":[]} trailing" ) );
+  }
+
+  @Test
+  public void testImmutable() {
+    Operations operations = operations();
+    ImmutableOperations value = ImmutableOperations.of( operations );
+    operations.addOperation( ChangeType.DATA_FLOW, new Operation( "filter", ChangeType.DATA_FLOW, "f", "x" ) );
+    operations.get( ChangeType.METADATA ).get( 0 ).setDescription( "changed" );
+    value.toOperations().get( ChangeType.DATA ).clear();
+
+    assertEquals( FLEXJSON, value.toJson() );
+    assertFalse( value.isEmpty() );
+  }
+}
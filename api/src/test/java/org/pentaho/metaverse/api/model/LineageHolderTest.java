@@ -27,6 +27,8 @@ import java.util.concurrent.Future;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith( MockitoJUnitRunner.StrictStubs.class )
@@ -110,4 +112,21 @@ public class LineageHolderTest {
     assertEquals( trans, lineageHolder.getSubTransAndJobs().get( 0 ) );
     assertEquals( job, lineageHolder.getSubTransAndJobs().get( 1 ) );
   }
+
+  @Test
+  public void testCancelLineageTask() {
+    lineageHolder = new LineageHolder();
+    // nothing to cancel
+    lineageHolder.cancelLineageTask();
+
+    lineageHolder.setLineageTask( lineageTask );
+    lineageHolder.cancelLineageTask();
+    verify( lineageTask ).cancel( true );
+
+    Future done = Mockito.mock( Future.class );
+    when( done.isDone() ).thenReturn( true );
+    lineageHolder.setLineageTask( done );
+    lineageHolder.cancelLineageTask();
+    verify( done, never() ).cancel( Mockito.anyBoolean() );
+  }
 }
@@ -0,0 +1,233 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.api.model.compact;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.metaverse.api.model.BaseSynchronizedGraph;
+import org.pentaho.metaverse.api.model.BaseSynchronizedGraphFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactGraphTest {
+
+  private CompactGraph graph;
+
+  @Before
+  public void setUp() throws Exception {
+    graph = new CompactGraph();
+  }
+
+  @Test
+  public void testVertices() throws Exception {
+    Vertex v1 = graph.addVertex( "ignored" );
+    Vertex v2 = graph.addVertex( null );
+    assertEquals( 0, v1.getId() );
+    assertEquals( 1, v2.getId() );
+    assertEquals( v1, graph.getVertex( 0 ) );
+    assertEquals( v2, graph.getVertex( "1" ) );
+    assertNull( graph.getVertex( "ignored" ) );
+    assertNull( graph.getVertex( 5 ) );
+    assertEquals( 2, toList( graph.getVertices() ).size() );
+
+    v1.remove();
+    assertNull( graph.getVertex( 0 ) );
+    assertEquals( 1, toList( graph.getVertices() ).size() );
+    // ids are never reused
+    assertEquals( 2, graph.addVertex( null ).getId() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testGetVertex_nullId() throws Exception {
+    graph.getVertex( null );
+  }
+
+  @Test
+  public void testProperties() throws Exception {
+    Vertex v = graph.addVertex( null );
+    assertNull( v.getProperty( "name" ) );
+    v.setProperty( "name", "a" );
+    v.setProperty( "virtual", true );
+    assertEquals( "a", v.getProperty( "name" ) );
+    assertEquals( Boolean.TRUE, v.getProperty( "virtual" ) );
+    assertEquals( 2, v.getPropertyKeys().size() );
+    assertEquals( "a", v.removeProperty( "name" ) );
+    assertNull( v.getProperty( "name" ) );
+    assertEquals( 1, v.getPropertyKeys().size() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testSetProperty_idIsReserved() throws Exception {
+    graph.addVertex( null ).setProperty( "id", "value" );
+  }
+
+  @Test
+  public void testEdges() throws Exception {
+    Vertex a = graph.addVertex( null );
+    Vertex b = graph.addVertex( null );
+    Vertex c = graph.addVertex( null );
+    Edge ab = graph.addEdge( null, a, b, "hopsto" );
+    Edge ac = a.addEdge( "contains", c );
+    Edge ca = graph.addEdge( null, c, a, "hopsto" );
+    ab.setProperty( "text", "hopsto" );
+
+    assertEquals( "hopsto", ab.getLabel() );
+    assertEquals( "hopsto", ab.getProperty( "text" ) );
+    assertEquals( a, ab.getVertex( Direction.OUT ) );
+    assertEquals( b, ab.getVertex( Direction.IN ) );
+    assertEquals( ab, graph.getEdge( ab.getId() ) );
+
+    assertEquals( 2, toList( a.getEdges( Direction.OUT ) ).size() );
+    assertEquals( 1, toList( a.getEdges( Direction.OUT, "hopsto" ) ).size() );
+    assertEquals( 2, toList( a.getEdges( Direction.OUT, "hopsto", "contains" ) ).size() );
+    assertEquals( 0, toList( a.getEdges( Direction.OUT, "unknown" ) ).size() );
+    assertEquals( 3, toList( a.getEdges( Direction.BOTH ) ).size() );
+    assertEquals( c, a.getVertices( Direction.IN, "hopsto" ).iterator().next() );
+    assertEquals( 2, toList( a.getVertices( Direction.BOTH, "hopsto" ) ).size() );
+    assertEquals( 1, toList( a.query().direction( Direction.OUT ).labels( "contains" ).vertices() ).size() );
+
+    ac.remove();
+    assertNull( graph.getEdge( ac.getId() ) );
+    assertEquals( 1, toList( a.getEdges( Direction.OUT ) ).size() );
+
+    a.remove();
+    assertNull( graph.getEdge( ab.getId() ) );
+    assertNull( graph.getEdge( ca.getId() ) );
+    assertFalse( graph.getEdges().iterator().hasNext() );
+    assertFalse( c.getEdges( Direction.BOTH ).iterator().hasNext() );
+  }
+
+  @Test
+  public void testRemoveEdgesWhileIterating() throws Exception {
+    Vertex a = graph.addVertex( null );
+    for ( int i = 0; i < 10; i++ ) {
+      graph.addEdge( null, a, graph.addVertex( null ), "outputs" );
+    }
+    for ( Edge edge : a.getEdges( Direction.OUT ) ) {
+      edge.remove();
+    }
+    assertFalse( a.getEdges( Direction.OUT ).iterator().hasNext() );
+  }
+
+  @Test
+  public void testKeyIndex() throws Exception {
+    Vertex a = graph.addVertex( null );
+    a.setProperty( "name", "x" );
+    graph.createKeyIndex( "name", Vertex.class );
+    Vertex b = graph.addVertex( null );
+    b.setProperty( "name", "x" );
+    Vertex c = graph.addVertex( null );
+    c.setProperty( "name", "y" );
+
+    assertTrue( graph.getIndexedKeys( Vertex.class ).contains( "name" ) );
+    assertTrue( graph.getIndexedKeys( Edge.class ).isEmpty() );
+    assertEquals( 2, toList( graph.getVertices( "name", "x" ) ).size() );
+
+    b.setProperty( "name", "y" );
+    assertEquals( 1, toList( graph.getVertices( "name", "x" ) ).size() );
+    c.remove();
+    assertEquals( b, graph.getVertices( "name", "y" ).iterator().next() );
+    assertEquals( 1, toList( graph.getVertices( "name", "y" ) ).size() );
+
+    graph.dropKeyIndex( "name", Vertex.class );
+    // without the index, lookups scan the property column
+    assertEquals( 1, toList( graph.getVertices( "name", "y" ) ).size() );
+    assertEquals( 0, toList( graph.getVertices( "unknown", "y" ) ).size() );
+    assertEquals( 1, toList( graph.query().has( "name", "x" ).vertices() ).size() );
+  }
+
+  @Test
+  public void testKeyIndex_resetManyTimes() throws Exception {
+    graph.createKeyIndex( "type", Vertex.class );
+    final String[] types = { "Transformation", "Step", "Field" };
+    final List<Vertex> added = new ArrayList<>();
+    for ( int i = 0; i < 1000; i++ ) {
+      final Vertex vertex = graph.addVertex( null );
+      vertex.setProperty( "type", types[ i % types.length ] );
+      added.add( vertex );
+    }
+    final Random random = new Random( 42 );
+    final Map<Vertex, String> expected = new HashMap<>();
+    for ( int i = 0; i < 20000; i++ ) {
+      final Vertex vertex = added.get( random.nextInt( added.size() ) );
+      // most sets do not change the value, as when the builder links a node again
+      final String type =
+        random.nextInt( 4 ) == 0 ? types[ random.nextInt( types.length ) ] : vertex.<String>getProperty( "type" );
+      vertex.setProperty( "type", type );
+    }
+    for ( final Vertex vertex : added ) {
+      expected.put( vertex, vertex.getProperty( "type" ) );
+    }
+    for ( final String type : types ) {
+      final List<Vertex> found = toList( graph.getVertices( "type", type ) );
+      final Set<Vertex> matching = new HashSet<>();
+      for ( final Map.Entry<Vertex, String> entry : expected.entrySet() ) {
+        if ( type.equals( entry.getValue() ) ) {
+          matching.add( entry.getKey() );
+        }
+      }
+      assertEquals( matching.size(), found.size() );
+      assertEquals( matching, new HashSet<>( found ) );
+      // vertices are returned in the order they were added
+      for ( int i = 1; i < found.size(); i++ ) {
+        assertTrue( (Integer) found.get( i - 1 ).getId() < (Integer) found.get( i ).getId() );
+      }
+    }
+  }
+
+  @Test
+  public void testThroughSynchronizedGraphFactory() throws Exception {
+    Graph wrapped = BaseSynchronizedGraphFactory.getCompactGraph();
+    assertTrue( wrapped instanceof BaseSynchronizedGraph );
+    assertTrue( ( (BaseSynchronizedGraph) wrapped ).getGraph().toString().contains( "compactgraph" ) );
+
+    Vertex from = wrapped.addVertex( "{\"name\":\"from\"}" );
+    Vertex to = wrapped.addVertex( "{\"name\":\"to\"}" );
+    from.setProperty( "logicalId", "from" );
+    Edge edge = wrapped.addEdge( "from~link~to", from, to, "link" );
+
+    assertEquals( "{\"name\":\"from\"}", from.getId() );
+    assertEquals( from, wrapped.getVertex( "{\"name\":\"from\"}" ) );
+    assertEquals( edge, wrapped.getEdge( "from~link~to" ) );
+    assertEquals( from, wrapped.getVertices( "logicalId", "from" ).iterator().next() );
+    assertNotNull( wrapped.addVertex( "{\"name\":\"from\"}" ) );
+    assertEquals( 2, toList( wrapped.getVertices() ).size() );
+  }
+
+  private static <T> List<T> toList( final Iterable<T> iterable ) {
+    final List<T> list = new ArrayList<>();
+    for ( final T element : iterable ) {
+      list.add( element );
+    }
+    return list;
+  }
+}
@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse;
+
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.api.INamespace;
+import org.pentaho.metaverse.api.Namespace;
+import org.pentaho.metaverse.api.StructuredNamespace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Benchmark of namespace navigation over the logical ids of the integration test corpus (the .ktr and .kjb files under
+ * src/it/resources/repo). The corpus is analyzed once, then the navigation analyzers perform while creating nodes
+ * (parent lookups from descriptors built on a container id, sibling lookups for related steps) is replayed against
+ * {@link Namespace}, which parses its JSON on every call, and {@link StructuredNamespace}, which parses it once.
+ * <p>
+ * Run from the core module with: {@code java ... org.pentaho.metaverse.NamespaceBenchmark [lookupsPerId]}
+ */
+public class NamespaceBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+
+  private static final int MEASURED_ROUNDS = 5;
+
+  public static void main( String[] args ) throws Exception {
+    final int lookupsPerId = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 20;
+
+    IntegrationTestUtil.initializePentahoSystem( "src/it/resources/solution/system/pentahoObjects.spring.xml" );
+    final List<String> namespaceIds = new ArrayList<>();
+    try {
+      final long start = System.nanoTime();
+      final Graph graph = IntegrationTestUtil.buildMetaverseGraph();
+      System.out.println( String.format( "analyzed corpus in %d ms", ( System.nanoTime() - start ) / 1000000L ) );
+      for ( final Vertex vertex : graph.getVertices() ) {
+        final Object logicalId = vertex.getProperty( DictionaryConst.PROPERTY_LOGICAL_ID );
+        if ( logicalId != null ) {
+          namespaceIds.add( logicalId.toString() );
+        }
+      }
+    } finally {
+      IntegrationTestUtil.shutdownPentahoSystem();
+    }
+
+    long totalLength = 0;
+    for ( final String namespaceId : namespaceIds ) {
+      totalLength += namespaceId.length();
+    }
+    System.out.println( String.format( "namespace ids=%d average length=%d lookupsPerId=%d", namespaceIds.size(),
+      namespaceIds.isEmpty() ? 0 : totalLength / namespaceIds.size(), lookupsPerId ) );
+
+    for ( int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++ ) {
+      final boolean measured = round >= WARMUP_ROUNDS;
+      final long parsed = run( namespaceIds, lookupsPerId, Namespace::new );
+      final long structured = run( namespaceIds, lookupsPerId, StructuredNamespace::of );
+      if ( measured ) {
+        System.out.println( String.format( "Namespace: %d ms  StructuredNamespace: %d ms", parsed / 1000000L,
+          structured / 1000000L ) );
+      }
+    }
+  }
+
+  /**
+   * For every id, builds {@code lookupsPerId} namespaces on it the way descriptors are built for each field of a step,
+   * and navigates each of them to its parent, its grandparent and a sibling.
+   *
+   * @return the elapsed time in nanoseconds
+   */
+  private static long run( final List<String> namespaceIds, final int lookupsPerId,
+                           final Function<String, INamespace> factory ) {
+    long checksum = 0;
+    final long start = System.nanoTime();
+    for ( final String namespaceId : namespaceIds ) {
+      for ( int i = 0; i < lookupsPerId; i++ ) {
+        final INamespace namespace = factory.apply( namespaceId );
+        final INamespace parent = namespace.getParentNamespace();
+        if ( parent != null ) {
+          checksum += parent.getNamespaceId().length();
+          final INamespace grandParent = parent.getParentNamespace();
+          if ( grandParent != null ) {
+            checksum += grandParent.getNamespaceId().length();
+          }
+        }
+        final INamespace sibling = namespace.getSiblingNamespace( "sibling", DictionaryConst.NODE_TYPE_TRANS_STEP );
+        if ( sibling != null ) {
+          checksum += sibling.getNamespaceId().length();
+        }
+      }
+    }
+    final long elapsed = System.nanoTime() - start;
+    if ( checksum == 42 ) {
+      System.out.println( checksum );
+    }
+    return elapsed;
+  }
+}
@@ -0,0 +1,174 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.api.model.BaseConcurrentGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contention benchmark comparing the monitor-based {@link SynchronizedGraph} with the read/write locked
+ * {@link BaseConcurrentGraph}. Several "analyzer" threads write disjoint parts of the graph (a step vertex with its
+ * field vertices, the way step analyzers do) while reader threads run the logicalId lookups and neighbourhood
+ * traversals performed by the builder and by the metaverse reader.
+ * <p>
+ * Run with: {@code java ... org.pentaho.metaverse.graph.ConcurrentGraphContentionBenchmark [writers] [readers]
+ * [stepsPerWriter] [fieldsPerStep]}
+ */
+public class ConcurrentGraphContentionBenchmark {
+
+  private static final int WARMUP_ROUNDS = 2;
+
+  private static final int MEASURED_ROUNDS = 5;
+
+  public static void main( String[] args ) throws Exception {
+    final int writers = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 8;
+    final int readers = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 4;
+    final int stepsPerWriter = args.length > 2 ? Integer.parseInt( args[ 2 ] ) : 200;
+    final int fieldsPerStep = args.length > 3 ? Integer.parseInt( args[ 3 ] ) : 20;
+
+    System.out.println( String.format( "writers=%d readers=%d stepsPerWriter=%d fieldsPerStep=%d", writers, readers,
+      stepsPerWriter, fieldsPerStep ) );
+    for ( int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++ ) {
+      final boolean measured = round >= WARMUP_ROUNDS;
+      final Result synchronizedResult = run( newSynchronizedGraph(), writers, readers, stepsPerWriter, fieldsPerStep );
+      final Result concurrentResult = run( newConcurrentGraph(), writers, readers, stepsPerWriter, fieldsPerStep );
+      if ( measured ) {
+        System.out.println( "SynchronizedGraph   " + synchronizedResult );
+        System.out.println( "BaseConcurrentGraph " + concurrentResult );
+      }
+    }
+  }
+
+  private static Graph newSynchronizedGraph() {
+    return new SynchronizedGraph( new IdGraph<KeyIndexableGraph>(
+      SynchronizedGraphFactory.createKeyIndices( new TinkerGraph() ) ) );
+  }
+
+  private static Graph newConcurrentGraph() {
+    return new BaseConcurrentGraph( new IdGraph<KeyIndexableGraph>(
+      SynchronizedGraphFactory.createKeyIndices( new TinkerGraph() ) ) );
+  }
+
+  private static Result run( final Graph graph, final int writers, final int readers, final int stepsPerWriter,
+                             final int fieldsPerStep ) throws InterruptedException {
+    final ExecutorService executor = Executors.newFixedThreadPool( writers + readers );
+    final CountDownLatch start = new CountDownLatch( 1 );
+    final CountDownLatch writersDone = new CountDownLatch( writers );
+    final AtomicLong reads = new AtomicLong();
+    final AtomicLong failures = new AtomicLong();
+    final List<Future<?>> futures = new ArrayList<>();
+
+    for ( int w = 0; w < writers; w++ ) {
+      final int writer = w;
+      futures.add( executor.submit( () -> {
+        try {
+          start.await();
+          for ( int s = 0; s < stepsPerWriter; s++ ) {
+            final String stepId = "step_" + writer + "_" + s;
+            final Vertex step = graph.addVertex( stepId );
+            step.setProperty( DictionaryConst.PROPERTY_LOGICAL_ID, stepId );
+            step.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP );
+            for ( int f = 0; f < fieldsPerStep; f++ ) {
+              final String fieldId = stepId + "_field_" + f;
+              final Vertex field = graph.addVertex( fieldId );
+              field.setProperty( DictionaryConst.PROPERTY_LOGICAL_ID, fieldId );
+              field.setProperty( DictionaryConst.PROPERTY_NAME, "field_" + f );
+              graph.addEdge( stepId + "~outputs~" + fieldId, step, field, DictionaryConst.LINK_OUTPUTS );
+            }
+          }
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        } catch ( RuntimeException e ) {
+          failures.incrementAndGet();
+        } finally {
+          writersDone.countDown();
+        }
+      } ) );
+    }
+    for ( int r = 0; r < readers; r++ ) {
+      final int reader = r;
+      futures.add( executor.submit( () -> {
+        try {
+          start.await();
+          int i = 0;
+          while ( writersDone.getCount() > 0 ) {
+            try {
+              final String stepId = "step_" + ( i % writers ) + "_" + ( ( i + reader ) % stepsPerWriter );
+              for ( final Vertex step : graph.getVertices( DictionaryConst.PROPERTY_LOGICAL_ID, stepId ) ) {
+                for ( final Vertex field : step.getVertices( Direction.OUT, DictionaryConst.LINK_OUTPUTS ) ) {
+                  field.getProperty( DictionaryConst.PROPERTY_NAME );
+                }
+              }
+              reads.incrementAndGet();
+            } catch ( RuntimeException e ) {
+              // unguarded reads of the synchronized graph may fail with ConcurrentModificationException
+              failures.incrementAndGet();
+            }
+            i++;
+          }
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      } ) );
+    }
+
+    final long startNanos = System.nanoTime();
+    start.countDown();
+    writersDone.await();
+    final long elapsedNanos = System.nanoTime() - startNanos;
+    executor.shutdown();
+    executor.awaitTermination( 1, TimeUnit.MINUTES );
+
+    final long writes = (long) writers * stepsPerWriter * ( 1 + 2 * fieldsPerStep );
+    return new Result( elapsedNanos, writes, reads.get(), failures.get() );
+  }
+
+  private static class Result {
+    private final long elapsedNanos;
+    private final long writes;
+    private final long reads;
+    private final long failures;
+
+    Result( long elapsedNanos, long writes, long reads, long failures ) {
+      this.elapsedNanos = elapsedNanos;
+      this.writes = writes;
+      this.reads = reads;
+      this.failures = failures;
+    }
+
+    @Override
+    public String toString() {
+      final double seconds = elapsedNanos / 1e9;
+      return String.format( "%8.1f ms  %10.0f writes/s  %10.0f reads/s  %d failures", seconds * 1000,
+        writes / seconds, reads / seconds, failures );
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.pentaho.dictionary.DictionaryConst;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of {@link BlueprintsGraphMetaverseReader#search} and {@link BlueprintsGraphMetaverseReader#getGraph} on a
+ * synthetic lineage graph: chains of field vertices derived from the fields of the previous layer, each field
+ * contained in a step vertex of its layer. With the default of 200 layers of 1000 fields and 5 derivations per field,
+ * the graph has about 1M edges and is deep enough to overflow the stack of a recursive traversal.
+ * <p>
+ * Run from the core module with:
+ * {@code java ... org.pentaho.metaverse.graph.GraphTraversalBenchmark [layers] [fieldsPerLayer] [derivesPerField]}
+ */
+public class GraphTraversalBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+
+  private static final int MEASURED_ROUNDS = 5;
+
+  private static final int STARTS_PER_ROUND = 20;
+
+  public static void main( String[] args ) {
+    final int layers = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 200;
+    final int fieldsPerLayer = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 1000;
+    final int derivesPerField = args.length > 2 ? Integer.parseInt( args[ 2 ] ) : 5;
+
+    long start = System.nanoTime();
+    final Graph graph = buildGraph( layers, fieldsPerLayer, derivesPerField );
+    long edgeCount = 0;
+    for ( final Object ignored : graph.getEdges() ) {
+      edgeCount++;
+    }
+    System.out.println( String.format( "built graph with %d edges in %d ms", edgeCount,
+      ( System.nanoTime() - start ) / 1000000L ) );
+
+    final BlueprintsGraphMetaverseReader reader = new BlueprintsGraphMetaverseReader( graph );
+    final List<String> resultTypes = Collections.singletonList( DictionaryConst.NODE_TYPE_TRANS_FIELD );
+    final Random random = new Random( 42 );
+    for ( int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++ ) {
+      final List<String> startIds = new ArrayList<>();
+      for ( int i = 0; i < STARTS_PER_ROUND; i++ ) {
+        startIds.add( fieldId( random.nextInt( layers ), random.nextInt( fieldsPerLayer ) ) );
+      }
+      long vertices = 0;
+      start = System.nanoTime();
+      for ( final String startId : startIds ) {
+        vertices += count( reader.search( resultTypes, Collections.singletonList( startId ), true ) );
+      }
+      final long search = System.nanoTime() - start;
+      start = System.nanoTime();
+      for ( final String startId : startIds.subList( 0, 2 ) ) {
+        vertices += count( reader.getGraph( startId ) );
+      }
+      final long subGraph = System.nanoTime() - start;
+      if ( round >= WARMUP_ROUNDS ) {
+        System.out.println( String.format( "search x%d: %d ms  getGraph x2: %d ms  (%d vertices)", STARTS_PER_ROUND,
+          search / 1000000L, subGraph / 1000000L, vertices ) );
+      }
+    }
+  }
+
+  private static Graph buildGraph( final int layers, final int fieldsPerLayer, final int derivesPerField ) {
+    final Graph graph = new TinkerGraph();
+    final Random random = new Random( 7 );
+    for ( int layer = 0; layer < layers; layer++ ) {
+      final Vertex step = graph.addVertex( "step" + layer );
+      step.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP );
+      for ( int field = 0; field < fieldsPerLayer; field++ ) {
+        final Vertex vertex = graph.addVertex( fieldId( layer, field ) );
+        vertex.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_FIELD );
+        vertex.setProperty( DictionaryConst.PROPERTY_NAME, "field" + field );
+        graph.addEdge( null, step, vertex, DictionaryConst.LINK_OUTPUTS );
+        if ( layer > 0 ) {
+          for ( int i = 0; i < derivesPerField; i++ ) {
+            final Vertex from = graph.getVertex( fieldId( layer - 1, random.nextInt( fieldsPerLayer ) ) );
+            graph.addEdge( null, from, vertex, DictionaryConst.LINK_DERIVES );
+          }
+        }
+      }
+    }
+    return graph;
+  }
+
+  private static String fieldId( final int layer, final int field ) {
+    return layer + "." + field;
+  }
+
+  private static long count( final Graph graph ) {
+    long count = 0;
+    for ( final Object ignored : graph.getVertices() ) {
+      count++;
+    }
+    return count;
+  }
+}
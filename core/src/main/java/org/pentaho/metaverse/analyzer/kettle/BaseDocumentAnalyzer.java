@@ -17,11 +17,16 @@ import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.api.IClonableDocumentAnalyzer;
 import org.pentaho.metaverse.api.IComponentDescriptor;
 import org.pentaho.metaverse.api.IDocument;
+import org.pentaho.metaverse.api.IDocumentContent;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.MetaverseAnalyzerException;
 import org.pentaho.metaverse.api.analyzer.kettle.BaseKettleMetaverseComponent;
 import org.pentaho.metaverse.messages.Messages;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * Created by gmoran on 8/11/14.
  */
@@ -56,6 +61,23 @@ public abstract class BaseDocumentAnalyzer extends BaseKettleMetaverseComponent
 
   }
 
+  /**
+   * Opens a stream on the XML content of a document, whether it was located as a String or as an
+   * {@link IDocumentContent} read on demand.
+   *
+   * @param repoObject the document content
+   * @return the stream, or null if the content is not XML (e.g. an already loaded object)
+   * @throws IOException if the content cannot be read
+   */
+  protected InputStream openContentStream( Object repoObject ) throws IOException {
+    if ( repoObject instanceof String ) {
+      return new ByteArrayInputStream( ( (String) repoObject ).getBytes() );
+    } else if ( repoObject instanceof IDocumentContent ) {
+      return ( (IDocumentContent) repoObject ).openStream();
+    }
+    return null;
+  }
+
   /**
    * This method creates the document
    * node relationships with the system level structural and data nodes in the graph.
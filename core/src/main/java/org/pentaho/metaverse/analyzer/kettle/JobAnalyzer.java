@@ -32,8 +32,8 @@ import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseAnalyzerException;
 import org.pentaho.metaverse.api.MetaverseComponentDescriptor;
-import org.pentaho.metaverse.api.Namespace;
 import org.pentaho.metaverse.api.PropertiesHolder;
+import org.pentaho.metaverse.api.StructuredNamespace;
 import org.pentaho.metaverse.api.analyzer.kettle.annotations.AnnotatedClassFields;
 import org.pentaho.metaverse.api.analyzer.kettle.annotations.AnnotationDrivenJobAnalyzer;
 import org.pentaho.metaverse.api.analyzer.kettle.jobentry.IClonableJobEntryAnalyzer;
@@ -44,7 +44,8 @@ import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -78,26 +79,26 @@ public class JobAnalyzer extends BaseDocumentAnalyzer {
     Object repoObject = document.getContent();
 
     JobMeta jobMeta = null;
-    if ( repoObject instanceof String ) {
+    if ( repoObject instanceof JobMeta ) {
+      jobMeta = (JobMeta) repoObject;
+    } else {
 
       // hydrate the job
-      try {
-        String content = (String) repoObject;
-        ByteArrayInputStream xmlStream = new ByteArrayInputStream( content.getBytes() );
-        jobMeta = new JobMeta( xmlStream, null, null );
-      } catch ( KettleXMLException e ) {
+      try ( InputStream xmlStream = openContentStream( repoObject ) ) {
+        if ( xmlStream != null ) {
+          jobMeta = new JobMeta( xmlStream, null, null );
+        }
+      } catch ( KettleXMLException | IOException e ) {
         throw new MetaverseAnalyzerException( e );
       }
 
-    } else if ( repoObject instanceof JobMeta ) {
-      jobMeta = (JobMeta) repoObject;
     }
 
     // construct a dummy job based on our JobMeta so we get out VariableSpace set properly
     jobMeta.setFilename( document.getStringID() );
 
     IComponentDescriptor documentDescriptor = new MetaverseComponentDescriptor( document.getStringID(),
-      DictionaryConst.NODE_TYPE_JOB, new Namespace( descriptor.getLogicalId() ), descriptor.getContext() );
+      DictionaryConst.NODE_TYPE_JOB, StructuredNamespace.of( descriptor.getLogicalId() ), descriptor.getContext() );
 
     // Create a metaverse node and start filling in details
     IMetaverseNode jobNode = metaverseObjectFactory.createNodeObject(
@@ -243,7 +244,7 @@ public class JobAnalyzer extends BaseDocumentAnalyzer {
       JobHopMeta hop = jobMeta.getJobHop( i );
       JobEntryCopy fromEntry = hop.getFromEntry();
       JobEntryCopy toEntry = hop.getToEntry();
-      INamespace childNs = new Namespace( node.getLogicalId() );
+      INamespace childNs = StructuredNamespace.ofNode( node );
 
       // process legitimate hops
       if ( fromEntry != null && toEntry != null ) {
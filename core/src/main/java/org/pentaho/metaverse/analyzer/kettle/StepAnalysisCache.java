@@ -0,0 +1,174 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.analyzer.kettle;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.metaverse.api.IMetaverseNode;
+import org.pentaho.metaverse.api.RecordingMetaverseBuilder;
+import org.pentaho.metaverse.api.analyzer.kettle.step.RowMetaCache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers what the analysis of each step of a transformation added to the graph, so that the next analysis of the
+ * same (edited) transformation only re-runs the analyzers of the steps whose XML, hops or incoming row metadata changed,
+ * and replays the recorded changes of the others.
+ * <p>
+ * Caching is opt-in, per {@link TransMeta} instance: it is enabled for the transformations open in the designer, whose
+ * lineage graph is rebuilt on every change. Caches are dropped when their transformation is garbage collected, or when
+ * more than {@link #MAXIMUM_TRANSFORMATIONS} transformations are cached. A cache only holds snapshots of what was
+ * recorded, never the steps, their analyzers or their transformation, so it does not keep its transformation alive.
+ */
+public class StepAnalysisCache {
+
+  public static final int MAXIMUM_TRANSFORMATIONS = 100;
+
+  private static final Cache<TransMeta, StepAnalysisCache> CACHES =
+    CacheBuilder.newBuilder().weakKeys().maximumSize( MAXIMUM_TRANSFORMATIONS ).build();
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Enables incremental analysis for the given transformation.
+   *
+   * @return the step cache of the transformation
+   */
+  public static StepAnalysisCache enable( final TransMeta transMeta ) {
+    return CACHES.asMap().computeIfAbsent( transMeta, key -> new StepAnalysisCache() );
+  }
+
+  /**
+   * @return the step cache of the given transformation, or null if incremental analysis is not enabled for it
+   */
+  public static StepAnalysisCache get( final TransMeta transMeta ) {
+    return transMeta == null ? null : CACHES.getIfPresent( transMeta );
+  }
+
+  public static void disable( final TransMeta transMeta ) {
+    CACHES.invalidate( transMeta );
+  }
+
+  /**
+   * Computes what the analysis of a step depends on: the transformation node, the step XML, the name and fields of
+   * each previous step (including info steps), the names of the next steps, and the hops from and to the step.
+   */
+  static String fingerprint( final TransMeta transMeta, final RowMetaCache rowMetaCache, final StepMeta stepMeta,
+                             final IMetaverseNode documentNode ) throws KettleException {
+    final StringBuilder fingerprint = new StringBuilder();
+    fingerprint.append( documentNode.getLogicalId() ).append( '\n' ).append( stepMeta.getXML() );
+    for ( final StepMeta prevStep : transMeta.findPreviousSteps( stepMeta, true ) ) {
+      final RowMetaInterface fields = rowMetaCache.getStepFields( transMeta, prevStep );
+      fingerprint.append( '\n' ).append( prevStep.getName() ).append( ':' )
+        .append( fields == null ? "" : fields.toStringMeta() );
+    }
+    final String[] nextStepNames = transMeta.getNextStepNames( stepMeta );
+    if ( nextStepNames != null ) {
+      for ( final String nextStepName : nextStepNames ) {
+        fingerprint.append( "\n>" ).append( nextStepName );
+      }
+    }
+    for ( int i = 0; i < transMeta.nrTransHops(); i++ ) {
+      final TransHopMeta hop = transMeta.getTransHop( i );
+      if ( hop.getFromStep() == stepMeta || hop.getToStep() == stepMeta ) {
+        fingerprint.append( '\n' ).append( hop.getFromStep() == null ? "" : hop.getFromStep().getName() )
+          .append( "->" ).append( hop.getToStep() == null ? "" : hop.getToStep().getName() )
+          .append( ':' ).append( hop.isEnabled() );
+      }
+    }
+    return fingerprint.toString();
+  }
+
+  /**
+   * @return the cached analysis of the step, or null if there is none for this fingerprint
+   */
+  Entry get( final String stepName, final String fingerprint ) {
+    final Entry entry = entries.get( stepName );
+    if ( entry != null && entry.fingerprint.equals( fingerprint ) ) {
+      hits.increment();
+      return entry;
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Caches the analysis of a step, if the recorded changes can be replayed on another graph.
+   */
+  void put( final String stepName, final String fingerprint, final RecordingMetaverseBuilder recording,
+            final IMetaverseNode stepNode ) {
+    if ( recording.isGraphIndependent() ) {
+      // the recording must not keep the graph it was made for alive
+      entries.put( stepName,
+        new Entry( fingerprint, recording.detach(), RecordingMetaverseBuilder.snapshot( stepNode ) ) );
+    } else {
+      entries.remove( stepName );
+    }
+  }
+
+  /**
+   * Forgets the steps that are no longer part of the transformation.
+   */
+  void retainSteps( final Collection<String> stepNames ) {
+    entries.keySet().retainAll( stepNames );
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * The recorded analysis of one step. The analyzers that made it are not kept: they are bound to the step and builder
+   * of their run, and the steps they could post-process, those analyzing a sub-transformation or sub-job, are never
+   * cached.
+   */
+  static final class Entry {
+
+    private final String fingerprint;
+    private final RecordingMetaverseBuilder recording;
+    private final IMetaverseNode stepNode;
+
+    Entry( final String fingerprint, final RecordingMetaverseBuilder recording, final IMetaverseNode stepNode ) {
+      this.fingerprint = fingerprint;
+      this.recording = recording;
+      this.stepNode = stepNode;
+    }
+
+    RecordingMetaverseBuilder getRecording() {
+      return recording;
+    }
+
+    IMetaverseNode getStepNode() {
+      return stepNode;
+    }
+  }
+}
@@ -18,40 +18,57 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.parameters.UnknownParamException;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.ISubTransAwareMeta;
 import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.jobexecutor.JobExecutorMeta;
 import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.analyzer.kettle.step.GenericStepMetaAnalyzer;
 import org.pentaho.metaverse.analyzer.kettle.step.StepAnalyzerProvider;
 import org.pentaho.metaverse.api.IClonableDocumentAnalyzer;
 import org.pentaho.metaverse.api.IComponentDescriptor;
 import org.pentaho.metaverse.api.IDocument;
+import org.pentaho.metaverse.api.IMetaverseBuilder;
 import org.pentaho.metaverse.api.IMetaverseLink;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseAnalyzerException;
+import org.pentaho.metaverse.api.MetaverseBatch;
 import org.pentaho.metaverse.api.MetaverseComponentDescriptor;
-import org.pentaho.metaverse.api.Namespace;
 import org.pentaho.metaverse.api.PropertiesHolder;
+import org.pentaho.metaverse.api.RecordingMetaverseBuilder;
+import org.pentaho.metaverse.api.StructuredNamespace;
 import org.pentaho.metaverse.api.analyzer.kettle.annotations.AnnotatedClassFields;
 import org.pentaho.metaverse.api.analyzer.kettle.annotations.AnnotationDrivenStepMetaAnalyzer;
 import org.pentaho.metaverse.api.analyzer.kettle.step.IClonableStepAnalyzer;
 import org.pentaho.metaverse.api.analyzer.kettle.step.IStepAnalyzer;
 import org.pentaho.metaverse.api.analyzer.kettle.step.IStepAnalyzerProvider;
+import org.pentaho.metaverse.api.analyzer.kettle.step.RowMetaCache;
+import org.pentaho.metaverse.api.analyzer.kettle.step.StepAnalyzer;
+import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.messages.Messages;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The TransformationAnalyzer class is responsible for gathering transformation metadata, creating links
@@ -78,8 +95,24 @@ public class TransformationAnalyzer extends BaseDocumentAnalyzer {
 
   private static final Logger log = LoggerFactory.getLogger( TransformationAnalyzer.class );
 
+  private static final ThreadFactory STEP_ANALYSIS_THREAD_FACTORY = runnable -> {
+    final Thread thread = new StepAnalysisThread( runnable );
+    thread.setDaemon( true );
+    return thread;
+  };
+
+  /**
+   * Shared by all analyzers, so that concurrent and nested analyses never use more than the configured number of
+   * threads between them.
+   */
+  private static ThreadPoolExecutor stepAnalysisExecutor;
+
+  /**
+   * Analyzes a transformation document. Every analysis keeps its state in local variables, and step analyzers are
+   * cloned for each step, so several transformations can be analyzed by the same analyzer at once.
+   */
   @Override
-  public synchronized IMetaverseNode analyze( IComponentDescriptor descriptor, IDocument document )
+  public IMetaverseNode analyze( IComponentDescriptor descriptor, IDocument document )
     throws MetaverseAnalyzerException {
 
     validateState( document );
@@ -87,25 +120,25 @@ public class TransformationAnalyzer extends BaseDocumentAnalyzer {
     Object repoObject = document.getContent();
 
     TransMeta transMeta = null;
-    if ( repoObject instanceof String ) {
+    if ( repoObject instanceof TransMeta ) {
+      transMeta = (TransMeta) repoObject;
+    } else {
       // hydrate the transformation
-      try {
-        String content = (String) repoObject;
-        ByteArrayInputStream xmlStream = new ByteArrayInputStream( content.getBytes() );
-        transMeta = new TransMeta( xmlStream, null, false, null, null );
-        transMeta.setFilename( document.getStringID() );
-        if ( transMeta.hasMissingPlugins() ) {
-          throw new MetaverseAnalyzerException( Messages.getErrorString( "ERROR.MissingPlugin" ) );
+      try ( InputStream xmlStream = openContentStream( repoObject ) ) {
+        if ( xmlStream != null ) {
+          transMeta = new TransMeta( xmlStream, null, false, null, null );
+          transMeta.setFilename( document.getStringID() );
+          if ( transMeta.hasMissingPlugins() ) {
+            throw new MetaverseAnalyzerException( Messages.getErrorString( "ERROR.MissingPlugin" ) );
+          }
         }
-      } catch ( KettleException e ) {
+      } catch ( KettleException | IOException e ) {
         throw new MetaverseAnalyzerException( e );
       }
-    } else if ( repoObject instanceof TransMeta ) {
-      transMeta = (TransMeta) repoObject;
     }
 
     IComponentDescriptor documentDescriptor = new MetaverseComponentDescriptor( document.getStringID(),
-      DictionaryConst.NODE_TYPE_TRANS, new Namespace( descriptor.getLogicalId() ), descriptor.getContext() );
+      DictionaryConst.NODE_TYPE_TRANS, StructuredNamespace.of( descriptor.getLogicalId() ), descriptor.getContext() );
 
     // Create a metaverse node and start filling in details
     IMetaverseNode transNode = metaverseObjectFactory.createNodeObject(
@@ -118,7 +151,7 @@ public class TransformationAnalyzer extends BaseDocumentAnalyzer {
   }
 
   @Override
-  public synchronized IMetaverseNode analyze(
+  public IMetaverseNode analyze(
     final IComponentDescriptor documentDescriptor, final AbstractMeta meta, final IMetaverseNode node,
     final String documentPath ) throws MetaverseAnalyzerException {
 
@@ -189,63 +222,23 @@ public class TransformationAnalyzer extends BaseDocumentAnalyzer {
       }
     }
     final List<AnalyzerHolder> analyzerHolders = new ArrayList();
+    // the document's own nodes and links (step containment, hops) are added to the graph in one batch
+    final MetaverseBatch batch = new MetaverseBatch( metaverseBuilder );
+    // the fields of every step are resolved once, and shared by all step analyzers
+    final RowMetaCache rowMetaCache = RowMetaCache.build( transMeta );
 
-    // handle the step
-    for ( int stepNr = 0; stepNr < transMeta.nrSteps(); stepNr++ ) {
-      StepMeta stepMeta = transMeta.getStep( stepNr );
-      try {
-        if ( stepMeta != null ) {
-          if ( stepMeta.getParentTransMeta() == null ) {
-            stepMeta.setParentTransMeta( transMeta );
-          }
+    // the recorded step analyses of a transformation being edited, if any
+    final StepAnalysisCache stepAnalysisCache = StepAnalysisCache.get( transMeta );
 
-          IMetaverseNode stepNode = null;
-          IComponentDescriptor stepDescriptor = new MetaverseComponentDescriptor( stepMeta.getName(),
-            DictionaryConst.NODE_TYPE_TRANS_STEP, node, documentDescriptor.getContext() );
-          Set<IStepAnalyzer> stepAnalyzers = getStepAnalyzers( stepMeta );
-          final BaseStepMeta baseStepMeta = getBaseStepMetaFromStepMeta( stepMeta );
-          if ( stepAnalyzers != null && !stepAnalyzers.isEmpty() ) {
-            for ( IStepAnalyzer stepAnalyzer : stepAnalyzers ) {
-              // the analyzers provided by the provider are singletons created at startup time - in order to be able
-              // to analyze multiple transformations concurrently, we need to clone the analyzer, such that each
-              // transformation step has its own dedicated analyzer with a metaverseBuilder that is unique to the
-              // transformation execution and does not change while the transformation is being analyzed
-              if ( stepAnalyzer instanceof IClonableStepAnalyzer ) {
-                stepAnalyzer = ( (IClonableStepAnalyzer) stepAnalyzer ).cloneAnalyzer();
-                ( (IClonableStepAnalyzer) stepAnalyzer ).setDocumentAnalyzer( this );
-                ( (IClonableStepAnalyzer) stepAnalyzer ).setDocumentDescriptor( documentDescriptor );
-                ( (IClonableStepAnalyzer) stepAnalyzer ).setDocumentPath( documentPath );
-              } else {
-                log.debug( Messages.getString( "WARNING.CannotCloneAnalyzer" ), stepAnalyzer );
-              }
-              stepAnalyzer.setMetaverseBuilder( metaverseBuilder );
-              stepNode = (IMetaverseNode) stepAnalyzer.analyze( stepDescriptor, baseStepMeta );
-              analyzerHolders.add( new AnalyzerHolder( stepAnalyzer, baseStepMeta, stepNode ) );
-            }
-          } else if ( ( new AnnotatedClassFields( baseStepMeta ) ).hasMetaverseAnnotations() ) {
-            AnnotationDrivenStepMetaAnalyzer annotationDrivenStepMetaAnalyzer =
-              new AnnotationDrivenStepMetaAnalyzer( baseStepMeta );
-            annotationDrivenStepMetaAnalyzer.setMetaverseBuilder( metaverseBuilder );
-            annotationDrivenStepMetaAnalyzer.setDocumentAnalyzer( this );
-            annotationDrivenStepMetaAnalyzer.setDocumentDescriptor( documentDescriptor );
-            annotationDrivenStepMetaAnalyzer.setDocumentPath( documentPath );
-            stepNode = annotationDrivenStepMetaAnalyzer.analyze( stepDescriptor, baseStepMeta );
-            analyzerHolders.add( new AnalyzerHolder( annotationDrivenStepMetaAnalyzer, baseStepMeta, stepNode ) );
-          } else {
-            GenericStepMetaAnalyzer defaultStepAnalyzer = new GenericStepMetaAnalyzer();
-            defaultStepAnalyzer.setMetaverseBuilder( metaverseBuilder );
-            stepNode = defaultStepAnalyzer.analyze( stepDescriptor, getBaseStepMetaFromStepMeta( stepMeta ) );
-          }
-          if ( stepNode != null ) {
-            metaverseBuilder.addLink( node, DictionaryConst.LINK_CONTAINS, stepNode );
-          }
-        }
-      } catch ( Throwable mae ) {
-        //Don't throw an exception, just log and carry on
-        log.warn( Messages.getString( "ERROR.ErrorDuringAnalysis", stepMeta.getName(),
-          Const.NVL( mae.getLocalizedMessage(), "Unspecified" ) ) );
-        log.debug( Messages.getString( "ERROR.ErrorDuringAnalysisStackTrace" ), mae );
-      }
+    // handle the step
+    if ( stepAnalysisCache != null ) {
+      analyzeStepsIncrementally( transMeta, rowMetaCache, node, documentDescriptor, documentPath, analyzerHolders,
+        batch, stepAnalysisCache );
+    } else if ( MetaverseConfig.parallelStepAnalysis() && transMeta.nrSteps() > 1 ) {
+      analyzeStepsInParallel( transMeta, rowMetaCache, node, documentDescriptor, documentPath, analyzerHolders,
+        batch );
+    } else {
+      analyzeSteps( transMeta, rowMetaCache, node, documentDescriptor, documentPath, analyzerHolders, batch );
     }
 
     // Model the hops between steps
@@ -254,7 +247,7 @@ public class TransformationAnalyzer extends BaseDocumentAnalyzer {
       TransHopMeta hop = transMeta.getTransHop( i );
       StepMeta fromStep = hop.getFromStep();
       StepMeta toStep = hop.getToStep();
-      INamespace childNs = new Namespace( node.getLogicalId() );
+      INamespace childNs = StructuredNamespace.ofNode( node );
 
       // process legitimate hops
       if ( fromStep != null && toStep != null ) {
@@ -289,11 +282,12 @@ public class TransformationAnalyzer extends BaseDocumentAnalyzer {
           }
         }
         link.setProperty( DictionaryConst.PROPERTY_TYPE, linkType );
-        metaverseBuilder.addLink( link );
+        batch.addLink( link );
       }
     }
 
-    metaverseBuilder.addNode( node );
+    batch.addNode( node );
+    batch.commit();
     addParentLink( documentDescriptor, node );
 
     // perform any necessary post processing - currently only supported on IClonableStepAnalyzers
@@ -307,6 +301,335 @@ public class TransformationAnalyzer extends BaseDocumentAnalyzer {
     return node;
   }
 
+  /**
+   * Analyzes the steps one at a time, in step order.
+   */
+  private void analyzeSteps( final TransMeta transMeta, final RowMetaCache rowMetaCache, final IMetaverseNode node,
+                             final IComponentDescriptor documentDescriptor, final String documentPath,
+                             final List<AnalyzerHolder> analyzerHolders, final MetaverseBatch batch ) {
+    for ( int stepNr = 0; stepNr < transMeta.nrSteps(); stepNr++ ) {
+      final StepMeta stepMeta = transMeta.getStep( stepNr );
+      try {
+        final IMetaverseNode stepNode = analyzeStep( transMeta, rowMetaCache, stepMeta, node, documentDescriptor,
+          documentPath, metaverseBuilder, analyzerHolders );
+        if ( stepNode != null ) {
+          batch.addLink( node, DictionaryConst.LINK_CONTAINS, stepNode );
+        }
+      } catch ( Throwable mae ) {
+        logStepError( stepMeta, mae );
+      }
+    }
+  }
+
+  /**
+   * Analyzes the steps one at a time, in step order, replaying the recorded analysis of the steps that did not change
+   * since the transformation was last analyzed instead of running their analyzers again. Steps that analyze a
+   * sub-transformation or sub-job are always analyzed.
+   */
+  private void analyzeStepsIncrementally( final TransMeta transMeta, final RowMetaCache rowMetaCache,
+                                          final IMetaverseNode node, final IComponentDescriptor documentDescriptor,
+                                          final String documentPath, final List<AnalyzerHolder> analyzerHolders,
+                                          final MetaverseBatch batch, final StepAnalysisCache stepAnalysisCache ) {
+    final Set<String> stepNames = new HashSet<>();
+    for ( int stepNr = 0; stepNr < transMeta.nrSteps(); stepNr++ ) {
+      final StepMeta stepMeta = transMeta.getStep( stepNr );
+      try {
+        final IMetaverseNode stepNode;
+        if ( stepMeta == null || isAnalyzedInStepOrder( stepMeta ) ) {
+          stepNode = analyzeStep( transMeta, rowMetaCache, stepMeta, node, documentDescriptor, documentPath,
+            metaverseBuilder, analyzerHolders );
+        } else {
+          final String stepName = stepMeta.getName();
+          stepNames.add( stepName );
+          final String fingerprint = StepAnalysisCache.fingerprint( transMeta, rowMetaCache, stepMeta, node );
+          final StepAnalysisCache.Entry cached = stepAnalysisCache.get( stepName, fingerprint );
+          if ( cached != null ) {
+            // only steps analyzing a sub-transformation or sub-job need post processing, and they are not cached
+            cached.getRecording().replay( metaverseBuilder );
+            stepNode = cached.getStepNode();
+          } else {
+            final RecordingMetaverseBuilder recording = new RecordingMetaverseBuilder( metaverseBuilder );
+            final List<AnalyzerHolder> stepAnalyzerHolders = new ArrayList<>();
+            stepNode = analyzeStep( transMeta, rowMetaCache, stepMeta, node, documentDescriptor, documentPath,
+              recording, stepAnalyzerHolders );
+            recording.replay( metaverseBuilder );
+            stepAnalysisCache.put( stepName, fingerprint, recording, stepNode );
+            for ( final AnalyzerHolder analyzerHolder : stepAnalyzerHolders ) {
+              // post processing happens on the real builder
+              analyzerHolder.getAnalyzer().setMetaverseBuilder( metaverseBuilder );
+              analyzerHolders.add( analyzerHolder );
+            }
+          }
+        }
+        if ( stepNode != null ) {
+          batch.addLink( node, DictionaryConst.LINK_CONTAINS, stepNode );
+        }
+      } catch ( Throwable mae ) {
+        logStepError( stepMeta, mae );
+      }
+    }
+    stepAnalysisCache.retainSteps( stepNames );
+  }
+
+  /**
+   * Runs the analyzers of a single step against the given builder.
+   *
+   * @return the step node, or null if there is no step
+   */
+  private IMetaverseNode analyzeStep( final TransMeta transMeta, final RowMetaCache rowMetaCache,
+                                      final StepMeta stepMeta, final IMetaverseNode node,
+                                      final IComponentDescriptor documentDescriptor, final String documentPath,
+                                      final IMetaverseBuilder builder, final List<AnalyzerHolder> analyzerHolders )
+    throws MetaverseAnalyzerException {
+
+    if ( stepMeta == null ) {
+      return null;
+    }
+    if ( stepMeta.getParentTransMeta() == null ) {
+      stepMeta.setParentTransMeta( transMeta );
+    }
+
+    IMetaverseNode stepNode = null;
+    IComponentDescriptor stepDescriptor = new MetaverseComponentDescriptor( stepMeta.getName(),
+      DictionaryConst.NODE_TYPE_TRANS_STEP, node, documentDescriptor.getContext() );
+    Set<IStepAnalyzer> stepAnalyzers = getStepAnalyzers( stepMeta );
+    final BaseStepMeta baseStepMeta = getBaseStepMetaFromStepMeta( stepMeta );
+    if ( stepAnalyzers != null && !stepAnalyzers.isEmpty() ) {
+      for ( IStepAnalyzer stepAnalyzer : stepAnalyzers ) {
+        // the analyzers provided by the provider are singletons created at startup time - in order to be able
+        // to analyze multiple transformations concurrently, we need to clone the analyzer, such that each
+        // transformation step has its own dedicated analyzer with a metaverseBuilder that is unique to the
+        // transformation execution and does not change while the transformation is being analyzed
+        if ( stepAnalyzer instanceof IClonableStepAnalyzer ) {
+          stepAnalyzer = ( (IClonableStepAnalyzer) stepAnalyzer ).cloneAnalyzer();
+          ( (IClonableStepAnalyzer) stepAnalyzer ).setDocumentAnalyzer( this );
+          ( (IClonableStepAnalyzer) stepAnalyzer ).setDocumentDescriptor( documentDescriptor );
+          ( (IClonableStepAnalyzer) stepAnalyzer ).setDocumentPath( documentPath );
+        } else {
+          log.debug( Messages.getString( "WARNING.CannotCloneAnalyzer" ), stepAnalyzer );
+        }
+        stepAnalyzer.setMetaverseBuilder( builder );
+        if ( stepAnalyzer instanceof StepAnalyzer ) {
+          ( (StepAnalyzer) stepAnalyzer ).setRowMetaCache( rowMetaCache );
+        }
+        stepNode = (IMetaverseNode) stepAnalyzer.analyze( stepDescriptor, baseStepMeta );
+        analyzerHolders.add( new AnalyzerHolder( stepAnalyzer, baseStepMeta, stepNode ) );
+      }
+    } else if ( ( new AnnotatedClassFields( baseStepMeta ) ).hasMetaverseAnnotations() ) {
+      AnnotationDrivenStepMetaAnalyzer annotationDrivenStepMetaAnalyzer =
+        new AnnotationDrivenStepMetaAnalyzer( baseStepMeta );
+      annotationDrivenStepMetaAnalyzer.setMetaverseBuilder( builder );
+      annotationDrivenStepMetaAnalyzer.setDocumentAnalyzer( this );
+      annotationDrivenStepMetaAnalyzer.setDocumentDescriptor( documentDescriptor );
+      annotationDrivenStepMetaAnalyzer.setDocumentPath( documentPath );
+      annotationDrivenStepMetaAnalyzer.setRowMetaCache( rowMetaCache );
+      stepNode = annotationDrivenStepMetaAnalyzer.analyze( stepDescriptor, baseStepMeta );
+      analyzerHolders.add( new AnalyzerHolder( annotationDrivenStepMetaAnalyzer, baseStepMeta, stepNode ) );
+    } else {
+      GenericStepMetaAnalyzer defaultStepAnalyzer = new GenericStepMetaAnalyzer();
+      defaultStepAnalyzer.setMetaverseBuilder( builder );
+      defaultStepAnalyzer.setRowMetaCache( rowMetaCache );
+      stepNode = defaultStepAnalyzer.analyze( stepDescriptor, getBaseStepMetaFromStepMeta( stepMeta ) );
+    }
+    return stepNode;
+  }
+
+  /**
+   * Analyzes the steps concurrently, each against a {@link RecordingMetaverseBuilder}, and then replays the recorded
+   * changes on the real builder in step order, so that the graph is built exactly as it is when the steps are
+   * analyzed one at a time.
+   * <p>
+   * Each worker thread analyzes its steps on its own copy of the transformation, because {@link TransMeta} caches the
+   * fields of its steps in maps that are not thread-safe. Steps that analyze a sub-transformation or sub-job (see
+   * {@link #isAnalyzedInStepOrder(StepMeta)}) read the graph and re-enter this analyzer, so they are analyzed on the
+   * calling thread, in their turn, while the recorded changes are replayed.
+   */
+  private void analyzeStepsInParallel( final TransMeta transMeta, final RowMetaCache rowMetaCache,
+                                       final IMetaverseNode node, final IComponentDescriptor documentDescriptor,
+                                       final String documentPath,
+                                       final List<AnalyzerHolder> analyzerHolders, final MetaverseBatch batch )
+    throws MetaverseAnalyzerException {
+
+    final int nrSteps = transMeta.nrSteps();
+    final StepAnalysis[] analyses = new StepAnalysis[ nrSteps ];
+    int nrConcurrentSteps = 0;
+    for ( int stepNr = 0; stepNr < nrSteps; stepNr++ ) {
+      final StepMeta stepMeta = transMeta.getStep( stepNr );
+      if ( stepMeta != null && !isAnalyzedInStepOrder( stepMeta ) ) {
+        analyses[ stepNr ] = new StepAnalysis( new RecordingMetaverseBuilder( metaverseBuilder ) );
+        nrConcurrentSteps++;
+      }
+    }
+    final int poolSize = MetaverseConfig.stepAnalysisThreads();
+    final int nrThreads = Math.min( poolSize, nrConcurrentSteps );
+    if ( nrThreads < 2 || Thread.currentThread() instanceof StepAnalysisThread ) {
+      // not enough steps to share, or already on the shared pool, where waiting on it could deadlock
+      analyzeSteps( transMeta, rowMetaCache, node, documentDescriptor, documentPath, analyzerHolders, batch );
+      return;
+    }
+    final BlockingQueue<TransMeta> transMetaCopies = new LinkedBlockingQueue<>();
+    try {
+      for ( int i = 0; i < nrThreads; i++ ) {
+        final TransMeta copy = copyTransMeta( transMeta );
+        rowMetaCache.addCopy( copy );
+        transMetaCopies.add( copy );
+      }
+    } catch ( RuntimeException e ) {
+      log.debug( "Cannot copy transformation " + transMeta.getName() + ", analyzing its steps one at a time", e );
+      analyzeSteps( transMeta, rowMetaCache, node, documentDescriptor, documentPath, analyzerHolders, batch );
+      return;
+    }
+    // the provider loads its analyzers lazily, make sure that happens before the workers start
+    if ( getStepAnalyzerProvider() != null ) {
+      getStepAnalyzerProvider().getAnalyzers();
+    }
+
+    final ExecutorService executor = getStepAnalysisExecutor( poolSize );
+    final List<Future<?>> futures = new ArrayList<>();
+    try {
+      for ( int stepNr = 0; stepNr < nrSteps; stepNr++ ) {
+        final StepAnalysis analysis = analyses[ stepNr ];
+        if ( analysis != null ) {
+          final int copyStepNr = stepNr;
+          futures.add( executor.submit( () -> {
+            // one copy per thread this analysis can use; the shared pool may have been resized since
+            final TransMeta transMetaCopy;
+            try {
+              transMetaCopy = transMetaCopies.take();
+            } catch ( InterruptedException e ) {
+              Thread.currentThread().interrupt();
+              analysis.error = e;
+              return;
+            }
+            try {
+              analysis.stepNode = analyzeStep( transMetaCopy, rowMetaCache, transMetaCopy.getStep( copyStepNr ),
+                node, documentDescriptor, documentPath, analysis.builder, analysis.analyzerHolders );
+            } catch ( Throwable t ) {
+              analysis.error = t;
+            } finally {
+              transMetaCopies.add( transMetaCopy );
+            }
+          } ) );
+        }
+      }
+      for ( final Future<?> future : futures ) {
+        future.get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new MetaverseAnalyzerException( e );
+    } catch ( ExecutionException e ) {
+      throw new MetaverseAnalyzerException( e.getCause() );
+    } finally {
+      // the executor is shared, only this analysis' own tasks are stopped
+      for ( final Future<?> future : futures ) {
+        future.cancel( true );
+      }
+    }
+
+    for ( int stepNr = 0; stepNr < nrSteps; stepNr++ ) {
+      final StepMeta stepMeta = transMeta.getStep( stepNr );
+      final StepAnalysis analysis = analyses[ stepNr ];
+      try {
+        final IMetaverseNode stepNode;
+        if ( analysis == null ) {
+          stepNode = analyzeStep( transMeta, rowMetaCache, stepMeta, node, documentDescriptor, documentPath,
+            metaverseBuilder, analyzerHolders );
+        } else {
+          analysis.builder.replay();
+          for ( final AnalyzerHolder analyzerHolder : analysis.analyzerHolders ) {
+            // post processing happens on the real builder
+            analyzerHolder.getAnalyzer().setMetaverseBuilder( metaverseBuilder );
+            analyzerHolders.add( analyzerHolder );
+          }
+          if ( analysis.error != null ) {
+            throw analysis.error;
+          }
+          stepNode = analysis.stepNode;
+        }
+        if ( stepNode != null ) {
+          batch.addLink( node, DictionaryConst.LINK_CONTAINS, stepNode );
+        }
+      } catch ( Throwable mae ) {
+        logStepError( stepMeta, mae );
+      }
+    }
+  }
+
+  /**
+   * Returns true if the given step must be analyzed on the calling thread, in step order, when steps are analyzed in
+   * parallel: steps that execute a sub-transformation or sub-job analyze it as part of their own analysis.
+   */
+  protected boolean isAnalyzedInStepOrder( final StepMeta stepMeta ) {
+    final StepMetaInterface stepMetaInterface = stepMeta.getStepMetaInterface();
+    return stepMetaInterface instanceof ISubTransAwareMeta || stepMetaInterface instanceof JobExecutorMeta;
+  }
+
+  private static TransMeta copyTransMeta( final TransMeta transMeta ) {
+    final TransMeta copy = (TransMeta) transMeta.clone();
+    if ( copy == null ) {
+      throw new IllegalStateException( "Transformation cannot be cloned" );
+    }
+    copy.copyVariablesFrom( transMeta );
+    for ( final StepMeta stepMeta : copy.getSteps() ) {
+      stepMeta.setParentTransMeta( copy );
+    }
+    return copy;
+  }
+
+  private void logStepError( final StepMeta stepMeta, final Throwable mae ) {
+    //Don't throw an exception, just log and carry on
+    log.warn( Messages.getString( "ERROR.ErrorDuringAnalysis", stepMeta.getName(),
+      Const.NVL( mae.getLocalizedMessage(), "Unspecified" ) ) );
+    log.debug( Messages.getString( "ERROR.ErrorDuringAnalysisStackTrace" ), mae );
+  }
+
+  /**
+   * @return the shared step analysis executor, resized to the given number of threads if the configuration changed
+   */
+  private static synchronized ExecutorService getStepAnalysisExecutor( final int threads ) {
+    if ( stepAnalysisExecutor == null ) {
+      stepAnalysisExecutor = new ThreadPoolExecutor( threads, threads, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), STEP_ANALYSIS_THREAD_FACTORY );
+      stepAnalysisExecutor.allowCoreThreadTimeOut( true );
+    } else if ( threads > stepAnalysisExecutor.getMaximumPoolSize() ) {
+      stepAnalysisExecutor.setMaximumPoolSize( threads );
+      stepAnalysisExecutor.setCorePoolSize( threads );
+    } else if ( threads < stepAnalysisExecutor.getMaximumPoolSize() ) {
+      stepAnalysisExecutor.setCorePoolSize( threads );
+      stepAnalysisExecutor.setMaximumPoolSize( threads );
+    }
+    return stepAnalysisExecutor;
+  }
+
+  /**
+   * A thread of the shared step analysis executor.
+   */
+  private static final class StepAnalysisThread extends Thread {
+
+    StepAnalysisThread( final Runnable runnable ) {
+      super( runnable, "metaverse-step-analysis" );
+    }
+  }
+
+  /**
+   * The outcome of analyzing one step against a recording builder.
+   */
+  private static final class StepAnalysis {
+
+    private final RecordingMetaverseBuilder builder;
+
+    private final List<AnalyzerHolder> analyzerHolders = new ArrayList<>();
+
+    private IMetaverseNode stepNode;
+
+    private Throwable error;
+
+    StepAnalysis( final RecordingMetaverseBuilder builder ) {
+      this.builder = builder;
+    }
+  }
+
   /**
    * Returns a set of strings corresponding to which types of content are supported by this analyzer
    *
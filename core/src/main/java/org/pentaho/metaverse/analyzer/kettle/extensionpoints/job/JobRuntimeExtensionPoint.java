@@ -48,6 +48,7 @@ import org.pentaho.metaverse.api.model.LineageHolder;
 import org.pentaho.metaverse.api.model.kettle.MetaverseExtensionPoint;
 import org.pentaho.metaverse.graph.GraphCatalogWriter;
 import org.pentaho.metaverse.graph.GraphMLWriter;
+import org.pentaho.metaverse.impl.LineageWriterExecutor;
 import org.pentaho.metaverse.impl.MetaverseCompletionService;
 import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.impl.VfsLineageWriter;
@@ -204,25 +205,42 @@ public class JobRuntimeExtensionPoint extends BaseRuntimeExtensionPoint implemen
   }
 
   protected void createLineGraphAsync( final Job job ) {
-    // Need to spin this processing off into its own thread, so we don't hold up normal PDI processing
-    Thread lineageWorker = new Thread( new Runnable() {
-
+    // Hand this processing off to the shared lineage writer, so we don't hold up normal PDI processing
+    LineageWriterExecutor.getInstance().submit( new LineageWriterExecutor.LineageWrite( job.getJobname() ) {
       @Override
-      public void run() {
+      public void write() {
         createLineGraph( job );
       }
-    } );
 
-    lineageWorker.start();
+      @Override
+      public void writeProfileOnly() {
+        // the graph is not written, so its analysis is not needed any more
+        JobLineageHolderMap.getInstance().getLineageHolder( job ).cancelLineageTask();
+        createLineGraph( job, false );
+      }
+
+      @Override
+      public void discard() {
+        JobLineageHolderMap.getInstance().getLineageHolder( job ).cancelLineageTask();
+        JobLineageHolderMap.getInstance().removeLineageHolder( job );
+      }
+    } );
   }
 
   protected void createLineGraph( final Job job ) {
+    createLineGraph( job, true );
+  }
+
+  /**
+   * Writes the execution profile of the job and, if {@code includeGraph} is true, its lineage graph.
+   */
+  protected void createLineGraph( final Job job, final boolean includeGraph ) {
     log.info( Messages.getString( "INFO.WrittingGraphForJob", job.getJobname() ) );
     try {
       // Get the current execution profile for this transformation
       LineageHolder holder = JobLineageHolderMap.getInstance().getLineageHolder( job );
       Future lineageTask = holder.getLineageTask();
-      if ( lineageTask != null ) {
+      if ( lineageTask != null && includeGraph ) {
         try {
           lineageTask.get();
         } catch ( InterruptedException e ) {
@@ -261,7 +279,7 @@ public class JobRuntimeExtensionPoint extends BaseRuntimeExtensionPoint implemen
       }
 
       try {
-        if ( shouldCreateGraph( job ) ) {
+        if ( includeGraph && shouldCreateGraph( job ) ) {
           // Add the execution profile information to the lineage graph
           addRuntimeLineageInfo( holder );
 
@@ -19,7 +19,6 @@ import org.pentaho.di.core.extension.ExtensionPointInterface;
 import org.pentaho.di.core.listeners.ContentChangedListener;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.trans.TransMeta;
-import org.pentaho.metaverse.api.MetaverseException;
 import org.pentaho.metaverse.impl.MetaverseConfig;
 
 /**
@@ -71,14 +70,12 @@ public class TransChangedExtensionPoint implements ExtensionPointInterface, Cont
     updateLineage( object );
   }
 
+  /**
+   * Schedules a rebuild of the lineage graph; changes made in quick succession result in a single rebuild.
+   */
   protected void updateLineage( Object object ) {
     if ( object instanceof TransMeta ) {
-      try {
-        TransMeta transMeta = (TransMeta) object;
-        TransExtensionPointUtil.addLineageGraph( transMeta );
-      } catch ( MetaverseException me ) {
-        // Nothing we can do here
-      }
+      TransLineageGraphUpdater.getInstance().scheduleUpdate( (TransMeta) object );
     }
   }
 }
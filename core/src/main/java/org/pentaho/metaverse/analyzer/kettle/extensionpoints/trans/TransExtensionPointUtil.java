@@ -26,6 +26,7 @@ import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseException;
 import org.pentaho.metaverse.api.Namespace;
 import org.pentaho.metaverse.api.analyzer.kettle.KettleAnalyzerUtil;
+import org.pentaho.metaverse.graph.SynchronizedGraphFactory;
 import org.pentaho.metaverse.impl.MetaverseBuilder;
 import org.pentaho.metaverse.messages.Messages;
 import org.pentaho.metaverse.util.MetaverseUtil;
@@ -46,7 +47,7 @@ public class TransExtensionPointUtil {
     // Get the "natural" filename (repo-based if in repository, filesystem-based otherwise)
     String filename = getFilename( transMeta );
 
-    final Graph graph = new TinkerGraph();
+    final Graph graph = SynchronizedGraphFactory.createKeyIndices( new TinkerGraph() );
     final IMetaverseBuilder metaverseBuilder = new MetaverseBuilder( graph );
     final IMetaverseObjectFactory objFactory = MetaverseUtil.getDocumentController().getMetaverseObjectFactory();
 
@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.analyzer.kettle.extensionpoints.trans;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.tinkerpop.blueprints.Graph;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.metaverse.analyzer.kettle.StepAnalysisCache;
+import org.pentaho.metaverse.api.MetaverseException;
+import org.pentaho.metaverse.graph.LineageGraphMap;
+import org.pentaho.metaverse.impl.MetaverseConfig;
+import org.pentaho.metaverse.messages.Messages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the lineage graphs of the transformations open in the designer up to date.
+ * <p>
+ * Change events arriving in quick succession for the same transformation are coalesced: the graph is only rebuilt
+ * once no change has been made for the debounce window ({@link MetaverseConfig#designTimeDebounce()}). A rebuild
+ * cancels the previous analysis of the transformation if it has not started yet, and is incremental: only the steps
+ * whose XML or incoming fields changed are analyzed again (see {@link StepAnalysisCache}).
+ */
+public class TransLineageGraphUpdater {
+
+  private static final Logger log = LoggerFactory.getLogger( TransLineageGraphUpdater.class );
+
+  private static final TransLineageGraphUpdater INSTANCE = new TransLineageGraphUpdater( -1 );
+
+  private final long debounceMillis;
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+    final Thread thread = new Thread( runnable, "metaverse-design-time-lineage" );
+    thread.setDaemon( true );
+    return thread;
+  } );
+
+  /**
+   * The scheduled update of each transformation, by identity; entries go away with their transformation, which the
+   * scheduled tasks only reference weakly.
+   */
+  private final Cache<TransMeta, ScheduledFuture<?>> scheduledUpdates = CacheBuilder.newBuilder().weakKeys().build();
+
+  public static TransLineageGraphUpdater getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param debounceMillis the debounce window, or a negative value to read it from the configuration on each change
+   */
+  TransLineageGraphUpdater( final long debounceMillis ) {
+    this.debounceMillis = debounceMillis;
+  }
+
+  /**
+   * Rebuilds the lineage graph of the transformation once it has not changed for the debounce window.
+   */
+  public void scheduleUpdate( final TransMeta transMeta ) {
+    if ( transMeta == null ) {
+      return;
+    }
+    final long delay = debounceMillis < 0 ? MetaverseConfig.designTimeDebounce() : debounceMillis;
+    final WeakReference<TransMeta> reference = new WeakReference<>( transMeta );
+    scheduledUpdates.asMap().compute( transMeta, ( key, scheduled ) -> {
+      if ( scheduled != null ) {
+        // superseded by this change
+        scheduled.cancel( false );
+      }
+      return scheduler.schedule( () -> {
+        final TransMeta changed = reference.get();
+        if ( changed == null ) {
+          // closed meanwhile
+          return;
+        }
+        try {
+          update( changed );
+        } catch ( MetaverseException | RuntimeException e ) {
+          log.debug( Messages.getString( "ERROR.Graph.CouldNotCreate", e.getMessage() ), e );
+        }
+      }, delay, TimeUnit.MILLISECONDS );
+    } );
+  }
+
+  /**
+   * Rebuilds the lineage graph of the transformation now, superseding any scheduled or pending rebuild.
+   */
+  public void update( final TransMeta transMeta ) throws MetaverseException {
+    if ( transMeta == null ) {
+      throw new MetaverseException( Messages.getString( "ERROR.Document.IsNull" ) );
+    }
+    final ScheduledFuture<?> scheduled = scheduledUpdates.getIfPresent( transMeta );
+    if ( scheduled != null && scheduled.getDelay( TimeUnit.MILLISECONDS ) > 0 ) {
+      scheduled.cancel( false );
+    }
+    StepAnalysisCache.enable( transMeta );
+    final Future<Graph> previous = LineageGraphMap.getInstance().get( transMeta );
+    addLineageGraph( transMeta );
+    if ( previous != null && LineageGraphMap.getInstance().get( transMeta ) != previous ) {
+      // only cancels the previous analysis if it is still waiting for a thread
+      previous.cancel( false );
+    }
+  }
+
+  protected void addLineageGraph( final TransMeta transMeta ) throws MetaverseException {
+    TransExtensionPointUtil.addLineageGraph( transMeta );
+  }
+}
@@ -46,7 +46,7 @@ public class TransOpenedExtensionPoint implements ExtensionPointInterface {
     if ( object instanceof TransMeta ) {
       try {
         TransMeta transMeta = (TransMeta) object;
-        TransExtensionPointUtil.addLineageGraph( transMeta );
+        TransLineageGraphUpdater.getInstance().update( transMeta );
       } catch ( MetaverseException me ) {
         if ( log != null && log.isDebug() ) {
           log.logDebug( Messages.getString( "ERROR.Graph.CouldNotCreate", me.getMessage() ) );
@@ -48,6 +48,7 @@ import org.pentaho.metaverse.api.model.LineageHolder;
 import org.pentaho.metaverse.api.model.kettle.MetaverseExtensionPoint;
 import org.pentaho.metaverse.graph.GraphCatalogWriter;
 import org.pentaho.metaverse.graph.GraphMLWriter;
+import org.pentaho.metaverse.impl.LineageWriterExecutor;
 import org.pentaho.metaverse.impl.MetaverseCompletionService;
 import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.impl.VfsLineageWriter;
@@ -288,16 +289,26 @@ public class TransformationRuntimeExtensionPoint extends BaseRuntimeExtensionPoi
   }
 
   protected void createLineGraphAsync( Trans trans ) {
-    // Need to spin this processing off into its own thread, so we don't hold up normal PDI processing
-    Thread lineageWorker = new Thread( new Runnable() {
-
+    // Hand this processing off to the shared lineage writer, so we don't hold up normal PDI processing
+    LineageWriterExecutor.getInstance().submit( new LineageWriterExecutor.LineageWrite( trans.getName() ) {
       @Override
-      public void run() {
+      public void write() {
         createLineGraph( trans );
       }
-    } );
 
-    lineageWorker.start();
+      @Override
+      public void writeProfileOnly() {
+        // the graph is not written, so its analysis is not needed any more
+        TransLineageHolderMap.getInstance().getLineageHolder( trans ).cancelLineageTask();
+        createLineGraph( trans, false );
+      }
+
+      @Override
+      public void discard() {
+        TransLineageHolderMap.getInstance().getLineageHolder( trans ).cancelLineageTask();
+        TransLineageHolderMap.getInstance().removeLineageHolder( trans );
+      }
+    } );
   }
 
   private void removeSensitiveDataFromHolder( LineageHolder holder ) {
@@ -318,13 +329,22 @@ public class TransformationRuntimeExtensionPoint extends BaseRuntimeExtensionPoi
   }
 
   protected void createLineGraph( final Trans trans ) {
+    createLineGraph( trans, true );
+  }
+
+  /**
+   * Writes the execution profile of the transformation and, if {@code includeGraph} is true, its lineage graph.
+   */
+  protected void createLineGraph( final Trans trans, final boolean includeGraph ) {
     log.info( Messages.getString( "INFO.WrittingGraphForTransformation", trans.getName() ) );
     try {
       // Get the current execution profile for this transformation
       LineageHolder holder = TransLineageHolderMap.getInstance().getLineageHolder( trans );
+      // publish what the step listeners collected, whether or not they were told that their steps finished
+      holder.runBeforeWriteActions();
 
       Future lineageTask = holder.getLineageTask();
-      if ( lineageTask != null ) {
+      if ( lineageTask != null && includeGraph ) {
         try {
           lineageTask.get();
         } catch ( InterruptedException e ) {
@@ -364,7 +384,7 @@ public class TransformationRuntimeExtensionPoint extends BaseRuntimeExtensionPoi
       }
 
       try {
-        if ( shouldCreateGraph( trans ) ) {
+        if ( includeGraph && shouldCreateGraph( trans ) ) {
           // Add the execution profile information to the lineage graph
           addRuntimeLineageInfo( holder );
 
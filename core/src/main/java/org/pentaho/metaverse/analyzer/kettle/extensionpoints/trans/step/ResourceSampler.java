@@ -0,0 +1,155 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.analyzer.kettle.extensionpoints.trans.step;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.metaverse.impl.MetaverseConfig;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which rows read by a data-driven step are passed to its external resource consumer:
+ * <ul>
+ *   <li>{@link #MODE_ALL}: every row;</li>
+ *   <li>{@link #MODE_NTH}: the first row and then one row every {@code interval} rows;</li>
+ *   <li>{@link #MODE_ADAPTIVE}: every row, until {@code idleRows} consecutive rows have brought no new resource.
+ *   Rows with different fields, e.g. from different input hops, are counted separately, so rows interleaved from
+ *   several hops stop being sampled once none of the hops brings new resources. Sampling starts again when the step
+ *   restarts.</li>
+ * </ul>
+ * A sampler belongs to a single step copy and is only used from that step's thread.
+ */
+public class ResourceSampler {
+
+  public static final String MODE_ALL = MetaverseConfig.RESOURCE_SAMPLING_ALL;
+  public static final String MODE_NTH = MetaverseConfig.RESOURCE_SAMPLING_NTH;
+  public static final String MODE_ADAPTIVE = MetaverseConfig.RESOURCE_SAMPLING_ADAPTIVE;
+
+  public static final long DEFAULT_INTERVAL = MetaverseConfig.DEFAULT_RESOURCE_SAMPLING_INTERVAL;
+  public static final long DEFAULT_IDLE_ROWS = MetaverseConfig.DEFAULT_RESOURCE_SAMPLING_IDLE_ROWS;
+
+  private final String mode;
+  private final long interval;
+  private final long idleRows;
+
+  private long rowsRead;
+  private long rowsSampled;
+
+  /**
+   * The adaptive sampling state of each row layout, keyed by field names
+   */
+  private final Map<List<String>, Layout> layouts = new HashMap<>();
+  private RowMetaInterface lastRowMeta;
+  private Layout layout = new Layout();
+
+  public ResourceSampler( final String mode, final long interval, final long idleRows ) {
+    this.mode = MODE_NTH.equalsIgnoreCase( mode ) ? MODE_NTH
+      : MODE_ADAPTIVE.equalsIgnoreCase( mode ) ? MODE_ADAPTIVE : MODE_ALL;
+    this.interval = interval > 0 ? interval : DEFAULT_INTERVAL;
+    this.idleRows = idleRows > 0 ? idleRows : DEFAULT_IDLE_ROWS;
+  }
+
+  /**
+   * @return a sampler that inspects every row
+   */
+  public static ResourceSampler all() {
+    return new ResourceSampler( MODE_ALL, DEFAULT_INTERVAL, DEFAULT_IDLE_ROWS );
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  /**
+   * Called for every row read by the step.
+   *
+   * @param rowMeta the metadata of the row
+   * @return true if the row should be passed to the consumer
+   */
+  public boolean sample( final RowMetaInterface rowMeta ) {
+    final long row = rowsRead++;
+    final boolean sample;
+    if ( MODE_NTH.equals( mode ) ) {
+      sample = row % interval == 0;
+    } else if ( MODE_ADAPTIVE.equals( mode ) ) {
+      if ( rowMeta != lastRowMeta ) {
+        // rows with other fields may reference other resources; the layout is only looked up when the metadata
+        // instance changes, which hops usually keep for all their rows
+        lastRowMeta = rowMeta;
+        layout = layouts.computeIfAbsent( fieldNames( rowMeta ), names -> new Layout() );
+      }
+      sample = layout.sampling;
+    } else {
+      sample = true;
+    }
+    if ( sample ) {
+      rowsSampled++;
+    }
+    return sample;
+  }
+
+  /**
+   * Reports the outcome of the row last sampled.
+   *
+   * @param newResource true if the row brought at least one resource that had not been seen before
+   */
+  public void sampled( final boolean newResource ) {
+    if ( newResource ) {
+      layout.rowsWithoutNewResource = 0;
+    } else if ( ++layout.rowsWithoutNewResource >= idleRows && MODE_ADAPTIVE.equals( mode ) ) {
+      layout.sampling = false;
+    }
+  }
+
+  /**
+   * Resumes sampling of every row layout, e.g. when the step is restarted.
+   */
+  public void restart() {
+    layouts.clear();
+    lastRowMeta = null;
+    layout = new Layout();
+  }
+
+  public long getRowsRead() {
+    return rowsRead;
+  }
+
+  public long getRowsSampled() {
+    return rowsSampled;
+  }
+
+  /**
+   * @return true if rows with the layout of the last row are sampled
+   */
+  public boolean isSampling() {
+    return layout.sampling;
+  }
+
+  private static List<String> fieldNames( final RowMetaInterface rowMeta ) {
+    final String[] names = rowMeta == null ? null : rowMeta.getFieldNames();
+    return names == null ? Collections.emptyList() : Arrays.asList( names );
+  }
+
+  /**
+   * The adaptive sampling state of the rows with the same fields
+   */
+  private static class Layout {
+    private boolean sampling = true;
+    private long rowsWithoutNewResource;
+  }
+}
@@ -15,9 +15,12 @@ package org.pentaho.metaverse.analyzer.kettle.extensionpoints.trans.step;
 
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.RowAdapter;
 import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepListener;
+import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.metaverse.analyzer.kettle.extensionpoints.trans.TransLineageHolderMap;
 import org.pentaho.metaverse.api.analyzer.kettle.step.IStepExternalResourceConsumer;
 import org.pentaho.metaverse.api.model.IExecutionProfile;
@@ -25,20 +28,39 @@ import org.pentaho.metaverse.api.model.IExternalResourceInfo;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class StepExternalConsumerRowListener extends RowAdapter {
+/**
+ * Collects the external resources a data-driven step reads from its rows. Resources are accumulated per step in a
+ * concurrent set, so a resource that has already been seen costs a single lookup, and are published into the
+ * execution profile when the step finishes, along with the number of rows that were inspected. Which rows are
+ * passed to the consumer is decided by a {@link ResourceSampler}. This listener must be registered both as a row
+ * listener and as a step listener of the step, and its {@link #publishResources()} as a before-write action of the
+ * transformation's lineage holder: the transformation may finish, and its lineage be written, before the step listener
+ * is notified, if it ever is.
+ */
+public class StepExternalConsumerRowListener extends RowAdapter implements StepListener {
 
   private final IStepExternalResourceConsumer stepExternalResourceConsumer;
   private final StepInterface step;
+  private final ResourceSampler sampler;
+  private final Set<IExternalResourceInfo> resources = ConcurrentHashMap.newKeySet();
+  private long rowsPublished;
 
   public StepExternalConsumerRowListener(
     IStepExternalResourceConsumer stepExternalResourceConsumer, StepInterface step ) {
+    this( stepExternalResourceConsumer, step, ResourceSampler.all() );
+  }
+
+  public StepExternalConsumerRowListener(
+    IStepExternalResourceConsumer stepExternalResourceConsumer, StepInterface step, ResourceSampler sampler ) {
     this.stepExternalResourceConsumer = stepExternalResourceConsumer;
     this.step = step;
+    this.sampler = sampler == null ? ResourceSampler.all() : sampler;
   }
 
   /**
@@ -50,28 +72,77 @@ public class StepExternalConsumerRowListener extends RowAdapter {
    * Object[])
    */
   @Override
-  @SuppressWarnings( "unchecked" )
   public void rowReadEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
-
-    Collection<IExternalResourceInfo> resources =
+    if ( !sampler.sample( rowMeta ) ) {
+      return;
+    }
+    Collection<IExternalResourceInfo> rowResources =
       stepExternalResourceConsumer.getResourcesFromRow( (BaseStep) step, rowMeta, row );
-    if ( resources != null ) {
-      // Add the resources to the execution profile
-      IExecutionProfile executionProfile =
-        TransLineageHolderMap.getInstance().getLineageHolder( step.getTrans() ).getExecutionProfile();
-      if ( executionProfile != null ) {
-        String stepName = step.getStepname();
-        Map<String, List<IExternalResourceInfo>> resourceMap =
-          executionProfile.getExecutionData().getExternalResources();
-        final List<IExternalResourceInfo> existingResources = resourceMap.get( stepName );
-        Set<IExternalResourceInfo> externalResources = existingResources == null ? new HashSet()
-          : new HashSet( resourceMap.get( stepName ) );
-        if ( externalResources == null ) {
-          externalResources = new HashSet();
+    boolean newResource = false;
+    if ( rowResources != null ) {
+      for ( IExternalResourceInfo resource : rowResources ) {
+        // the lookup avoids allocating a set entry for resources that are already known
+        if ( resource != null && !resources.contains( resource ) ) {
+          resources.add( resource );
+          newResource = true;
         }
-        // avoid adding duplicates
-        externalResources.addAll( new HashSet<>( resources ) );
-        resourceMap.put( stepName, new ArrayList( externalResources ) );
+      }
+    }
+    sampler.sampled( newResource );
+  }
+
+  /**
+   * Resumes sampling when the step is (re)started.
+   */
+  @Override
+  public void stepActive( Trans trans, StepMeta stepMeta, StepInterface step ) {
+    sampler.restart();
+  }
+
+  /**
+   * Publishes the resources accumulated while the step was running into the execution profile.
+   */
+  @Override
+  public void stepFinished( Trans trans, StepMeta stepMeta, StepInterface step ) {
+    publishResources();
+  }
+
+  /**
+   * @return the resources read so far by the step, in no particular order
+   */
+  Set<IExternalResourceInfo> getResources() {
+    return resources;
+  }
+
+  ResourceSampler getSampler() {
+    return sampler;
+  }
+
+  /**
+   * Merges the accumulated resources into the step's entry of the execution profile, without duplicates, and records
+   * the number of rows sampled since the last call. It may be called more than once: when the step finishes and before
+   * the lineage is written. The resource map is shared by all the steps of the transformation, so it is only updated
+   * while holding its lock.
+   */
+  protected synchronized void publishResources() {
+    IExecutionProfile executionProfile =
+      TransLineageHolderMap.getInstance().getLineageHolder( step.getTrans() ).getExecutionProfile();
+    if ( executionProfile != null ) {
+      String stepName = step.getStepname();
+      final long rowsSampled = sampler.getRowsSampled();
+      executionProfile.getExecutionData().addSampledRows( stepName, rowsSampled - rowsPublished );
+      rowsPublished = rowsSampled;
+      if ( resources.isEmpty() ) {
+        return;
+      }
+      Map<String, List<IExternalResourceInfo>> resourceMap =
+        executionProfile.getExecutionData().getExternalResources();
+      synchronized ( resourceMap ) {
+        final List<IExternalResourceInfo> existingResources = resourceMap.get( stepName );
+        final Set<IExternalResourceInfo> externalResources = existingResources == null
+          ? new LinkedHashSet<>() : new LinkedHashSet<>( existingResources );
+        externalResources.addAll( resources );
+        resourceMap.put( stepName, new ArrayList<>( externalResources ) );
       }
     }
   }
@@ -27,6 +27,7 @@ import org.pentaho.metaverse.api.analyzer.kettle.step.IStepExternalResourceConsu
 import org.pentaho.metaverse.api.analyzer.kettle.step.IStepExternalResourceConsumerProvider;
 import org.pentaho.metaverse.api.model.IExecutionProfile;
 import org.pentaho.metaverse.api.model.IExternalResourceInfo;
+import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.util.MetaverseBeanUtil;
 
 import java.util.Collection;
@@ -80,10 +81,15 @@ public class StepExternalResourceConsumerListener implements ExtensionPointInter
                   stepConsumer.getResourcesFromMeta( DefaultBowl.getInstance(), meta );
                 addExternalResources( resources, step );
 
-                // Add a RowListener if the step is data-driven
+                // Add a RowListener if the step is data-driven; it publishes its resources when the step finishes,
+                // and at the latest before the lineage of the transformation is written
                 if ( stepConsumer.isDataDriven( meta ) ) {
-                  stepCombi.step.addRowListener(
-                    new StepExternalConsumerRowListener( stepConsumer, step ) );
+                  StepExternalConsumerRowListener rowListener =
+                    new StepExternalConsumerRowListener( stepConsumer, step, createResourceSampler() );
+                  stepCombi.step.addRowListener( rowListener );
+                  stepCombi.step.addStepListener( rowListener );
+                  TransLineageHolderMap.getInstance().getLineageHolder( step.getTrans() )
+                    .addBeforeWriteAction( rowListener::publishResources );
                 }
               }
             }
@@ -102,16 +108,29 @@ public class StepExternalResourceConsumerListener implements ExtensionPointInter
         String stepName = step.getStepname();
         Map<String, List<IExternalResourceInfo>> resourceMap =
           executionProfile.getExecutionData().getExternalResources();
-        List<IExternalResourceInfo> externalResources = resourceMap.get( stepName );
-        if ( externalResources == null ) {
-          externalResources = new LinkedList<IExternalResourceInfo>();
+        // the map is shared by all the steps of the transformation
+        synchronized ( resourceMap ) {
+          List<IExternalResourceInfo> externalResources = resourceMap.get( stepName );
+          if ( externalResources == null ) {
+            externalResources = new LinkedList<IExternalResourceInfo>();
+          }
+          externalResources.addAll( resources );
+          resourceMap.put( stepName, externalResources );
         }
-        externalResources.addAll( resources );
-        resourceMap.put( stepName, externalResources );
       }
     }
   }
 
+  /**
+   * @return the sampler deciding which rows of a data-driven step are inspected, as configured in
+   * {@link MetaverseConfig}
+   */
+  protected ResourceSampler createResourceSampler() {
+    final MetaverseConfig config = MetaverseConfig.getInstance();
+    return config == null ? ResourceSampler.all() : new ResourceSampler( config.getResourceSamplingMode(),
+      config.getResourceSamplingInterval(), config.getResourceSamplingIdleRows() );
+  }
+
   public void setStepExternalResourceConsumerProvider( IStepExternalResourceConsumerProvider provider ) {
     this.stepConsumerProvider = provider;
   }
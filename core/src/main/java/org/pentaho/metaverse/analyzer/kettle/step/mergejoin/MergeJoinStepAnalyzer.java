@@ -13,7 +13,6 @@
 
 package org.pentaho.metaverse.analyzer.kettle.step.mergejoin;
 
-import org.pentaho.di.core.ProgressNullMonitorListener;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
@@ -144,14 +143,10 @@ public class MergeJoinStepAnalyzer extends StepAnalyzer<MergeJoinMeta> {
       rowMeta = new HashMap<>();
       try {
         StepMeta stepMeta1 = meta.getStepIOMeta().getInfoStreams().get( 0 ).getStepMeta();
-        ProgressNullMonitorListener progress = new ProgressNullMonitorListener();
-        leftStepFields = parentTransMeta.getStepFields( stepMeta1, progress );
-        progress.done();
+        leftStepFields = getStepFields( parentTransMeta, stepMeta1 );
 
-        progress = new ProgressNullMonitorListener();
         StepMeta stepMeta2 = meta.getStepIOMeta().getInfoStreams().get( 1 ).getStepMeta();
-        rightStepFields = parentTransMeta.getStepFields( stepMeta2, progress );
-        progress.done();
+        rightStepFields = getStepFields( parentTransMeta, stepMeta2 );
         rowMeta.put( stepMeta1.getName(), leftStepFields );
         rowMeta.put( stepMeta2.getName(), rightStepFields );
 
@@ -62,7 +62,7 @@ public class StreamLookupStepAnalyzer extends StepAnalyzer<StreamLookupMeta> {
       for ( String prevStepName : parentTransMeta.getPrevStepNames( parentStepMeta ) ) {
         if ( !rowMeta.containsKey( prevStepName ) ) {
           try {
-            rowMeta.put( prevStepName, parentTransMeta.getStepFields( prevStepName ) );
+            rowMeta.put( prevStepName, getStepFields( parentTransMeta, prevStepName ) );
           } catch ( KettleStepException e ) {
             LOGGER.warn( Messages.getString( "WARNING.CannotDetermineRowMeta", prevStepName, e.toString() ) );
           }
@@ -163,7 +163,7 @@ public class StreamLookupStepAnalyzer extends StepAnalyzer<StreamLookupMeta> {
         String prevStepName = prevStepNames[ i ];
         if ( !prevStepName.equals( lookupStepName ) ) {
           try {
-            RowMetaInterface stepFields = parentTransMeta.getStepFields( prevStepName );
+            RowMetaInterface stepFields = getStepFields( parentTransMeta, prevStepName );
             if ( stepFields != null ) {
               ValueMetaInterface valueMetaInterface = stepFields.searchValueMeta( newFieldName );
               return valueMetaInterface != null;
@@ -27,12 +27,10 @@ import org.pentaho.metaverse.api.ILineageClient;
 import org.pentaho.metaverse.api.MetaverseException;
 import org.pentaho.metaverse.api.StepField;
 import org.pentaho.metaverse.api.StepFieldOperations;
-import org.pentaho.metaverse.api.model.Operations;
+import org.pentaho.metaverse.graph.FieldLineageIndex;
 import org.pentaho.metaverse.graph.LineageGraphMap;
-import org.pentaho.metaverse.util.MetaverseUtil;
 import org.pentaho.di.core.service.ServiceProvider;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -40,19 +38,22 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 /**
  * LineageClient is a collection of methods that provide specific data- and metadata-lineage information, such as which
  * transformation steps have fields that contribute to other fields, what operations have been performed on fields in
  * a transformation, etc.
+ * <p>
+ * Queries are answered from the {@link FieldLineageIndex} of the transformation's lineage graph, which is built the
+ * first time the graph is queried.
  */
 @ServiceProvider( id = "LineageClient", description = "Provides specific data and metadata-lineage information", provides = ILineageClient.class )
 public class LineageClient implements ILineageClient, ServiceProviderInterface<ILineageClient> {
 
-  protected static final int MAX_LOOPS = 50;
-
-  private static final StepFieldOperationsPipeFunction STEPFIELDOPS_PIPE_FUNC = new StepFieldOperationsPipeFunction();
+  protected static final int MAX_LOOPS = FieldLineageIndex.MAX_LOOPS;
 
   /**
    * Finds the step(s) in the given transformation that created the given field, with respect to the given target step.
@@ -78,30 +79,12 @@ public class LineageClient implements ILineageClient, ServiceProviderInterface<I
     try {
       Future<Graph> lineageGraphTask = LineageGraphMap.getInstance().get( transMeta );
       if ( lineageGraphTask != null ) {
-        Graph lineageGraph = lineageGraphTask.get();
-        List<Vertex> targetFields = getTargetFields( lineageGraph, targetStepName, fieldNames );
-
-        GremlinPipeline pipe = getOriginStepsPipe( targetFields );
-        List<List<Vertex>> pathList = pipe.toList();
-        if ( pathList != null ) {
-
-          for ( List<Vertex> path : pathList ) {
-            // Transform each path of vertices into a "path" of StepFieldOperations objects (basically save off
-            // properties of each vertex into a new list)
-            String targetField = path.get( 0 ).getProperty( DictionaryConst.PROPERTY_NAME );
-            Set<StepField> pathSet = originStepsMap.get( targetField );
-
-            if ( pathSet == null ) {
-              pathSet = new HashSet<>();
-              originStepsMap.put( targetField, pathSet );
-            }
-
-            Vertex v = path.get( path.size() - 1 );
-            Map<String, String> stepField = STEPFIELDOPS_PIPE_FUNC.compute( v );
-            String stepName = stepField.get( "stepName" );
-            String fieldName = stepField.get( "fieldName" );
-
-            pathSet.add( new StepField( stepName, fieldName ) );
+        Graph lineageGraph = getLineageGraph( transMeta, lineageGraphTask );
+        if ( lineageGraph != null ) {
+          FieldLineageIndex index = LineageGraphMap.getIndex( lineageGraph );
+          for ( FieldLineageIndex.FieldNode targetField : index.getOutputFields( targetStepName, fieldNames ) ) {
+            originStepsMap.computeIfAbsent( targetField.getFieldName(), name -> new HashSet<>() )
+              .addAll( index.getOriginSteps( targetField ) );
           }
         }
       }
@@ -137,42 +120,12 @@ public class LineageClient implements ILineageClient, ServiceProviderInterface<I
     try {
       Future<Graph> lineageGraphTask = LineageGraphMap.getInstance().get( transMeta );
       if ( lineageGraphTask != null ) {
-        Graph lineageGraph = lineageGraphTask.get();
-
+        Graph lineageGraph = getLineageGraph( transMeta, lineageGraphTask );
         if ( lineageGraph != null ) {
-
-          // Get the creator field nodes for all the field names passed in
-          List<Vertex> getTargetFields = getTargetFields( lineageGraph, targetStepName, fieldNames );
-
-
-          // The "origin steps pipe" with a second param of true returns a pipeline that will return paths between
-          // the origin field nodes and the target field node.
-          GremlinPipeline pipe = getOriginStepsPipe( getTargetFields );
-          List<List<Vertex>> pathList = pipe.toList();
-          if ( pathList != null ) {
-
-            for ( List<Vertex> path : pathList ) {
-              // Transform each path of vertices into a "path" of StepFieldOperations objects (basically save off
-              // properties of each vertex into a new list)
-              List<StepFieldOperations> stepFieldOps = new ArrayList<>();
-              String targetField = path.get( 0 ).getProperty( DictionaryConst.PROPERTY_NAME );
-              Set<List<StepFieldOperations>> pathSet = operationPathMap.get( targetField );
-
-              if ( pathSet == null ) {
-                pathSet = new HashSet<>();
-                operationPathMap.put( targetField, pathSet );
-              }
-              for ( Vertex v : path ) {
-                Map<String, String> stepField = STEPFIELDOPS_PIPE_FUNC.compute( v );
-                String stepName = stepField.get( "stepName" );
-                String fieldName = stepField.get( "fieldName" );
-                Operations operations = MetaverseUtil.convertOperationsStringToMap(
-                  (String) v.getProperty( DictionaryConst.PROPERTY_OPERATIONS ) );
-
-                stepFieldOps.add( 0, new StepFieldOperations( stepName, fieldName, operations ) );
-              }
-              pathSet.add( stepFieldOps );
-            }
+          FieldLineageIndex index = LineageGraphMap.getIndex( lineageGraph );
+          for ( FieldLineageIndex.FieldNode targetField : index.getOutputFields( targetStepName, fieldNames ) ) {
+            operationPathMap.computeIfAbsent( targetField.getFieldName(), name -> new HashSet<>() )
+              .addAll( index.getOperationPaths( targetField ) );
           }
         }
       }
@@ -183,6 +136,26 @@ public class LineageClient implements ILineageClient, ServiceProviderInterface<I
     return operationPathMap;
   }
 
+  /**
+   * Waits for the lineage graph of the transformation. If the analysis was cancelled because the transformation was
+   * changed in the meantime, waits for the analysis that superseded it instead.
+   */
+  protected Graph getLineageGraph( TransMeta transMeta, Future<Graph> lineageGraphTask )
+    throws InterruptedException, ExecutionException {
+    Future<Graph> task = lineageGraphTask;
+    while ( true ) {
+      try {
+        return task.get();
+      } catch ( CancellationException e ) {
+        Future<Graph> latestTask = LineageGraphMap.getInstance().get( transMeta );
+        if ( latestTask == null || latestTask == task ) {
+          throw e;
+        }
+        task = latestTask;
+      }
+    }
+  }
+
   /**
    * This is an intermediate method that returns a pipeline which would determine the vertices with the given fieldname,
    * which were created by steps that have "hops to" links to anything on the front of the pipe. This method is not
@@ -25,6 +25,8 @@ import org.pentaho.dictionary.MetaverseLink;
 import org.pentaho.metaverse.api.IMetaverseLink;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.IMetaverseReader;
+import org.pentaho.metaverse.api.model.BaseSynchronizedGraph;
+import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.impl.MetaverseNode;
 import org.pentaho.metaverse.messages.Messages;
 import org.pentaho.metaverse.util.MetaverseUtil;
@@ -35,9 +37,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -52,6 +55,55 @@ public class BlueprintsGraphMetaverseReader implements IMetaverseReader {
   private static final long serialVersionUID = -3813738340722424284L;
   private static final Logger LOGGER = LoggerFactory.getLogger( BlueprintsGraphMetaverseReader.class );
 
+  private static final List<GraphTraversal.Leg> SEARCH_LEGS = searchLegs( null );
+
+  private static final List<GraphTraversal.Leg> GRAPH_LEGS = graphLegs( null );
+
+  /**
+   * Search: upstream from the start node, and downstream then upstream again to the structure of what was found
+   *
+   * @param linkLabels the labels of the links to follow, null for any
+   */
+  private static List<GraphTraversal.Leg> searchLegs( Set<String> linkLabels ) {
+    GraphTraversal.Leg upstream = new GraphTraversal.Leg( Direction.IN, linkLabels );
+    upstream.then( upstream );
+    GraphTraversal.Leg structure = new GraphTraversal.Leg( Direction.IN, linkLabels );
+    structure.then( structure );
+    GraphTraversal.Leg downstream = new GraphTraversal.Leg( Direction.OUT, linkLabels );
+    downstream.then( downstream, structure );
+    return Arrays.asList( upstream, downstream );
+  }
+
+  /**
+   * Sub-graph: everything upstream, and everything downstream with the structural parents of what was found
+   *
+   * @param linkLabels the labels of the links to follow, null for any
+   */
+  private static List<GraphTraversal.Leg> graphLegs( Set<String> linkLabels ) {
+    Set<String> structuralLabels = DictionaryHelper.STRUCTURAL_LINK_TYPES;
+    if ( linkLabels != null ) {
+      structuralLabels = new HashSet<>( linkLabels );
+      structuralLabels.retainAll( DictionaryHelper.STRUCTURAL_LINK_TYPES );
+    }
+    GraphTraversal.Leg upstream = new GraphTraversal.Leg( Direction.IN, linkLabels );
+    upstream.then( upstream );
+    GraphTraversal.Leg structuralParents = new GraphTraversal.Leg( Direction.IN, structuralLabels );
+    structuralParents.then( structuralParents );
+    GraphTraversal.Leg downstream = new GraphTraversal.Leg( Direction.OUT, linkLabels );
+    downstream.then( downstream, structuralParents );
+    return Arrays.asList( upstream, downstream );
+  }
+
+  /**
+   * @return the lower of two depth limits, where 0 means no limit
+   */
+  static int depthLimit( int maxDepth, int configuredMaxDepth ) {
+    if ( maxDepth <= 0 ) {
+      return Math.max( configuredMaxDepth, 0 );
+    }
+    return configuredMaxDepth <= 0 ? maxDepth : Math.min( maxDepth, configuredMaxDepth );
+  }
+
   private Graph graph;
 
   private static BlueprintsGraphMetaverseReader instance;
@@ -176,181 +228,119 @@ public class BlueprintsGraphMetaverseReader implements IMetaverseReader {
   }
 
   /**
-   * Exports the metaverse graph by writing it to an output stream
+   * Exports the metaverse graph by writing it to an output stream. The graph is first adjusted in place, as every graph
+   * writer does (see {@link BaseGraphWriter#adjustGraph(Graph)}), under the graph's write guard when it provides one so
+   * that the adjustments do not interleave with other writers. It is then written as it is read, through a view that
+   * adds the localized types, categories and colors without setting them on the graph.
    *
    * @param format The format for the export: XML, JSON, or CSV
    * @param out    The output stream to write to
    * @throws IOException Thrown if there is an I/O issue
    */
+  @Override
   public void exportToStream( String format, OutputStream out ) throws IOException {
     String fmt = format;
     if ( fmt == null ) {
       // default to graphml
       fmt = FORMAT_XML;
     }
-    Graph graph = getGraph();
-    graph = enhanceGraph( graph );
+    BaseGraphWriter writer;
     // convert the graph to an export format, GraphML for now
     if ( fmt.equalsIgnoreCase( FORMAT_XML ) ) {
-      GraphMLWriter writer = new GraphMLWriter();
-      writer.outputGraph( graph, out );
+      writer = new GraphMLWriter();
     } else if ( fmt.equalsIgnoreCase( FORMAT_JSON ) ) {
-      GraphSONWriter writer = new GraphSONWriter();
-      writer.outputGraph( graph, out );
+      writer = new GraphSONWriter();
     } else if ( fmt.equalsIgnoreCase( FORMAT_CSV ) ) {
-      GraphCsvWriter writer = new GraphCsvWriter();
-      writer.outputGraph( graph, out );
+      writer = new GraphCsvWriter();
+    } else {
+      return;
+    }
+    final Graph graph = getGraph();
+    final Runnable adjust = () -> BaseGraphWriter.adjustGraph( graph );
+    if ( graph instanceof BaseSynchronizedGraph ) {
+      ( (BaseSynchronizedGraph) graph ).executeExclusively( adjust );
+    } else {
+      adjust.run();
     }
+    writer.outputGraphImpl( new EnhancedGraph( graph ), out );
   }
 
   @Override
   public Graph search( List<String> resultTypes, List<String> startNodeIDs, boolean shortestOnly ) {
+    return search( resultTypes, startNodeIDs, shortestOnly, 0, null );
+  }
+
+  @Override
+  public Graph search( List<String> resultTypes, List<String> startNodeIDs, boolean shortestOnly, int maxDepth,
+                       Set<String> linkLabels ) {
 
     Graph g = new TinkerGraph();
 
-    for ( String startNodeID : startNodeIDs ) {
-      if ( graph != null ) {
-        // traverse look for paths to the results
+    if ( graph != null ) {
+      final List<GraphTraversal.Leg> legs = linkLabels == null ? SEARCH_LEGS : searchLegs( linkLabels );
+      final GraphTraversal traversal = new GraphTraversal()
+        .setMaxDepth( depthLimit( maxDepth, MetaverseConfig.searchMaxDepth() ) )
+        .setMaxResults( MetaverseConfig.searchMaxResults() );
+      for ( String startNodeID : startNodeIDs ) {
         Vertex startVertex = graph.getVertex( startNodeID );
-        GraphPath path = new GraphPath();
-        Set<Object> done = new HashSet<Object>();
-        Map<Object, GraphPath> shortestPaths = new HashMap<Object, GraphPath>();
-        traverseGraph( startVertex, graph, resultTypes, path, done, shortestPaths, Direction.IN, shortestOnly );
-        done = new HashSet<Object>();
-        traverseGraph( startVertex, graph, resultTypes, path, done, shortestPaths, Direction.OUT, shortestOnly );
-        Iterator<Map.Entry<Object, GraphPath>> paths = shortestPaths.entrySet().iterator();
-        while ( paths.hasNext() ) {
-          Map.Entry<Object, GraphPath> entry = paths.next();
-          GraphPath shortPath = entry.getValue();
-          shortPath.addToGraph( g );
+        if ( startVertex == null ) {
+          continue;
+        }
+        // look upstream, and downstream then back up to the structure of anything found downstream
+        final Map<Object, GraphTraversal.Hop> results = new LinkedHashMap<>();
+        if ( shortestOnly ) {
+          // the first hop to reach a vertex is on one of the shortest paths to it
+          traversal.traverse( startVertex, legs, hop -> isResultType( hop.getVertex(), resultTypes )
+            && results.putIfAbsent( hop.getVertex().getId(), hop ) == null );
+        } else {
+          // a path for every edge reaching a result, each vertex being expanded at most once per leg
+          traversal.traversePaths( startVertex, legs, hop -> isResultType( hop.getVertex(), resultTypes )
+            && results.putIfAbsent( hop.toPath().toString(), hop ) == null );
+        }
+        for ( GraphTraversal.Hop hop : results.values() ) {
+          hop.toPath().addToGraph( g );
         }
-
       }
     }
     g = enhanceGraph( g );
     return g;
   }
 
-  private void traverseGraph( Vertex startVertex, Graph subGraph, List<String> resultTypes, GraphPath path,
-                              Set<Object> done, Map<Object, GraphPath> shortestPaths, Direction direction, boolean shortestOnly ) {
-    boolean isTargetType = resultTypes == null
+  private static boolean isResultType( Vertex vertex, List<String> resultTypes ) {
+    return resultTypes == null
       || resultTypes.size() == 0
-      || resultTypes.contains( startVertex.getProperty( DictionaryConst.PROPERTY_TYPE ) );
-    if ( !isTargetType && done.contains( startVertex.getId() ) ) {
-      return;
-    }
-    path.addVertex( startVertex );
-    if ( isTargetType ) {
-      // this is one of our target types
-      if ( shortestOnly ) {
-        GraphPath shortestPath = shortestPaths.get( startVertex.getId() );
-        if ( shortestPath == null || path.getLength() < shortestPath.getLength() ) {
-          shortestPaths.put( startVertex.getId(), path.clone() );
-          if ( done.contains( startVertex.getId() ) ) {
-            path.pop();
-            return;
-          }
-        }
-      } else {
-        shortestPaths.put( path.toString(), path.clone() );
-      }
-    }
-    done.add( startVertex.getId() );
-    if ( direction == Direction.IN ) {
-      Iterator<Edge> edges = startVertex.getEdges( Direction.IN ).iterator();
-      while ( edges.hasNext() ) {
-        Edge edge = edges.next();
-        if ( done.contains( edge.getId() ) ) {
-          continue;
-        }
-        path.addEdge( edge );
-        Vertex nextVertex = edge.getVertex( Direction.OUT );
-        traverseGraph( nextVertex, subGraph, resultTypes, path, done, shortestPaths, direction, shortestOnly );
-        path.pop();
-      }
-    }
-    if ( direction == Direction.OUT ) {
-      Iterator<Edge> edges = startVertex.getEdges( Direction.OUT ).iterator();
-      while ( edges.hasNext() ) {
-        Edge edge = edges.next();
-        if ( done.contains( edge.getId() ) ) {
-          continue;
-        }
-        path.addEdge( edge );
-        Vertex nextVertex = edge.getVertex( Direction.IN );
-        traverseGraph( nextVertex, subGraph, resultTypes, path, done, shortestPaths, direction, shortestOnly );
-        path.pop();
-      }
-      // go upstream to find structure
-      if ( path.getLength() > 1 ) {
-        edges = startVertex.getEdges( Direction.IN ).iterator();
-        while ( edges.hasNext() ) {
-          Edge edge = edges.next();
-          if ( done.contains( edge.getId() ) ) {
-            continue;
-          }
-          path.addEdge( edge );
-          Vertex nextVertex = edge.getVertex( Direction.OUT );
-          // go upstream to find structure
-          traverseGraph( nextVertex, subGraph, resultTypes, path, done, shortestPaths, Direction.IN, shortestOnly );
-          path.pop();
-        }
-      }
-    }
-    path.pop();
+      || resultTypes.contains( vertex.getProperty( DictionaryConst.PROPERTY_TYPE ) );
   }
 
   @Override
   public Graph getGraph( String id ) {
+    return getGraph( id, 0, null );
+  }
+
+  @Override
+  public Graph getGraph( String id, int maxDepth, Set<String> linkLabels ) {
     Vertex root = getGraph().getVertex( id );
     if ( root == null ) {
       return null;
     }
-    Graph g = new TinkerGraph();
-    // find the upstream nodes
-    Vertex clone = GraphUtil.cloneVertexIntoGraph( root, g );
-    traceVertices( root, clone, Direction.IN, getGraph(), g, null );
-    traceVertices( root, clone, Direction.OUT, getGraph(), g, null );
-    g = enhanceGraph( g );
-    return g;
-  }
-
-  /**
-   * Traces all of the
-   *
-   * @param vertex    The source vertex to traverse from
-   * @param clone     The clone of the source vertex in the sub-graph
-   * @param direction The direction to traverse the graph in
-   * @param graph1    The source graph
-   * @param graph2    The sub-graph being built
-   * @param edgeTypes The types of edges to include in the traversal. Can be null (all edges).
-   */
-  private void traceVertices( Vertex vertex, Vertex clone, Direction direction,
-                              Graph graph1, Graph graph2, Set<String> edgeTypes ) {
-    Direction opDirection = direction == Direction.IN ? Direction.OUT : Direction.IN;
-    Iterator<Edge> edges = vertex.getEdges( direction ).iterator();
-    while ( edges.hasNext() ) {
-      Edge edge = edges.next();
-      if ( edgeTypes != null && !edgeTypes.contains( edge.getLabel() ) ) {
-        continue;
-      }
-      Vertex nextVertex = edge.getVertex( opDirection );
-      Vertex target = GraphUtil.cloneVertexIntoGraph( nextVertex, graph2 );
-      Vertex node1 = direction == Direction.IN ? target : clone;
-      Vertex node2 = direction == Direction.IN ? clone : target;
-      String edgeId = (String) node1.getId() + ">" + (String) node2.getId();
-      if ( graph2.getEdge( edgeId ) == null ) {
-        if ( direction == Direction.IN ) {
-          graph2.addEdge( edgeId, target, clone, edge.getLabel() );
-        } else {
-          graph2.addEdge( edgeId, clone, target, edge.getLabel() );
+    final Graph g = new TinkerGraph();
+    GraphUtil.cloneVertexIntoGraph( root, g );
+    final List<GraphTraversal.Leg> legs = linkLabels == null ? GRAPH_LEGS : graphLegs( linkLabels );
+    final int depth = depthLimit( maxDepth, MetaverseConfig.searchMaxDepth() );
+    // copy every edge upstream and downstream of the root, and the structure of anything downstream
+    new GraphTraversal().setMaxDepth( depth ).traverse( root, legs, hop -> {
+      final Edge edge = hop.getEdge();
+      if ( edge != null ) {
+        Vertex from = GraphUtil.cloneVertexIntoGraph( edge.getVertex( Direction.OUT ), g );
+        Vertex to = GraphUtil.cloneVertexIntoGraph( edge.getVertex( Direction.IN ), g );
+        String edgeId = from.getId() + ">" + to.getId();
+        if ( g.getEdge( edgeId ) == null ) {
+          g.addEdge( edgeId, from, to, edge.getLabel() );
         }
       }
-      traceVertices( nextVertex, target, direction, graph1, graph2, edgeTypes );
-      if ( direction == Direction.OUT ) {
-        traceVertices( nextVertex, target, Direction.IN, graph1, graph2, DictionaryHelper.STRUCTURAL_LINK_TYPES );
-      }
-    }
+      return false;
+    } );
+    return enhanceGraph( g );
   }
 
   /**
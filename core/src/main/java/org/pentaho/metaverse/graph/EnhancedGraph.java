@@ -0,0 +1,260 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.google.common.collect.Iterables;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Features;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.GraphQuery;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.VertexQuery;
+import com.tinkerpop.blueprints.util.DefaultGraphQuery;
+import com.tinkerpop.blueprints.util.DefaultVertexQuery;
+import com.tinkerpop.blueprints.util.ElementHelper;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.util.MetaverseUtil;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only view of a graph whose elements carry the properties {@link MetaverseUtil#enhanceVertex(Vertex)} and
+ * {@link MetaverseUtil#enhanceEdge(Edge)} would add to them, without setting them on the underlying graph. The added
+ * properties only depend on the type of a vertex or the label of an edge, and are looked up in the caches of
+ * {@link MetaverseUtil} when read, so exporting a large graph through this view does not rewrite any of its elements.
+ */
+class EnhancedGraph implements Graph {
+
+  private final Graph baseGraph;
+
+  EnhancedGraph( final Graph baseGraph ) {
+    this.baseGraph = baseGraph;
+  }
+
+  @Override
+  public Features getFeatures() {
+    return baseGraph.getFeatures();
+  }
+
+  @Override
+  public Vertex getVertex( final Object id ) {
+    return wrap( baseGraph.getVertex( id ) );
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices() {
+    return wrapVertices( baseGraph.getVertices() );
+  }
+
+  @Override
+  public Iterable<Vertex> getVertices( final String key, final Object value ) {
+    return wrapVertices( baseGraph.getVertices( key, value ) );
+  }
+
+  @Override
+  public Edge getEdge( final Object id ) {
+    return wrap( baseGraph.getEdge( id ) );
+  }
+
+  @Override
+  public Iterable<Edge> getEdges() {
+    return wrapEdges( baseGraph.getEdges() );
+  }
+
+  @Override
+  public Iterable<Edge> getEdges( final String key, final Object value ) {
+    return wrapEdges( baseGraph.getEdges( key, value ) );
+  }
+
+  @Override
+  public GraphQuery query() {
+    return new DefaultGraphQuery( this );
+  }
+
+  @Override
+  public Vertex addVertex( final Object id ) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeVertex( final Vertex vertex ) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Edge addEdge( final Object id, final Vertex outVertex, final Vertex inVertex, final String label ) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeEdge( final Edge edge ) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void shutdown() {
+    // the underlying graph is not owned by this view
+  }
+
+  @Override
+  public String toString() {
+    return baseGraph.toString();
+  }
+
+  private static Vertex wrap( final Vertex vertex ) {
+    return vertex == null ? null : new EnhancedVertex( vertex );
+  }
+
+  private static Edge wrap( final Edge edge ) {
+    return edge == null ? null : new EnhancedEdge( edge );
+  }
+
+  private static Iterable<Vertex> wrapVertices( final Iterable<Vertex> vertices ) {
+    return Iterables.transform( vertices, EnhancedGraph::wrap );
+  }
+
+  private static Iterable<Edge> wrapEdges( final Iterable<Edge> edges ) {
+    return Iterables.transform( edges, EnhancedGraph::wrap );
+  }
+
+  /**
+   * An element of the view: its own properties, overridden by the enhancements for its type or label.
+   */
+  private abstract static class EnhancedElement implements Element {
+
+    protected final Element baseElement;
+
+    private Map<String, Object> enhancements;
+
+    EnhancedElement( final Element baseElement ) {
+      this.baseElement = baseElement;
+    }
+
+    protected abstract Map<String, Object> computeEnhancements();
+
+    private Map<String, Object> getEnhancements() {
+      if ( enhancements == null ) {
+        enhancements = computeEnhancements();
+      }
+      return enhancements;
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public <T> T getProperty( final String key ) {
+      final Map<String, Object> values = getEnhancements();
+      return values.containsKey( key ) ? (T) values.get( key ) : baseElement.getProperty( key );
+    }
+
+    @Override
+    public Set<String> getPropertyKeys() {
+      final Set<String> keys = new HashSet<>( baseElement.getPropertyKeys() );
+      keys.addAll( getEnhancements().keySet() );
+      return keys;
+    }
+
+    @Override
+    public void setProperty( final String key, final Object value ) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T removeProperty( final String key ) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object getId() {
+      return baseElement.getId();
+    }
+
+    @Override
+    public boolean equals( final Object object ) {
+      return ElementHelper.areEqual( this, object );
+    }
+
+    @Override
+    public int hashCode() {
+      return getId().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return baseElement.toString();
+    }
+  }
+
+  private static final class EnhancedVertex extends EnhancedElement implements Vertex {
+
+    EnhancedVertex( final Vertex baseVertex ) {
+      super( baseVertex );
+    }
+
+    @Override
+    protected Map<String, Object> computeEnhancements() {
+      return MetaverseUtil.getVertexEnhancements( baseElement.getProperty( DictionaryConst.PROPERTY_TYPE ) );
+    }
+
+    @Override
+    public Iterable<Edge> getEdges( final Direction direction, final String... labels ) {
+      return wrapEdges( ( (Vertex) baseElement ).getEdges( direction, labels ) );
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices( final Direction direction, final String... labels ) {
+      return wrapVertices( ( (Vertex) baseElement ).getVertices( direction, labels ) );
+    }
+
+    @Override
+    public VertexQuery query() {
+      return new DefaultVertexQuery( this );
+    }
+
+    @Override
+    public Edge addEdge( final String label, final Vertex inVertex ) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class EnhancedEdge extends EnhancedElement implements Edge {
+
+    EnhancedEdge( final Edge baseEdge ) {
+      super( baseEdge );
+    }
+
+    @Override
+    protected Map<String, Object> computeEnhancements() {
+      return MetaverseUtil.getEdgeEnhancements( getLabel() );
+    }
+
+    @Override
+    public Vertex getVertex( final Direction direction ) {
+      return wrap( ( (Edge) baseElement ).getVertex( direction ) );
+    }
+
+    @Override
+    public String getLabel() {
+      return ( (Edge) baseElement ).getLabel();
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.api.StepField;
+import org.pentaho.metaverse.api.StepFieldOperations;
+import org.pentaho.metaverse.api.model.ImmutableOperations;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A reverse-reachability index of the fields of a lineage graph, built once per graph so that origin steps and
+ * operation paths are looked up rather than traversed on every query.
+ * <p>
+ * The index holds the output fields of every step and, for each of them, the fields they were derived from or joined
+ * with. The paths from a field back to its origins are computed the first time they are asked for and kept. They are
+ * the paths the lineage client's traversal used to return: a breadth-first walk back along "derives" and "joins"
+ * links, at most {@link #MAX_LOOPS} links deep, ending at each field no other field derives, and keeping the first
+ * path found to each of them.
+ * <p>
+ * An index does not see changes made to its graph after it was built; see {@link LineageGraphMap#getIndex(Graph)}.
+ */
+public class FieldLineageIndex {
+
+  /**
+   * The maximum number of links walked back from a field
+   */
+  public static final int MAX_LOOPS = 50;
+
+  private final Map<String, List<FieldNode>> outputFieldsByStep = new HashMap<>();
+
+  public FieldLineageIndex( final Graph graph ) {
+    final Map<Vertex, FieldNode> nodes = new HashMap<>();
+    final Deque<Vertex> pending = new ArrayDeque<>();
+    final Iterable<Vertex> steps =
+      graph.getVertices( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP );
+    for ( final Vertex step : steps ) {
+      final Object stepName = step.getProperty( DictionaryConst.PROPERTY_NAME );
+      if ( stepName == null ) {
+        continue;
+      }
+      final List<FieldNode> outputFields = outputFieldsByStep.computeIfAbsent( stepName.toString(),
+        name -> new ArrayList<>() );
+      for ( final Vertex field : step.getVertices( Direction.OUT, DictionaryConst.LINK_OUTPUTS ) ) {
+        if ( DictionaryConst.NODE_TYPE_TRANS_FIELD.equals( field.getProperty( DictionaryConst.PROPERTY_TYPE ) ) ) {
+          outputFields.add( getNode( nodes, pending, field ) );
+        }
+      }
+    }
+    // link every indexed field to the fields it derives from or joins, indexing those in turn
+    while ( !pending.isEmpty() ) {
+      final Vertex vertex = pending.poll();
+      final List<FieldNode> predecessors = new ArrayList<>();
+      for ( final Vertex predecessor
+        : vertex.getVertices( Direction.IN, DictionaryConst.LINK_DERIVES, DictionaryConst.LINK_JOINS ) ) {
+        predecessors.add( getNode( nodes, pending, predecessor ) );
+      }
+      nodes.get( vertex ).predecessors = predecessors.toArray( new FieldNode[ 0 ] );
+    }
+  }
+
+  private static FieldNode getNode( final Map<Vertex, FieldNode> nodes, final Deque<Vertex> pending,
+                                    final Vertex vertex ) {
+    FieldNode node = nodes.get( vertex );
+    if ( node == null ) {
+      node = new FieldNode( vertex );
+      nodes.put( vertex, node );
+      pending.add( vertex );
+    }
+    return node;
+  }
+
+  /**
+   * @return the fields output by the named step whose names are among the given ones
+   */
+  public List<FieldNode> getOutputFields( final String stepName, final Collection<String> fieldNames ) {
+    final List<FieldNode> outputFields = stepName == null ? null : outputFieldsByStep.get( stepName );
+    if ( outputFields == null ) {
+      return Collections.emptyList();
+    }
+    final List<FieldNode> fields = new ArrayList<>();
+    for ( final FieldNode field : outputFields ) {
+      if ( field.fieldName != null && fieldNames.contains( field.fieldName ) ) {
+        fields.add( field );
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * @return the steps and fields the given field originates from
+   */
+  public Set<StepField> getOriginSteps( final FieldNode field ) {
+    final Set<StepField> originSteps = new HashSet<>();
+    for ( final List<FieldNode> path : field.getPaths() ) {
+      final FieldNode origin = path.get( path.size() - 1 );
+      originSteps.add( new StepField( origin.stepName, origin.fieldName ) );
+    }
+    return originSteps;
+  }
+
+  /**
+   * @return the paths from the origins of the given field to the field, each listing the fields and operations from the
+   * origin to the given field
+   */
+  public Set<List<StepFieldOperations>> getOperationPaths( final FieldNode field ) {
+    return new HashSet<>( field.getOperationPaths() );
+  }
+
+  /**
+   * A field of the lineage graph, with what queries need of its vertex.
+   */
+  public static final class FieldNode {
+
+    private final String stepName;
+
+    private final String fieldName;
+
+    private final ImmutableOperations operations;
+
+    private final boolean derived;
+
+    private FieldNode[] predecessors;
+
+    private volatile List<List<FieldNode>> paths;
+
+    private volatile List<List<StepFieldOperations>> operationPaths;
+
+    private FieldNode( final Vertex vertex ) {
+      final Iterator<Vertex> steps = vertex.getVertices( Direction.IN, DictionaryConst.LINK_OUTPUTS ).iterator();
+      stepName = steps.hasNext() ? (String) steps.next().getProperty( DictionaryConst.PROPERTY_NAME ) : null;
+      final Object name = vertex.getProperty( DictionaryConst.PROPERTY_NAME );
+      fieldName = name == null ? null : name.toString();
+      operations = ImmutableOperations.valueOf( vertex.getProperty( DictionaryConst.PROPERTY_OPERATIONS ) );
+      derived = vertex.getVertices( Direction.IN, DictionaryConst.LINK_DERIVES ).iterator().hasNext();
+    }
+
+    public String getStepName() {
+      return stepName;
+    }
+
+    public String getFieldName() {
+      return fieldName;
+    }
+
+    /**
+     * @return the paths from this field back to each of its origins, this field first
+     */
+    List<List<FieldNode>> getPaths() {
+      List<List<FieldNode>> result = paths;
+      if ( result == null ) {
+        result = Collections.unmodifiableList( findPaths() );
+        paths = result;
+      }
+      return result;
+    }
+
+    private List<List<FieldNode>> findPaths() {
+      final List<List<FieldNode>> result = new ArrayList<>();
+      if ( predecessors.length == 0 ) {
+        result.add( Collections.singletonList( this ) );
+        return result;
+      }
+      final Map<FieldNode, FieldNode> parents = new HashMap<>();
+      parents.put( this, null );
+      List<FieldNode> level = Collections.singletonList( this );
+      for ( int depth = 1; depth <= MAX_LOOPS && !level.isEmpty(); depth++ ) {
+        final List<FieldNode> nextLevel = new ArrayList<>();
+        for ( final FieldNode node : level ) {
+          for ( final FieldNode predecessor : node.predecessors ) {
+            if ( parents.containsKey( predecessor ) ) {
+              continue;
+            }
+            parents.put( predecessor, node );
+            if ( !predecessor.derived || depth == MAX_LOOPS ) {
+              result.add( pathTo( parents, predecessor ) );
+            }
+            nextLevel.add( predecessor );
+          }
+        }
+        level = nextLevel;
+      }
+      return result;
+    }
+
+    private static List<FieldNode> pathTo( final Map<FieldNode, FieldNode> parents, final FieldNode origin ) {
+      final List<FieldNode> path = new ArrayList<>();
+      for ( FieldNode node = origin; node != null; node = parents.get( node ) ) {
+        path.add( 0, node );
+      }
+      return Collections.unmodifiableList( path );
+    }
+
+    List<List<StepFieldOperations>> getOperationPaths() {
+      List<List<StepFieldOperations>> result = operationPaths;
+      if ( result == null ) {
+        result = new ArrayList<>();
+        for ( final List<FieldNode> path : getPaths() ) {
+          final List<StepFieldOperations> stepFieldOps = new ArrayList<>();
+          for ( final FieldNode node : path ) {
+            stepFieldOps.add( 0, new StepFieldOperations( node.stepName, node.fieldName,
+              node.operations == null ? null : node.operations.toOperations() ) );
+          }
+          result.add( Collections.unmodifiableList( stepFieldOps ) );
+        }
+        result = Collections.unmodifiableList( result );
+        operationPaths = result;
+      }
+      return result;
+    }
+  }
+}
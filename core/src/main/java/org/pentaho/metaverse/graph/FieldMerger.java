@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.commons.collections.IteratorUtils;
+import org.pentaho.metaverse.api.model.BaseMetaverseBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the field vertices to be merged during a graph adjustment phase in a union-find structure, and then merges
+ * every group in one pass: each edge of a merged vertex is re-created once, between the surviving vertices of its two
+ * ends, and the merged vertices are removed.
+ * <p>
+ * The vertex passed first to {@link #union(Vertex, Vertex)} survives, so merge order is the same as when fields were
+ * merged one pair at a time.
+ */
+class FieldMerger {
+
+  private final Map<Vertex, Vertex> parents = new LinkedHashMap<>();
+
+  /**
+   * Records that {@code vertexToMerge} should be merged into {@code vertexToKeep} (or into whatever vertex
+   * {@code vertexToKeep} is itself merged into).
+   */
+  void union( final Vertex vertexToKeep, final Vertex vertexToMerge ) {
+    final Vertex keepRoot = find( vertexToKeep );
+    final Vertex mergeRoot = find( vertexToMerge );
+    if ( !keepRoot.equals( mergeRoot ) ) {
+      parents.put( mergeRoot, keepRoot );
+    }
+  }
+
+  /**
+   * @return the vertex the given vertex will be merged into, or the vertex itself if it survives
+   */
+  Vertex find( final Vertex vertex ) {
+    Vertex root = vertex;
+    Vertex parent = parents.get( root );
+    while ( parent != null ) {
+      root = parent;
+      parent = parents.get( root );
+    }
+    // path compression
+    Vertex current = vertex;
+    while ( !current.equals( root ) ) {
+      final Vertex next = parents.get( current );
+      parents.put( current, root );
+      current = next;
+    }
+    return root;
+  }
+
+  /**
+   * @return true if the given vertex has been scheduled to be merged into another one
+   */
+  boolean isMerged( final Vertex vertex ) {
+    return parents.containsKey( vertex );
+  }
+
+  boolean isEmpty() {
+    return parents.isEmpty();
+  }
+
+  /**
+   * @return the vertices that {@link #apply(Graph)} will remove
+   */
+  List<Vertex> getMergedVertices() {
+    return new ArrayList<>( parents.keySet() );
+  }
+
+  /**
+   * Re-creates the edges of all merged vertices on their surviving vertices, removes the merged vertices, and resets
+   * this merger.
+   */
+  void apply( final Graph graph ) {
+    final List<Vertex> merged = getMergedVertices();
+    final Set<Object> rewiredEdges = new HashSet<>();
+    final Map<Vertex, Vertex> survivors = new HashMap<>();
+    for ( final Vertex vertex : merged ) {
+      survivors.put( vertex, find( vertex ) );
+    }
+    for ( final Vertex vertex : merged ) {
+      final List<Edge> edges = IteratorUtils.toList( vertex.getEdges( Direction.BOTH ).iterator() );
+      for ( final Edge edge : edges ) {
+        // an edge between two merged vertices is seen from both of them, but only needs re-creating once
+        if ( !rewiredEdges.add( edge.getId() ) ) {
+          continue;
+        }
+        final Vertex outVertex = survivor( survivors, edge.getVertex( Direction.OUT ) );
+        final Vertex inVertex = survivor( survivors, edge.getVertex( Direction.IN ) );
+        final String label = edge.getLabel();
+        final String newLinkId = BaseMetaverseBuilder.getEdgeId( outVertex, label, inVertex );
+        if ( graph.getEdge( newLinkId ) == null ) {
+          graph.addEdge( newLinkId, outVertex, inVertex, label ).setProperty( "text", label );
+        }
+      }
+    }
+    // removing the merged vertices also removes their original edges
+    for ( final Vertex vertex : merged ) {
+      vertex.remove();
+    }
+    parents.clear();
+  }
+
+  private static Vertex survivor( final Map<Vertex, Vertex> survivors, final Vertex vertex ) {
+    final Vertex survivor = survivors.get( vertex );
+    return survivor == null ? vertex : survivor;
+  }
+}
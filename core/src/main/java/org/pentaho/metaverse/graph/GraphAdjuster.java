@@ -0,0 +1,352 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.commons.collections.IteratorUtils;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.api.model.BaseMetaverseBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the adjustments made to a lineage graph before it is written (see {@link BaseGraphWriter#adjustGraph}).
+ * <p>
+ * The graph is scanned once to build an index of the category, type and name of every vertex, together with the lists
+ * of document element (step and job entry) and external resource vertices. Every adjustment rule then runs against
+ * that index instead of rescanning the graph and re-reading vertex properties. The time spent in each phase is
+ * recorded and available through {@link #getPhaseTimes()}.
+ * <p>
+ * Field merges are not applied one pair at a time: each phase collects them in a {@link FieldMerger} and the merged
+ * groups are materialized once, at the end of the phase.
+ */
+public class GraphAdjuster {
+
+  /**
+   * The phases of a graph adjustment, in the order they run.
+   */
+  public enum Phase {
+    INDEX,
+    MERGE_OUTPUTS_AND_INPUTS,
+    DEDUPLICATE_TRANS_FIELDS,
+    ADD_EXTERNAL_RESOURCE_CONTAINS_LINKS,
+    DEDUPLICATE_EXTERNAL_RESOURCE_FIELDS
+  }
+
+  private final Graph graph;
+
+  private final Map<Phase, Long> phaseTimes = new EnumMap<>( Phase.class );
+
+  private final Map<Vertex, VertexKey> keys = new HashMap<>();
+
+  private final List<Vertex> documentElementVertices = new ArrayList<>();
+
+  private final List<Vertex> externalResourceVertices = new ArrayList<>();
+
+  private final FieldMerger merger = new FieldMerger();
+
+  public GraphAdjuster( final Graph graph ) {
+    this.graph = graph;
+  }
+
+  /**
+   * Runs all adjustments enabled by the given flags.
+   *
+   * @param deduplicateTransFields       true to merge transformation fields with the same name output by a step
+   * @param adjustExternalResourceFields true to link external resources to their fields and merge duplicate ones
+   * @return this adjuster, for access to the phase times
+   */
+  public GraphAdjuster adjust( final boolean deduplicateTransFields, final boolean adjustExternalResourceFields ) {
+    long start = System.nanoTime();
+    buildIndex();
+    start = endPhase( Phase.INDEX, start );
+
+    mergeOutputsAndInputs();
+    applyMerges();
+    start = endPhase( Phase.MERGE_OUTPUTS_AND_INPUTS, start );
+
+    if ( deduplicateTransFields ) {
+      for ( final Vertex documentElementVertex : documentElementVertices ) {
+        // merge fields at the end of the "outputs" edges
+        mergeFields( documentElementVertex, Direction.OUT, DictionaryConst.LINK_OUTPUTS, true );
+      }
+      applyMerges();
+      start = endPhase( Phase.DEDUPLICATE_TRANS_FIELDS, start );
+    }
+
+    if ( adjustExternalResourceFields ) {
+      // first add the missing links from each external resources to their fields
+      addExternalResourceContainsFieldsLinks();
+      start = endPhase( Phase.ADD_EXTERNAL_RESOURCE_CONTAINS_LINKS, start );
+
+      // if a single step reads more than one external resource, we will now likely have duplicate fields "contain"ed by
+      // each resource, which need to be de-duplicated
+      for ( final Vertex externalResourceVertex : externalResourceVertices ) {
+        // merge non-transformation fields at the end of the "outputs" edges
+        mergeFields( externalResourceVertex, Direction.OUT, DictionaryConst.LINK_CONTAINS, false );
+      }
+      applyMerges();
+      endPhase( Phase.DEDUPLICATE_EXTERNAL_RESOURCE_FIELDS, start );
+    }
+    return this;
+  }
+
+  /**
+   * @return the time spent in each phase that ran, in milliseconds
+   */
+  public Map<Phase, Long> getPhaseTimes() {
+    final Map<Phase, Long> millis = new EnumMap<>( Phase.class );
+    for ( final Map.Entry<Phase, Long> entry : phaseTimes.entrySet() ) {
+      millis.put( entry.getKey(), TimeUnit.NANOSECONDS.toMillis( entry.getValue() ) );
+    }
+    return Collections.unmodifiableMap( millis );
+  }
+
+  private long endPhase( final Phase phase, final long start ) {
+    final long end = System.nanoTime();
+    phaseTimes.put( phase, end - start );
+    return end;
+  }
+
+  /**
+   * Reads the category, type and name of every vertex in a single pass, and collects the document element and external
+   * resource (field collections and SQL queries) vertices.
+   */
+  private void buildIndex() {
+    for ( final Vertex vertex : graph.getVertices() ) {
+      final VertexKey key = new VertexKey( vertex );
+      keys.put( vertex, key );
+      if ( DictionaryConst.CATEGORY_DOCUMENT_ELEMENT.equals( key.category ) ) {
+        documentElementVertices.add( vertex );
+      } else if ( DictionaryConst.CATEGORY_FIELD_COLLECTION.equals( key.category )
+        || ( DictionaryConst.CATEGORY_OTHER.equals( key.category )
+        && DictionaryConst.NODE_NAME_SQL.equals( key.name ) ) ) {
+        externalResourceVertices.add( vertex );
+      }
+    }
+  }
+
+  private VertexKey key( final Vertex vertex ) {
+    VertexKey key = keys.get( vertex );
+    if ( key == null ) {
+      key = new VertexKey( vertex );
+      keys.put( vertex, key );
+    }
+    return key;
+  }
+
+  /**
+   * In some cases, we are unable to make a connection between a step's output fields and the input fields that the step
+   * hops to at analysis time. Inspect all input stream transformation fields of a step that do not have a corresponding
+   * IN "outputs" link, and check whether there are any matching "output" fields in the steps that hop to the given
+   * step. If so, merge the fields, OR if there are multiple fields that match, add appropriate missing links.
+   */
+  private void mergeOutputsAndInputs() {
+    // output fields of each step, by name; orphaned fields have no "outputs" link, so merging them into output fields
+    // never changes these lists and they can be shared by all document elements
+    final Map<Vertex, Map<String, List<Vertex>>> outputFieldsByStep = new HashMap<>();
+
+    for ( final Vertex documentElementVertex : documentElementVertices ) {
+      final List<Vertex> inputFields = getLinkedVertices( documentElementVertex, Direction.IN,
+        DictionaryConst.LINK_INPUTS, DictionaryConst.CATEGORY_FIELD, true, DictionaryConst.NODE_TYPE_TRANS_FIELD,
+        true );
+      final List<Vertex> orphanedInputFields = new ArrayList();
+      for ( final Vertex inputField : inputFields ) {
+        // a field that inputs into several steps is merged for the first one only
+        if ( !merger.isMerged( inputField )
+          && !inputField.getEdges( Direction.IN, DictionaryConst.LINK_OUTPUTS ).iterator().hasNext() ) {
+          orphanedInputFields.add( inputField );
+        }
+      }
+      if ( orphanedInputFields.isEmpty() ) {
+        continue;
+      }
+      final List<Vertex> inputSteps = getLinkedVertices( documentElementVertex, Direction.IN,
+        DictionaryConst.LINK_HOPSTO, DictionaryConst.CATEGORY_DOCUMENT_ELEMENT, true,
+        DictionaryConst.NODE_TYPE_TRANS_STEP, true );
+      // traverse all input steps and get their output fields whose names match the orphaned field;
+      // when the first match is found, merge the two fields, all subsequent matches need to have the "input" link
+      // added from the output field to the orphaned field
+      for ( final Vertex orphanedInputField : orphanedInputFields ) {
+        final String orphanedInputFieldName = key( orphanedInputField ).name;
+        int matchCount = 0;
+        for ( final Vertex inputStep : inputSteps ) {
+          Map<String, List<Vertex>> outputFields = outputFieldsByStep.get( inputStep );
+          if ( outputFields == null ) {
+            outputFields = groupByName( getLinkedVertices( inputStep, Direction.OUT,
+              DictionaryConst.LINK_OUTPUTS, DictionaryConst.CATEGORY_FIELD, true,
+              DictionaryConst.NODE_TYPE_TRANS_FIELD, true ) );
+            outputFieldsByStep.put( inputStep, outputFields );
+          }
+          final List<Vertex> matches = outputFields.get( orphanedInputFieldName );
+          if ( matches == null ) {
+            continue;
+          }
+          for ( final Vertex inputStepOutputField : matches ) {
+            // we have a match - if this is the first match, merge the fields
+            if ( matchCount == 0 ) {
+              // the orphaned input field is removed once its edges are moved to the output field
+              merger.union( inputStepOutputField, orphanedInputField );
+            } else {
+              // otherwise add an input link from the inputStepOutputField to the parent step of the orphaned field
+              final String newLinkId = BaseMetaverseBuilder.getEdgeId( inputStepOutputField,
+                DictionaryConst.LINK_INPUTS, documentElementVertex );
+              graph.addEdge( newLinkId, inputStepOutputField, documentElementVertex, DictionaryConst.LINK_INPUTS )
+                .setProperty( "text", DictionaryConst.LINK_INPUTS );
+            }
+            matchCount++;
+          }
+        }
+      }
+    }
+  }
+
+  private Map<String, List<Vertex>> groupByName( final List<Vertex> vertices ) {
+    final Map<String, List<Vertex>> byName = new HashMap<>();
+    for ( final Vertex vertex : vertices ) {
+      final String name = key( vertex ).name;
+      if ( name != null ) {
+        byName.computeIfAbsent( name, k -> new ArrayList<>() ).add( vertex );
+      }
+    }
+    return byName;
+  }
+
+  private void mergeFields( final Vertex documentElementVertex, final Direction direction, final String linkLabel,
+                            final boolean isTransformationField ) {
+    // get all edges corresponding to the requested direction and with the requested label
+    final List<Edge> links = IteratorUtils.toList(
+      documentElementVertex.getEdges( direction, linkLabel ).iterator() );
+    // traverse the links and see if there are any that point to fields with the same names, if so, they need to be
+    // merged
+    final Map<String, Set<Vertex>> fieldMap = new LinkedHashMap<>();
+    for ( final Edge link : links ) {
+      // get the vertex at the "other" end of this link ("this" end being the vertex itself)
+      final Vertex vertex = link.getVertex( direction == Direction.IN ? Direction.OUT : Direction.IN );
+      final VertexKey key = key( vertex );
+      // verify that the vertex is a field of the desired type
+      if ( DictionaryConst.CATEGORY_FIELD.equals( key.category )
+        && isTransformationField == DictionaryConst.NODE_TYPE_TRANS_FIELD.equals( key.type ) ) {
+        fieldMap.computeIfAbsent( key.name, k -> new LinkedHashSet<>() ).add( vertex );
+      }
+    }
+
+    // traverse the map of fields - for any field name, if more than one has been found, merge them into one
+    for ( final Set<Vertex> fieldsWithSameName : fieldMap.values() ) {
+      if ( fieldsWithSameName.size() > 1 ) {
+        // keep the first vertex, all the rest are merged into it
+        final Iterator<Vertex> fieldVertices = fieldsWithSameName.iterator();
+        final Vertex fieldVertexToKeep = fieldVertices.next();
+        while ( fieldVertices.hasNext() ) {
+          merger.union( fieldVertexToKeep, fieldVertices.next() );
+        }
+      }
+    }
+  }
+
+  private void applyMerges() {
+    if ( !merger.isEmpty() ) {
+      for ( final Vertex merged : merger.getMergedVertices() ) {
+        keys.remove( merged );
+      }
+      merger.apply( graph );
+    }
+  }
+
+  // add "contains" edges only to fields and columns which input into the step
+  private void addExternalResourceContainsFieldsLinks() {
+    for ( final Vertex externalResourceVertex : externalResourceVertices ) {
+      // for each external resource vertex, get all steps that read it
+      List<Vertex> stepVertices = getLinkedVertices( externalResourceVertex, Direction.OUT,
+        DictionaryConst.LINK_READBY, DictionaryConst.CATEGORY_DOCUMENT_ELEMENT, true, null, false );
+      for ( final Vertex stepVertex : stepVertices ) {
+        // for each step, get all non-transformation fields linked through the IN "inputs" edges
+        addContainsLinks( externalResourceVertex, getLinkedVertices( stepVertex, Direction.IN,
+          DictionaryConst.LINK_INPUTS, DictionaryConst.CATEGORY_FIELD, true,
+          DictionaryConst.NODE_TYPE_TRANS_FIELD, false ) );
+      }
+      stepVertices = getLinkedVertices( externalResourceVertex, Direction.IN,
+        DictionaryConst.LINK_WRITESTO, DictionaryConst.CATEGORY_DOCUMENT_ELEMENT, true, null, false );
+      for ( final Vertex stepVertex : stepVertices ) {
+        // for each step, get all non-transformation fields linked through the OUT "outputs" edges
+        addContainsLinks( externalResourceVertex, getLinkedVertices( stepVertex, Direction.OUT,
+          DictionaryConst.LINK_OUTPUTS, DictionaryConst.CATEGORY_FIELD, true,
+          DictionaryConst.NODE_TYPE_TRANS_FIELD, false ) );
+      }
+    }
+  }
+
+  private void addContainsLinks( final Vertex externalResourceVertex, final List<Vertex> fieldVertices ) {
+    for ( final Vertex fieldVertex : fieldVertices ) {
+      final String newLinkId = BaseMetaverseBuilder.getEdgeId(
+        externalResourceVertex, DictionaryConst.LINK_CONTAINS, fieldVertex );
+      if ( graph.getEdge( newLinkId ) == null ) {
+        // add a "contains" link from the external resource to the field, if one doesn't already exist
+        graph.addEdge( newLinkId, externalResourceVertex, fieldVertex, DictionaryConst.LINK_CONTAINS )
+          .setProperty( "text", DictionaryConst.LINK_CONTAINS );
+      }
+    }
+  }
+
+  private List<Vertex> getLinkedVertices( final Vertex originVertex, final Direction edgeDirection,
+                                          final String edgeLabel,
+                                          final String linkedVertexCategory, final boolean equalToCategory,
+                                          final String linkedVertexType, final boolean equalToType ) {
+
+    final List<Vertex> linkedVertices = new ArrayList();
+    for ( final Edge link : originVertex.getEdges( edgeDirection, edgeLabel ) ) {
+      // get the vertex at the opposite end of the edge
+      final Vertex vertex = link.getVertex( edgeDirection == Direction.IN ? Direction.OUT : Direction.IN );
+      final VertexKey key = key( vertex );
+      if ( ( linkedVertexCategory == null
+        || ( key.category != null && equalToCategory == key.category.equals( linkedVertexCategory ) ) )
+        && ( linkedVertexType == null
+        || ( key.type != null && equalToType == key.type.equals( linkedVertexType ) ) ) ) {
+        linkedVertices.add( vertex );
+      }
+    }
+    return linkedVertices;
+  }
+
+  /**
+   * The indexed properties of a vertex. The adjustment rules never change them, so they are read only once.
+   */
+  private static final class VertexKey {
+
+    private final String category;
+
+    private final String type;
+
+    private final String name;
+
+    VertexKey( final Vertex vertex ) {
+      category = vertex.getProperty( DictionaryConst.PROPERTY_CATEGORY );
+      type = vertex.getProperty( DictionaryConst.PROPERTY_TYPE );
+      name = vertex.getProperty( DictionaryConst.PROPERTY_NAME );
+    }
+  }
+}
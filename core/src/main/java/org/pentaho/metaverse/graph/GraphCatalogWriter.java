@@ -30,6 +30,7 @@ import org.pentaho.metaverse.api.model.catalog.LineageDataResource;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -108,20 +109,16 @@ public class GraphCatalogWriter extends BaseGraphWriter {
     ArrayList<LineageDataResource> outputTargets = new ArrayList<>();
 
     // Get input data sources and fields
-    GremlinPipeline<Graph, Vertex> inputNodesPipe =
-            new GremlinPipeline<Graph, Vertex>( graph )
-                    .V()
-                    .has( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP )
+    GremlinPipeline<Vertex, Vertex> inputNodesPipe =
+            new GremlinPipeline<Vertex, Vertex>( getStepVertices( graph ) )
                     .in( DictionaryConst.LINK_READBY )
                     .cast( Vertex.class );
     List<Vertex> inputVertexes = inputNodesPipe.toList();
     inputVertexes.forEach( vertex -> processInputs( graph, inputSources, vertex ) );
 
     // Get output data sources and fields
-    GremlinPipeline<Graph, Vertex> outputNodesPipe =
-            new GremlinPipeline<Graph, Vertex>( graph )
-                    .V()
-                    .has( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP )
+    GremlinPipeline<Vertex, Vertex> outputNodesPipe =
+            new GremlinPipeline<Vertex, Vertex>( getStepVertices( graph ) )
                     .out( DictionaryConst.LINK_WRITESTO )
                     .cast( Vertex.class );
     List<Vertex> outputVertexes = outputNodesPipe.toList();
@@ -259,10 +256,8 @@ public class GraphCatalogWriter extends BaseGraphWriter {
   }
 
   private List<String> getDatasourceFields( String sourceName, Graph graph ) {
-    GremlinPipeline<Graph, Vertex> inputFieldsPipe =
-            new GremlinPipeline<Graph, Vertex>( graph )
-                    .V()
-                    .has( DictionaryConst.PROPERTY_PATH, Tokens.T.eq, sourceName )
+    GremlinPipeline<Vertex, Vertex> inputFieldsPipe =
+            new GremlinPipeline<Vertex, Vertex>( getVerticesByPath( graph, sourceName ) )
                     .out( DictionaryConst.LINK_CONTAINS )
                     .cast( Vertex.class );
     List<Vertex> inputFieldVertexes = inputFieldsPipe.toList();
@@ -307,10 +302,8 @@ public class GraphCatalogWriter extends BaseGraphWriter {
   private void linkTargetFieldsToSources( List<LineageDataResource> outputTargets, List<LineageDataResource> inputSources, Graph graph ) {
     for ( LineageDataResource outputTarget : outputTargets ) {
       // returns all fields from previously identified output files
-      GremlinPipeline<Graph, Vertex> fileFieldsPipe =
-              new GremlinPipeline<Graph, Vertex>( graph )
-                      .V()
-                      .has( DictionaryConst.PROPERTY_PATH, Tokens.T.eq, outputTarget.getPath() )
+      GremlinPipeline<Vertex, Vertex> fileFieldsPipe =
+              new GremlinPipeline<Vertex, Vertex>( getVerticesByPath( graph, outputTarget.getPath() ) )
                       .out( DictionaryConst.LINK_CONTAINS )
                       .cast( Vertex.class );
       // returns all fields from all previously identified output tables
@@ -384,6 +377,22 @@ public class GraphCatalogWriter extends BaseGraphWriter {
     return paths;
   }
 
+  /**
+   * Returns all step vertices, looked up through the key-indexed "type" property.
+   */
+  private Iterable<Vertex> getStepVertices( Graph graph ) {
+    return graph.getVertices( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP );
+  }
+
+  /**
+   * Returns all vertices with the given path, looked up through the key-indexed "path" property, or none if the path
+   * is null or empty.
+   */
+  private Iterable<Vertex> getVerticesByPath( Graph graph, String path ) {
+    return propertyPopulated( path )
+      ? graph.getVertices( DictionaryConst.PROPERTY_PATH, path ) : Collections.<Vertex>emptyList();
+  }
+
   private boolean propertyPopulated( String propertyVal ) {
     return null != propertyVal && !"".equals( propertyVal );
   }
@@ -0,0 +1,368 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An iterative, breadth-first traversal of a graph, which does not recurse and so does not depend on the depth of the
+ * graph.
+ * <p>
+ * A traversal is made of {@link Leg}s: each leg follows edges in one direction (or both), optionally only those with
+ * given labels, and names the legs that may continue from the vertices it reaches. A search that goes downstream and
+ * then back upstream from anything it found, for example, is a downstream leg followed by itself and by an upstream
+ * leg.
+ * <p>
+ * Every edge followed is reported to a {@link Visitor} as a {@link Hop}, which links back to the hop it continues, so
+ * the path to any reached vertex can be rebuilt. The traversal stops after the visitor has accepted the maximum number
+ * of results, and does not go further than the maximum depth from the start vertex.
+ */
+public class GraphTraversal {
+
+  /**
+   * Receives the hops of a traversal.
+   */
+  public interface Visitor {
+
+    /**
+     * Called for the start vertex, then for each edge followed, in breadth-first order.
+     *
+     * @param hop the hop that reached a vertex
+     * @return true if the hop is a result, which counts towards the maximum number of results
+     */
+    boolean visit( Hop hop );
+  }
+
+  /**
+   * A part of a traversal: edges followed in one direction, optionally with given labels only.
+   */
+  public static final class Leg {
+
+    private final Direction direction;
+
+    private final Set<String> labels;
+
+    private final List<Leg> next = new ArrayList<>();
+
+    /**
+     * @param direction the direction of the edges to follow from each vertex: IN to go upstream, OUT to go downstream
+     *                  or BOTH
+     */
+    public Leg( final Direction direction ) {
+      this( direction, null );
+    }
+
+    /**
+     * @param direction the direction of the edges to follow from each vertex: IN to go upstream, OUT to go downstream
+     *                  or BOTH
+     * @param labels    the labels of the edges to follow, null for any
+     */
+    public Leg( final Direction direction, final Set<String> labels ) {
+      this.direction = direction;
+      this.labels = labels;
+    }
+
+    /**
+     * Continues the traversal along the given legs from every vertex this leg reaches.
+     *
+     * @return this leg
+     */
+    public Leg then( final Leg... legs ) {
+      next.addAll( Arrays.asList( legs ) );
+      return this;
+    }
+
+    public Direction getDirection() {
+      return direction;
+    }
+
+    boolean follows( final Edge edge ) {
+      return labels == null || labels.contains( edge.getLabel() );
+    }
+  }
+
+  /**
+   * A vertex reached by a traversal, and how it was reached.
+   */
+  public static final class Hop {
+
+    private final Vertex vertex;
+
+    private final Edge edge;
+
+    private final Hop previous;
+
+    private final Leg leg;
+
+    private final int depth;
+
+    Hop( final Vertex vertex, final Edge edge, final Hop previous, final Leg leg ) {
+      this.vertex = vertex;
+      this.edge = edge;
+      this.previous = previous;
+      this.leg = leg;
+      this.depth = previous == null ? 0 : previous.depth + 1;
+    }
+
+    public Vertex getVertex() {
+      return vertex;
+    }
+
+    /**
+     * @return the edge followed to reach the vertex, null for the start vertex
+     */
+    public Edge getEdge() {
+      return edge;
+    }
+
+    /**
+     * @return the hop this one continues, null for the start vertex
+     */
+    public Hop getPrevious() {
+      return previous;
+    }
+
+    /**
+     * @return the leg the edge was followed on, null for the start vertex
+     */
+    public Leg getLeg() {
+      return leg;
+    }
+
+    /**
+     * @return the number of edges between the start vertex and this hop's vertex
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    /**
+     * @return the path from the start vertex to this hop's vertex
+     */
+    public GraphPath toPath() {
+      final List<Hop> hops = new ArrayList<>( depth + 1 );
+      for ( Hop hop = this; hop != null; hop = hop.previous ) {
+        hops.add( hop );
+      }
+      Collections.reverse( hops );
+      final GraphPath path = new GraphPath();
+      for ( final Hop hop : hops ) {
+        if ( hop.edge != null ) {
+          path.addEdge( hop.edge );
+        }
+        path.addVertex( hop.vertex );
+      }
+      return path;
+    }
+
+    boolean isOnPath( final Vertex other ) {
+      for ( Hop hop = this; hop != null; hop = hop.previous ) {
+        if ( hop.vertex.equals( other ) ) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private int maxDepth;
+
+  private int maxResults;
+
+  /**
+   * @return the maximum number of edges between the start vertex and any reached vertex, 0 for no limit
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public GraphTraversal setMaxDepth( final int maxDepth ) {
+    this.maxDepth = Math.max( maxDepth, 0 );
+    return this;
+  }
+
+  /**
+   * @return the number of results after which a traversal stops, 0 for no limit
+   */
+  public int getMaxResults() {
+    return maxResults;
+  }
+
+  public GraphTraversal setMaxResults( final int maxResults ) {
+    this.maxResults = Math.max( maxResults, 0 );
+    return this;
+  }
+
+  /**
+   * Traverses the graph from a vertex, expanding each vertex at most once per leg. Every vertex is therefore first
+   * reached along one of the shortest paths to it, and the traversal is linear in the size of the graph.
+   *
+   * @param start   the vertex to start from
+   * @param legs    the legs to start along
+   * @param visitor receives the start vertex and every edge followed, including those to vertices already reached
+   * @return the number of results
+   */
+  public int traverse( final Vertex start, final List<Leg> legs, final Visitor visitor ) {
+    return run( start, legs, visitor, false );
+  }
+
+  /**
+   * Traverses the graph from a vertex like {@link #traverse(Vertex, List, Visitor)}, but does not report the edges that
+   * lead back to a vertex on the path of the hop they continue, so that every hop reported ends a simple path. A vertex
+   * reached along several edges is reported once for each of them, and only expanded from the first one: enumerating
+   * every simple path instead could take time exponential in the size of the graph.
+   *
+   * @param start   the vertex to start from
+   * @param legs    the legs to start along
+   * @param visitor receives the start vertex and every edge followed that does not lead back to a vertex on its path
+   * @return the number of results
+   */
+  public int traversePaths( final Vertex start, final List<Leg> legs, final Visitor visitor ) {
+    return run( start, legs, visitor, true );
+  }
+
+  private int run( final Vertex start, final List<Leg> legs, final Visitor visitor, final boolean simplePaths ) {
+    final Hop startHop = new Hop( start, null, null, null );
+    int results = visitor.visit( startHop ) ? 1 : 0;
+    if ( isDone( results ) ) {
+      return results;
+    }
+    final Map<Leg, Visited> visited = new IdentityHashMap<>();
+    // the vertices expanded by any leg: only these can be on the path of a hop
+    final Visited expanded = simplePaths ? new Visited() : null;
+    final Deque<Pending> queue = new ArrayDeque<>();
+    for ( final Leg leg : legs ) {
+      // the start vertex is never expanded again
+      visited( visited, leg ).add( start.getId() );
+      queue.add( new Pending( startHop, leg ) );
+    }
+    if ( expanded != null ) {
+      expanded.add( start.getId() );
+    }
+    while ( !queue.isEmpty() ) {
+      final Pending pending = queue.poll();
+      final Hop hop = pending.hop;
+      final Leg leg = pending.leg;
+      if ( maxDepth > 0 && hop.depth >= maxDepth ) {
+        continue;
+      }
+      for ( final Edge edge : hop.vertex.getEdges( leg.direction ) ) {
+        if ( !leg.follows( edge ) ) {
+          continue;
+        }
+        final Vertex next = otherVertex( edge, hop.vertex, leg.direction );
+        if ( expanded != null && expanded.contains( next.getId() ) && hop.isOnPath( next ) ) {
+          continue;
+        }
+        final Hop nextHop = new Hop( next, edge, hop, leg );
+        if ( visitor.visit( nextHop ) && isDone( ++results ) ) {
+          return results;
+        }
+        if ( visited( visited, leg ).add( next.getId() ) ) {
+          if ( expanded != null ) {
+            expanded.add( next.getId() );
+          }
+          for ( final Leg nextLeg : leg.next ) {
+            queue.add( new Pending( nextHop, nextLeg ) );
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  private boolean isDone( final int results ) {
+    return maxResults > 0 && results >= maxResults;
+  }
+
+  private static Visited visited( final Map<Leg, Visited> visited, final Leg leg ) {
+    return visited.computeIfAbsent( leg, l -> new Visited() );
+  }
+
+  private static Vertex otherVertex( final Edge edge, final Vertex vertex, final Direction direction ) {
+    if ( direction == Direction.IN ) {
+      return edge.getVertex( Direction.OUT );
+    }
+    if ( direction == Direction.OUT ) {
+      return edge.getVertex( Direction.IN );
+    }
+    final Vertex in = edge.getVertex( Direction.IN );
+    return in.equals( vertex ) ? edge.getVertex( Direction.OUT ) : in;
+  }
+
+  /**
+   * A hop waiting to be expanded along a leg.
+   */
+  private static final class Pending {
+
+    private final Hop hop;
+
+    private final Leg leg;
+
+    Pending( final Hop hop, final Leg leg ) {
+      this.hop = hop;
+      this.leg = leg;
+    }
+  }
+
+  /**
+   * The ids of the vertices a leg has expanded: a bitmap for the non-negative integer ids of compact graphs, a hash
+   * set for any other id.
+   */
+  private static final class Visited {
+
+    private final BitSet bits = new BitSet();
+
+    private Set<Object> ids;
+
+    /**
+     * @return true if the id was not already there
+     */
+    boolean add( final Object id ) {
+      if ( id instanceof Integer && (Integer) id >= 0 ) {
+        final int index = (Integer) id;
+        if ( bits.get( index ) ) {
+          return false;
+        }
+        bits.set( index );
+        return true;
+      }
+      if ( ids == null ) {
+        ids = new HashSet<>();
+      }
+      return ids.add( id );
+    }
+
+    boolean contains( final Object id ) {
+      if ( id instanceof Integer && (Integer) id >= 0 ) {
+        return bits.get( (Integer) id );
+      }
+      return ids != null && ids.contains( id );
+    }
+  }
+}
@@ -13,22 +13,78 @@
 
 package org.pentaho.metaverse.graph;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.tinkerpop.blueprints.Graph;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 /**
  * LineageGraphMap is a singleton that maintains a map from document content objects to a Future task that will return
  * a Graph object. The graph is a representation of the lineage analysis performed on the document content object.
+ * <p>
+ * It also holds the {@link FieldLineageIndex} of each graph. The index of a graph is dropped when the graph is replaced
+ * or removed from the map.
  */
 public class LineageGraphMap {
-  public static final Map<Object, Future<Graph>> lineageGraphMap
-    = new ConcurrentHashMap<Object, Future<Graph>>();
+
+  private static final Cache<Graph, FieldLineageIndex> indexes = CacheBuilder.newBuilder().weakKeys().build();
+
+  public static final Map<Object, Future<Graph>> lineageGraphMap = new ConcurrentHashMap<Object, Future<Graph>>() {
+
+    @Override
+    public Future<Graph> put( Object key, Future<Graph> value ) {
+      return invalidate( super.put( key, value ) );
+    }
+
+    @Override
+    public Future<Graph> remove( Object key ) {
+      return invalidate( super.remove( key ) );
+    }
+
+    @Override
+    public void clear() {
+      super.clear();
+      indexes.invalidateAll();
+    }
+  };
 
 
   public static Map<Object, Future<Graph>> getInstance() {
     return lineageGraphMap;
   }
+
+  /**
+   * Returns the field lineage index of a complete lineage graph, building it the first time it is asked for.
+   *
+   * @param graph the lineage graph, as returned by its task in the map
+   * @return the index of the graph
+   */
+  public static FieldLineageIndex getIndex( final Graph graph ) {
+    try {
+      return indexes.get( graph, () -> new FieldLineageIndex( graph ) );
+    } catch ( ExecutionException e ) {
+      throw new IllegalStateException( e.getCause() );
+    }
+  }
+
+  private static Future<Graph> invalidate( final Future<Graph> previous ) {
+    // an analysis that is not done yet has no index
+    if ( previous != null && previous.isDone() && !previous.isCancelled() ) {
+      try {
+        final Graph graph = previous.get();
+        if ( graph != null ) {
+          indexes.invalidate( graph );
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      } catch ( ExecutionException e ) {
+        // a failed analysis has no graph to index
+      }
+    }
+    return previous;
+  }
 }
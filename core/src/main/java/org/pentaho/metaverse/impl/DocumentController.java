@@ -13,9 +13,13 @@
 
 package org.pentaho.metaverse.impl;
 
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.Vertex;
+import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.api.IClonableDocumentAnalyzer;
+import org.pentaho.metaverse.api.IDocument;
 import org.pentaho.metaverse.api.IDocumentAnalyzer;
 import org.pentaho.metaverse.api.IDocumentController;
 import org.pentaho.metaverse.api.IDocumentEvent;
@@ -27,14 +31,18 @@ import org.pentaho.metaverse.api.IMetaverseObjectFactory;
 import org.pentaho.metaverse.api.IRequiresMetaverseBuilder;
 import org.pentaho.metaverse.api.MetaverseAnalyzerException;
 import org.pentaho.metaverse.api.MetaverseComponentDescriptor;
+import org.pentaho.metaverse.api.model.BaseSynchronizedGraph;
 import org.pentaho.metaverse.messages.Messages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -230,6 +238,13 @@ public class DocumentController implements IDocumentController, IDocumentListene
    */
   @Override
   public void onEvent( IDocumentEvent event ) {
+    if ( IDocumentEvent.EVENT_TYPE_DELETE.equals( event.getEventType() ) ) {
+      removeDocument( event.getDocument() );
+      return;
+    } else if ( IDocumentEvent.EVENT_TYPE_UPDATE.equals( event.getEventType() ) ) {
+      // steps removed from the document would otherwise stay in the graph
+      removeDocument( event.getDocument() );
+    }
     List<IDocumentAnalyzer> matchingAnalyzers = getDocumentAnalyzers( event.getDocument().getExtension() );
     if ( matchingAnalyzers != null ) {
       for ( IDocumentAnalyzer analyzer : matchingAnalyzers ) {
@@ -240,6 +255,54 @@ public class DocumentController implements IDocumentController, IDocumentListene
     }
   }
 
+  /**
+   * Removes a document from the graph: its vertex, the vertices it contains (recursively), and the fields they output.
+   * Vertices shared with other documents, like external resources, are kept.
+   *
+   * @param document the document, identified by its namespace and id
+   * @return the number of removed vertices
+   */
+  protected int removeDocument( final IDocument document ) {
+    final Graph graph = getGraph();
+    if ( graph == null || document == null || document.getNamespace() == null ) {
+      return 0;
+    }
+    final String namespaceId = document.getNamespace().getNamespaceId();
+    final Set<Vertex> owned = new LinkedHashSet<>();
+    final Runnable remove = () -> {
+      final Deque<Vertex> pending = new ArrayDeque<>();
+      for ( Vertex vertex : graph.getVertices( DictionaryConst.PROPERTY_PATH, document.getStringID() ) ) {
+        if ( namespaceId != null && namespaceId.equals( vertex.getProperty( DictionaryConst.PROPERTY_NAMESPACE ) ) ) {
+          pending.add( vertex );
+        }
+      }
+      while ( !pending.isEmpty() ) {
+        final Vertex vertex = pending.poll();
+        if ( !owned.add( vertex ) ) {
+          continue;
+        }
+        for ( Edge edge : vertex.getEdges( Direction.OUT, DictionaryConst.LINK_CONTAINS ) ) {
+          pending.add( edge.getVertex( Direction.IN ) );
+        }
+        for ( Edge edge : vertex.getEdges( Direction.OUT, DictionaryConst.LINK_OUTPUTS ) ) {
+          final Vertex field = edge.getVertex( Direction.IN );
+          if ( DictionaryConst.NODE_TYPE_TRANS_FIELD.equals( field.getProperty( DictionaryConst.PROPERTY_TYPE ) ) ) {
+            pending.add( field );
+          }
+        }
+      }
+      for ( Vertex vertex : owned ) {
+        vertex.remove();
+      }
+    };
+    if ( graph instanceof BaseSynchronizedGraph ) {
+      ( (BaseSynchronizedGraph) graph ).executeExclusively( remove );
+    } else {
+      remove.run();
+    }
+    return owned.size();
+  }
+
   /**
    * Loads up a Map of document types to supporting IDocumentAnalyzer(s)
    */
@@ -317,9 +380,15 @@ public class DocumentController implements IDocumentController, IDocumentListene
    * @return Future object
    */
   protected Future<?> fireDocumentEvent( final IDocumentEvent event, final IDocumentAnalyzer analyzer ) {
+    // a locator waits for the analyses to succeed before it remembers the document as analyzed
+    final DocumentEvent trackedEvent = event instanceof DocumentEvent ? (DocumentEvent) event : null;
+    if ( trackedEvent != null ) {
+      trackedEvent.analysisStarted();
+    }
     Runnable analyzerRunner = new Runnable() {
       @Override
       public void run() {
+        boolean analyzed = false;
         try {
 
           analyzer.analyze(
@@ -329,8 +398,13 @@ public class DocumentController implements IDocumentController, IDocumentListene
               event.getDocument() ),
             event.getDocument()
           );
+          analyzed = true;
         } catch ( MetaverseAnalyzerException mae ) {
           log.error( Messages.getString( "ERROR.AnalyzingDocument", event.getDocument().getStringID() ), mae );
+        } finally {
+          if ( trackedEvent != null ) {
+            trackedEvent.analysisDone( analyzed );
+          }
         }
       }
     };
@@ -16,6 +16,8 @@ package org.pentaho.metaverse.impl;
 import org.pentaho.metaverse.api.IDocument;
 import org.pentaho.metaverse.api.IDocumentEvent;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Simple implementation of @see IDocumentEvent
  * @author jdixon
@@ -27,6 +29,12 @@ public class DocumentEvent implements IDocumentEvent {
 
   private String type;
 
+  private final AtomicInteger pending = new AtomicInteger( 1 );
+
+  private volatile boolean failed;
+
+  private volatile Runnable onAnalyzed;
+
   @Override
   public IDocument getDocument() {
     return document;
@@ -45,4 +53,47 @@ public class DocumentEvent implements IDocumentEvent {
     this.type = type;
   }
 
+  /**
+   * Sets what to do once every analysis started for this event has succeeded, e.g. remember that the document does not
+   * need to be analyzed again. It is not run if an analysis fails or never runs.
+   *
+   * @param onAnalyzed the action, run on the thread that completes the last analysis, or by {@link #notified()}
+   */
+  public void setOnAnalyzed( Runnable onAnalyzed ) {
+    this.onAnalyzed = onAnalyzed;
+  }
+
+  /**
+   * Called by a listener when it starts an analysis of the document, before {@link #notified()}.
+   */
+  public void analysisStarted() {
+    pending.incrementAndGet();
+  }
+
+  /**
+   * Called by a listener when an analysis it started is done.
+   *
+   * @param success false if the analysis failed
+   */
+  public void analysisDone( boolean success ) {
+    if ( !success ) {
+      failed = true;
+    }
+    release();
+  }
+
+  /**
+   * Called once all the listeners have been notified of the event; the analyses they started may still be running.
+   */
+  public void notified() {
+    release();
+  }
+
+  private void release() {
+    // the notification itself counts as pending, so the action cannot run before every listener had its say
+    if ( pending.decrementAndGet() == 0 && !failed && onAnalyzed != null ) {
+      onAnalyzed.run();
+    }
+  }
+
 }
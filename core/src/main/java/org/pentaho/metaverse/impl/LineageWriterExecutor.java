@@ -0,0 +1,359 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes the lineage of finished transformations and jobs on a fixed number of worker threads fed by a bounded queue,
+ * so that a burst of executions cannot create an unbounded number of threads or hold an unbounded number of graphs in
+ * memory. When the queue is full, the configured overflow policy applies:
+ * <ul>
+ *   <li>{@link #POLICY_BLOCK}: the finishing execution waits for room in the queue, or until the executor is shut
+ *   down, in which case the write is discarded;</li>
+ *   <li>{@link #POLICY_DROP_OLDEST}: the oldest queued write is discarded to make room;</li>
+ *   <li>{@link #POLICY_PROFILE_ONLY}: the new execution only gets its execution profile written, on the calling
+ *   thread, and no lineage graph.</li>
+ * </ul>
+ * Workers are virtual threads when {@link MetaverseConfig#lineageWriterVirtualThreads()} is set and the JDK supports
+ * them, and daemon platform threads otherwise.
+ */
+public class LineageWriterExecutor {
+
+  public static final String POLICY_BLOCK = "block";
+  public static final String POLICY_DROP_OLDEST = "drop-oldest";
+  public static final String POLICY_PROFILE_ONLY = "profile-only";
+
+  public static final int DEFAULT_THREADS = 2;
+  public static final int DEFAULT_QUEUE_SIZE = 100;
+
+  /**
+   * How often a submitter blocked on a full queue checks whether the executor was shut down
+   */
+  private static final long BLOCK_POLL_MILLIS = 100;
+
+  private static final Logger log = LoggerFactory.getLogger( LineageWriterExecutor.class );
+
+  private static volatile LineageWriterExecutor instance;
+
+  private final ThreadPoolExecutor executor;
+  private final String policy;
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder degraded = new LongAdder();
+  private final LongAdder queueNanos = new LongAdder();
+  private final LongAdder writeNanos = new LongAdder();
+  private final AtomicLong maxQueueNanos = new AtomicLong();
+  private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+  /**
+   * Signalled whenever a submitted write is done with: written, failed, dropped or degraded
+   */
+  private final Lock idleLock = new ReentrantLock();
+  private final Condition writeDone = idleLock.newCondition();
+
+  /**
+   * @return the shared executor, created on first use from the {@link MetaverseConfig} settings
+   */
+  public static LineageWriterExecutor getInstance() {
+    if ( instance == null ) {
+      synchronized ( LineageWriterExecutor.class ) {
+        if ( instance == null ) {
+          instance = new LineageWriterExecutor( MetaverseConfig.lineageWriterThreads(),
+            MetaverseConfig.lineageWriterQueueSize(), MetaverseConfig.lineageWriterOverflowPolicy(),
+            MetaverseConfig.lineageWriterVirtualThreads() );
+        }
+      }
+    }
+    return instance;
+  }
+
+  LineageWriterExecutor( final int threads, final int queueSize, final String policy,
+                         final boolean virtualThreads ) {
+    this.policy = POLICY_DROP_OLDEST.equalsIgnoreCase( policy ) ? POLICY_DROP_OLDEST
+      : POLICY_PROFILE_ONLY.equalsIgnoreCase( policy ) ? POLICY_PROFILE_ONLY : POLICY_BLOCK;
+    final int nrThreads = threads > 0 ? threads : DEFAULT_THREADS;
+    final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>( queueSize > 0 ? queueSize : DEFAULT_QUEUE_SIZE );
+    executor = new ThreadPoolExecutor( nrThreads, nrThreads, 60L, TimeUnit.SECONDS, queue,
+      createThreadFactory( virtualThreads ), new OverflowHandler() );
+  }
+
+  /**
+   * Queues a lineage write, applying the overflow policy if the queue is full.
+   */
+  public void submit( final LineageWrite write ) {
+    submitted.increment();
+    executor.execute( new QueuedWrite( write ) );
+    final int depth = executor.getQueue().size();
+    maxQueueDepth.accumulateAndGet( depth, Math::max );
+  }
+
+  public String getPolicy() {
+    return policy;
+  }
+
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  public int getMaxQueueDepth() {
+    return maxQueueDepth.get();
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  /**
+   * @return the number of submitted writes that are queued or running
+   */
+  public long getPendingCount() {
+    return submitted.sum() - completed.sum() - failed.sum() - dropped.sum() - degraded.sum();
+  }
+
+  public long getSubmittedCount() {
+    return submitted.sum();
+  }
+
+  public long getCompletedCount() {
+    return completed.sum();
+  }
+
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  public long getDegradedCount() {
+    return degraded.sum();
+  }
+
+  /**
+   * @return the average time, in milliseconds, a write waited in the queue before a worker picked it up
+   */
+  public double getAverageQueueLatencyMillis() {
+    final long count = completed.sum() + failed.sum();
+    return count == 0 ? 0 : queueNanos.sum() / 1000000d / count;
+  }
+
+  public double getMaxQueueLatencyMillis() {
+    return maxQueueNanos.get() / 1000000d;
+  }
+
+  /**
+   * @return the average time, in milliseconds, a worker spent writing the lineage of an execution
+   */
+  public double getAverageWriteMillis() {
+    final long count = completed.sum() + failed.sum();
+    return count == 0 ? 0 : writeNanos.sum() / 1000000d / count;
+  }
+
+  /**
+   * Waits for the queued and running writes to finish, up to the given time.
+   *
+   * @return true if all writes finished
+   */
+  public boolean awaitIdle( final long timeout, final TimeUnit unit ) throws InterruptedException {
+    long nanos = unit.toNanos( timeout );
+    idleLock.lock();
+    try {
+      while ( getPendingCount() > 0 ) {
+        if ( nanos <= 0 ) {
+          return false;
+        }
+        nanos = writeDone.awaitNanos( nanos );
+      }
+      return true;
+    } finally {
+      idleLock.unlock();
+    }
+  }
+
+  /**
+   * Counts a submitted write as done with and wakes up the threads waiting for the executor to be idle. The counter is
+   * updated before taking the lock, so a waiter that saw the write pending is already waiting when it is signalled.
+   */
+  private void done( final LongAdder counter ) {
+    counter.increment();
+    idleLock.lock();
+    try {
+      writeDone.signalAll();
+    } finally {
+      idleLock.unlock();
+    }
+  }
+
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  private static ThreadFactory createThreadFactory( final boolean virtualThreads ) {
+    if ( virtualThreads ) {
+      try {
+        // Thread.ofVirtual() is only available from Java 21 on
+        final Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+        final Method name = builderClass.getMethod( "name", String.class, long.class );
+        final Method factory = builderClass.getMethod( "factory" );
+        final Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+        return (ThreadFactory) factory.invoke( name.invoke( builder, "metaverse-lineage-writer-", 0L ) );
+      } catch ( final ReflectiveOperationException | RuntimeException e ) {
+        log.info( "Virtual threads are not available, lineage is written on platform threads" );
+      }
+    }
+    final AtomicInteger threadNumber = new AtomicInteger();
+    return runnable -> {
+      final Thread thread = new Thread( runnable, "metaverse-lineage-writer-" + threadNumber.getAndIncrement() );
+      thread.setDaemon( true );
+      return thread;
+    };
+  }
+
+  /**
+   * The lineage output of one finished execution.
+   */
+  public abstract static class LineageWrite {
+
+    private final String name;
+
+    protected LineageWrite( final String name ) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Writes the execution profile and the lineage graph.
+     */
+    public abstract void write();
+
+    /**
+     * Writes the execution profile only; called on the submitting thread under the profile-only policy.
+     */
+    public void writeProfileOnly() {
+      discard();
+    }
+
+    /**
+     * Releases what is held for this execution without writing anything; called when the write is dropped.
+     */
+    public void discard() {
+      // nothing to release by default
+    }
+  }
+
+  private final class QueuedWrite implements Runnable {
+
+    private final LineageWrite write;
+    private final long queuedAt = System.nanoTime();
+
+    QueuedWrite( final LineageWrite write ) {
+      this.write = write;
+    }
+
+    @Override
+    public void run() {
+      final long start = System.nanoTime();
+      final long waited = start - queuedAt;
+      queueNanos.add( waited );
+      maxQueueNanos.accumulateAndGet( waited, Math::max );
+      boolean written = false;
+      try {
+        write.write();
+        written = true;
+      } catch ( final RuntimeException e ) {
+        log.warn( "Could not write the lineage of " + write.getName(), e );
+      } finally {
+        writeNanos.add( System.nanoTime() - start );
+        done( written ? completed : failed );
+      }
+    }
+  }
+
+  private final class OverflowHandler implements RejectedExecutionHandler {
+
+    @Override
+    public void rejectedExecution( final Runnable runnable, final ThreadPoolExecutor pool ) {
+      final LineageWrite write = ( (QueuedWrite) runnable ).write;
+      if ( pool.isShutdown() ) {
+        done( dropped );
+        write.discard();
+        return;
+      }
+      if ( POLICY_DROP_OLDEST.equals( policy ) ) {
+        final Runnable oldest = pool.getQueue().poll();
+        if ( oldest != null ) {
+          done( dropped );
+          log.warn( "Lineage writer queue is full, dropping the lineage of "
+            + ( (QueuedWrite) oldest ).write.getName() );
+          ( (QueuedWrite) oldest ).write.discard();
+        }
+        pool.execute( runnable );
+      } else if ( POLICY_PROFILE_ONLY.equals( policy ) ) {
+        log.warn( "Lineage writer queue is full, only writing the execution profile of " + write.getName() );
+        try {
+          write.writeProfileOnly();
+        } catch ( final RuntimeException e ) {
+          log.warn( "Could not write the execution profile of " + write.getName(), e );
+        } finally {
+          done( degraded );
+        }
+      } else {
+        try {
+          while ( !pool.getQueue().offer( runnable, BLOCK_POLL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+            if ( pool.isShutdown() ) {
+              discard( write, "Lineage writer is shut down, dropping the lineage of " );
+              return;
+            }
+          }
+          // no worker may be left to take the write if the executor was shut down meanwhile
+          if ( pool.isShutdown() && pool.getQueue().remove( runnable ) ) {
+            discard( write, "Lineage writer is shut down, dropping the lineage of " );
+          }
+        } catch ( final InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          discard( write, "Interrupted while waiting to queue the lineage of " );
+        }
+      }
+    }
+
+    private void discard( final LineageWrite write, final String message ) {
+      done( dropped );
+      log.warn( message + write.getName() );
+      write.discard();
+    }
+  }
+}
@@ -40,7 +40,10 @@ public class MetaverseBuilder extends BaseMetaverseBuilder {
     super( graph );
   }
 
+  /**
+   * Instantiates a new Metaverse builder for a single execution, backed by a compact in-memory graph.
+   */
   public MetaverseBuilder() {
-    super( SynchronizedGraphFactory.getDefaultGraph() );
+    super( SynchronizedGraphFactory.getCompactGraph() );
   }
 }
@@ -14,22 +14,55 @@
 package org.pentaho.metaverse.impl;
 
 import org.pentaho.metaverse.api.IMetaverseConfig;
+import org.pentaho.metaverse.api.LogicalIdFingerprints;
+import org.pentaho.metaverse.api.analyzer.kettle.SubTransMetaCache;
+
+import java.util.zip.Deflater;
 
 /**
  * A single point of access for all metaverse osgi configuration properties.
  */
 public class MetaverseConfig implements IMetaverseConfig {
 
+  public static final String RESOURCE_SAMPLING_ALL = "all";
+  public static final String RESOURCE_SAMPLING_NTH = "nth";
+  public static final String RESOURCE_SAMPLING_ADAPTIVE = "adaptive";
+  public static final long DEFAULT_RESOURCE_SAMPLING_INTERVAL = 100;
+  public static final long DEFAULT_RESOURCE_SAMPLING_IDLE_ROWS = 10000;
+
   private static final String EXECUTION_RUNTIME_OFF = "off";
+  private static final long DEFAULT_DESIGN_TIME_DEBOUNCE = 500;
+  private static final int DEFAULT_SEARCH_MAX_RESULTS = 10000;
   private String executionRuntime = EXECUTION_RUNTIME_OFF;
   private String executionOutputFolder = "./pentaho-lineage-output";
   private String executionGenerationStrategy = "latest";
   private String externalResourceCacheExpireTime = "21600";
+  private String externalResourceCacheMaxSize = "10000";
+  private String externalResourceCacheMaxWeight = "100000";
   private boolean resolveExternalResources = true;
   private boolean deduplicateTransformationFields = true;
   private boolean adjustExternalResourceFields = true;
   private boolean generateSubGraphs = true;
   private boolean consolidateSubGraphs = true;
+  private String logicalIdMode = LogicalIdFingerprints.MODE_JSON;
+  private String logicalIdDictionarySize = Long.toString( LogicalIdFingerprints.DEFAULT_DICTIONARY_SIZE );
+  private boolean parallelStepAnalysis = false;
+  private int stepAnalysisThreads = 0;
+  private String subTransCacheSize = Long.toString( SubTransMetaCache.DEFAULT_MAXIMUM_SIZE );
+  private String resourceSamplingMode = RESOURCE_SAMPLING_ALL;
+  private long resourceSamplingInterval = DEFAULT_RESOURCE_SAMPLING_INTERVAL;
+  private long resourceSamplingIdleRows = DEFAULT_RESOURCE_SAMPLING_IDLE_ROWS;
+  private int lineageWriterThreads = LineageWriterExecutor.DEFAULT_THREADS;
+  private int lineageWriterQueueSize = LineageWriterExecutor.DEFAULT_QUEUE_SIZE;
+  private String lineageWriterOverflowPolicy = LineageWriterExecutor.POLICY_BLOCK;
+  private boolean lineageWriterVirtualThreads = false;
+  private int analysisThreads = 0;
+  private long designTimeDebounce = DEFAULT_DESIGN_TIME_DEBOUNCE;
+  private int locatorThreads = 0;
+  private int searchMaxDepth = 0;
+  private int searchMaxResults = DEFAULT_SEARCH_MAX_RESULTS;
+  private int artifactCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+  private int artifactCompressionThreads = 0;
 
   private static MetaverseConfig instance;
 
@@ -49,11 +82,35 @@ public class MetaverseConfig implements IMetaverseConfig {
     executionOutputFolder = System.getProperty( KETTLE_LINEAGE_EXECUTION_OUTPUT_FOLDER, executionOutputFolder );
     executionGenerationStrategy = System.getProperty( KETTLE_LINEAGE_EXECUTION_GENERATION_STRATEGY, executionGenerationStrategy );
     externalResourceCacheExpireTime = System.getProperty( KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_EXPIRE_TIME, externalResourceCacheExpireTime );
+    externalResourceCacheMaxSize = System.getProperty( KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_MAX_SIZE, externalResourceCacheMaxSize );
+    externalResourceCacheMaxWeight = System.getProperty( KETTLE_LINEAGE_EXTERNAL_RESOURCE_CACHE_MAX_WEIGHT, externalResourceCacheMaxWeight );
     resolveExternalResources = "true".equalsIgnoreCase( System.getProperty( KETTLE_LINEAGE_RESOLVE_EXTERNAL_RESOURCES, Boolean.toString( resolveExternalResources ) ) );
     deduplicateTransformationFields = "true".equalsIgnoreCase( System.getProperty( KETTLE_LINEAGE_DEDUPLICATE_TRANSFORMATION_FIELDS, Boolean.toString( deduplicateTransformationFields ) ) );
     adjustExternalResourceFields = "true".equalsIgnoreCase( System.getProperty( KETTLE_LINEAGE_ADJUST_EXTERNAL_RESOURCE_FIELDS, Boolean.toString( adjustExternalResourceFields ) ) );
     generateSubGraphs = "true".equalsIgnoreCase( System.getProperty( KETTLE_LINEAGE_GENERATE_SUBGRAPHS, Boolean.toString( generateSubGraphs ) ) );
     consolidateSubGraphs = "true".equalsIgnoreCase( System.getProperty( KETTLE_LINEAGE_CONSOLIDATE_SUBGRAPHS, Boolean.toString( consolidateSubGraphs ) ) );
+    setLogicalIdDictionarySize( System.getProperty( KETTLE_LINEAGE_LOGICAL_ID_DICTIONARY_SIZE, logicalIdDictionarySize ) );
+    setLogicalIdMode( System.getProperty( KETTLE_LINEAGE_LOGICAL_ID_MODE, logicalIdMode ) );
+    parallelStepAnalysis = "true".equalsIgnoreCase( System.getProperty( KETTLE_LINEAGE_PARALLEL_STEP_ANALYSIS, Boolean.toString( parallelStepAnalysis ) ) );
+    setStepAnalysisThreads( System.getProperty( KETTLE_LINEAGE_STEP_ANALYSIS_THREADS, Integer.toString( stepAnalysisThreads ) ) );
+    setSubTransCacheSize( System.getProperty( KETTLE_LINEAGE_SUB_TRANS_CACHE_SIZE, subTransCacheSize ) );
+    resourceSamplingMode = System.getProperty( KETTLE_LINEAGE_RESOURCE_SAMPLING_MODE, resourceSamplingMode );
+    setResourceSamplingInterval( System.getProperty( KETTLE_LINEAGE_RESOURCE_SAMPLING_INTERVAL, Long.toString( resourceSamplingInterval ) ) );
+    setResourceSamplingIdleRows( System.getProperty( KETTLE_LINEAGE_RESOURCE_SAMPLING_IDLE_ROWS, Long.toString( resourceSamplingIdleRows ) ) );
+    setLineageWriterThreads( System.getProperty( KETTLE_LINEAGE_WRITER_THREADS, Integer.toString( lineageWriterThreads ) ) );
+    setLineageWriterQueueSize( System.getProperty( KETTLE_LINEAGE_WRITER_QUEUE_SIZE, Integer.toString( lineageWriterQueueSize ) ) );
+    lineageWriterOverflowPolicy = System.getProperty( KETTLE_LINEAGE_WRITER_OVERFLOW_POLICY, lineageWriterOverflowPolicy );
+    lineageWriterVirtualThreads = "true".equalsIgnoreCase( System.getProperty( KETTLE_LINEAGE_WRITER_VIRTUAL_THREADS, Boolean.toString( lineageWriterVirtualThreads ) ) );
+    setAnalysisThreads( System.getProperty( KETTLE_LINEAGE_ANALYSIS_THREADS, Integer.toString( analysisThreads ) ) );
+    setDesignTimeDebounce( System.getProperty( KETTLE_LINEAGE_DESIGN_TIME_DEBOUNCE, Long.toString( designTimeDebounce ) ) );
+    setLocatorThreads( System.getProperty( KETTLE_LINEAGE_LOCATOR_THREADS, Integer.toString( locatorThreads ) ) );
+    setSearchMaxDepth( System.getProperty( KETTLE_LINEAGE_SEARCH_MAX_DEPTH, Integer.toString( searchMaxDepth ) ) );
+    setSearchMaxResults( System.getProperty( KETTLE_LINEAGE_SEARCH_MAX_RESULTS,
+      Integer.toString( searchMaxResults ) ) );
+    setArtifactCompressionLevel( System.getProperty( KETTLE_LINEAGE_ARTIFACT_COMPRESSION_LEVEL,
+      Integer.toString( artifactCompressionLevel ) ) );
+    setArtifactCompressionThreads( System.getProperty( KETTLE_LINEAGE_ARTIFACT_COMPRESSION_THREADS,
+      Integer.toString( artifactCompressionThreads ) ) );
   }
 
   public void setExecutionRuntime( final String executionRuntime ) {
@@ -151,6 +208,317 @@ public class MetaverseConfig implements IMetaverseConfig {
     return this.externalResourceCacheExpireTime;
   }
 
+  /**
+   * Sets the maximum number of steps whose resources are kept in the external resource cache.
+   */
+  public void setExternalResourceCacheMaxSize( final String externalResourceCacheMaxSize ) {
+    this.externalResourceCacheMaxSize = externalResourceCacheMaxSize;
+  }
+
+  public String getExternalResourceCacheMaxSize() {
+    return this.externalResourceCacheMaxSize;
+  }
+
+  /**
+   * Sets the maximum number of resources kept in the external resource cache for all steps together.
+   */
+  public void setExternalResourceCacheMaxWeight( final String externalResourceCacheMaxWeight ) {
+    this.externalResourceCacheMaxWeight = externalResourceCacheMaxWeight;
+  }
+
+  public String getExternalResourceCacheMaxWeight() {
+    return this.externalResourceCacheMaxWeight;
+  }
+
+  /**
+   * Selects how logical ids are generated: "json" (readable, the default) or "fingerprint" (fixed-size hashes).
+   */
+  public void setLogicalIdMode( final String logicalIdMode ) {
+    this.logicalIdMode = logicalIdMode;
+    LogicalIdFingerprints.setMode( logicalIdMode );
+  }
+
+  public String getLogicalIdMode() {
+    return this.logicalIdMode;
+  }
+
+  /**
+   * Sets the number of readable logical ids remembered for fingerprints, needed to navigate fingerprinted namespaces.
+   */
+  public void setLogicalIdDictionarySize( final String logicalIdDictionarySize ) {
+    long size = parseLong( logicalIdDictionarySize, LogicalIdFingerprints.DEFAULT_DICTIONARY_SIZE );
+    this.logicalIdDictionarySize = Long.toString( size );
+    LogicalIdFingerprints.setDictionarySize( size );
+  }
+
+  public String getLogicalIdDictionarySize() {
+    return this.logicalIdDictionarySize;
+  }
+
+  /**
+   * When true, the steps of a transformation are analyzed concurrently; the resulting graph is the same as when they
+   * are analyzed one at a time.
+   */
+  public void setParallelStepAnalysis( final boolean parallelStepAnalysis ) {
+    this.parallelStepAnalysis = parallelStepAnalysis;
+  }
+
+  public boolean getParallelStepAnalysis() {
+    return this.parallelStepAnalysis;
+  }
+
+  public static boolean parallelStepAnalysis() {
+    final MetaverseConfig config = getInstance();
+    return config != null && config.getParallelStepAnalysis();
+  }
+
+  /**
+   * Sets the number of threads used for parallel step analysis; 0 or less means one per available processor.
+   */
+  public void setStepAnalysisThreads( final String stepAnalysisThreads ) {
+    this.stepAnalysisThreads = parseInt( stepAnalysisThreads, 0 );
+  }
+
+  public int getStepAnalysisThreads() {
+    return this.stepAnalysisThreads <= 0 ? Runtime.getRuntime().availableProcessors() : this.stepAnalysisThreads;
+  }
+
+  public static int stepAnalysisThreads() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? 1 : config.getStepAnalysisThreads();
+  }
+
+  /**
+   * Sets the number of parsed sub-transformations kept for reuse; 0 disables the cache.
+   */
+  public void setSubTransCacheSize( final String subTransCacheSize ) {
+    long size = parseLong( subTransCacheSize, SubTransMetaCache.DEFAULT_MAXIMUM_SIZE );
+    this.subTransCacheSize = Long.toString( size );
+    SubTransMetaCache.setMaximumSize( size );
+  }
+
+  public String getSubTransCacheSize() {
+    return this.subTransCacheSize;
+  }
+
+  /**
+   * Selects which rows data-driven external resource consumers inspect: "all" (the default), "nth" or "adaptive".
+   */
+  public void setResourceSamplingMode( final String resourceSamplingMode ) {
+    this.resourceSamplingMode = resourceSamplingMode;
+  }
+
+  public String getResourceSamplingMode() {
+    return this.resourceSamplingMode;
+  }
+
+  /**
+   * Sets the number of rows between two sampled rows in "nth" mode.
+   */
+  public void setResourceSamplingInterval( final String resourceSamplingInterval ) {
+    this.resourceSamplingInterval = parseLong( resourceSamplingInterval, DEFAULT_RESOURCE_SAMPLING_INTERVAL );
+  }
+
+  public long getResourceSamplingInterval() {
+    return this.resourceSamplingInterval;
+  }
+
+  /**
+   * Sets the number of consecutive rows without a new resource after which "adaptive" mode stops sampling.
+   */
+  public void setResourceSamplingIdleRows( final String resourceSamplingIdleRows ) {
+    this.resourceSamplingIdleRows = parseLong( resourceSamplingIdleRows, DEFAULT_RESOURCE_SAMPLING_IDLE_ROWS );
+  }
+
+  public long getResourceSamplingIdleRows() {
+    return this.resourceSamplingIdleRows;
+  }
+
+  /**
+   * Sets the number of threads writing lineage asynchronously.
+   */
+  public void setLineageWriterThreads( final String lineageWriterThreads ) {
+    this.lineageWriterThreads = parseInt( lineageWriterThreads, LineageWriterExecutor.DEFAULT_THREADS );
+  }
+
+  public int getLineageWriterThreads() {
+    return this.lineageWriterThreads;
+  }
+
+  public static int lineageWriterThreads() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? LineageWriterExecutor.DEFAULT_THREADS : config.getLineageWriterThreads();
+  }
+
+  /**
+   * Sets the number of finished executions that can wait for their lineage to be written.
+   */
+  public void setLineageWriterQueueSize( final String lineageWriterQueueSize ) {
+    this.lineageWriterQueueSize = parseInt( lineageWriterQueueSize, LineageWriterExecutor.DEFAULT_QUEUE_SIZE );
+  }
+
+  public int getLineageWriterQueueSize() {
+    return this.lineageWriterQueueSize;
+  }
+
+  public static int lineageWriterQueueSize() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? LineageWriterExecutor.DEFAULT_QUEUE_SIZE : config.getLineageWriterQueueSize();
+  }
+
+  /**
+   * Selects what happens when the lineage writer queue is full: "block" (the default), "drop-oldest" or
+   * "profile-only".
+   */
+  public void setLineageWriterOverflowPolicy( final String lineageWriterOverflowPolicy ) {
+    this.lineageWriterOverflowPolicy = lineageWriterOverflowPolicy;
+  }
+
+  public String getLineageWriterOverflowPolicy() {
+    return this.lineageWriterOverflowPolicy;
+  }
+
+  public static String lineageWriterOverflowPolicy() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? LineageWriterExecutor.POLICY_BLOCK : config.getLineageWriterOverflowPolicy();
+  }
+
+  public void setLineageWriterVirtualThreads( final boolean lineageWriterVirtualThreads ) {
+    this.lineageWriterVirtualThreads = lineageWriterVirtualThreads;
+  }
+
+  public boolean getLineageWriterVirtualThreads() {
+    return this.lineageWriterVirtualThreads;
+  }
+
+  public static boolean lineageWriterVirtualThreads() {
+    final MetaverseConfig config = getInstance();
+    return config != null && config.getLineageWriterVirtualThreads();
+  }
+
+  /**
+   * Sets the number of threads the completion services analyze documents on; 0 or less means one per available
+   * processor. Read when the services are first used.
+   */
+  public void setAnalysisThreads( final String analysisThreads ) {
+    this.analysisThreads = parseInt( analysisThreads, 0 );
+  }
+
+  public int getAnalysisThreads() {
+    return this.analysisThreads <= 0 ? Runtime.getRuntime().availableProcessors() : this.analysisThreads;
+  }
+
+  public static int analysisThreads() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? Runtime.getRuntime().availableProcessors() : config.getAnalysisThreads();
+  }
+
+  /**
+   * Sets the number of milliseconds without changes after which the lineage graph of an edited transformation is
+   * rebuilt.
+   */
+  public void setDesignTimeDebounce( final String designTimeDebounce ) {
+    long millis = parseLong( designTimeDebounce, DEFAULT_DESIGN_TIME_DEBOUNCE );
+    this.designTimeDebounce = Math.max( 0, millis );
+  }
+
+  public long getDesignTimeDebounce() {
+    return this.designTimeDebounce;
+  }
+
+  public static long designTimeDebounce() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? DEFAULT_DESIGN_TIME_DEBOUNCE : config.getDesignTimeDebounce();
+  }
+
+  /**
+   * Sets the number of threads a file system locator reads files on; 0 or less means one per available processor.
+   */
+  public void setLocatorThreads( final String locatorThreads ) {
+    this.locatorThreads = parseInt( locatorThreads, 0 );
+  }
+
+  public int getLocatorThreads() {
+    return this.locatorThreads <= 0 ? Runtime.getRuntime().availableProcessors() : this.locatorThreads;
+  }
+
+  public static int locatorThreads() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? Runtime.getRuntime().availableProcessors() : config.getLocatorThreads();
+  }
+
+  /**
+   * Sets the maximum number of links a metaverse search or sub-graph walks from its start node; 0 or less means no
+   * limit.
+   */
+  public void setSearchMaxDepth( final String searchMaxDepth ) {
+    int depth = parseInt( searchMaxDepth, 0 );
+    this.searchMaxDepth = Math.max( depth, 0 );
+  }
+
+  public int getSearchMaxDepth() {
+    return this.searchMaxDepth;
+  }
+
+  public static int searchMaxDepth() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? 0 : config.getSearchMaxDepth();
+  }
+
+  /**
+   * Sets the maximum number of paths a metaverse search returns per start node; 0 or less means no limit.
+   */
+  public void setSearchMaxResults( final String searchMaxResults ) {
+    int results = parseInt( searchMaxResults, DEFAULT_SEARCH_MAX_RESULTS );
+    this.searchMaxResults = Math.max( results, 0 );
+  }
+
+  public int getSearchMaxResults() {
+    return this.searchMaxResults;
+  }
+
+  public static int searchMaxResults() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? DEFAULT_SEARCH_MAX_RESULTS : config.getSearchMaxResults();
+  }
+
+  /**
+   * Sets the deflate level of the lineage artifacts zipped for download, from 0 (stored) to 9; any other value means
+   * the default level.
+   */
+  public void setArtifactCompressionLevel( final String artifactCompressionLevel ) {
+    int level = parseInt( artifactCompressionLevel, Deflater.DEFAULT_COMPRESSION );
+    this.artifactCompressionLevel =
+      level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION ? Deflater.DEFAULT_COMPRESSION : level;
+  }
+
+  public int getArtifactCompressionLevel() {
+    return this.artifactCompressionLevel;
+  }
+
+  public static int artifactCompressionLevel() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? Deflater.DEFAULT_COMPRESSION : config.getArtifactCompressionLevel();
+  }
+
+  /**
+   * Sets the number of threads lineage artifacts are compressed on when zipped for download; 0 or less means one per
+   * available processor.
+   */
+  public void setArtifactCompressionThreads( final String artifactCompressionThreads ) {
+    this.artifactCompressionThreads = parseInt( artifactCompressionThreads, 0 );
+  }
+
+  public int getArtifactCompressionThreads() {
+    return this.artifactCompressionThreads <= 0
+      ? Runtime.getRuntime().availableProcessors() : this.artifactCompressionThreads;
+  }
+
+  public static int artifactCompressionThreads() {
+    final MetaverseConfig config = getInstance();
+    return config == null ? Runtime.getRuntime().availableProcessors() : config.getArtifactCompressionThreads();
+  }
+
   public static boolean consolidateSubGraphs() {
     final MetaverseConfig config = getInstance();
     return config != null && config.getConsolidateSubGraphs();
@@ -160,4 +528,26 @@ public class MetaverseConfig implements IMetaverseConfig {
     final MetaverseConfig instance = getInstance();
     return instance != null && !EXECUTION_RUNTIME_OFF.equalsIgnoreCase( instance.getExecutionRuntime() );
   }
+
+  /**
+   * @return the value as an int, or the default if it is missing or not a number
+   */
+  private static int parseInt( final String value, final int defaultValue ) {
+    try {
+      return Integer.parseInt( value.trim() );
+    } catch ( final NullPointerException | NumberFormatException e ) {
+      return defaultValue;
+    }
+  }
+
+  /**
+   * @return the value as a long, or the default if it is missing or not a number
+   */
+  private static long parseLong( final String value, final long defaultValue ) {
+    try {
+      return Long.parseLong( value.trim() );
+    } catch ( final NullPointerException | NumberFormatException e ) {
+      return defaultValue;
+    }
+  }
 }
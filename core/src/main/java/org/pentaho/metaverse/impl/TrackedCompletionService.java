@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link CompletionService} running its tasks on a fixed number of threads, which keeps count of its outstanding
+ * tasks so that {@link #waitTillEmpty()} can block until they are all done instead of polling for them.
+ * <p>
+ * Completed tasks are handed out in completion order by {@link #take()} and {@link #poll()}, or consumed and logged
+ * by {@link #waitTillEmpty()}.
+ *
+ * @param <V> the result type of the tasks
+ */
+public class TrackedCompletionService<V> implements CompletionService<V> {
+
+  private static final Logger log = LoggerFactory.getLogger( TrackedCompletionService.class );
+
+  private final ThreadPoolExecutor executor;
+  private final BlockingQueue<Future<V>> completionQueue = new LinkedBlockingQueue<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition taskDone = lock.newCondition();
+  private long outstanding;
+
+  private final LongAdder submitted = new LongAdder();
+  private final AtomicInteger running = new AtomicInteger();
+  private final LongAdder completed = new LongAdder();
+
+  /**
+   * @param name    the prefix of the worker thread names
+   * @param threads the maximum number of tasks run at the same time
+   */
+  protected TrackedCompletionService( final String name, final int threads ) {
+    final int nrThreads = Math.max( 1, threads );
+    final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+    final AtomicInteger threadNumber = new AtomicInteger();
+    executor = new ThreadPoolExecutor( nrThreads, nrThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      runnable -> {
+        final Thread thread = defaultFactory.newThread( runnable );
+        thread.setName( name + "-" + threadNumber.getAndIncrement() );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    // idle workers go away instead of being kept for the lifetime of the application
+    executor.allowCoreThreadTimeOut( true );
+  }
+
+  @Override
+  public Future<V> submit( Callable<V> task ) {
+    log.debug( "Submitting Callable task --> " + task.toString() );
+    return execute( new TrackedTask( task ) );
+  }
+
+  @Override
+  public Future<V> submit( Runnable task, V result ) {
+    log.debug( "Submitting Runnable task --> " + result );
+    return execute( new TrackedTask( Executors.callable( task, result ) ) );
+  }
+
+  private Future<V> execute( final TrackedTask task ) {
+    lock.lock();
+    try {
+      outstanding++;
+    } finally {
+      lock.unlock();
+    }
+    submitted.increment();
+    executor.execute( task );
+    return task;
+  }
+
+  @Override
+  public Future<V> take() throws InterruptedException {
+    return completionQueue.take();
+  }
+
+  @Override
+  public Future<V> poll() {
+    return completionQueue.poll();
+  }
+
+  @Override
+  public Future<V> poll( long timeout, TimeUnit unit ) throws InterruptedException {
+    return completionQueue.poll( timeout, unit );
+  }
+
+  /**
+   * Blocks until every submitted task is done, consuming and logging the completed tasks along the way.
+   */
+  public void waitTillEmpty() throws InterruptedException, ExecutionException {
+    while ( true ) {
+      final Future<V> result = completionQueue.poll();
+      if ( result != null ) {
+        logResult( result );
+        continue;
+      }
+      lock.lock();
+      try {
+        if ( completionQueue.isEmpty() ) {
+          if ( outstanding == 0 ) {
+            return;
+          }
+          // signalled each time a task is done
+          taskDone.await();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void logResult( final Future<V> result ) throws InterruptedException {
+    if ( result.isCancelled() ) {
+      return;
+    }
+    try {
+      log.debug( "Process Finished --> " + result.get() );
+    } catch ( ExecutionException e ) {
+      log.warn( e.getMessage(), e );
+    }
+  }
+
+  /**
+   * @return the number of tasks submitted since this service was created
+   */
+  public long getSubmittedCount() {
+    return submitted.sum();
+  }
+
+  /**
+   * @return the number of tasks currently running
+   */
+  public int getRunningCount() {
+    return running.get();
+  }
+
+  /**
+   * @return the number of tasks done since this service was created, whether they succeeded, failed or were cancelled
+   */
+  public long getCompletedCount() {
+    return completed.sum();
+  }
+
+  /**
+   * @return the number of submitted tasks that are not done yet
+   */
+  public long getOutstandingCount() {
+    lock.lock();
+    try {
+      return outstanding;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the maximum number of tasks run at the same time
+   */
+  public int getThreads() {
+    return executor.getMaximumPoolSize();
+  }
+
+  private final class TrackedTask extends FutureTask<V> {
+
+    TrackedTask( final Callable<V> callable ) {
+      super( callable );
+    }
+
+    @Override
+    public void run() {
+      running.incrementAndGet();
+      try {
+        super.run();
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+
+    @Override
+    protected void done() {
+      completionQueue.add( this );
+      completed.increment();
+      lock.lock();
+      try {
+        outstanding--;
+        taskDone.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
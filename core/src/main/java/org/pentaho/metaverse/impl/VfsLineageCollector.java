@@ -24,19 +24,20 @@ import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.metaverse.api.ILineageCollector;
 import org.pentaho.metaverse.messages.Messages;
+import org.pentaho.metaverse.util.ParallelZipWriter;
 import org.pentaho.metaverse.util.VfsDateRangeFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class VfsLineageCollector implements ILineageCollector {
 
@@ -44,6 +45,18 @@ public class VfsLineageCollector implements ILineageCollector {
 
   private String outputFolder = DEFAULT_OUTPUT_FOLDER;
   private static final Logger log = LoggerFactory.getLogger( VfsLineageCollector.class );
+
+  private static final ThreadFactory THREAD_FACTORY = runnable -> {
+    final Thread thread = new Thread( runnable, "metaverse-artifact-compression" );
+    thread.setDaemon( true );
+    return thread;
+  };
+
+  /**
+   * The pool artifacts are compressed on, shared by all downloads
+   */
+  private static volatile ExecutorService compressionPool;
+
   protected SimpleDateFormat format = new SimpleDateFormat( "yyyyMMdd" );
 
   public VfsLineageCollector() {
@@ -178,39 +191,48 @@ public class VfsLineageCollector implements ILineageCollector {
     }
   }
 
+  /**
+   * @return the pool artifacts are compressed on, created the first time it is needed
+   */
+  static ExecutorService getCompressionPool() {
+    if ( compressionPool == null ) {
+      synchronized ( VfsLineageCollector.class ) {
+        if ( compressionPool == null ) {
+          compressionPool =
+            Executors.newFixedThreadPool( MetaverseConfig.artifactCompressionThreads(), THREAD_FACTORY );
+        }
+      }
+    }
+    return compressionPool;
+  }
+
+  /**
+   * Writes a zip of the artifacts to a stream. An artifact that cannot be read is left out, as is an artifact listed
+   * more than once; the zip is abandoned as soon as the stream cannot be written to.
+   */
   @Override
   public void compressArtifacts( List<String> paths, OutputStream os ) {
-    ZipOutputStream zos = null;
+    // artifacts are read and deflated on the pool, and written to the zip in the order they are listed
+    final ParallelZipWriter zip = new ParallelZipWriter( os, getCompressionPool(),
+      MetaverseConfig.artifactCompressionLevel(), MetaverseConfig.artifactCompressionThreads() * 2 );
+    final long now = System.currentTimeMillis();
     try {
       FileSystemOptions opts = new FileSystemOptions();
 
-      zos = new ZipOutputStream( os );
       for ( String path : paths ) {
-        FileObject file = KettleVFS.getInstance( DefaultBowl.getInstance() ).getFileObject( path, opts );
-        try {
-          // register the file as an entry in the zip file
-          ZipEntry zipEntry = new ZipEntry( file.getName().getPath() );
-          zos.putNextEntry( zipEntry );
-
-          // write the file's bytes to the zip stream
-          try ( InputStream fis = file.getContent().getInputStream() ) {
-            zos.write( IOUtils.toByteArray( fis ) );
-          }
-        } catch ( IOException e ) {
-          log.error( Messages.getString( "ERROR.FailedAddingFileToZip", file.getName().getPath() ) );
-        } finally {
-          // indicate we are done with this file
-          try {
-            zos.closeEntry();
-          } catch ( IOException e ) {
-            log.error( Messages.getString( "ERROR.FailedToProperlyCloseZipEntry", file.getName().getPath() ) );
-          }
+        final FileObject file = KettleVFS.getInstance( DefaultBowl.getInstance() ).getFileObject( path, opts );
+        final String name = file.getName().getPath();
+        if ( !zip.putEntry( name, now, () -> file.getContent().getInputStream() ) ) {
+          log.warn( Messages.getString( "WARNING.DuplicateZipEntry", name ) );
         }
       }
     } catch ( KettleFileException e ) {
       log.error( Messages.getString( "ERROR.UnexpectedVfsError", e.getMessage() ) );
+    } catch ( IOException e ) {
+      // the output cannot be written to, there is no point in compressing the other artifacts
+      log.error( Messages.getString( "ERROR.FailedWritingZip" ), e );
     } finally {
-      IOUtils.closeQuietly( zos );
+      IOUtils.closeQuietly( zip );
     }
   }
 }
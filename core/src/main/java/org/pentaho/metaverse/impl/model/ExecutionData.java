@@ -26,6 +26,7 @@ import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExecutionData implements IExecutionData {
   private Date startTime;
@@ -38,6 +39,7 @@ public class ExecutionData implements IExecutionData {
   private List<IParamInfo<String>> parameters = new ArrayList<IParamInfo<String>>();
   private Map<String, List<IExternalResourceInfo>> externalResources =
     new HashMap<String, List<IExternalResourceInfo>>();
+  private Map<String, Long> sampledRows = new ConcurrentHashMap<String, Long>();
   private Map<Object, Object> variables = new Hashtable<Object, Object>();
   private List<Object> arguments = new ArrayList<Object>();
   private IArtifactMetadata artifactMetadata;
@@ -148,6 +150,21 @@ public class ExecutionData implements IExecutionData {
     this.externalResources.put( consumerName, resources );
   }
 
+  @Override
+  public Map<String, Long> getSampledRows() {
+    return sampledRows;
+  }
+
+  @Override
+  public void setSampledRows( Map<String, Long> sampledRows ) {
+    this.sampledRows = sampledRows;
+  }
+
+  @Override
+  public void addSampledRows( String stepName, long sampledRows ) {
+    this.sampledRows.merge( stepName, sampledRows, Long::sum );
+  }
+
   @Override
   public Map<Object, Object> getVariables() {
     return variables;
@@ -13,8 +13,10 @@
 
 package org.pentaho.metaverse.locator;
 
+import com.tinkerpop.blueprints.Graph;
 import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.dictionary.DictionaryHelper;
+import org.pentaho.metaverse.api.IDocumentController;
 import org.pentaho.metaverse.api.IDocumentEvent;
 import org.pentaho.metaverse.api.IDocumentListener;
 import org.pentaho.metaverse.api.IDocumentLocator;
@@ -22,7 +24,7 @@ import org.pentaho.metaverse.api.IMetaverseBuilder;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseLocatorException;
-import org.pentaho.metaverse.api.Namespace;
+import org.pentaho.metaverse.api.StructuredNamespace;
 import org.pentaho.metaverse.impl.MetaverseCompletionService;
 import org.pentaho.metaverse.messages.Messages;
 import org.pentaho.platform.api.engine.IPentahoSession;
@@ -30,12 +32,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.Future;
 
 /**
@@ -95,6 +99,21 @@ public abstract class BaseLocator<T> implements IDocumentLocator {
    */
   protected List<IDocumentListener> listeners = new ArrayList<IDocumentListener>();
 
+  /**
+   * The file in which the documents found by a scan are recorded, or null to analyze every document on every scan
+   */
+  protected String manifestFile;
+
+  /**
+   * The documents found by the last scan
+   */
+  protected transient LocatorManifest manifest;
+
+  /**
+   * The namespace of the documents found by this locator, derived from the locator type and repository id
+   */
+  private transient INamespace namespace;
+
   /**
    * Constructor for the abstract super class
    */
@@ -125,8 +144,12 @@ public abstract class BaseLocator<T> implements IDocumentLocator {
     listeners.add( listener );
   }
 
+  /**
+   * Notifies the listeners of a document event. Locators may find documents on several threads; listeners are
+   * notified of one event at a time.
+   */
   @Override
-  public void notifyListeners( IDocumentEvent event ) {
+  public synchronized void notifyListeners( IDocumentEvent event ) {
     for ( IDocumentListener listener : listeners ) {
       listener.onEvent( event );
     }
@@ -137,12 +160,30 @@ public abstract class BaseLocator<T> implements IDocumentLocator {
     listeners.remove( listener );
   }
 
+  /**
+   * Tells whether a document with the given extension is worth reading: a document controller among the listeners has
+   * an analyzer for it, or a listener that is not a document controller accepts any document.
+   *
+   * @param extension the document extension, without the dot
+   * @return true if the document should be read
+   */
+  protected boolean isSupportedExtension( String extension ) {
+    for ( IDocumentListener listener : listeners ) {
+      if ( !( listener instanceof IDocumentController )
+        || ( (IDocumentController) listener ).getDocumentAnalyzers( extension ) != null ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public String getRepositoryId() {
     return id;
   }
 
   public void setRepositoryId( String id ) {
     this.id = id;
+    this.namespace = null;
   }
 
   public String getLocatorType() {
@@ -153,6 +194,62 @@ public abstract class BaseLocator<T> implements IDocumentLocator {
     this.locatorType = locatorType;
   }
 
+  public String getManifestFile() {
+    return manifestFile;
+  }
+
+  /**
+   * Sets the file in which the documents found by a scan are recorded. When set, a scan only notifies the documents
+   * added, updated or deleted since the previous scan.
+   *
+   * @param manifestFile the manifest file, or null or empty to analyze every document on every scan
+   */
+  public void setManifestFile( String manifestFile ) {
+    this.manifestFile = manifestFile == null || manifestFile.trim().isEmpty() ? null : manifestFile.trim();
+    this.manifest = null;
+  }
+
+  /**
+   * Returns the documents found by the last scan. The stored manifest is only loaded if the graph is persistent: a
+   * graph that only lives in memory starts empty, so every document must be analyzed again.
+   *
+   * @return the documents found by the last scan, or null if this locator does not keep a manifest
+   */
+  protected LocatorManifest getManifest() {
+    if ( manifest == null && manifestFile != null ) {
+      final Path file = Paths.get( manifestFile );
+      if ( isGraphPersistent() ) {
+        manifest = LocatorManifest.load( file );
+      } else {
+        LOG.debug( Messages.getString( "DEBUG.Locator.ManifestIgnored", getLocatorType(), file ) );
+        manifest = new LocatorManifest( file );
+      }
+    }
+    return manifest;
+  }
+
+  /**
+   * @return true if the graph documents are added to outlives this process
+   */
+  protected boolean isGraphPersistent() {
+    final Graph graph = metaverseBuilder == null ? null : metaverseBuilder.getGraph();
+    return graph != null && Boolean.TRUE.equals( graph.getFeatures().isPersistent );
+  }
+
+  /**
+   * Returns a hash of the document content, used to tell a changed document from a touched one.
+   *
+   * @param locatedItem the located item
+   * @param contents    the contents returned by {@link #getContents(Object)}
+   * @return the hash, or null if the content cannot be hashed
+   */
+  protected String getContentHash( T locatedItem, Object contents ) {
+    if ( contents instanceof String ) {
+      return LocatorManifest.hash( ( (String) contents ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+    return null;
+  }
+
   public IMetaverseBuilder getMetaverseBuilder() {
     return metaverseBuilder;
   }
@@ -202,15 +299,24 @@ public abstract class BaseLocator<T> implements IDocumentLocator {
     this.locatorNode = locatorNode;
   }
 
+  /**
+   * Returns the namespace of the documents found by this locator. It only depends on the locator type and repository
+   * id, so the documents found by successive scans keep their ids and their nodes are updated in place.
+   *
+   * @return the namespace
+   */
   protected INamespace getNamespace() {
 
-    IMetaverseNode locatorNode = metaverseBuilder.getMetaverseObjectFactory().createNodeObject(
-        UUID.randomUUID().toString(),
-        getRepositoryId(),
-        DictionaryConst.NODE_TYPE_LOCATOR );
-    locatorNode.setLogicalIdGenerator( DictionaryConst.LOGICAL_ID_GENERATOR_LOCATOR );
+    if ( namespace == null ) {
+      IMetaverseNode locatorNode = metaverseBuilder.getMetaverseObjectFactory().createNodeObject(
+          getRepositoryId(),
+          getRepositoryId(),
+          DictionaryConst.NODE_TYPE_LOCATOR );
+      locatorNode.setLogicalIdGenerator( DictionaryConst.LOGICAL_ID_GENERATOR_LOCATOR );
 
-    return new Namespace( locatorNode.getLogicalId() );
+      namespace = StructuredNamespace.ofNode( locatorNode );
+    }
+    return namespace;
   }
 
   @Override
@@ -248,6 +354,7 @@ public abstract class BaseLocator<T> implements IDocumentLocator {
 
     runner = locatorRunner;
     runner.setLocator( this );
+    runner.setManifest( getManifest() );
 
     LOG.debug( Messages.getString( "DEBUG.Locator.StartScan", getLocatorType() ) );
 
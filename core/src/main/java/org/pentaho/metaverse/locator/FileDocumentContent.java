@@ -0,0 +1,60 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.locator;
+
+import org.pentaho.metaverse.api.IDocumentContent;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The content of a file, read from disk each time a stream is opened on it.
+ */
+public class FileDocumentContent implements IDocumentContent {
+
+  private final Path path;
+
+  private final long size;
+
+  /**
+   * @param path the file
+   * @param size the size of the file, or -1 if unknown
+   */
+  public FileDocumentContent( final Path path, final long size ) {
+    this.path = path;
+    this.size = size;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public InputStream openStream() throws IOException {
+    return new BufferedInputStream( Files.newInputStream( path ) );
+  }
+
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return path.toString();
+  }
+}
@@ -13,14 +13,17 @@
 
 package org.pentaho.metaverse.locator;
 
-import org.apache.commons.io.FileUtils;
+import org.pentaho.metaverse.api.IDocumentContent;
 import org.pentaho.metaverse.api.IDocumentListener;
 import org.pentaho.metaverse.api.MetaverseLocatorException;
+import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.messages.Messages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 
@@ -42,6 +45,8 @@ public class FileSystemLocator extends BaseLocator<File> {
 
   private String rootFolder;
 
+  private int threads;
+
   /**
    * Creates a filessytem locator
    */
@@ -62,21 +67,33 @@ public class FileSystemLocator extends BaseLocator<File> {
   }
 
   /**
-   * A method that returns the payload (object or XML) for a document
+   * A method that returns the payload (object or XML) for a document. The file is not read here: analyzers stream it
+   * when they parse it.
    * @param file The repository file
-   * @return The object or XML payload
+   * @return The file content, or an empty String if the file cannot be read
    * @throws Exception When the document contents cannot be retrieved
    */
   @Override
   protected Object getContents( File file ) throws Exception {
-    String content = "";
-    try {
-      content = FileUtils.readFileToString( file );
-    } catch ( Throwable e ) {
-      LOG.error( Messages.getString( "ERROR.IndexingDocument", file.getPath() ), e );
+    if ( !file.isFile() || !file.canRead() ) {
+      LOG.error( Messages.getString( "ERROR.IndexingDocument", file.getPath() ) );
       // not fatal, continue
+      return "";
+    }
+    return new FileDocumentContent( file.toPath(), file.length() );
+  }
+
+  @Override
+  protected String getContentHash( File file, Object contents ) {
+    if ( contents instanceof IDocumentContent ) {
+      try ( InputStream stream = ( (IDocumentContent) contents ).openStream() ) {
+        return LocatorManifest.hash( stream );
+      } catch ( IOException e ) {
+        LOG.error( Messages.getString( "ERROR.IndexingDocument", file.getPath() ), e );
+        return null;
+      }
     }
-    return content;
+    return super.getContentHash( file, contents );
   }
 
   public String getRootFolder() {
@@ -87,6 +104,20 @@ public class FileSystemLocator extends BaseLocator<File> {
     this.rootFolder = rootFolder;
   }
 
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Sets the number of files read at the same time by a scan.
+   *
+   * @param threads the number of threads, or 0 to use the configured number (see
+   *                {@link MetaverseConfig#locatorThreads()})
+   */
+  public void setThreads( int threads ) {
+    this.threads = threads;
+  }
+
   @Override
   public void startScan() throws MetaverseLocatorException {
 
@@ -103,8 +134,9 @@ public class FileSystemLocator extends BaseLocator<File> {
           Messages.getString("ERROR.FileSystemLocator.RootFolder.NotAFolder", root.getAbsolutePath() ) );
     }
 
-    LocatorRunner<File> lr = new FileSystemLocatorRunner();
+    FileSystemLocatorRunner lr = new FileSystemLocatorRunner();
     lr.setRoot( root );
+    lr.setThreads( threads );
     startScan( lr );
   }
 
@@ -13,11 +13,27 @@
 
 package org.pentaho.metaverse.locator;
 
+import org.apache.commons.io.FilenameUtils;
+import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.messages.Messages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A runnable (and stoppable) class for crawling a Hitachi Vantara repository for documents
@@ -27,30 +43,95 @@ import java.io.File;
 public class FileSystemLocatorRunner extends LocatorRunner<File> {
 
   private static final Logger LOG = LoggerFactory.getLogger( LocatorRunner.class );
+
+  private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+  private static final ThreadFactory THREAD_FACTORY = runnable -> {
+    final Thread thread = new Thread( runnable, "metaverse-file-system-locator-" + THREAD_NUMBER.getAndIncrement() );
+    thread.setDaemon( true );
+    return thread;
+  };
+
+  private int threads;
+
+  /**
+   * Sets the number of files read at the same time.
+   *
+   * @param threads the number of threads, or 0 to use the configured number
+   */
+  public void setThreads( int threads ) {
+    this.threads = threads;
+  }
+
   /**
-   * Indexes a set of files/folders. Folders are recursed into and files are passed to indexFile.
+   * Indexes a set of files/folders. The folder tree is walked on the calling thread, and the files with an extension
+   * some listener is interested in are processed on a pool of threads. At most twice as many files as there are
+   * threads wait to be processed, so the walk does not get ahead of the processing.
    * @param folder The files/folders to examine
    */
   public void locate( File folder ) {
+    final int poolSize = threads > 0 ? threads : MetaverseConfig.locatorThreads();
+    final ExecutorService pool = Executors.newFixedThreadPool( poolSize, THREAD_FACTORY );
+    final Semaphore pending = new Semaphore( poolSize * 2 );
+    try {
+      Files.walkFileTree( folder.toPath(), EnumSet.of( FileVisitOption.FOLLOW_LINKS ), Integer.MAX_VALUE,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs ) {
+            return stopping ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+          }
 
-    File[] files = folder.listFiles();
-    for ( File file : files ) {
-      if ( stopping ) {
-        return;
-      }
-      if ( !file.isDirectory() ) {
-        try {
-          if ( !file.isHidden( ) ) {
-            processFile( locator.getNamespace(), file.getName(), file.getCanonicalPath(), file );
+          @Override
+          public FileVisitResult visitFile( Path path, BasicFileAttributes attrs ) throws IOException {
+            if ( stopping ) {
+              return FileVisitResult.TERMINATE;
+            }
+            if ( attrs.isRegularFile()
+              && locator.isSupportedExtension( FilenameUtils.getExtension( path.getFileName().toString() ) )
+              && !Files.isHidden( path ) ) {
+              try {
+                pending.acquire();
+              } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return FileVisitResult.TERMINATE;
+              }
+              pool.execute( () -> {
+                try {
+                  process( path.toFile(), attrs );
+                } finally {
+                  pending.release();
+                }
+              } );
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed( Path path, IOException e ) {
+            LOG.error( Messages.getString( "ERROR.ProcessFileFailed", path.toString() ), e );
+            return FileVisitResult.CONTINUE;
           }
-        } catch ( Exception e ) {
-          // something truly unexpected would have to have happened ... NPE or similar ugliness
-          LOG.error( Messages.getString( "ERROR.ProcessFileFailed", file.getName() ), e );
-        }
-      } else {
-        locate( file );
+        } );
+    } catch ( IOException e ) {
+      LOG.error( Messages.getString( "ERROR.ProcessFileFailed", folder.getName() ), e );
+    } finally {
+      pool.shutdown();
+      try {
+        pool.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
       }
     }
   }
 
+  private void process( File file, BasicFileAttributes attrs ) {
+    try {
+      processFile( locator.getNamespace(), file.getName(), file.getCanonicalPath(), file, attrs.size(),
+        attrs.lastModifiedTime().toMillis() );
+    } catch ( Exception e ) {
+      // something truly unexpected would have to have happened ... NPE or similar ugliness
+      LOG.error( Messages.getString( "ERROR.ProcessFileFailed", file.getName() ), e );
+    }
+  }
+
 }
@@ -0,0 +1,296 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.locator;
+
+import org.pentaho.metaverse.api.IDocumentEvent;
+import org.pentaho.metaverse.messages.Messages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The documents found by the last scan of a locator: the path, size, last modification time and content hash of each
+ * of them. A scan checks every located document against the manifest, so that only the documents that were added,
+ * updated or deleted since the last scan are analyzed again.
+ * <p>
+ * A document whose size and modification time have not changed is not read at all; one whose size or modification
+ * time changed but whose content hash is the same is not analyzed again.
+ * <p>
+ * The manifest is stored as a text file with one document per line, and is written to a temporary file that replaces
+ * the previous manifest, so an interrupted write leaves the previous manifest in place. It describes what the graph
+ * holds, so a stored manifest is only worth loading for a graph that outlives the process.
+ */
+public class LocatorManifest {
+
+  private static final Logger LOG = LoggerFactory.getLogger( LocatorManifest.class );
+
+  private static final String SEPARATOR = "\t";
+
+  private final Path file;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+  private final AtomicInteger added = new AtomicInteger();
+
+  private final AtomicInteger updated = new AtomicInteger();
+
+  private final AtomicInteger unchanged = new AtomicInteger();
+
+  /**
+   * @param file the file the manifest is stored in, or null for a manifest that only lives in memory
+   */
+  public LocatorManifest( final Path file ) {
+    this.file = file;
+  }
+
+  /**
+   * Reads the manifest stored in the given file. A missing or unreadable file gives an empty manifest, so that every
+   * document is analyzed.
+   */
+  public static LocatorManifest load( final Path file ) {
+    final LocatorManifest manifest = new LocatorManifest( file );
+    if ( file != null && Files.isRegularFile( file ) ) {
+      try ( BufferedReader reader = Files.newBufferedReader( file, StandardCharsets.UTF_8 ) ) {
+        String line;
+        while ( ( line = reader.readLine() ) != null ) {
+          // hash, size, last modified, path; the path goes last as it is the only free-form value
+          final String[] values = line.split( SEPARATOR, 4 );
+          if ( values.length == 4 ) {
+            manifest.entries.put( values[ 3 ],
+              new Entry( Long.parseLong( values[ 1 ] ), Long.parseLong( values[ 2 ] ), values[ 0 ] ) );
+          }
+        }
+      } catch ( IOException | NumberFormatException e ) {
+        LOG.warn( Messages.getString( "WARNING.LocatorManifest.CouldNotLoad", file ), e );
+        manifest.entries.clear();
+      }
+    }
+    return manifest;
+  }
+
+  /**
+   * Writes the manifest to its file, if it has one.
+   */
+  public void save() {
+    if ( file == null ) {
+      return;
+    }
+    try {
+      final Path parent = file.toAbsolutePath().getParent();
+      if ( parent != null ) {
+        Files.createDirectories( parent );
+      }
+      final Path temp = file.resolveSibling( file.getFileName() + ".tmp" );
+      try ( BufferedWriter writer = Files.newBufferedWriter( temp, StandardCharsets.UTF_8 ) ) {
+        for ( final Map.Entry<String, Entry> entry : entries.entrySet() ) {
+          final Entry value = entry.getValue();
+          writer.write( value.hash + SEPARATOR + value.size + SEPARATOR + value.lastModified + SEPARATOR
+            + entry.getKey() );
+          writer.newLine();
+        }
+      }
+      Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+    } catch ( IOException e ) {
+      LOG.error( Messages.getString( "ERROR.LocatorManifest.CouldNotSave", file ), e );
+    }
+  }
+
+  /**
+   * Starts a new scan: no document has been found yet.
+   */
+  public void beginScan() {
+    seen.clear();
+    added.set( 0 );
+    updated.set( 0 );
+    unchanged.set( 0 );
+  }
+
+  /**
+   * Records that the document was found by the current scan, and tells whether it can be skipped without reading it.
+   *
+   * @return true if the document has the same size and modification time as in the last scan, false if they changed
+   * or are unknown (negative)
+   */
+  public boolean isUnchanged( final String path, final long size, final long lastModified ) {
+    seen.add( path );
+    if ( size < 0 || lastModified < 0 ) {
+      return false;
+    }
+    final Entry entry = entries.get( path );
+    if ( entry != null && entry.size == size && entry.lastModified == lastModified ) {
+      unchanged.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Compares a document that was read with its state in the last scan, without recording its current state.
+   *
+   * @param hash the hash of the document content, or null if the content cannot be hashed
+   * @return the event to notify for the document, or null if its content has not changed
+   * @see #commit(String, long, long, String)
+   */
+  public String check( final String path, final long size, final long lastModified, final String hash ) {
+    seen.add( path );
+    final Entry previous = entries.get( path );
+    if ( previous == null ) {
+      added.incrementAndGet();
+      return IDocumentEvent.EVENT_TYPE_ADD;
+    }
+    if ( hash != null && hash.equals( previous.hash ) ) {
+      unchanged.incrementAndGet();
+      return null;
+    }
+    updated.incrementAndGet();
+    return IDocumentEvent.EVENT_TYPE_UPDATE;
+  }
+
+  /**
+   * Records the current state of a document once it has been analyzed, so that the next scan skips it if it does not
+   * change. A document that could not be analyzed is not committed, and is analyzed again by the next scan.
+   *
+   * @param hash the hash of the document content, or null if the content cannot be hashed
+   */
+  public void commit( final String path, final long size, final long lastModified, final String hash ) {
+    entries.put( path, new Entry( size, lastModified, hash == null ? "" : hash ) );
+  }
+
+  /**
+   * Checks and commits the current state of a document at once.
+   *
+   * @return the event to notify for the document, or null if its content has not changed
+   */
+  public String update( final String path, final long size, final long lastModified, final String hash ) {
+    final String eventType = check( path, size, lastModified, hash );
+    commit( path, size, lastModified, hash );
+    return eventType;
+  }
+
+  /**
+   * Forgets the documents that were not found by the current scan.
+   *
+   * @return the paths of the forgotten documents
+   */
+  public List<String> removeUnseen() {
+    final List<String> removed = new ArrayList<>();
+    for ( final String path : entries.keySet() ) {
+      if ( !seen.contains( path ) ) {
+        removed.add( path );
+      }
+    }
+    entries.keySet().removeAll( removed );
+    Collections.sort( removed );
+    return removed;
+  }
+
+  public boolean contains( final String path ) {
+    return entries.containsKey( path );
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public int getAddedCount() {
+    return added.get();
+  }
+
+  public int getUpdatedCount() {
+    return updated.get();
+  }
+
+  public int getUnchangedCount() {
+    return unchanged.get();
+  }
+
+  /**
+   * @return the hex encoded SHA-256 hash of the given content
+   */
+  public static String hash( final byte[] content ) {
+    final MessageDigest digest = sha256();
+    digest.update( content );
+    return toHex( digest.digest() );
+  }
+
+  /**
+   * Reads the given stream to its end, without closing it.
+   *
+   * @return the hex encoded SHA-256 hash of the content of the stream
+   */
+  public static String hash( final InputStream content ) throws IOException {
+    final MessageDigest digest = sha256();
+    final byte[] buffer = new byte[ 8192 ];
+    int read;
+    while ( ( read = content.read( buffer ) ) != -1 ) {
+      digest.update( buffer, 0, read );
+    }
+    return toHex( digest.digest() );
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance( "SHA-256" );
+    } catch ( NoSuchAlgorithmException e ) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException( e );
+    }
+  }
+
+  private static String toHex( final byte[] bytes ) {
+    final StringBuilder hex = new StringBuilder( bytes.length * 2 );
+    for ( final byte b : bytes ) {
+      hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+    }
+    return hex.toString();
+  }
+
+  /**
+   * The state of a document when it was last scanned.
+   */
+  private static final class Entry {
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String hash;
+
+    Entry( final long size, final long lastModified, final String hash ) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = Objects.requireNonNull( hash );
+    }
+  }
+}
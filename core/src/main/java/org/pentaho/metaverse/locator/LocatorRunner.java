@@ -15,6 +15,7 @@ package org.pentaho.metaverse.locator;
 
 import org.apache.commons.io.FilenameUtils;
 import org.pentaho.metaverse.api.IDocument;
+import org.pentaho.metaverse.api.IDocumentEvent;
 import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.impl.DocumentEvent;
 import org.pentaho.metaverse.messages.Messages;
@@ -24,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.net.FileNameMap;
 import java.net.URLConnection;
+import java.util.List;
 
 /**
  * The LocatorRunner is a execution construct for concurrently running document locator logic.
@@ -56,6 +58,11 @@ public abstract class LocatorRunner<T> implements Runnable {
    */
   protected boolean running;
 
+  /**
+   * The documents found by the last scan, or null to analyze every document found
+   */
+  protected LocatorManifest manifest;
+
   public void setRoot( T root ) {
     this.root = root;
   }
@@ -64,13 +71,45 @@ public abstract class LocatorRunner<T> implements Runnable {
     this.locator = repoLocator;
   }
 
+  public LocatorManifest getManifest() {
+    return manifest;
+  }
+
+  public void setManifest( LocatorManifest manifest ) {
+    this.manifest = manifest;
+  }
+
   @Override
   public void run() {
     running = true;
+    if ( manifest != null ) {
+      manifest.beginScan();
+    }
     locate( root );
+    if ( manifest != null ) {
+      finishScan();
+    }
     running = false;
   }
 
+  /**
+   * Notifies the deletion of the documents that were not found by a complete scan, and saves the manifest.
+   */
+  protected void finishScan() {
+    int deleted = 0;
+    if ( !stopping ) {
+      // documents not reached by a stopped scan may still exist
+      final List<String> removed = manifest.removeUnseen();
+      for ( final String id : removed ) {
+        processDeletedFile( locator.getNamespace(), id );
+      }
+      deleted = removed.size();
+    }
+    LOG.debug( Messages.getString( "DEBUG.Locator.ScanChanges", locator.getLocatorType(), manifest.getAddedCount(),
+      manifest.getUpdatedCount(), deleted, manifest.getUnchangedCount() ) );
+    manifest.save();
+  }
+
   public boolean isRunning() {
     return running;
   }
@@ -99,6 +138,21 @@ public abstract class LocatorRunner<T> implements Runnable {
    * @param file      The contents of the file
    */
   public void processFile( INamespace namespace, String name, String id, Object file ) {
+    processFile( namespace, name, id, file, -1L, -1L );
+  }
+
+  /**
+   * Processes the contents of a file if it was added or changed since the last scan recorded in the manifest.
+   *
+   * @param namespace    The namespace to use for creating ids
+   * @param name         The name of the file
+   * @param id           The id of the file
+   * @param file         The contents of the file
+   * @param size         The size of the file, or -1 if unknown
+   * @param lastModified The last modification time of the file, or -1 if unknown
+   */
+  public void processFile( INamespace namespace, String name, String id, Object file, long size,
+                           long lastModified ) {
 
     if ( stopping ) {
       return;
@@ -110,6 +164,10 @@ public abstract class LocatorRunner<T> implements Runnable {
       return;
     }
 
+    if ( manifest != null && manifest.isUnchanged( id, size, lastModified ) ) {
+      return;
+    }
+
     String mimeType;
     try {
       mimeType = fileNameMap.getContentTypeFor( name );
@@ -120,14 +178,34 @@ public abstract class LocatorRunner<T> implements Runnable {
 
     try {
 
+      Object contents = locator.getContents( file );
+      String eventType = IDocumentEvent.EVENT_TYPE_ADD;
+      String hash = null;
+      if ( manifest != null ) {
+        hash = locator.getContentHash( file, contents );
+        eventType = manifest.check( id, size, lastModified, hash );
+        if ( eventType == null ) {
+          // touched, but the content is the same
+          manifest.commit( id, size, lastModified, hash );
+          return;
+        }
+      }
+
       IDocument metaverseDocument = MetaverseUtil.createDocument(
-        namespace, locator.getContents( file ), id, name, extension, mimeType );
+        namespace, contents, id, name, extension, mimeType );
 
       DocumentEvent event = new DocumentEvent();
-      event.setEventType( "add" );
+      event.setEventType( eventType );
       event.setDocument( metaverseDocument );
+      if ( manifest != null ) {
+        // a document that fails to be analyzed is analyzed again by the next scan
+        final LocatorManifest scanManifest = manifest;
+        final String contentHash = hash;
+        event.setOnAnalyzed( () -> scanManifest.commit( id, size, lastModified, contentHash ) );
+      }
 
       locator.notifyListeners( event );
+      event.notified();
     } catch ( Exception e ) {
 
       LOG.error( Messages.getString( "ERROR.NoContentForFile", name ), e );
@@ -136,4 +214,26 @@ public abstract class LocatorRunner<T> implements Runnable {
 
   }
 
+  /**
+   * Notifies the listeners that a file found by the last scan no longer exists.
+   *
+   * @param namespace The namespace to use for creating ids
+   * @param id        The id of the file
+   */
+  protected void processDeletedFile( INamespace namespace, String id ) {
+    String name = FilenameUtils.getName( id );
+    try {
+      IDocument metaverseDocument = MetaverseUtil.createDocument(
+        namespace, null, id, name, FilenameUtils.getExtension( name ), fileNameMap.getContentTypeFor( name ) );
+
+      DocumentEvent event = new DocumentEvent();
+      event.setEventType( IDocumentEvent.EVENT_TYPE_DELETE );
+      event.setDocument( metaverseDocument );
+
+      locator.notifyListeners( event );
+    } catch ( Exception e ) {
+      LOG.error( Messages.getString( "ERROR.ProcessFileFailed", name ), e );
+    }
+  }
+
 }
@@ -23,6 +23,7 @@ import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
 import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
 import org.pentaho.platform.repository2.ClientRepositoryPaths;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -58,6 +59,16 @@ public abstract class RepositoryLocator extends BaseLocator<RepositoryFile> {
    */
   protected abstract IUnifiedRepository getUnifiedRepository( IPentahoSession session ) throws Exception;
 
+  /**
+   * Repository files are loaded as transformation and job objects rather than text, so their version id stands for
+   * their content.
+   */
+  @Override
+  protected String getContentHash( RepositoryFile file, Object contents ) {
+    Serializable versionId = file.getVersionId();
+    return versionId == null ? super.getContentHash( file, contents ) : versionId.toString();
+  }
+
   @Override
   public void startScan() throws MetaverseLocatorException {
 
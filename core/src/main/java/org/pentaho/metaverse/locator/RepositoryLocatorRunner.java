@@ -48,7 +48,8 @@ public class RepositoryLocatorRunner extends LocatorRunner<List<RepositoryFileTr
           if ( !file.isHidden() ) {
             // don't index hidden fields
             try {
-              processFile( locator.getNamespace(), file.getName(), file.getPath(),  file );
+              processFile( locator.getNamespace(), file.getName(), file.getPath(), file, file.getFileSize(),
+                file.getLastModifiedDate() == null ? -1L : file.getLastModifiedDate().getTime() );
             } catch ( Exception e ) {
               // something truly unexpected would have to have happened ... NPE or similar ugliness
               LOG.error( Messages.getString( "ERROR.ProcessFileFailed", file.getName() ), e );
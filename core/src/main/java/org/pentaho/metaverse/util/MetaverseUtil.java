@@ -17,11 +17,8 @@ import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
-import flexjson.JSONDeserializer;
-import org.pentaho.di.core.Const;
 import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.dictionary.DictionaryHelper;
-import org.pentaho.metaverse.api.ChangeType;
 import org.pentaho.metaverse.api.IClonableDocumentAnalyzer;
 import org.pentaho.metaverse.api.IDocument;
 import org.pentaho.metaverse.api.IDocumentAnalyzer;
@@ -31,19 +28,23 @@ import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseAnalyzerException;
 import org.pentaho.metaverse.api.MetaverseComponentDescriptor;
 import org.pentaho.metaverse.api.MetaverseException;
-import org.pentaho.metaverse.api.model.IOperation;
-import org.pentaho.metaverse.api.model.Operation;
+import org.pentaho.metaverse.api.model.ImmutableOperations;
 import org.pentaho.metaverse.api.model.Operations;
 import org.pentaho.metaverse.graph.LineageGraphCompletionService;
 import org.pentaho.metaverse.graph.LineageGraphMap;
 import org.pentaho.metaverse.impl.MetaverseBuilder;
 import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.messages.Messages;
+import org.pentaho.platform.util.messages.LocaleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 
@@ -59,6 +60,10 @@ public class MetaverseUtil {
   public static final String MESSAGE_PREFIX_CATEGORY = "USER.category.";
   public static final String MESSAGE_FAILED_PREFIX = "!";
 
+  private static final Map<Locale, Map<String, Map<String, Object>>> EDGE_ENHANCEMENTS = new ConcurrentHashMap<>();
+
+  private static final Map<Locale, Map<String, Map<String, Object>>> VERTEX_ENHANCEMENTS = new ConcurrentHashMap<>();
+
   protected static IDocumentController documentController = null;
 
   public static IDocumentController getDocumentController() {
@@ -144,11 +149,8 @@ public class MetaverseUtil {
    * @param edge The edge to enhance
    */
   public static void enhanceEdge( Edge edge ) {
-    String type = edge.getLabel();
-    //localize the node type
-    String localizedType = Messages.getString( MESSAGE_PREFIX_LINKTYPE + type );
-    if ( !localizedType.startsWith( MESSAGE_FAILED_PREFIX ) ) {
-      edge.setProperty( DictionaryConst.PROPERTY_TYPE_LOCALIZED, localizedType );
+    for ( Map.Entry<String, Object> enhancement : getEdgeEnhancements( edge.getLabel() ).entrySet() ) {
+      edge.setProperty( enhancement.getKey(), enhancement.getValue() );
     }
   }
 
@@ -158,42 +160,80 @@ public class MetaverseUtil {
    * @param vertex The vertex to enhance
    */
   public static void enhanceVertex( Vertex vertex ) {
-    String type = vertex.getProperty( DictionaryConst.PROPERTY_TYPE );
+    for ( Map.Entry<String, Object> enhancement
+      : getVertexEnhancements( vertex.getProperty( DictionaryConst.PROPERTY_TYPE ) ).entrySet() ) {
+      vertex.setProperty( enhancement.getKey(), enhancement.getValue() );
+    }
+  }
+
+  /**
+   * Returns the properties {@link #enhanceEdge(Edge)} adds to an edge with the given label. They only depend on the
+   * label and the current locale, so they are computed once per label and locale.
+   *
+   * @param label The edge label
+   * @return The property values, keyed by property name
+   */
+  public static Map<String, Object> getEdgeEnhancements( String label ) {
+    if ( label == null ) {
+      return computeEdgeEnhancements( null );
+    }
+    return forLocale( EDGE_ENHANCEMENTS ).computeIfAbsent( label, MetaverseUtil::computeEdgeEnhancements );
+  }
+
+  /**
+   * Returns the properties {@link #enhanceVertex(Vertex)} adds to a vertex of the given type. They only depend on the
+   * type and the current locale, so they are computed once per type and locale.
+   *
+   * @param type The vertex type
+   * @return The property values, keyed by property name
+   */
+  public static Map<String, Object> getVertexEnhancements( String type ) {
+    if ( type == null ) {
+      return computeVertexEnhancements( null );
+    }
+    return forLocale( VERTEX_ENHANCEMENTS ).computeIfAbsent( type, MetaverseUtil::computeVertexEnhancements );
+  }
+
+  private static Map<String, Map<String, Object>> forLocale(
+    Map<Locale, Map<String, Map<String, Object>>> enhancements ) {
+    Locale locale = LocaleHelper.getLocale();
+    return enhancements.computeIfAbsent( locale == null ? Locale.getDefault() : locale,
+      l -> new ConcurrentHashMap<>() );
+  }
+
+  private static Map<String, Object> computeEdgeEnhancements( String type ) {
+    //localize the node type
+    String localizedType = Messages.getString( MESSAGE_PREFIX_LINKTYPE + type );
+    if ( !localizedType.startsWith( MESSAGE_FAILED_PREFIX ) ) {
+      return Collections.singletonMap( DictionaryConst.PROPERTY_TYPE_LOCALIZED, localizedType );
+    }
+    return Collections.emptyMap();
+  }
+
+  private static Map<String, Object> computeVertexEnhancements( String type ) {
+    Map<String, Object> enhancements = new LinkedHashMap<>();
     //localize the node type
     String localizedType = Messages.getString( MESSAGE_PREFIX_NODETYPE + type );
     if ( !localizedType.startsWith( MESSAGE_FAILED_PREFIX ) ) {
-      vertex.setProperty( DictionaryConst.PROPERTY_TYPE_LOCALIZED, localizedType );
+      enhancements.put( DictionaryConst.PROPERTY_TYPE_LOCALIZED, localizedType );
     }
     // get the vertex category and set it
     String category = DictionaryHelper.getCategoryForType( type );
-    vertex.setProperty( DictionaryConst.PROPERTY_CATEGORY, category );
+    enhancements.put( DictionaryConst.PROPERTY_CATEGORY, category );
     // get the vertex category color and set it
     String color = DictionaryHelper.getColorForCategory( category );
-    vertex.setProperty( DictionaryConst.PROPERTY_COLOR, color );
+    enhancements.put( DictionaryConst.PROPERTY_COLOR, color );
     //localize the category
     String localizedCat = Messages.getString( MESSAGE_PREFIX_CATEGORY + category );
     if ( !localizedCat.startsWith( MESSAGE_FAILED_PREFIX ) ) {
-      vertex.setProperty( DictionaryConst.PROPERTY_CATEGORY_LOCALIZED, localizedCat );
+      enhancements.put( DictionaryConst.PROPERTY_CATEGORY_LOCALIZED, localizedCat );
     }
+    return Collections.unmodifiableMap( enhancements );
   }
 
   public static Operations convertOperationsStringToMap( String operations ) {
-    Operations resultOps = null;
-    if ( !Const.isEmpty( operations ) ) {
-      try {
-        Map<String, List<IOperation>> rawOpsMap = new JSONDeserializer<Map<String, List<IOperation>>>().
-          use( "values.values", Operation.class ).
-          deserialize( operations );
-        resultOps = new Operations();
-        for ( String key : rawOpsMap.keySet() ) {
-          resultOps.put( ChangeType.forValue( key ), rawOpsMap.get( key ) );
-        }
-      } catch ( Exception e ) {
-        resultOps = null;
-      }
-      //return new JSONDeserializer<Operations>().use(null, Operations.class).deserialize( operations );
-    }
-    return resultOps;
+    ImmutableOperations value = ImmutableOperations.valueOf( operations );
+    return value == null ? null : value.toOperations();
   }
 
   public static Runnable getAnalyzerRunner( final IDocumentAnalyzer analyzer, final IDocument document ) {
@@ -0,0 +1,512 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.pentaho.metaverse.messages.Messages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a zip file whose entries are compressed in parallel. Each entry is read and deflated on an executor into a
+ * buffer of its own, and the buffers are written to the output stream in the order the entries were added, by the
+ * thread adding them. At most {@code maxPending} entries are being compressed or waiting to be written at any time.
+ * A buffer is kept in memory up to {@link #SPILL_THRESHOLD} bytes and spilled to a temporary file beyond, so memory use
+ * does not depend on the size of the entries.
+ * <p>
+ * Entries whose extension shows they are already compressed, and all entries if the level is
+ * {@link Deflater#NO_COMPRESSION}, are stored as they are. An entry that cannot be read is logged and left out of the
+ * zip, and an entry named like one already added is skipped. Zip64 records are written when the sizes, offsets or
+ * number of entries need them.
+ * <p>
+ * A writer is meant to be used by a single thread.
+ */
+public class ParallelZipWriter implements Closeable {
+
+  /**
+   * The content of an entry, opened on the thread that compresses it.
+   */
+  public interface Content {
+    InputStream open() throws IOException;
+  }
+
+  private static final Logger log = LoggerFactory.getLogger( ParallelZipWriter.class );
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The compressed size from which an entry is buffered in a temporary file rather than in memory
+   */
+  static final long SPILL_THRESHOLD = 8L * 1024 * 1024;
+
+  private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>( Arrays.asList(
+    "7z", "bz2", "gz", "jar", "jpeg", "jpg", "kar", "lz4", "png", "tgz", "xz", "zip", "zst" ) );
+
+  private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial( () -> new byte[ BUFFER_SIZE ] );
+
+  private static final int LOCAL_HEADER = 0x04034b50;
+  private static final int CENTRAL_HEADER = 0x02014b50;
+  private static final int ZIP64_END = 0x06064b50;
+  private static final int ZIP64_LOCATOR = 0x07064b50;
+  private static final int END = 0x06054b50;
+  private static final int ZIP64_EXTRA = 0x0001;
+  private static final int UTF8_FLAG = 0x0800;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final long MAX_32 = 0xFFFFFFFFL;
+  private static final int MAX_16 = 0xFFFF;
+
+  private final OutputStream out;
+  private final ExecutorService executor;
+  private final int level;
+  private final int maxPending;
+  private final long spillThreshold;
+  private final long zip64Threshold;
+  private final Deque<Pending> pending = new ArrayDeque<>();
+  private final List<Entry> entries = new ArrayList<>();
+  private final Set<String> names = new HashSet<>();
+  private long offset;
+  private boolean finished;
+
+  /**
+   * @param out        the stream to write the zip to
+   * @param executor   the executor to compress entries on
+   * @param level      the deflate level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}, or
+   *                   {@link Deflater#DEFAULT_COMPRESSION}
+   * @param maxPending the maximum number of entries compressed ahead of the output
+   */
+  public ParallelZipWriter( OutputStream out, ExecutorService executor, int level, int maxPending ) {
+    this( out, executor, level, maxPending, SPILL_THRESHOLD, MAX_32 );
+  }
+
+  /**
+   * @param spillThreshold the compressed size from which an entry is buffered in a temporary file
+   * @param zip64Threshold the size or offset from which zip64 records are written, lowered by tests
+   */
+  @VisibleForTesting
+  ParallelZipWriter( OutputStream out, ExecutorService executor, int level, int maxPending, long spillThreshold,
+                     long zip64Threshold ) {
+    this.out = out;
+    this.executor = executor;
+    this.level = level;
+    this.maxPending = Math.max( maxPending, 1 );
+    this.spillThreshold = spillThreshold;
+    this.zip64Threshold = zip64Threshold;
+  }
+
+  /**
+   * Compresses an entry on the executor, after writing out the oldest entries if too many are pending.
+   *
+   * @param name         the name of the entry
+   * @param lastModified the modification time of the entry, in milliseconds since the epoch
+   * @param content      the content of the entry
+   * @return true if the entry was added, false if an entry with the same name already was
+   * @throws IOException if the output stream cannot be written to
+   */
+  public boolean putEntry( final String name, final long lastModified, final Content content ) throws IOException {
+    if ( finished ) {
+      throw new IOException( "The zip has been finished" );
+    }
+    if ( !names.add( name ) ) {
+      return false;
+    }
+    final boolean store = level == Deflater.NO_COMPRESSION || isCompressed( name );
+    pending.add( new Pending( name, executor.submit( () -> compress( name, lastModified, content, store ) ) ) );
+    while ( pending.size() > maxPending ) {
+      writeNext();
+    }
+    return true;
+  }
+
+  /**
+   * Writes out all pending entries and the central directory, without closing the output stream.
+   *
+   * @throws IOException if the output stream cannot be written to
+   */
+  public void finish() throws IOException {
+    if ( finished ) {
+      return;
+    }
+    while ( !pending.isEmpty() ) {
+      writeNext();
+    }
+    finished = true;
+    writeCentralDirectory();
+    out.flush();
+  }
+
+  /**
+   * Finishes the zip and closes the output stream.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      for ( final Pending entry : pending ) {
+        discard( entry );
+      }
+      pending.clear();
+      out.close();
+    }
+  }
+
+  static boolean isCompressed( final String name ) {
+    final int dot = name.lastIndexOf( '.' );
+    return dot >= 0 && COMPRESSED_EXTENSIONS.contains( name.substring( dot + 1 ).toLowerCase( Locale.ROOT ) );
+  }
+
+  private Entry compress( final String name, final long lastModified, final Content content, final boolean store )
+    throws IOException {
+    final Entry entry = new Entry( name, lastModified, store, new EntryData( spillThreshold ) );
+    final CRC32 crc = new CRC32();
+    final byte[] buffer = BUFFER.get();
+    long size = 0;
+    try ( InputStream in = content.open() ) {
+      if ( store ) {
+        try ( OutputStream data = entry.data ) {
+          for ( int read = in.read( buffer ); read >= 0; read = in.read( buffer ) ) {
+            crc.update( buffer, 0, read );
+            data.write( buffer, 0, read );
+            size += read;
+          }
+        }
+      } else {
+        final Deflater deflater = new Deflater( level, true );
+        try ( DeflaterOutputStream deflated = new DeflaterOutputStream( entry.data, deflater, BUFFER_SIZE ) ) {
+          for ( int read = in.read( buffer ); read >= 0; read = in.read( buffer ) ) {
+            crc.update( buffer, 0, read );
+            deflated.write( buffer, 0, read );
+            size += read;
+          }
+        } finally {
+          deflater.end();
+        }
+      }
+      if ( Thread.currentThread().isInterrupted() ) {
+        // the entry was discarded while it was compressed, nobody will write or delete its data
+        throw new InterruptedIOException( name );
+      }
+    } catch ( final IOException | RuntimeException e ) {
+      entry.data.delete();
+      throw e;
+    }
+    entry.crc = crc.getValue();
+    entry.size = size;
+    return entry;
+  }
+
+  /**
+   * Cancels a pending entry, and deletes its data if it was already compressed.
+   */
+  private static void discard( final Pending entry ) {
+    if ( !entry.future.cancel( true ) && !entry.future.isCancelled() ) {
+      try {
+        entry.future.get().data.delete();
+      } catch ( final InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      } catch ( final ExecutionException e ) {
+        // nothing was kept
+      }
+    }
+  }
+
+  private void writeNext() throws IOException {
+    final Pending next = pending.poll();
+    final Entry entry;
+    try {
+      entry = next.future.get();
+    } catch ( final InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    } catch ( final ExecutionException e ) {
+      // leave the entry out, the zip stays valid
+      log.error( Messages.getString( "ERROR.FailedAddingFileToZip", next.name ), e.getCause() );
+      return;
+    }
+    try {
+      entry.offset = offset;
+      entry.compressedSize = entry.data.size();
+      final byte[] header = localHeader( entry );
+      out.write( header, 0, header.length );
+      entry.data.writeTo( out );
+      offset += header.length + entry.compressedSize;
+    } finally {
+      // only the central directory information is kept
+      entry.data.delete();
+      entry.data = null;
+    }
+    entries.add( entry );
+  }
+
+  private byte[] localHeader( final Entry entry ) {
+    final byte[] name = entry.name.getBytes( StandardCharsets.UTF_8 );
+    final long compressedSize = entry.compressedSize;
+    final boolean zip64 = entry.size >= zip64Threshold || compressedSize >= zip64Threshold;
+    final ByteBuffer header = buffer( 30 + name.length + ( zip64 ? 20 : 0 ) );
+    header.putInt( LOCAL_HEADER );
+    header.putShort( (short) ( zip64 ? 45 : 20 ) );
+    header.putShort( (short) UTF8_FLAG );
+    header.putShort( (short) ( entry.store ? STORED : DEFLATED ) );
+    header.putInt( entry.dosTime );
+    header.putInt( (int) entry.crc );
+    header.putInt( (int) ( zip64 ? MAX_32 : compressedSize ) );
+    header.putInt( (int) ( zip64 ? MAX_32 : entry.size ) );
+    header.putShort( (short) name.length );
+    header.putShort( (short) ( zip64 ? 20 : 0 ) );
+    header.put( name );
+    if ( zip64 ) {
+      header.putShort( (short) ZIP64_EXTRA );
+      header.putShort( (short) 16 );
+      header.putLong( entry.size );
+      header.putLong( compressedSize );
+    }
+    return header.array();
+  }
+
+  private void writeCentralDirectory() throws IOException {
+    final long start = offset;
+    for ( final Entry entry : entries ) {
+      final byte[] name = entry.name.getBytes( StandardCharsets.UTF_8 );
+      final boolean largeSize = entry.size >= zip64Threshold;
+      final boolean largeCompressedSize = entry.compressedSize >= zip64Threshold;
+      final boolean largeOffset = entry.offset >= zip64Threshold;
+      final int extra = ( largeSize ? 8 : 0 ) + ( largeCompressedSize ? 8 : 0 ) + ( largeOffset ? 8 : 0 );
+      final boolean zip64 = extra > 0;
+      final ByteBuffer header = buffer( 46 + name.length + ( zip64 ? 4 + extra : 0 ) );
+      header.putInt( CENTRAL_HEADER );
+      header.putShort( (short) ( zip64 ? 45 : 20 ) );
+      header.putShort( (short) ( zip64 ? 45 : 20 ) );
+      header.putShort( (short) UTF8_FLAG );
+      header.putShort( (short) ( entry.store ? STORED : DEFLATED ) );
+      header.putInt( entry.dosTime );
+      header.putInt( (int) entry.crc );
+      header.putInt( (int) ( largeCompressedSize ? MAX_32 : entry.compressedSize ) );
+      header.putInt( (int) ( largeSize ? MAX_32 : entry.size ) );
+      header.putShort( (short) name.length );
+      header.putShort( (short) ( zip64 ? 4 + extra : 0 ) );
+      // comment length, disk number, internal and external attributes
+      header.putShort( (short) 0 );
+      header.putShort( (short) 0 );
+      header.putShort( (short) 0 );
+      header.putInt( 0 );
+      header.putInt( (int) ( largeOffset ? MAX_32 : entry.offset ) );
+      header.put( name );
+      if ( zip64 ) {
+        header.putShort( (short) ZIP64_EXTRA );
+        header.putShort( (short) extra );
+        if ( largeSize ) {
+          header.putLong( entry.size );
+        }
+        if ( largeCompressedSize ) {
+          header.putLong( entry.compressedSize );
+        }
+        if ( largeOffset ) {
+          header.putLong( entry.offset );
+        }
+      }
+      write( header );
+    }
+    final long size = offset - start;
+    final int count = entries.size();
+    final boolean zip64 = count >= MAX_16 || size >= zip64Threshold || start >= zip64Threshold;
+    if ( zip64 ) {
+      final long zip64End = offset;
+      final ByteBuffer end = buffer( 56 + 20 );
+      end.putInt( ZIP64_END );
+      end.putLong( 44 );
+      end.putShort( (short) 45 );
+      end.putShort( (short) 45 );
+      end.putInt( 0 );
+      end.putInt( 0 );
+      end.putLong( count );
+      end.putLong( count );
+      end.putLong( size );
+      end.putLong( start );
+      end.putInt( ZIP64_LOCATOR );
+      end.putInt( 0 );
+      end.putLong( zip64End );
+      end.putInt( 1 );
+      write( end );
+    }
+    final ByteBuffer end = buffer( 22 );
+    end.putInt( END );
+    end.putShort( (short) 0 );
+    end.putShort( (short) 0 );
+    end.putShort( (short) ( zip64 ? MAX_16 : count ) );
+    end.putShort( (short) ( zip64 ? MAX_16 : count ) );
+    end.putInt( (int) ( zip64 ? MAX_32 : size ) );
+    end.putInt( (int) ( zip64 ? MAX_32 : start ) );
+    end.putShort( (short) 0 );
+    write( end );
+  }
+
+  private void write( final ByteBuffer buffer ) throws IOException {
+    out.write( buffer.array(), 0, buffer.position() );
+    offset += buffer.position();
+  }
+
+  private static ByteBuffer buffer( final int size ) {
+    return ByteBuffer.allocate( size ).order( ByteOrder.LITTLE_ENDIAN );
+  }
+
+  /**
+   * @return the modification time in MS-DOS format: the date in the high 16 bits, the time in the low 16 bits
+   */
+  static int dosTime( final long time ) {
+    LocalDateTime dateTime = LocalDateTime.ofInstant( Instant.ofEpochMilli( time ), ZoneId.systemDefault() );
+    if ( dateTime.getYear() < 1980 ) {
+      dateTime = LocalDateTime.of( 1980, 1, 1, 0, 0 );
+    } else if ( dateTime.getYear() > 2107 ) {
+      dateTime = LocalDateTime.of( 2107, 12, 31, 23, 59, 58 );
+    }
+    return ( dateTime.getYear() - 1980 ) << 25
+      | dateTime.getMonthValue() << 21
+      | dateTime.getDayOfMonth() << 16
+      | dateTime.getHour() << 11
+      | dateTime.getMinute() << 5
+      | dateTime.getSecond() >> 1;
+  }
+
+  /**
+   * An entry, with its compressed data until it is written out.
+   */
+  private static final class Entry {
+
+    private final String name;
+    private final int dosTime;
+    private final boolean store;
+    private EntryData data;
+    private long crc;
+    private long size;
+    private long compressedSize;
+    private long offset;
+
+    Entry( final String name, final long lastModified, final boolean store, final EntryData data ) {
+      this.name = name;
+      this.dosTime = dosTime( lastModified );
+      this.store = store;
+      this.data = data;
+    }
+  }
+
+  /**
+   * The compressed data of an entry, kept in memory up to a threshold and spilled to a temporary file beyond.
+   */
+  private static final class EntryData extends OutputStream {
+
+    private final long threshold;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path file;
+    private OutputStream fileOut;
+    private long size;
+
+    EntryData( final long threshold ) {
+      this.threshold = threshold;
+    }
+
+    @Override
+    public void write( final int b ) throws IOException {
+      write( new byte[] { (byte) b }, 0, 1 );
+    }
+
+    @Override
+    public void write( final byte[] b, final int off, final int len ) throws IOException {
+      if ( fileOut == null && size + len > threshold ) {
+        file = Files.createTempFile( "metaverse-zip-entry", ".tmp" );
+        fileOut = new BufferedOutputStream( Files.newOutputStream( file ), BUFFER_SIZE );
+        memory.writeTo( fileOut );
+        memory = null;
+      }
+      if ( fileOut != null ) {
+        fileOut.write( b, off, len );
+      } else {
+        memory.write( b, off, len );
+      }
+      size += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if ( fileOut != null ) {
+        fileOut.close();
+      }
+    }
+
+    long size() {
+      return size;
+    }
+
+    void writeTo( final OutputStream out ) throws IOException {
+      if ( file == null ) {
+        memory.writeTo( out );
+      } else {
+        Files.copy( file, out );
+      }
+    }
+
+    void delete() {
+      memory = null;
+      if ( file != null ) {
+        try {
+          fileOut.close();
+          Files.deleteIfExists( file );
+        } catch ( final IOException e ) {
+          log.warn( "Could not delete {}", file, e );
+        }
+      }
+    }
+  }
+
+  private static final class Pending {
+
+    private final String name;
+    private final Future<Entry> future;
+
+    Pending( final String name, final Future<Entry> future ) {
+      this.name = name;
+      this.future = future;
+    }
+  }
+}
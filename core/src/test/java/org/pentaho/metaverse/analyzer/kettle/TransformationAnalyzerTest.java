@@ -13,6 +13,9 @@
 
 package org.pentaho.metaverse.analyzer.kettle;
 
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -30,22 +33,33 @@ import org.pentaho.di.trans.step.BaseStepMeta;
 import org.pentaho.di.trans.step.StepIOMetaInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
 import org.pentaho.di.trans.steps.rowgenerator.RowGeneratorMeta;
 import org.pentaho.di.trans.steps.selectvalues.SelectValuesMeta;
 import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.api.IComponentDescriptor;
 import org.pentaho.metaverse.api.IDocument;
+import org.pentaho.metaverse.api.IDocumentContent;
 import org.pentaho.metaverse.api.IMetaverseBuilder;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.IMetaverseObjectFactory;
 import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseAnalyzerException;
 import org.pentaho.metaverse.api.MetaverseComponentDescriptor;
+import org.pentaho.metaverse.api.Namespace;
 import org.pentaho.metaverse.api.analyzer.kettle.step.IStepAnalyzerProvider;
+import org.pentaho.metaverse.impl.MetaverseBuilder;
+import org.pentaho.metaverse.impl.MetaverseConfig;
 import org.pentaho.metaverse.testutils.MetaverseTestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -216,6 +230,25 @@ public class TransformationAnalyzerTest {
     analyzer.analyze( descriptor, newMockTransDoc );
   }
 
+  @Test( expected = MetaverseAnalyzerException.class )
+  public void testAnalyzeWithBadXMLContentStream() throws Exception {
+    IDocument newMockTransDoc = mock( IDocument.class );
+    IDocumentContent content = mock( IDocumentContent.class );
+    when( content.openStream() ).thenReturn( new ByteArrayInputStream(
+      "<transformation>This is not a valid TransMeta doc!".getBytes( StandardCharsets.UTF_8 ) ) );
+    when( newMockTransDoc.getContent() ).thenReturn( content );
+    analyzer.analyze( descriptor, newMockTransDoc );
+  }
+
+  @Test( expected = MetaverseAnalyzerException.class )
+  public void testAnalyzeWithUnreadableContent() throws Exception {
+    IDocument newMockTransDoc = mock( IDocument.class );
+    IDocumentContent content = mock( IDocumentContent.class );
+    when( content.openStream() ).thenThrow( new IOException( "gone" ) );
+    when( newMockTransDoc.getContent() ).thenReturn( content );
+    analyzer.analyze( descriptor, newMockTransDoc );
+  }
+
   @Test( expected = MetaverseAnalyzerException.class )
   public void testAnalyzeWithMissingPlugin() throws MetaverseAnalyzerException {
     IDocument newMockTransDoc = mock( IDocument.class );
@@ -288,4 +321,123 @@ public class TransformationAnalyzerTest {
     Set<String> types = analyzer.getSupportedTypes();
     assertTrue( types == TransformationAnalyzer.defaultSupportedTypes );
   }
+
+  @Test
+  public void testParallelStepAnalysisMatchesSerial() throws MetaverseAnalyzerException {
+    final List<String> serial = analyzeChain( false );
+    final List<String> parallel = analyzeChain( true );
+    assertTrue( serial.size() > 20 );
+    assertEquals( serial, parallel );
+  }
+
+  @Test
+  public void testIncrementalStepAnalysisMatchesFull() throws MetaverseAnalyzerException {
+    final TransMeta transMeta = buildChain();
+    final List<String> full = sortedChain( transMeta );
+    final StepAnalysisCache cache = StepAnalysisCache.enable( transMeta );
+    try {
+      assertEquals( full, sortedChain( transMeta ) );
+      assertEquals( 20, cache.size() );
+      assertEquals( 0, cache.getHitCount() );
+
+      // nothing changed, every step is replayed
+      assertEquals( full, sortedChain( transMeta ) );
+      assertEquals( 20, cache.getHitCount() );
+
+      // only the changed step is analyzed again
+      transMeta.getStep( 10 ).setDescription( "changed" );
+      assertEquals( full, sortedChain( transMeta ) );
+      assertEquals( 39, cache.getHitCount() );
+      assertEquals( 21, cache.getMissCount() );
+    } finally {
+      StepAnalysisCache.disable( transMeta );
+    }
+    assertNull( StepAnalysisCache.get( transMeta ) );
+  }
+
+  @Test
+  public void testIncrementalStepAnalysis_nextStepsChanged() throws MetaverseAnalyzerException {
+    final TransMeta transMeta = buildChain();
+    final StepAnalysisCache cache = StepAnalysisCache.enable( transMeta );
+    final List<String> incremental;
+    try {
+      sortedChain( transMeta );
+      assertEquals( 20, cache.getMissCount() );
+
+      // the last step gets a next step, and the hop to the previous step is disabled: their analyses are outdated
+      final StepMeta extraStep = new StepMeta( "extra", new DummyTransMeta() );
+      transMeta.addStep( extraStep );
+      transMeta.addTransHop( new TransHopMeta( transMeta.getStep( 19 ), extraStep ) );
+      transMeta.getTransHop( 0 ).setEnabled( false );
+      incremental = sortedChain( transMeta );
+      assertEquals( 17, cache.getHitCount() );
+      assertEquals( 24, cache.getMissCount() );
+    } finally {
+      StepAnalysisCache.disable( transMeta );
+    }
+    assertEquals( sortedChain( transMeta ), incremental );
+  }
+
+  private List<String> sortedChain( final TransMeta transMeta ) throws MetaverseAnalyzerException {
+    final List<String> elements = analyzeChain( transMeta, false );
+    Collections.sort( elements );
+    return elements;
+  }
+
+  private List<String> analyzeChain( final boolean parallel ) throws MetaverseAnalyzerException {
+    return analyzeChain( buildChain(), parallel );
+  }
+
+  /**
+   * @return a transformation made of a chain of dummy steps
+   */
+  private TransMeta buildChain() {
+    final TransMeta transMeta = new TransMeta();
+    transMeta.setName( "chain" );
+    StepMeta previousStep = null;
+    for ( int i = 0; i < 20; i++ ) {
+      final StepMeta stepMeta = new StepMeta( "step" + i, new DummyTransMeta() );
+      transMeta.addStep( stepMeta );
+      if ( previousStep != null ) {
+        transMeta.addTransHop( new TransHopMeta( previousStep, stepMeta ) );
+      }
+      previousStep = stepMeta;
+    }
+    return transMeta;
+  }
+
+  /**
+   * Analyzes the transformation into a new graph, and lists its vertices and edges in the order they were added.
+   */
+  private List<String> analyzeChain( final TransMeta transMeta, final boolean parallel )
+    throws MetaverseAnalyzerException {
+    final MetaverseBuilder builder = new MetaverseBuilder();
+    final TransformationAnalyzer transAnalyzer = new TransformationAnalyzer();
+    transAnalyzer.setMetaverseBuilder( builder );
+    transAnalyzer.setStepAnalyzerProvider( stepAnalyzerProvider );
+    final INamespace transNamespace = new Namespace( "{\"name\":\"chain\"}" );
+    final IMetaverseNode transNode =
+      builder.createNodeObject( transNamespace, "chain", DictionaryConst.NODE_TYPE_TRANS );
+
+    MetaverseConfig.getInstance().setParallelStepAnalysis( parallel );
+    MetaverseConfig.getInstance().setStepAnalysisThreads( "4" );
+    try {
+      transAnalyzer.analyze( new MetaverseComponentDescriptor( "chain", DictionaryConst.NODE_TYPE_TRANS,
+        transNamespace ), transMeta, transNode, "chain.ktr" );
+    } finally {
+      MetaverseConfig.getInstance().setParallelStepAnalysis( false );
+      MetaverseConfig.getInstance().setStepAnalysisThreads( "0" );
+    }
+
+    final List<String> elements = new ArrayList<>();
+    for ( final Vertex vertex : builder.getGraph().getVertices() ) {
+      elements.add( vertex.getProperty( DictionaryConst.PROPERTY_LOGICAL_ID ) + " "
+        + vertex.getProperty( DictionaryConst.PROPERTY_NAME ) );
+    }
+    for ( final Edge edge : builder.getGraph().getEdges() ) {
+      elements.add( edge.getVertex( Direction.OUT ).getProperty( DictionaryConst.PROPERTY_LOGICAL_ID ) + " "
+        + edge.getLabel() + " " + edge.getVertex( Direction.IN ).getProperty( DictionaryConst.PROPERTY_LOGICAL_ID ) );
+    }
+    return elements;
+  }
 }
@@ -0,0 +1,93 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.analyzer.kettle.extensionpoints.trans;
+
+import org.junit.Test;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.metaverse.api.MetaverseException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransLineageGraphUpdaterTest {
+
+  @Test
+  public void testScheduleUpdate_debounced() throws Exception {
+    final CountingUpdater updater = new CountingUpdater( 100 );
+    final TransMeta transMeta = new TransMeta();
+    updater.scheduleUpdate( transMeta );
+    updater.scheduleUpdate( transMeta );
+    updater.scheduleUpdate( transMeta );
+    updater.scheduleUpdate( null );
+
+    assertTrue( updater.updated.await( 5, TimeUnit.SECONDS ) );
+    // updates run in the order they are due, so any superseded update that was not cancelled has run by now
+    assertTrue( updater.awaitScheduledUpdates() );
+    assertEquals( 1, updater.count.get() );
+  }
+
+  @Test
+  public void testUpdate_supersedesScheduledUpdate() throws Exception {
+    final CountingUpdater updater = new CountingUpdater( 200 );
+    final TransMeta transMeta = new TransMeta();
+    updater.scheduleUpdate( transMeta );
+    updater.update( transMeta );
+    assertEquals( 1, updater.count.get() );
+
+    assertTrue( updater.awaitScheduledUpdates() );
+    assertEquals( 1, updater.count.get() );
+  }
+
+  @Test( expected = MetaverseException.class )
+  public void testUpdate_null() throws Exception {
+    new CountingUpdater( 0 ).update( null );
+  }
+
+  private static class CountingUpdater extends TransLineageGraphUpdater {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final CountDownLatch updated = new CountDownLatch( 1 );
+
+    private final TransMeta sentinel = new TransMeta();
+
+    private final CountDownLatch sentinelUpdated = new CountDownLatch( 1 );
+
+    CountingUpdater( final long debounceMillis ) {
+      super( debounceMillis );
+    }
+
+    /**
+     * Schedules the update of another transformation, due after the updates scheduled so far, and waits for it.
+     */
+    boolean awaitScheduledUpdates() throws InterruptedException {
+      scheduleUpdate( sentinel );
+      return sentinelUpdated.await( 5, TimeUnit.SECONDS );
+    }
+
+    @Override
+    protected void addLineageGraph( final TransMeta transMeta ) {
+      if ( transMeta == sentinel ) {
+        sentinelUpdated.countDown();
+        return;
+      }
+      count.incrementAndGet();
+      updated.countDown();
+    }
+  }
+}
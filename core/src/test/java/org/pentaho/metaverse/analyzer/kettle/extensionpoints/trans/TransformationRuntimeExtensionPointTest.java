@@ -42,20 +42,25 @@ import org.pentaho.metaverse.api.IMetaverseBuilder;
 import org.pentaho.metaverse.api.IMetaverseObjectFactory;
 import org.pentaho.metaverse.api.analyzer.kettle.KettleAnalyzerUtil;
 import org.pentaho.metaverse.api.model.IExecutionProfile;
+import org.pentaho.metaverse.api.model.IExternalResourceInfo;
 import org.pentaho.metaverse.api.model.LineageHolder;
 import org.pentaho.metaverse.api.model.kettle.MetaverseExtensionPoint;
 import org.pentaho.metaverse.impl.MetaverseConfig;
+import org.pentaho.metaverse.impl.model.ExecutionProfile;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.lenient;
@@ -297,6 +302,29 @@ public class TransformationRuntimeExtensionPointTest {
       .outputLineageGraph( TransLineageHolderMap.getInstance().getLineageHolder( trans ) );
   }
 
+  @Test
+  public void testCreateLineGraph_publishesStepResourcesBeforeWriting() throws Exception {
+    LineageHolder holder = TransLineageHolderMap.getInstance().getLineageHolder( trans );
+    IExecutionProfile executionProfile = new ExecutionProfile();
+    holder.setExecutionProfile( executionProfile );
+    final IExternalResourceInfo resource = mock( IExternalResourceInfo.class );
+    // stands for a step listener that has not been told that its step finished
+    holder.addBeforeWriteAction( () -> executionProfile.getExecutionData().getExternalResources()
+      .put( "my_step", new ArrayList<>( Collections.singletonList( resource ) ) ) );
+
+    final List<Object> written = new ArrayList<>();
+    doAnswer( invocation -> {
+      written.addAll( ( (LineageHolder) invocation.getArgument( 0 ) ).getExecutionProfile().getExecutionData()
+        .getExternalResources().getOrDefault( "my_step", Collections.emptyList() ) );
+      return null;
+    } ).when( lineageWriter ).outputExecutionProfile( any( LineageHolder.class ) );
+
+    transExtensionPoint.createLineGraph( trans, false );
+
+    verify( lineageWriter ).outputExecutionProfile( holder );
+    assertEquals( Collections.singletonList( resource ), written );
+  }
+
   @Test
   public void testTransFinishedAsync() throws Exception {
     TransformationRuntimeExtensionPoint ext = spy( transExtensionPoint );
@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.analyzer.kettle.extensionpoints.trans.step;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResourceSamplerTest {
+
+  private final RowMetaInterface rowMeta = mock( RowMetaInterface.class );
+
+  @Test
+  public void testAll() {
+    ResourceSampler sampler = new ResourceSampler( "unknown", 10, 10 );
+    assertEquals( ResourceSampler.MODE_ALL, sampler.getMode() );
+    for ( int i = 0; i < 100; i++ ) {
+      assertTrue( sampler.sample( rowMeta ) );
+      sampler.sampled( false );
+    }
+    assertEquals( 100, sampler.getRowsRead() );
+    assertEquals( 100, sampler.getRowsSampled() );
+  }
+
+  @Test
+  public void testNth() {
+    ResourceSampler sampler = new ResourceSampler( "NTH", 10, 10 );
+    for ( int i = 0; i < 25; i++ ) {
+      assertEquals( i % 10 == 0, sampler.sample( rowMeta ) );
+    }
+    assertEquals( 25, sampler.getRowsRead() );
+    assertEquals( 3, sampler.getRowsSampled() );
+  }
+
+  @Test
+  public void testAdaptive() {
+    ResourceSampler sampler = new ResourceSampler( ResourceSampler.MODE_ADAPTIVE, 10, 3 );
+    assertTrue( sampler.sample( rowMeta ) );
+    sampler.sampled( true );
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( sampler.sample( rowMeta ) );
+      sampler.sampled( false );
+    }
+    assertFalse( sampler.isSampling() );
+    assertFalse( sampler.sample( rowMeta ) );
+    assertEquals( 4, sampler.getRowsSampled() );
+
+    // rows from another hop resume sampling
+    assertTrue( sampler.sample( rowMeta( "other" ) ) );
+    sampler.sampled( false );
+
+    sampler.restart();
+    assertTrue( sampler.isSampling() );
+    assertEquals( 6, sampler.getRowsRead() );
+    assertEquals( 5, sampler.getRowsSampled() );
+  }
+
+  @Test
+  public void testAdaptive_interleavedHops() {
+    ResourceSampler sampler = new ResourceSampler( ResourceSampler.MODE_ADAPTIVE, 10, 3 );
+    RowMetaInterface hop1 = rowMeta( "a", "b" );
+    RowMetaInterface hop2 = rowMeta( "c" );
+    RowMetaInterface hop1Copy = rowMeta( "a", "b" );
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( sampler.sample( hop1 ) );
+      sampler.sampled( false );
+      assertTrue( sampler.sample( hop2 ) );
+      sampler.sampled( false );
+    }
+    // both layouts are idle, whichever metadata instance the rows come with
+    assertFalse( sampler.sample( hop1 ) );
+    assertFalse( sampler.sample( hop2 ) );
+    assertFalse( sampler.sample( hop1Copy ) );
+    assertEquals( 9, sampler.getRowsRead() );
+    assertEquals( 6, sampler.getRowsSampled() );
+
+    sampler.restart();
+    assertTrue( sampler.sample( hop1 ) );
+    assertTrue( sampler.sample( hop2 ) );
+  }
+
+  private static RowMetaInterface rowMeta( String... fieldNames ) {
+    RowMetaInterface rowMeta = mock( RowMetaInterface.class );
+    when( rowMeta.getFieldNames() ).thenReturn( fieldNames );
+    return rowMeta;
+  }
+}
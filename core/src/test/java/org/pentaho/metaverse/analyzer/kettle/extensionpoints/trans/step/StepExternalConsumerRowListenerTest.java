@@ -29,6 +29,7 @@ import org.pentaho.metaverse.api.model.IExternalResourceInfo;
 import org.pentaho.metaverse.api.model.LineageHolder;
 import org.pentaho.metaverse.impl.model.ExecutionProfile;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -76,30 +77,101 @@ public class StepExternalConsumerRowListenerTest {
       Arrays.asList( new IExternalResourceInfo[] { resource2, resource3 } ) );
 
     listener.rowReadEvent( rmi, row1 );
+    listener.rowReadEvent( rmi, row2 );
+    listener.rowReadEvent( rmi, row1 );
+    assertEquals( 3, listener.getResources().size() );
+
+    // nothing is published until the step finishes
     Map resourceMap = TransLineageHolderMap.getInstance().getLineageHolder( mockTrans ).getExecutionProfile()
       .getExecutionData().getExternalResources();
-    assertNotNull( resourceMap );
-    assertEquals( 1, resourceMap.size() );
-    assertNotNull( resourceMap.get( "my_step" ) );
-    assertTrue( resourceMap.get( "my_step" ) instanceof List );
-    List resources = (List) resourceMap.get( "my_step" );
-    assertNotNull( resources );
-    assertEquals( 2, resources.size() );
-    assertTrue( resources.contains( resource1 ) );
-    assertTrue( resources.contains( resource2 ) );
+    assertTrue( resourceMap.isEmpty() );
 
-    listener.rowReadEvent( rmi, row2 );
+    listener.stepFinished( mockTrans, mockStepMeta, mockStep );
     resourceMap = TransLineageHolderMap.getInstance().getLineageHolder( mockTrans ).getExecutionProfile()
       .getExecutionData().getExternalResources();
     assertNotNull( resourceMap );
     assertEquals( 1, resourceMap.size() );
     assertNotNull( resourceMap.get( "my_step" ) );
     assertTrue( resourceMap.get( "my_step" ) instanceof List );
-    resources = (List) resourceMap.get( "my_step" );
-    assertNotNull( resources );
+    List resources = (List) resourceMap.get( "my_step" );
     assertEquals( 3, resources.size() );
     assertTrue( resources.contains( resource1 ) );
     assertTrue( resources.contains( resource2 ) );
     assertTrue( resources.contains( resource3 ) );
+    assertEquals( 3L, executionProfile.getExecutionData().getSampledRows().get( "my_step" ).longValue() );
+  }
+
+  @Test
+  public void testStepFinishedMergesWithExistingResources() throws Exception {
+    BaseStep mockStep = mock( BaseStep.class, withSettings().extraInterfaces( StepInterface.class ) );
+    when( mockStep.getStepname() ).thenReturn( "my_step" );
+    Trans mockTrans = mock( Trans.class );
+    when( mockStep.getTrans() ).thenReturn( mockTrans );
+
+    LineageHolder holder = TransLineageHolderMap.getInstance().getLineageHolder( mockTrans );
+    IExecutionProfile executionProfile = new ExecutionProfile();
+    holder.setExecutionProfile( executionProfile );
+    TransLineageHolderMap.getInstance().putLineageHolder( mockTrans, holder );
+
+    IExternalResourceInfo metaResource = mock( IExternalResourceInfo.class );
+    IExternalResourceInfo rowResource = mock( IExternalResourceInfo.class );
+    executionProfile.getExecutionData().getExternalResources().put( "my_step",
+      new ArrayList<>( Arrays.asList( metaResource, rowResource ) ) );
+
+    IStepExternalResourceConsumer consumer = mock( IStepExternalResourceConsumer.class );
+    RowMetaInterface rmi = mock( RowMetaInterface.class );
+    Object[] row = new String[] { "val" };
+    when( consumer.getResourcesFromRow( mockStep, rmi, row ) ).thenReturn( Arrays.asList( rowResource ) );
+
+    StepExternalConsumerRowListener listener = new StepExternalConsumerRowListener( consumer, mockStep );
+    listener.rowReadEvent( rmi, row );
+    listener.stepFinished( mockTrans, null, mockStep );
+
+    List resources = executionProfile.getExecutionData().getExternalResources().get( "my_step" );
+    assertEquals( 2, resources.size() );
+    assertTrue( resources.contains( metaResource ) );
+    assertTrue( resources.contains( rowResource ) );
+  }
+
+  @Test
+  public void testPublishedBeforeWrite_withoutStepFinished() throws Exception {
+    BaseStep mockStep = mock( BaseStep.class, withSettings().extraInterfaces( StepInterface.class ) );
+    when( mockStep.getStepname() ).thenReturn( "my_step" );
+    Trans mockTrans = mock( Trans.class );
+    when( mockStep.getTrans() ).thenReturn( mockTrans );
+
+    LineageHolder holder = TransLineageHolderMap.getInstance().getLineageHolder( mockTrans );
+    IExecutionProfile executionProfile = new ExecutionProfile();
+    holder.setExecutionProfile( executionProfile );
+    TransLineageHolderMap.getInstance().putLineageHolder( mockTrans, holder );
+
+    IStepExternalResourceConsumer consumer = mock( IStepExternalResourceConsumer.class );
+    RowMetaInterface rmi = mock( RowMetaInterface.class );
+    Object[] row = new String[] { "val" };
+    IExternalResourceInfo resource = mock( IExternalResourceInfo.class );
+    when( consumer.getResourcesFromRow( mockStep, rmi, row ) ).thenReturn( Arrays.asList( resource ) );
+
+    StepExternalConsumerRowListener listener = new StepExternalConsumerRowListener( consumer, mockStep );
+    holder.addBeforeWriteAction( listener::publishResources );
+    listener.rowReadEvent( rmi, row );
+    listener.rowReadEvent( rmi, row );
+
+    // the step has not finished yet, or will never be reported as finished
+    holder.runBeforeWriteActions();
+    List resources = executionProfile.getExecutionData().getExternalResources().get( "my_step" );
+    assertEquals( 1, resources.size() );
+    assertTrue( resources.contains( resource ) );
+    assertEquals( 2L, executionProfile.getExecutionData().getSampledRows().get( "my_step" ).longValue() );
+
+    // a late notification neither duplicates the resources nor counts the rows twice
+    listener.rowReadEvent( rmi, row );
+    listener.stepFinished( mockTrans, null, mockStep );
+    resources = executionProfile.getExecutionData().getExternalResources().get( "my_step" );
+    assertEquals( 1, resources.size() );
+    assertEquals( 3L, executionProfile.getExecutionData().getSampledRows().get( "my_step" ).longValue() );
+
+    // the actions only run once
+    holder.runBeforeWriteActions();
+    assertEquals( 3L, executionProfile.getExecutionData().getSampledRows().get( "my_step" ).longValue() );
   }
 }
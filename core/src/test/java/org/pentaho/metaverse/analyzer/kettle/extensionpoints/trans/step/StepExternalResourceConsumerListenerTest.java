@@ -39,6 +39,7 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
@@ -74,6 +75,8 @@ public class StepExternalResourceConsumerListenerTest {
     stepExtensionPoint.callExtensionPoint( null, stepCombi );
     when( consumer.isDataDriven( Mockito.any() ) ).thenReturn( Boolean.TRUE );
     stepExtensionPoint.callExtensionPoint( null, stepCombi );
+    verify( stepCombi.step ).addRowListener( Mockito.any( StepExternalConsumerRowListener.class ) );
+    verify( stepCombi.step ).addStepListener( Mockito.any( StepExternalConsumerRowListener.class ) );
   }
 
   @Test
@@ -14,11 +14,32 @@
 package org.pentaho.metaverse.client;
 
 import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.api.ChangeType;
+import org.pentaho.metaverse.api.StepField;
+import org.pentaho.metaverse.api.StepFieldOperations;
+import org.pentaho.metaverse.api.model.ImmutableOperations;
+import org.pentaho.metaverse.api.model.Operation;
+import org.pentaho.metaverse.api.model.Operations;
 import org.pentaho.metaverse.graph.LineageGraphMap;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
 
 public class LineageClientTest {
 
@@ -35,4 +56,82 @@ public class LineageClientTest {
   @Test
   public void testGetInstance( ) {
   }
+
+  @Test
+  public void testGetOriginSteps() throws Exception {
+    TransMeta transMeta = buildLineageGraph();
+
+    Map<String, Set<StepField>> originSteps =
+      lineageClient.getOriginSteps( transMeta, "Output", Arrays.asList( "customer", "id", "missing" ) );
+    assertEquals( 2, originSteps.size() );
+    assertEquals( Collections.singleton( new StepField( "Input", "name" ) ), originSteps.get( "customer" ) );
+    // a field nothing derives is its own origin
+    assertEquals( Collections.singleton( new StepField( "Output", "id" ) ), originSteps.get( "id" ) );
+
+    assertTrue( lineageClient.getOriginSteps( transMeta, "Unknown", Arrays.asList( "customer" ) ).isEmpty() );
+    assertTrue( lineageClient.getOriginSteps( mock( TransMeta.class ), "Output", Arrays.asList( "id" ) ).isEmpty() );
+  }
+
+  @Test
+  public void testGetOperationPaths() throws Exception {
+    TransMeta transMeta = buildLineageGraph();
+
+    Map<String, Set<List<StepFieldOperations>>> operationPaths =
+      lineageClient.getOperationPaths( transMeta, "Output", Arrays.asList( "customer" ) );
+    assertEquals( 1, operationPaths.size() );
+    Set<List<StepFieldOperations>> paths = operationPaths.get( "customer" );
+    assertEquals( 1, paths.size() );
+    List<StepFieldOperations> path = paths.iterator().next();
+    assertEquals( Arrays.asList( new StepField( "Input", "name" ), new StepField( "Select", "customer" ),
+      new StepField( "Output", "customer" ) ), path );
+    // operations are read from their JSON
+    assertNull( path.get( 0 ).getOperations() );
+    assertEquals( renameOperations(), path.get( 1 ).getOperations() );
+    assertEquals( renameOperations(), path.get( 2 ).getOperations() );
+
+    // queries are answered from the same index
+    assertEquals( operationPaths, lineageClient.getOperationPaths( transMeta, "Output", Arrays.asList( "customer" ) ) );
+  }
+
+  /**
+   * Input outputs name and id, Select renames name to customer, and Output passes customer on and creates a new id.
+   */
+  private TransMeta buildLineageGraph() {
+    Vertex name = addField( addStep( "Input" ), "name" );
+    Vertex selectCustomer = addField( addStep( "Select" ), "customer" );
+    Vertex output = addStep( "Output" );
+    Vertex outputCustomer = addField( output, "customer" );
+    addField( output, "id" );
+    selectCustomer.setProperty( DictionaryConst.PROPERTY_OPERATIONS,
+      ImmutableOperations.of( renameOperations() ).toJson() );
+    outputCustomer.setProperty( DictionaryConst.PROPERTY_OPERATIONS,
+      ImmutableOperations.of( renameOperations() ).toJson() );
+    g.addEdge( null, name, selectCustomer, DictionaryConst.LINK_DERIVES );
+    g.addEdge( null, selectCustomer, outputCustomer, DictionaryConst.LINK_DERIVES );
+
+    TransMeta transMeta = mock( TransMeta.class );
+    LineageGraphMap.getInstance().put( transMeta, CompletableFuture.completedFuture( g ) );
+    return transMeta;
+  }
+
+  private Operations renameOperations() {
+    Operations operations = new Operations();
+    operations.addOperation( ChangeType.METADATA, Operation.getRenameOperation() );
+    return operations;
+  }
+
+  private Vertex addStep( String name ) {
+    Vertex step = g.addVertex( null );
+    step.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP );
+    step.setProperty( DictionaryConst.PROPERTY_NAME, name );
+    return step;
+  }
+
+  private Vertex addField( Vertex step, String name ) {
+    Vertex field = g.addVertex( null );
+    field.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_FIELD );
+    field.setProperty( DictionaryConst.PROPERTY_NAME, name );
+    g.addEdge( null, step, field, DictionaryConst.LINK_OUTPUTS );
+    return field;
+  }
 }
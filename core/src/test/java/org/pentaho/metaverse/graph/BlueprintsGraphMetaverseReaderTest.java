@@ -16,8 +16,10 @@ package org.pentaho.metaverse.graph;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.KeyIndexableGraph;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -25,14 +27,20 @@ import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.api.IMetaverseLink;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.IMetaverseReader;
+import org.pentaho.metaverse.api.model.BaseConcurrentGraph;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -101,6 +109,23 @@ public class BlueprintsGraphMetaverseReaderTest {
 
   }
 
+  @Test
+  public void testExport_adjustsUnderWriteGuard() throws Exception {
+    AtomicInteger exclusive = new AtomicInteger();
+    graph = new BaseConcurrentGraph( new IdGraph<KeyIndexableGraph>( new TinkerGraph() ) ) {
+      @Override
+      public void executeExclusively( Runnable operation ) {
+        exclusive.incrementAndGet();
+        super.executeExclusively( operation );
+      }
+    };
+    loadGraph( graph );
+
+    String export = new BlueprintsGraphMetaverseReader( graph ).exportFormat( IMetaverseReader.FORMAT_XML );
+    assertTrue( "Export content is wrong", export.contains( "trans1.ktr" ) );
+    assertEquals( 1, exclusive.get() );
+  }
+
   @Test
   public void testExportJson() throws Exception {
 
@@ -118,6 +143,23 @@ public class BlueprintsGraphMetaverseReaderTest {
 
   }
 
+  @Test
+  public void testExportToStream_doesNotEnhanceGraph() throws Exception {
+
+    BlueprintsGraphMetaverseReader metaverseReader = new BlueprintsGraphMetaverseReader( graph );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    metaverseReader.exportToStream( IMetaverseReader.FORMAT_JSON, out );
+    assertTrue( "Export content is wrong", out.toString( "UTF-8" ).contains( DictionaryConst.COLOR_DOCUMENT ) );
+    for ( Vertex vertex : graph.getVertices() ) {
+      assertNull( vertex.getProperty( DictionaryConst.PROPERTY_COLOR ) );
+    }
+
+    out = new ByteArrayOutputStream();
+    metaverseReader.exportToStream( "bogus", out );
+    assertEquals( 0, out.size() );
+  }
+
   @Test
   public void testExportCsv() throws Exception {
 
@@ -206,6 +248,36 @@ public class BlueprintsGraphMetaverseReaderTest {
 
   }
 
+  @Test
+  public void testGetGraph_depthAndLabels() throws Exception {
+    BlueprintsGraphMetaverseReader metaverseReader = new BlueprintsGraphMetaverseReader( graph );
+    Vertex root = graph.getVertex( "datasource1.table1.field1" );
+    int neighbours = 0;
+    for ( Edge edge : root.getEdges( Direction.BOTH ) ) {
+      neighbours++;
+    }
+
+    Graph g = metaverseReader.getGraph( "datasource1.table1.field1", 1, null );
+    assertEquals( neighbours + 1, countVertices( g ) );
+    assertEquals( neighbours, countEdges( g ) );
+    assertTrue( countVertices( metaverseReader.getGraph( "datasource1.table1.field1" ) ) >= countVertices( g ) );
+
+    g = metaverseReader.getGraph( "datasource1.table1.field1", 0, Collections.singleton( "populates" ) );
+    for ( Edge edge : g.getEdges() ) {
+      assertEquals( "populates", edge.getLabel() );
+    }
+    assertNotNull( g.getVertex( "trans2.ktr;field1" ) );
+  }
+
+  @Test
+  public void testDepthLimit() {
+    assertEquals( 0, BlueprintsGraphMetaverseReader.depthLimit( 0, 0 ) );
+    assertEquals( 3, BlueprintsGraphMetaverseReader.depthLimit( 0, 3 ) );
+    assertEquals( 2, BlueprintsGraphMetaverseReader.depthLimit( 2, 0 ) );
+    assertEquals( 2, BlueprintsGraphMetaverseReader.depthLimit( 2, 3 ) );
+    assertEquals( 3, BlueprintsGraphMetaverseReader.depthLimit( 5, 3 ) );
+  }
+
   @Test
   public void testFindLink() throws Exception {
     BlueprintsGraphMetaverseReader metaverseReader = new BlueprintsGraphMetaverseReader( graph );
@@ -292,6 +364,103 @@ public class BlueprintsGraphMetaverseReaderTest {
 
   }
 
+  @Test
+  public void testSearch_allPathsThroughDiamonds() {
+    // up -> src, two diamonds src -> a1|b1 -> join -> a2|b2 -> sink, and trans -contains-> a1, b2
+    graph = new TinkerGraph();
+    Vertex up = createVertex( "up", DictionaryConst.NODE_TYPE_DATA_COLUMN, "up" );
+    Vertex src = createVertex( "src", DictionaryConst.NODE_TYPE_TRANS_FIELD, "src" );
+    Vertex a1 = createVertex( "a1", DictionaryConst.NODE_TYPE_TRANS_FIELD, "a1" );
+    Vertex b1 = createVertex( "b1", DictionaryConst.NODE_TYPE_TRANS_FIELD, "b1" );
+    Vertex join = createVertex( "join", DictionaryConst.NODE_TYPE_TRANS_FIELD, "join" );
+    Vertex a2 = createVertex( "a2", DictionaryConst.NODE_TYPE_TRANS_FIELD, "a2" );
+    Vertex b2 = createVertex( "b2", DictionaryConst.NODE_TYPE_TRANS_FIELD, "b2" );
+    Vertex sink = createVertex( "sink", DictionaryConst.NODE_TYPE_DATA_COLUMN, "sink" );
+    Vertex trans = createVertex( "trans", DictionaryConst.NODE_TYPE_TRANS, "trans" );
+    graph.addEdge( "up>src", up, src, DictionaryConst.LINK_POPULATES );
+    graph.addEdge( "src>a1", src, a1, DictionaryConst.LINK_DERIVES );
+    graph.addEdge( "src>b1", src, b1, DictionaryConst.LINK_DERIVES );
+    graph.addEdge( "a1>join", a1, join, DictionaryConst.LINK_DERIVES );
+    graph.addEdge( "b1>join", b1, join, DictionaryConst.LINK_DERIVES );
+    graph.addEdge( "join>a2", join, a2, DictionaryConst.LINK_DERIVES );
+    graph.addEdge( "join>b2", join, b2, DictionaryConst.LINK_DERIVES );
+    graph.addEdge( "a2>sink", a2, sink, DictionaryConst.LINK_POPULATES );
+    graph.addEdge( "b2>sink", b2, sink, DictionaryConst.LINK_POPULATES );
+    graph.addEdge( "trans>a1", trans, a1, DictionaryConst.LINK_CONTAINS );
+    graph.addEdge( "trans>b2", trans, b2, DictionaryConst.LINK_CONTAINS );
+
+    List<String> types = Collections.singletonList( DictionaryConst.NODE_TYPE_DATA_COLUMN );
+    Set<Object> found = edgeIds(
+      new BlueprintsGraphMetaverseReader( graph ).search( types, Collections.singletonList( "src" ), false ) );
+    Set<Object> recursive = edgeIds( recursiveSearch( types, src ) );
+
+    // every path the recursive search found is still found
+    assertTrue( found.containsAll( recursive ) );
+    // each vertex is expanded once, so only one way through the first diamond, but the sink is reached both ways
+    assertEquals( 7, found.size() );
+    assertTrue( found.contains( "up>src" ) );
+    assertTrue( found.contains( "a2>sink" ) );
+    assertTrue( found.contains( "b2>sink" ) );
+    assertTrue( found.contains( "a1>join" ) != found.contains( "b1>join" ) );
+  }
+
+  private static Set<Object> edgeIds( Graph graph ) {
+    Set<Object> ids = new HashSet<>();
+    for ( Edge edge : graph.getEdges() ) {
+      ids.add( edge.getId() );
+    }
+    return ids;
+  }
+
+  /**
+   * The recursive depth-first search that search( types, ids, false ) used to run, for comparison
+   */
+  private static Graph recursiveSearch( List<String> resultTypes, Vertex startVertex ) {
+    Graph g = new TinkerGraph();
+    Map<Object, GraphPath> paths = new HashMap<>();
+    recursiveSearch( startVertex, resultTypes, new GraphPath(), new HashSet<>(), paths, Direction.IN );
+    recursiveSearch( startVertex, resultTypes, new GraphPath(), new HashSet<>(), paths, Direction.OUT );
+    for ( GraphPath path : paths.values() ) {
+      path.addToGraph( g );
+    }
+    return g;
+  }
+
+  private static void recursiveSearch( Vertex vertex, List<String> resultTypes, GraphPath path, Set<Object> done,
+                                       Map<Object, GraphPath> paths, Direction direction ) {
+    boolean isTargetType = resultTypes.contains( vertex.getProperty( DictionaryConst.PROPERTY_TYPE ) );
+    if ( !isTargetType && done.contains( vertex.getId() ) ) {
+      return;
+    }
+    path.addVertex( vertex );
+    if ( isTargetType ) {
+      paths.put( path.toString(), path.clone() );
+    }
+    done.add( vertex.getId() );
+    if ( direction == Direction.IN ) {
+      for ( Edge edge : vertex.getEdges( Direction.IN ) ) {
+        path.addEdge( edge );
+        recursiveSearch( edge.getVertex( Direction.OUT ), resultTypes, path, done, paths, direction );
+        path.pop();
+      }
+    } else {
+      for ( Edge edge : vertex.getEdges( Direction.OUT ) ) {
+        path.addEdge( edge );
+        recursiveSearch( edge.getVertex( Direction.IN ), resultTypes, path, done, paths, direction );
+        path.pop();
+      }
+      // go upstream to find structure
+      if ( path.getLength() > 1 ) {
+        for ( Edge edge : vertex.getEdges( Direction.IN ) ) {
+          path.addEdge( edge );
+          recursiveSearch( edge.getVertex( Direction.OUT ), resultTypes, path, done, paths, Direction.IN );
+          path.pop();
+        }
+      }
+    }
+    path.pop();
+  }
+
   private int countEdges( Graph graph ) {
     Iterator<Edge> edges = graph.getEdges().iterator();
     int edgeCount = 0;
@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.dictionary.DictionaryConst;
+import org.pentaho.metaverse.util.MetaverseUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EnhancedGraphTest {
+
+  private Graph graph;
+
+  @Before
+  public void setUp() {
+    graph = new TinkerGraph();
+    Vertex trans = graph.addVertex( "trans" );
+    trans.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS );
+    trans.setProperty( DictionaryConst.PROPERTY_NAME, "trans1.ktr" );
+    Vertex step = graph.addVertex( "step" );
+    step.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS_STEP );
+    graph.addEdge( "contains", trans, step, DictionaryConst.LINK_CONTAINS );
+  }
+
+  @Test
+  public void testVertexEnhancements() {
+    Graph view = new EnhancedGraph( graph );
+    Vertex trans = view.getVertex( "trans" );
+
+    assertEquals( "trans1.ktr", trans.getProperty( DictionaryConst.PROPERTY_NAME ) );
+    assertEquals( DictionaryConst.CATEGORY_DOCUMENT, trans.getProperty( DictionaryConst.PROPERTY_CATEGORY ) );
+    assertEquals( DictionaryConst.COLOR_DOCUMENT, trans.getProperty( DictionaryConst.PROPERTY_COLOR ) );
+    assertTrue( trans.getPropertyKeys().contains( DictionaryConst.PROPERTY_NAME ) );
+    assertTrue( trans.getPropertyKeys().contains( DictionaryConst.PROPERTY_COLOR ) );
+
+    // the same properties as an enhanced vertex, without changing the graph
+    Vertex enhanced = new TinkerGraph().addVertex( "trans" );
+    enhanced.setProperty( DictionaryConst.PROPERTY_TYPE, DictionaryConst.NODE_TYPE_TRANS );
+    enhanced.setProperty( DictionaryConst.PROPERTY_NAME, "trans1.ktr" );
+    MetaverseUtil.enhanceVertex( enhanced );
+    assertEquals( enhanced.getPropertyKeys(), trans.getPropertyKeys() );
+    assertNull( graph.getVertex( "trans" ).getProperty( DictionaryConst.PROPERTY_COLOR ) );
+  }
+
+  @Test
+  public void testTraversal() {
+    Graph view = new EnhancedGraph( graph );
+    Edge edge = view.getVertex( "trans" ).getEdges( Direction.OUT ).iterator().next();
+    assertEquals( DictionaryConst.LINK_CONTAINS, edge.getLabel() );
+    assertEquals( MetaverseUtil.getEdgeEnhancements( DictionaryConst.LINK_CONTAINS )
+      .get( DictionaryConst.PROPERTY_TYPE_LOCALIZED ), edge.getProperty( DictionaryConst.PROPERTY_TYPE_LOCALIZED ) );
+    assertEquals( DictionaryConst.COLOR_DOCUMENT_ELEMENT,
+      edge.getVertex( Direction.IN ).getProperty( DictionaryConst.PROPERTY_COLOR ) );
+    assertEquals( view.getVertex( "step" ), edge.getVertex( Direction.IN ) );
+    assertNull( view.getVertex( "bogus" ) );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void testReadOnly() {
+    new EnhancedGraph( graph ).getVertex( "trans" ).setProperty( DictionaryConst.PROPERTY_NAME, "other" );
+  }
+}
@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.Test;
+import org.pentaho.metaverse.api.model.BaseMetaverseBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FieldMergerTest {
+
+  @Test
+  public void testUnionKeepsFirstVertex() {
+    Graph graph = new TinkerGraph();
+    Vertex a = graph.addVertex( "a" );
+    Vertex b = graph.addVertex( "b" );
+    Vertex c = graph.addVertex( "c" );
+
+    FieldMerger merger = new FieldMerger();
+    merger.union( b, c );
+    merger.union( a, b );
+
+    assertEquals( a, merger.find( c ) );
+    assertEquals( a, merger.find( b ) );
+    assertFalse( merger.isMerged( a ) );
+    assertTrue( merger.isMerged( c ) );
+  }
+
+  @Test
+  public void testApply() {
+    Graph graph = new TinkerGraph();
+    Vertex step = graph.addVertex( "step" );
+    Vertex other = graph.addVertex( "other" );
+    Vertex a = graph.addVertex( "a" );
+    Vertex b = graph.addVertex( "b" );
+    Vertex c = graph.addVertex( "c" );
+    graph.addEdge( "s-a", step, a, "outputs" );
+    graph.addEdge( "s-b", step, b, "outputs" );
+    graph.addEdge( "s-c", step, c, "outputs" );
+    graph.addEdge( "b-o", b, other, "derives" );
+    graph.addEdge( "o-c", other, c, "derives" );
+
+    FieldMerger merger = new FieldMerger();
+    merger.union( a, b );
+    merger.union( a, c );
+    merger.apply( graph );
+
+    assertTrue( merger.isEmpty() );
+    assertNull( graph.getVertex( "b" ) );
+    assertNull( graph.getVertex( "c" ) );
+    assertEquals( 1, count( step.getVertices( Direction.OUT, "outputs" ) ) );
+    assertNotNull( graph.getEdge( BaseMetaverseBuilder.getEdgeId( a, "derives", other ) ) );
+    assertNotNull( graph.getEdge( BaseMetaverseBuilder.getEdgeId( other, "derives", a ) ) );
+  }
+
+  private static int count( Iterable<?> iterable ) {
+    int count = 0;
+    for ( Object ignored : iterable ) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,114 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.dictionary.DictionaryConst;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GraphAdjusterTest {
+
+  private Graph graph;
+
+  @Before
+  public void setUp() {
+    graph = new TinkerGraph();
+  }
+
+  @Test
+  public void testMergeOutputsAndInputs() {
+    Vertex stepA = addVertex( "stepA", DictionaryConst.CATEGORY_DOCUMENT_ELEMENT, DictionaryConst.NODE_TYPE_TRANS_STEP,
+      "A" );
+    Vertex stepB = addVertex( "stepB", DictionaryConst.CATEGORY_DOCUMENT_ELEMENT, DictionaryConst.NODE_TYPE_TRANS_STEP,
+      "B" );
+    Vertex output = addVertex( "output", DictionaryConst.CATEGORY_FIELD, DictionaryConst.NODE_TYPE_TRANS_FIELD, "f" );
+    Vertex orphan = addVertex( "orphan", DictionaryConst.CATEGORY_FIELD, DictionaryConst.NODE_TYPE_TRANS_FIELD, "f" );
+    graph.addEdge( "hop", stepA, stepB, DictionaryConst.LINK_HOPSTO );
+    graph.addEdge( "outputs", stepA, output, DictionaryConst.LINK_OUTPUTS );
+    graph.addEdge( "inputs", orphan, stepB, DictionaryConst.LINK_INPUTS );
+
+    GraphAdjuster adjuster = new GraphAdjuster( graph ).adjust( false, false );
+
+    assertNull( graph.getVertex( "orphan" ) );
+    List<Vertex> inputs = linked( stepB, Direction.IN, DictionaryConst.LINK_INPUTS );
+    assertEquals( 1, inputs.size() );
+    assertEquals( output.getId(), inputs.get( 0 ).getId() );
+    assertTrue( adjuster.getPhaseTimes().containsKey( GraphAdjuster.Phase.INDEX ) );
+    assertTrue( adjuster.getPhaseTimes().containsKey( GraphAdjuster.Phase.MERGE_OUTPUTS_AND_INPUTS ) );
+    assertFalse( adjuster.getPhaseTimes().containsKey( GraphAdjuster.Phase.DEDUPLICATE_TRANS_FIELDS ) );
+  }
+
+  @Test
+  public void testDeduplicateTransFields() {
+    Vertex step = addVertex( "step", DictionaryConst.CATEGORY_DOCUMENT_ELEMENT, DictionaryConst.NODE_TYPE_TRANS_STEP,
+      "A" );
+    Vertex field1 = addVertex( "field1", DictionaryConst.CATEGORY_FIELD, DictionaryConst.NODE_TYPE_TRANS_FIELD, "x" );
+    Vertex field2 = addVertex( "field2", DictionaryConst.CATEGORY_FIELD, DictionaryConst.NODE_TYPE_TRANS_FIELD, "x" );
+    Vertex field3 = addVertex( "field3", DictionaryConst.CATEGORY_FIELD, DictionaryConst.NODE_TYPE_TRANS_FIELD, "y" );
+    graph.addEdge( "o1", step, field1, DictionaryConst.LINK_OUTPUTS );
+    graph.addEdge( "o2", step, field2, DictionaryConst.LINK_OUTPUTS );
+    graph.addEdge( "o3", step, field3, DictionaryConst.LINK_OUTPUTS );
+
+    GraphAdjuster adjuster = new GraphAdjuster( graph ).adjust( true, false );
+
+    assertEquals( 2, linked( step, Direction.OUT, DictionaryConst.LINK_OUTPUTS ).size() );
+    assertTrue( adjuster.getPhaseTimes().containsKey( GraphAdjuster.Phase.DEDUPLICATE_TRANS_FIELDS ) );
+  }
+
+  @Test
+  public void testAdjustExternalResourceFields() {
+    Vertex file = addVertex( "file", DictionaryConst.CATEGORY_FIELD_COLLECTION, DictionaryConst.NODE_TYPE_FILE,
+      "file.csv" );
+    Vertex step = addVertex( "step", DictionaryConst.CATEGORY_DOCUMENT_ELEMENT, DictionaryConst.NODE_TYPE_TRANS_STEP,
+      "CSV" );
+    Vertex column = addVertex( "column", DictionaryConst.CATEGORY_FIELD, DictionaryConst.NODE_TYPE_FILE_FIELD,
+      "c" );
+    graph.addEdge( "readby", file, step, DictionaryConst.LINK_READBY );
+    graph.addEdge( "inputs", column, step, DictionaryConst.LINK_INPUTS );
+
+    GraphAdjuster adjuster = new GraphAdjuster( graph ).adjust( false, true );
+
+    List<Vertex> contained = linked( file, Direction.OUT, DictionaryConst.LINK_CONTAINS );
+    assertEquals( 1, contained.size() );
+    assertEquals( column.getId(), contained.get( 0 ).getId() );
+    assertTrue( adjuster.getPhaseTimes().containsKey(
+      GraphAdjuster.Phase.DEDUPLICATE_EXTERNAL_RESOURCE_FIELDS ) );
+  }
+
+  private Vertex addVertex( String id, String category, String type, String name ) {
+    Vertex vertex = graph.addVertex( id );
+    vertex.setProperty( DictionaryConst.PROPERTY_CATEGORY, category );
+    vertex.setProperty( DictionaryConst.PROPERTY_TYPE, type );
+    vertex.setProperty( DictionaryConst.PROPERTY_NAME, name );
+    return vertex;
+  }
+
+  private static List<Vertex> linked( Vertex vertex, Direction direction, String label ) {
+    return StreamSupport.stream( vertex.getVertices( direction, label ).spliterator(), false )
+      .collect( Collectors.toList() );
+  }
+}
@@ -0,0 +1,166 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.graph;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GraphTraversalTest {
+
+  private Graph graph;
+
+  private Vertex a;
+
+  @Before
+  public void setUp() {
+    // a -> b -> c -> d, a -> c, d -> a (cycle), and s -contains-> c
+    graph = new TinkerGraph();
+    a = graph.addVertex( "a" );
+    Vertex b = graph.addVertex( "b" );
+    Vertex c = graph.addVertex( "c" );
+    Vertex d = graph.addVertex( "d" );
+    Vertex s = graph.addVertex( "s" );
+    graph.addEdge( "a-b", a, b, "derives" );
+    graph.addEdge( "b-c", b, c, "derives" );
+    graph.addEdge( "c-d", c, d, "derives" );
+    graph.addEdge( "a-c", a, c, "derives" );
+    graph.addEdge( "d-a", d, a, "derives" );
+    graph.addEdge( "s-c", s, c, "contains" );
+  }
+
+  private static GraphTraversal.Leg loop( GraphTraversal.Leg leg ) {
+    return leg.then( leg );
+  }
+
+  private List<String> traverse( GraphTraversal traversal, List<GraphTraversal.Leg> legs ) {
+    final List<String> visited = new ArrayList<>();
+    traversal.traverse( a, legs, hop -> visited.add( hop.toPath().toString() ) );
+    return visited;
+  }
+
+  @Test
+  public void testTraverse_terminatesOnCycles() {
+    List<String> visited = traverse( new GraphTraversal(),
+      Collections.singletonList( loop( new GraphTraversal.Leg( Direction.OUT ) ) ) );
+    // every edge is followed once, and the start vertex is not expanded again
+    assertEquals( "a", visited.get( 0 ) );
+    assertEquals( 6, visited.size() );
+    assertTrue( visited.contains( "a->b->c" ) );
+    assertTrue( visited.contains( "a->c->d" ) );
+    assertEquals( "a->c->d->a", visited.get( 5 ) );
+  }
+
+  @Test
+  public void testTraverse_maxDepth() {
+    List<String> visited = traverse( new GraphTraversal().setMaxDepth( 1 ),
+      Collections.singletonList( loop( new GraphTraversal.Leg( Direction.OUT ) ) ) );
+    assertEquals( 3, visited.size() );
+    assertTrue( visited.contains( "a->b" ) );
+    assertTrue( visited.contains( "a->c" ) );
+  }
+
+  @Test
+  public void testTraverse_maxResults() {
+    GraphTraversal traversal = new GraphTraversal().setMaxResults( 2 );
+    List<GraphTraversal.Hop> visited = new ArrayList<>();
+    assertEquals( 2, traversal.traverse( a,
+      Collections.singletonList( loop( new GraphTraversal.Leg( Direction.OUT ) ) ), visited::add ) );
+    assertEquals( 2, visited.size() );
+  }
+
+  @Test
+  public void testTraverse_legsAndLabels() {
+    // downstream, then up the "contains" links only from anything found
+    GraphTraversal.Leg structure = loop( new GraphTraversal.Leg( Direction.IN, Collections.singleton( "contains" ) ) );
+    GraphTraversal.Leg downstream = new GraphTraversal.Leg( Direction.OUT );
+    downstream.then( downstream, structure );
+    List<String> visited = traverse( new GraphTraversal(), Collections.singletonList( downstream ) );
+    assertTrue( visited.contains( "a->c->s" ) );
+    assertFalse( visited.contains( "a->c->b" ) );
+    assertFalse( visited.contains( "a->b->a" ) );
+  }
+
+  @Test
+  public void testTraverse_both() {
+    List<String> visited = traverse( new GraphTraversal().setMaxDepth( 1 ),
+      Collections.singletonList( new GraphTraversal.Leg( Direction.BOTH ) ) );
+    // a -> b, a -> c and d -> a
+    assertEquals( 4, visited.size() );
+    assertTrue( visited.contains( "a->d" ) );
+  }
+
+  @Test
+  public void testTraversePaths() {
+    List<String> visited = new ArrayList<>();
+    new GraphTraversal().traversePaths( a,
+      Collections.singletonList( loop( new GraphTraversal.Leg( Direction.OUT ) ) ),
+      hop -> visited.add( hop.toPath().toString() ) );
+    // c is reported both ways but only expanded from a, and the cycle back to a is never followed
+    assertEquals( 5, visited.size() );
+    assertTrue( visited.contains( "a->b->c" ) );
+    assertTrue( visited.contains( "a->c->d" ) );
+    assertFalse( visited.contains( "a->b->c->d" ) );
+    assertFalse( visited.contains( "a->c->d->a" ) );
+  }
+
+  @Test
+  public void testTraversePaths_linearOnDiamonds() {
+    // 40 diamonds in a row hold 2^40 simple paths
+    Graph diamonds = new TinkerGraph();
+    Vertex join = diamonds.addVertex( "j0" );
+    Vertex start = join;
+    for ( int i = 1; i <= 40; i++ ) {
+      Vertex left = diamonds.addVertex( "l" + i );
+      Vertex right = diamonds.addVertex( "r" + i );
+      Vertex next = diamonds.addVertex( "j" + i );
+      diamonds.addEdge( null, join, left, "derives" );
+      diamonds.addEdge( null, join, right, "derives" );
+      diamonds.addEdge( null, left, next, "derives" );
+      diamonds.addEdge( null, right, next, "derives" );
+      join = next;
+    }
+    List<GraphTraversal.Hop> visited = new ArrayList<>();
+    new GraphTraversal().traversePaths( start,
+      Collections.singletonList( loop( new GraphTraversal.Leg( Direction.OUT ) ) ), visited::add );
+    // the start vertex, then every edge once
+    assertEquals( 1 + 4 * 40, visited.size() );
+    assertEquals( 2, visited.stream().filter( hop -> "j40".equals( hop.getVertex().getId() ) ).count() );
+  }
+
+  @Test
+  public void testHop() {
+    List<GraphTraversal.Hop> hops = new ArrayList<>();
+    new GraphTraversal().setMaxDepth( 1 ).traverse( a,
+      Collections.singletonList( new GraphTraversal.Leg( Direction.OUT ) ), hops::add );
+    assertNull( hops.get( 0 ).getEdge() );
+    assertNull( hops.get( 0 ).getPrevious() );
+    assertEquals( 0, hops.get( 0 ).getDepth() );
+    assertEquals( 1, hops.get( 1 ).getDepth() );
+    assertEquals( a, hops.get( 1 ).getPrevious().getVertex() );
+    assertEquals( Direction.OUT, hops.get( 1 ).getLeg().getDirection() );
+  }
+}
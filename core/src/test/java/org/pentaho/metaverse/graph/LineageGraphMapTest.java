@@ -14,16 +14,26 @@
 package org.pentaho.metaverse.graph;
 
 import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.After;
 import org.junit.Test;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class LineageGraphMapTest {
 
+  @After
+  public void tearDown() {
+    LineageGraphMap.getInstance().clear();
+  }
+
   @Test
   public void testDefaultConstructor() {
     assertNotNull( new LineageGraphMap() );
@@ -38,4 +48,22 @@ public class LineageGraphMapTest {
     assertEquals( map1, map2 );
 
   }
+
+  @Test
+  public void testGetIndex_invalidatedWhenReplaced() {
+    Graph graph = new TinkerGraph();
+    Object document = new Object();
+    LineageGraphMap.getInstance().put( document, CompletableFuture.completedFuture( graph ) );
+
+    FieldLineageIndex index = LineageGraphMap.getIndex( graph );
+    assertSame( index, LineageGraphMap.getIndex( graph ) );
+
+    // the graph is analyzed again in place
+    LineageGraphMap.getInstance().put( document, CompletableFuture.completedFuture( graph ) );
+    FieldLineageIndex rebuilt = LineageGraphMap.getIndex( graph );
+    assertNotSame( index, rebuilt );
+
+    LineageGraphMap.getInstance().remove( document );
+    assertNotSame( rebuilt, LineageGraphMap.getIndex( graph ) );
+  }
 }
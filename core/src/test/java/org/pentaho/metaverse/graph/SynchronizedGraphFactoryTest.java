@@ -15,17 +15,23 @@ package org.pentaho.metaverse.graph;
 
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import com.tinkerpop.blueprints.util.wrappers.id.IdGraph;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.junit.Test;
+import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.api.model.BaseSynchronizedGraph;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -80,5 +86,31 @@ public class SynchronizedGraphFactoryTest {
 
   }
 
+  @Test
+  public void testWrapGraph_createsKeyIndices() throws Exception {
+    Graph g = new TinkerGraph();
+    BaseSynchronizedGraph wrapped = (BaseSynchronizedGraph) SynchronizedGraphFactory.wrapGraph( g );
+
+    assertTrue( wrapped.getIndexedKeys( Vertex.class ).containsAll( SynchronizedGraphFactory.INDEXED_VERTEX_KEYS ) );
+
+    Vertex v = wrapped.addVertex( "id" );
+    v.setProperty( DictionaryConst.PROPERTY_LOGICAL_ID, "logical" );
+    Iterator<Vertex> matches = wrapped.getVertices( DictionaryConst.PROPERTY_LOGICAL_ID, "logical" ).iterator();
+    assertTrue( matches.hasNext() );
+    assertEquals( "id", matches.next().getId() );
+    assertFalse( matches.hasNext() );
+  }
+
+  @Test
+  public void testCreateKeyIndices_existingVertices() throws Exception {
+    TinkerGraph g = new TinkerGraph();
+    g.addVertex( "id" ).setProperty( DictionaryConst.PROPERTY_NAME, "name" );
+    g.createKeyIndex( DictionaryConst.PROPERTY_TYPE, Vertex.class );
+
+    assertSame( g, SynchronizedGraphFactory.createKeyIndices( g ) );
+    assertTrue( g.getIndexedKeys( Vertex.class ).containsAll( SynchronizedGraphFactory.INDEXED_VERTEX_KEYS ) );
+    assertTrue( g.getVertices( DictionaryConst.PROPERTY_NAME, "name" ).iterator().hasNext() );
+  }
+
 
 }
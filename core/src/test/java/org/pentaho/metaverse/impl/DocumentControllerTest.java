@@ -13,12 +13,16 @@
 
 package org.pentaho.metaverse.impl;
 
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.metaverse.api.IAnalyzer;
 import org.pentaho.metaverse.api.IComponentDescriptor;
 import org.pentaho.metaverse.api.IDocument;
@@ -28,6 +32,8 @@ import org.pentaho.metaverse.api.IMetaverseBuilder;
 import org.pentaho.metaverse.api.IMetaverseLink;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.IMetaverseObjectFactory;
+import org.pentaho.metaverse.api.MetaverseDocument;
+import org.pentaho.metaverse.api.Namespace;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -224,6 +230,49 @@ public class DocumentControllerTest {
     verify( testAndDummyAnalyzer, never() ).analyze( mockDescriptor, mockDoc );
   }
 
+  @Test
+  public void testOnEvent_delete() throws Exception {
+    Graph graph = new TinkerGraph();
+    docController.setMetaverseBuilder( new MetaverseBuilder( graph ) );
+    Vertex trans = addVertex( graph, "trans", DictionaryConst.NODE_TYPE_TRANS );
+    trans.setProperty( DictionaryConst.PROPERTY_PATH, "/a.dummy" );
+    trans.setProperty( DictionaryConst.PROPERTY_NAMESPACE, "repo" );
+    Vertex otherTrans = addVertex( graph, "otherTrans", DictionaryConst.NODE_TYPE_TRANS );
+    otherTrans.setProperty( DictionaryConst.PROPERTY_PATH, "/a.dummy" );
+    otherTrans.setProperty( DictionaryConst.PROPERTY_NAMESPACE, "otherRepo" );
+    Vertex step = addVertex( graph, "step", DictionaryConst.NODE_TYPE_TRANS_STEP );
+    Vertex field = addVertex( graph, "field", DictionaryConst.NODE_TYPE_TRANS_FIELD );
+    Vertex file = addVertex( graph, "file", DictionaryConst.NODE_TYPE_FILE );
+    graph.addEdge( null, trans, step, DictionaryConst.LINK_CONTAINS );
+    graph.addEdge( null, step, field, DictionaryConst.LINK_OUTPUTS );
+    graph.addEdge( null, step, file, DictionaryConst.LINK_WRITESTO );
+
+    MetaverseDocument document = new MetaverseDocument();
+    document.setNamespace( new Namespace( "repo" ) );
+    document.setStringID( "/a.dummy" );
+    document.setExtension( "dummy" );
+    DocumentEvent event = new DocumentEvent();
+    event.setEventType( IDocumentEvent.EVENT_TYPE_DELETE );
+    event.setDocument( document );
+
+    docController.onEvent( event );
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+
+    assertNull( graph.getVertex( "trans" ) );
+    assertNull( graph.getVertex( "step" ) );
+    assertNull( graph.getVertex( "field" ) );
+    // the same path in another namespace, and resources, are not part of the document
+    assertNotNull( graph.getVertex( "otherTrans" ) );
+    assertNotNull( graph.getVertex( "file" ) );
+    verify( dummyAnalyzer, never() ).analyze( any( IComponentDescriptor.class ), eq( document ) );
+  }
+
+  private static Vertex addVertex( Graph graph, String id, String type ) {
+    Vertex vertex = graph.addVertex( id );
+    vertex.setProperty( DictionaryConst.PROPERTY_TYPE, type );
+    return vertex;
+  }
+
   @Test
   public void testBuilderPassthroughCalls() {
     docController = new DocumentController( mockBuilder );
@@ -24,6 +24,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.pentaho.metaverse.api.IDocument;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -91,4 +93,37 @@ public class DocumentEventTest {
     docEvent.setEventType( "myType" );
     assertEquals( docEvent.getEventType(), "myType" );
   }
+
+  @Test
+  public void testOnAnalyzed() {
+    AtomicInteger analyzed = new AtomicInteger();
+    docEvent.setOnAnalyzed( analyzed::incrementAndGet );
+    docEvent.analysisStarted();
+    docEvent.analysisStarted();
+    docEvent.analysisDone( true );
+    docEvent.notified();
+    assertEquals( 0, analyzed.get() );
+    docEvent.analysisDone( true );
+    assertEquals( 1, analyzed.get() );
+  }
+
+  @Test
+  public void testOnAnalyzed_noAnalysis() {
+    AtomicInteger analyzed = new AtomicInteger();
+    docEvent.setOnAnalyzed( analyzed::incrementAndGet );
+    docEvent.notified();
+    assertEquals( 1, analyzed.get() );
+  }
+
+  @Test
+  public void testOnAnalyzed_failed() {
+    AtomicInteger analyzed = new AtomicInteger();
+    docEvent.setOnAnalyzed( analyzed::incrementAndGet );
+    docEvent.analysisStarted();
+    docEvent.analysisStarted();
+    docEvent.notified();
+    docEvent.analysisDone( false );
+    docEvent.analysisDone( true );
+    assertEquals( 0, analyzed.get() );
+  }
 }
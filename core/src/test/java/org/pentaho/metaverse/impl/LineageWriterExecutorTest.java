@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.impl;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LineageWriterExecutorTest {
+
+  private final List<String> events = new CopyOnWriteArrayList<>();
+  private final CountDownLatch started = new CountDownLatch( 1 );
+  private final CountDownLatch release = new CountDownLatch( 1 );
+  private LineageWriterExecutor executor;
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    if ( executor != null ) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    executor = new LineageWriterExecutor( 2, 10, LineageWriterExecutor.POLICY_BLOCK, false );
+    for ( int i = 0; i < 5; i++ ) {
+      executor.submit( new RecordingWrite( "write" + i ) );
+    }
+    assertTrue( executor.awaitIdle( 10, TimeUnit.SECONDS ) );
+    assertEquals( 5, events.size() );
+    assertEquals( 5, executor.getSubmittedCount() );
+    assertEquals( 5, executor.getCompletedCount() );
+    assertEquals( 0, executor.getQueueDepth() );
+  }
+
+  @Test
+  public void testDropOldest() throws Exception {
+    executor = new LineageWriterExecutor( 1, 1, LineageWriterExecutor.POLICY_DROP_OLDEST, false );
+    executor.submit( new BlockingWrite( "running" ) );
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+    executor.submit( new RecordingWrite( "oldest" ) );
+    executor.submit( new RecordingWrite( "newest" ) );
+    assertEquals( 1, executor.getDroppedCount() );
+    assertEquals( 1, executor.getMaxQueueDepth() );
+
+    release.countDown();
+    assertTrue( executor.awaitIdle( 10, TimeUnit.SECONDS ) );
+    assertTrue( events.contains( "discard oldest" ) );
+    assertTrue( events.contains( "write running" ) );
+    assertTrue( events.contains( "write newest" ) );
+    assertEquals( 3, events.size() );
+  }
+
+  @Test
+  public void testProfileOnly() throws Exception {
+    executor = new LineageWriterExecutor( 1, 1, LineageWriterExecutor.POLICY_PROFILE_ONLY, false );
+    executor.submit( new BlockingWrite( "running" ) );
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+    executor.submit( new RecordingWrite( "queued" ) );
+    executor.submit( new RecordingWrite( "overflow" ) );
+    // the profile of the overflowing execution is written on the submitting thread
+    assertTrue( events.contains( "profile overflow" ) );
+    assertEquals( 1, executor.getDegradedCount() );
+
+    release.countDown();
+    assertTrue( executor.awaitIdle( 10, TimeUnit.SECONDS ) );
+    assertTrue( events.contains( "write queued" ) );
+    assertEquals( 3, events.size() );
+  }
+
+  @Test
+  public void testBlock() throws Exception {
+    executor = new LineageWriterExecutor( 1, 1, LineageWriterExecutor.POLICY_BLOCK, false );
+    executor.submit( new BlockingWrite( "running" ) );
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+    executor.submit( new RecordingWrite( "queued" ) );
+    Thread submitter = new Thread( () -> executor.submit( new RecordingWrite( "blocked" ) ) );
+    submitter.start();
+    // the submitter waits for room in the queue
+    submitter.join( 200 );
+    assertTrue( submitter.isAlive() );
+    assertFalse( executor.awaitIdle( 0, TimeUnit.SECONDS ) );
+
+    release.countDown();
+    submitter.join( 10000 );
+    assertFalse( submitter.isAlive() );
+    assertTrue( executor.awaitIdle( 10, TimeUnit.SECONDS ) );
+    assertEquals( 3, executor.getCompletedCount() );
+    assertEquals( 0, executor.getDroppedCount() );
+    assertTrue( events.contains( "write blocked" ) );
+  }
+
+  @Test
+  public void testBlock_shutdown() throws Exception {
+    executor = new LineageWriterExecutor( 1, 1, LineageWriterExecutor.POLICY_BLOCK, false );
+    executor.submit( new BlockingWrite( "running" ) );
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+    executor.submit( new RecordingWrite( "queued" ) );
+    Thread submitter = new Thread( () -> executor.submit( new RecordingWrite( "blocked" ) ) );
+    submitter.start();
+    submitter.join( 200 );
+    assertTrue( submitter.isAlive() );
+
+    // the blocked submitter gives up instead of waiting forever
+    executor.shutdown();
+    submitter.join( 10000 );
+    assertFalse( submitter.isAlive() );
+    assertEquals( 1, executor.getDroppedCount() );
+    assertTrue( events.contains( "discard blocked" ) );
+
+    release.countDown();
+    assertTrue( executor.awaitIdle( 10, TimeUnit.SECONDS ) );
+    assertEquals( 2, executor.getCompletedCount() );
+  }
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    // falls back to platform threads on JDKs without virtual threads
+    executor = new LineageWriterExecutor( 1, 1, LineageWriterExecutor.POLICY_BLOCK, true );
+    executor.submit( new RecordingWrite( "write" ) );
+    assertTrue( executor.awaitIdle( 10, TimeUnit.SECONDS ) );
+    assertEquals( 1, executor.getCompletedCount() );
+  }
+
+  private class RecordingWrite extends LineageWriterExecutor.LineageWrite {
+
+    RecordingWrite( final String name ) {
+      super( name );
+    }
+
+    @Override
+    public void write() {
+      events.add( "write " + getName() );
+    }
+
+    @Override
+    public void writeProfileOnly() {
+      events.add( "profile " + getName() );
+    }
+
+    @Override
+    public void discard() {
+      events.add( "discard " + getName() );
+    }
+  }
+
+  private class BlockingWrite extends RecordingWrite {
+
+    BlockingWrite( final String name ) {
+      super( name );
+    }
+
+    @Override
+    public void write() {
+      started.countDown();
+      try {
+        release.await( 10, TimeUnit.SECONDS );
+      } catch ( final InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      super.write();
+    }
+  }
+}
@@ -13,6 +13,7 @@
 
 package org.pentaho.metaverse.impl;
 
+import java.util.Arrays;
 import java.util.stream.StreamSupport;
 
 import com.tinkerpop.blueprints.Direction;
@@ -22,16 +23,20 @@ import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.pentaho.dictionary.DictionaryConst;
 import org.pentaho.dictionary.MetaverseLink;
 import org.pentaho.dictionary.MetaverseTransientNode;
 import org.pentaho.metaverse.api.IDocument;
+import org.pentaho.metaverse.api.IMetaverseBuilder;
 import org.pentaho.metaverse.api.IMetaverseLink;
 import org.pentaho.metaverse.api.IMetaverseNode;
 import org.pentaho.metaverse.api.IMetaverseObjectFactory;
+import org.pentaho.metaverse.api.MetaverseBatch;
 import org.pentaho.metaverse.api.model.BaseMetaverseBuilder;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -108,6 +113,64 @@ public class MetaverseBuilderTest {
 
   }
 
+  @Test
+  public void testAddAll() {
+    MetaverseTransientNode node2 = new MetaverseTransientNode();
+    node2.setStringID( "nodeToId" );
+    node2.setName( "to name" );
+    MetaverseTransientNode node3 = new MetaverseTransientNode();
+    node3.setStringID( "node3Id" );
+    node3.setName( "node3 name" );
+
+    builder.addAll( Arrays.asList( node, node ), Arrays.asList(
+      new MetaverseLink( node, "uses", node2 ),
+      new MetaverseLink( node, "uses", node2 ),
+      new MetaverseLink( node, "uses", node3 ) ) );
+
+    Vertex fromResult = graph.getVertex( node.getStringID() );
+    Vertex toResult = graph.getVertex( node2.getStringID() );
+    assertNotNull( fromResult );
+    assertNotNull( toResult );
+    assertFalse( (Boolean) fromResult.getProperty( DictionaryConst.NODE_VIRTUAL ) );
+    assertTrue( (Boolean) toResult.getProperty( DictionaryConst.NODE_VIRTUAL ) );
+    assertEquals( "to name", toResult.getProperty( DictionaryConst.PROPERTY_NAME ) );
+    assertEquals( 2, StreamSupport.stream( fromResult.getEdges( Direction.OUT, "uses" ).spliterator(), false )
+      .count() );
+  }
+
+  @Test
+  public void testBatch() {
+    MetaverseTransientNode node2 = new MetaverseTransientNode();
+    node2.setStringID( "nodeToId" );
+    node2.setName( "to name" );
+
+    MetaverseBatch batch = builder.batch();
+    batch.addLink( node, "uses", node2 ).addNode( node );
+    assertEquals( 2, batch.size() );
+    assertNull( graph.getVertex( node.getStringID() ) );
+
+    batch.commit();
+    assertTrue( batch.isEmpty() );
+    Vertex fromResult = graph.getVertex( node.getStringID() );
+    assertNotNull( fromResult );
+    assertFalse( (Boolean) fromResult.getProperty( DictionaryConst.NODE_VIRTUAL ) );
+    assertNotNull( graph.getEdge( BaseMetaverseBuilder.getEdgeId( fromResult, "uses",
+      graph.getVertex( node2.getStringID() ) ) ) );
+  }
+
+  @Test
+  public void testBatch_replaysOnOtherBuilders() {
+    IMetaverseBuilder otherBuilder = mock( IMetaverseBuilder.class );
+    MetaverseTransientNode node2 = new MetaverseTransientNode();
+
+    MetaverseBatch batch = new MetaverseBatch( otherBuilder );
+    batch.addLink( node, "uses", node2 ).addNode( node2 ).commit();
+
+    InOrder inOrder = inOrder( otherBuilder );
+    inOrder.verify( otherBuilder ).addLink( node, "uses", node2 );
+    inOrder.verify( otherBuilder ).addNode( node2 );
+  }
+
   @Test
   public void testAddLink() {
 
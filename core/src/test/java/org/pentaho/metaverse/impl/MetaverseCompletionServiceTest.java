@@ -17,10 +17,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class MetaverseCompletionServiceTest {
 
@@ -90,6 +93,28 @@ public class MetaverseCompletionServiceTest {
     assertNull( mcs.poll() );
   }
 
+  @Test
+  public void testCounters() throws Exception {
+    long submitted = mcs.getSubmittedCount();
+    long completed = mcs.getCompletedCount();
+    final CountDownLatch release = new CountDownLatch( 1 );
+    mcs.submit( new Callable<String>() {
+      @Override public String call() throws Exception {
+        release.await( 10, TimeUnit.SECONDS );
+        return HELLO_WORLD;
+      }
+    } );
+    assertEquals( submitted + 1, mcs.getSubmittedCount() );
+    assertEquals( 1, mcs.getOutstandingCount() );
+
+    release.countDown();
+    mcs.waitTillEmpty();
+    assertEquals( 0, mcs.getOutstandingCount() );
+    assertEquals( 0, mcs.getRunningCount() );
+    assertEquals( completed + 1, mcs.getCompletedCount() );
+    assertTrue( mcs.getThreads() > 0 );
+  }
+
 
 
 }
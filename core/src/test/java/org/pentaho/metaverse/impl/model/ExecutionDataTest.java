@@ -126,6 +126,14 @@ public class ExecutionDataTest {
 
   }
 
+  @Test
+  public void testAddSampledRows() {
+    assertEquals( executionData.getSampledRows().size(), 0 );
+    executionData.addSampledRows( "testStep", 10 );
+    executionData.addSampledRows( "testStep", 5 );
+    assertEquals( executionData.getSampledRows().get( "testStep" ).longValue(), 15 );
+  }
+
   @Test
   public void testPutGetArgument() {
     assertEquals( executionData.getArguments().size(), 0 );
@@ -14,19 +14,29 @@
 package org.pentaho.metaverse.locator;
 
 import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.metaverse.api.IDocument;
+import org.pentaho.metaverse.api.IDocumentAnalyzer;
+import org.pentaho.metaverse.api.IDocumentContent;
+import org.pentaho.metaverse.api.IDocumentController;
 import org.pentaho.metaverse.api.IDocumentEvent;
 import org.pentaho.metaverse.api.IDocumentListener;
 import org.pentaho.metaverse.api.IMetaverseBuilder;
+import org.pentaho.metaverse.api.INamespace;
 import org.pentaho.metaverse.api.MetaverseDocument;
 import org.pentaho.metaverse.api.MetaverseLocatorException;
 import org.pentaho.metaverse.graph.GraphMLWriter;
+import org.pentaho.metaverse.impl.DocumentEvent;
 import org.pentaho.metaverse.impl.MetaverseBuilder;
 import org.pentaho.metaverse.impl.MetaverseCompletionService;
 import org.pentaho.metaverse.testutils.MetaverseTestUtils;
@@ -34,14 +44,23 @@ import org.pentaho.metaverse.util.MetaverseUtil;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
 
 /**
  * Test class for the FileSystemLocator
@@ -58,6 +77,9 @@ public class FileSystemLocatorTest implements IDocumentListener {
 
   public static final String OUTPUT_FOLDER = "target/outputfiles/";
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @BeforeClass
   public static void beforeClass() {
     File f = new File( OUTPUT_FOLDER );
@@ -142,9 +164,9 @@ public class FileSystemLocatorTest implements IDocumentListener {
       assertNotNull( event.getDocument() );
       MetaverseDocument document = (MetaverseDocument) event.getDocument();
       if ( document.getExtension().equals( "ktr" ) ) {
-        assertTrue( document.getContent() instanceof String );
+        assertTrue( document.getContent() instanceof IDocumentContent );
       } else if ( document.getExtension().equals( "kjb" ) ) {
-        assertTrue( document.getContent() instanceof String );
+        assertTrue( document.getContent() instanceof IDocumentContent );
       }
     }
 
@@ -177,6 +199,7 @@ public class FileSystemLocatorTest implements IDocumentListener {
     spyLocator.setMetaverseBuilder( metaverseBuilder );
     spyLocator.addDocumentListener( this );
     spyLocator.setRootFolder( "src/test/resources/solution" );
+    spyLocator.setThreads( 1 );
     TestFileSystemLocator.delay = 300;
 
     assertNotNull( "Indexer type is null", spyLocator.getLocatorType() );
@@ -195,14 +218,146 @@ public class FileSystemLocatorTest implements IDocumentListener {
       assertNotNull( event.getDocument() );
       MetaverseDocument document = (MetaverseDocument) event.getDocument();
       if ( document.getExtension().equals( "ktr" ) ) {
-        assertTrue( document.getContent() instanceof String );
+        assertTrue( document.getContent() instanceof IDocumentContent );
       } else if ( document.getExtension().equals( "kjb" ) ) {
-        assertTrue( document.getContent() instanceof String );
+        assertTrue( document.getContent() instanceof IDocumentContent );
       }
     }
 
   }
 
+  @Test
+  public void testIncrementalScan() throws Exception {
+    File root = temporaryFolder.newFolder( "repo" );
+    File first = new File( root, "first.ktr" );
+    File second = new File( root, "second.kjb" );
+    FileUtils.writeStringToFile( first, "<transformation/>", StandardCharsets.UTF_8 );
+    FileUtils.writeStringToFile( second, "<job/>", StandardCharsets.UTF_8 );
+    File manifestFile = new File( temporaryFolder.getRoot(), "manifest.txt" );
+    String graphFolder = temporaryFolder.newFolder( "graph" ).getPath();
+
+    spyLocator.setMetaverseBuilder( new MetaverseBuilder( new TinkerGraph( graphFolder ) ) );
+    spyLocator.setRepositoryId( "testrepo" );
+    spyLocator.addDocumentListener( this );
+    spyLocator.setRootFolder( root.getPath() );
+    spyLocator.setManifestFile( manifestFile.getPath() );
+    TestFileSystemLocator.delay = 0;
+
+    events = new ArrayList<IDocumentEvent>();
+    spyLocator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+    assertEquals( 2, events.size() );
+    assertEquals( IDocumentEvent.EVENT_TYPE_ADD, events.get( 0 ).getEventType() );
+    assertTrue( manifestFile.exists() );
+    INamespace namespace = events.get( 0 ).getDocument().getNamespace();
+
+    // nothing changed
+    events = new ArrayList<IDocumentEvent>();
+    spyLocator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+    assertEquals( 0, events.size() );
+
+    // a locator adding to a graph that only lives in memory analyzes every document
+    TestFileSystemLocator memoryLocator = new TestFileSystemLocator( new ArrayList<IDocumentListener>() );
+    memoryLocator.setMetaverseBuilder( new MetaverseBuilder( new TinkerGraph() ) );
+    memoryLocator.setRepositoryId( "testrepo" );
+    memoryLocator.addDocumentListener( this );
+    memoryLocator.setRootFolder( root.getPath() );
+    memoryLocator.setManifestFile( manifestFile.getPath() );
+    events = new ArrayList<IDocumentEvent>();
+    memoryLocator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+    assertEquals( 2, events.size() );
+    assertEquals( IDocumentEvent.EVENT_TYPE_ADD, events.get( 0 ).getEventType() );
+    assertEquals( IDocumentEvent.EVENT_TYPE_ADD, events.get( 1 ).getEventType() );
+
+    // a new locator adding to the persistent graph reads the manifest of the previous one
+    TestFileSystemLocator otherLocator = new TestFileSystemLocator( new ArrayList<IDocumentListener>() );
+    otherLocator.setMetaverseBuilder( new MetaverseBuilder( new TinkerGraph( graphFolder ) ) );
+    otherLocator.setRepositoryId( "testrepo" );
+    otherLocator.addDocumentListener( this );
+    otherLocator.setRootFolder( root.getPath() );
+    otherLocator.setManifestFile( manifestFile.getPath() );
+    FileUtils.writeStringToFile( first, "<transformation><info/></transformation>", StandardCharsets.UTF_8 );
+    assertTrue( second.delete() );
+    events = new ArrayList<IDocumentEvent>();
+    otherLocator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+
+    assertEquals( 2, events.size() );
+    assertEquals( IDocumentEvent.EVENT_TYPE_UPDATE, events.get( 0 ).getEventType() );
+    assertEquals( first.getCanonicalPath(), events.get( 0 ).getDocument().getStringID() );
+    assertEquals( IDocumentEvent.EVENT_TYPE_DELETE, events.get( 1 ).getEventType() );
+    assertEquals( second.getCanonicalPath(), events.get( 1 ).getDocument().getStringID() );
+    // documents keep their namespace from one scan to the next
+    assertEquals( namespace.getNamespaceId(), events.get( 0 ).getDocument().getNamespace().getNamespaceId() );
+  }
+
+  @Test
+  public void testIncrementalScan_failedAnalysisRetried() throws Exception {
+    File root = temporaryFolder.newFolder( "repo" );
+    FileUtils.writeStringToFile( new File( root, "first.ktr" ), "<transformation/>", StandardCharsets.UTF_8 );
+    File manifestFile = new File( temporaryFolder.getRoot(), "manifest.txt" );
+
+    spyLocator.setMetaverseBuilder( new MetaverseBuilder( new TinkerGraph() ) );
+    spyLocator.setRepositoryId( "testrepo" );
+    spyLocator.setRootFolder( root.getPath() );
+    spyLocator.setManifestFile( manifestFile.getPath() );
+    TestFileSystemLocator.delay = 0;
+    final boolean[] succeed = { false };
+    spyLocator.addDocumentListener( event -> {
+      events.add( event );
+      ( (DocumentEvent) event ).analysisStarted();
+      ( (DocumentEvent) event ).analysisDone( succeed[ 0 ] );
+    } );
+
+    events = new ArrayList<IDocumentEvent>();
+    spyLocator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+    assertEquals( 1, events.size() );
+
+    // the analysis failed: the document is analyzed again, and remembered once it succeeds
+    succeed[ 0 ] = true;
+    events = new ArrayList<IDocumentEvent>();
+    spyLocator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+    assertEquals( 1, events.size() );
+    assertEquals( IDocumentEvent.EVENT_TYPE_ADD, events.get( 0 ).getEventType() );
+
+    events = new ArrayList<IDocumentEvent>();
+    spyLocator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+    assertEquals( 0, events.size() );
+  }
+
+  @Test
+  public void testStartLocator_onlySupportedExtensions() throws Exception {
+    IDocumentController controller = mock( IDocumentController.class );
+    when( controller.getDocumentAnalyzers( anyString() ) ).thenReturn( null );
+    when( controller.getDocumentAnalyzers( "ktr" ) ).thenReturn( Collections.<IDocumentAnalyzer>emptyList() );
+    final List<IDocument> documents = Collections.synchronizedList( new ArrayList<IDocument>() );
+    doAnswer( invocation -> documents.add( ( (IDocumentEvent) invocation.getArguments()[ 0 ] ).getDocument() ) )
+      .when( controller ).onEvent( any( IDocumentEvent.class ) );
+
+    FileSystemLocator locator = new FileSystemLocator( new ArrayList<IDocumentListener>() );
+    locator.setMetaverseBuilder( new MetaverseBuilder( new TinkerGraph() ) );
+    locator.setRepositoryId( "testrepo" );
+    locator.addDocumentListener( controller );
+    locator.setRootFolder( "src/test/resources/solution" );
+    locator.setThreads( 4 );
+    locator.startScan();
+    MetaverseCompletionService.getInstance().waitTillEmpty();
+
+    assertFalse( documents.isEmpty() );
+    for ( IDocument document : documents ) {
+      assertEquals( "ktr", document.getExtension() );
+      // read when analyzed
+      try ( InputStream stream = ( (IDocumentContent) document.getContent() ).openStream() ) {
+        assertTrue( IOUtils.toString( stream, StandardCharsets.UTF_8 ).contains( "<transformation>" ) );
+      }
+    }
+  }
+
   @Test
   public void testGetContentsBadFile() throws Exception {
     assertEquals( "", spyLocator.getContents( new File( "not-a-file.txt" ) ) );
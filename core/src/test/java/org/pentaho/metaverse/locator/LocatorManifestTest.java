@@ -0,0 +1,133 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.locator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.metaverse.api.IDocumentEvent;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LocatorManifestTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testUpdate() {
+    LocatorManifest manifest = new LocatorManifest( null );
+    manifest.beginScan();
+    assertFalse( manifest.isUnchanged( "/a.ktr", 10, 100 ) );
+    assertEquals( IDocumentEvent.EVENT_TYPE_ADD, manifest.update( "/a.ktr", 10, 100, "hash" ) );
+
+    manifest.beginScan();
+    assertTrue( manifest.isUnchanged( "/a.ktr", 10, 100 ) );
+    // touched: same content
+    assertFalse( manifest.isUnchanged( "/a.ktr", 10, 200 ) );
+    assertNull( manifest.update( "/a.ktr", 10, 200, "hash" ) );
+    assertTrue( manifest.isUnchanged( "/a.ktr", 10, 200 ) );
+    // changed content
+    assertEquals( IDocumentEvent.EVENT_TYPE_UPDATE, manifest.update( "/a.ktr", 12, 300, "other" ) );
+    // content that cannot be hashed is always considered changed
+    assertEquals( IDocumentEvent.EVENT_TYPE_UPDATE, manifest.update( "/a.ktr", 12, 400, null ) );
+    assertEquals( IDocumentEvent.EVENT_TYPE_UPDATE, manifest.update( "/a.ktr", 12, 500, null ) );
+
+    assertEquals( 0, manifest.getAddedCount() );
+    assertEquals( 3, manifest.getUpdatedCount() );
+    assertEquals( 3, manifest.getUnchangedCount() );
+  }
+
+  @Test
+  public void testCheck_notCommitted() {
+    LocatorManifest manifest = new LocatorManifest( null );
+    manifest.beginScan();
+    assertEquals( IDocumentEvent.EVENT_TYPE_ADD, manifest.check( "/a.ktr", 10, 100, "hash" ) );
+    assertFalse( manifest.contains( "/a.ktr" ) );
+
+    // the analysis failed, the next scan analyzes the document again
+    manifest.beginScan();
+    assertFalse( manifest.isUnchanged( "/a.ktr", 10, 100 ) );
+    assertEquals( IDocumentEvent.EVENT_TYPE_ADD, manifest.check( "/a.ktr", 10, 100, "hash" ) );
+    manifest.commit( "/a.ktr", 10, 100, "hash" );
+
+    manifest.beginScan();
+    assertTrue( manifest.isUnchanged( "/a.ktr", 10, 100 ) );
+  }
+
+  @Test
+  public void testIsUnchanged_unknownSizeAndTime() {
+    LocatorManifest manifest = new LocatorManifest( null );
+    manifest.update( "/a.ktr", -1, -1, "hash" );
+    assertFalse( manifest.isUnchanged( "/a.ktr", -1, -1 ) );
+  }
+
+  @Test
+  public void testRemoveUnseen() {
+    LocatorManifest manifest = new LocatorManifest( null );
+    manifest.beginScan();
+    manifest.update( "/a.ktr", 1, 1, "a" );
+    manifest.update( "/b.ktr", 1, 1, "b" );
+    manifest.update( "/c.ktr", 1, 1, "c" );
+    assertEquals( Collections.emptyList(), manifest.removeUnseen() );
+
+    manifest.beginScan();
+    manifest.isUnchanged( "/b.ktr", 1, 1 );
+    assertEquals( Arrays.asList( "/a.ktr", "/c.ktr" ), manifest.removeUnseen() );
+    assertEquals( 1, manifest.size() );
+    assertTrue( manifest.contains( "/b.ktr" ) );
+  }
+
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve( "manifests" ).resolve( "repo.manifest" );
+    LocatorManifest manifest = LocatorManifest.load( file );
+    assertEquals( 0, manifest.size() );
+    manifest.update( "/public/a file\twith a tab.ktr", 10, 100, "hash" );
+    manifest.update( "/public/b.kjb", 20, 200, null );
+    manifest.save();
+
+    LocatorManifest loaded = LocatorManifest.load( file );
+    assertEquals( 2, loaded.size() );
+    assertTrue( loaded.isUnchanged( "/public/a file\twith a tab.ktr", 10, 100 ) );
+    assertTrue( loaded.isUnchanged( "/public/b.kjb", 20, 200 ) );
+    assertNull( loaded.update( "/public/a file\twith a tab.ktr", 10, 101, "hash" ) );
+  }
+
+  @Test
+  public void testLoad_corrupt() throws Exception {
+    Path file = temporaryFolder.newFile( "corrupt.manifest" ).toPath();
+    Files.write( file, "hash\tnot a number\t1\t/a.ktr".getBytes( StandardCharsets.UTF_8 ) );
+    assertEquals( 0, LocatorManifest.load( file ).size() );
+  }
+
+  @Test
+  public void testHash() {
+    assertEquals( "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+      LocatorManifest.hash( new byte[ 0 ] ) );
+    byte[] content = new byte[ 20000 ];
+    Arrays.fill( content, (byte) 'x' );
+    assertEquals( LocatorManifest.hash( content ), LocatorManifest.hash( new ByteArrayInputStream( content ) ) );
+  }
+}
@@ -34,9 +34,11 @@ import org.pentaho.metaverse.api.model.IOperation;
 import org.pentaho.metaverse.api.model.Operation;
 import org.pentaho.metaverse.api.model.Operations;
 import org.pentaho.metaverse.testutils.MetaverseTestUtils;
+import org.pentaho.platform.util.messages.LocaleHelper;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -140,6 +142,30 @@ public class MetaverseUtilTest {
     MetaverseUtil.enhanceVertex( v1 );
   }
 
+  @Test
+  public void testEnhancements_perLocale() {
+    Locale locale = LocaleHelper.getLocale();
+    try {
+      LocaleHelper.setLocale( Locale.ENGLISH );
+      assertEquals( "Transformation", MetaverseUtil.getVertexEnhancements( DictionaryConst.NODE_TYPE_TRANS )
+        .get( DictionaryConst.PROPERTY_TYPE_LOCALIZED ) );
+      assertEquals( "Populates", MetaverseUtil.getEdgeEnhancements( DictionaryConst.LINK_POPULATES )
+        .get( DictionaryConst.PROPERTY_TYPE_LOCALIZED ) );
+
+      LocaleHelper.setLocale( Locale.FRENCH );
+      assertEquals( "Transformation (fr)", MetaverseUtil.getVertexEnhancements( DictionaryConst.NODE_TYPE_TRANS )
+        .get( DictionaryConst.PROPERTY_TYPE_LOCALIZED ) );
+      assertEquals( "Alimente", MetaverseUtil.getEdgeEnhancements( DictionaryConst.LINK_POPULATES )
+        .get( DictionaryConst.PROPERTY_TYPE_LOCALIZED ) );
+
+      LocaleHelper.setLocale( Locale.ENGLISH );
+      assertEquals( "Transformation", MetaverseUtil.getVertexEnhancements( DictionaryConst.NODE_TYPE_TRANS )
+        .get( DictionaryConst.PROPERTY_TYPE_LOCALIZED ) );
+    } finally {
+      LocaleHelper.setLocale( locale );
+    }
+  }
+
   @Test
   public void testConvertOperationsStringToMap() {
     // Test null string
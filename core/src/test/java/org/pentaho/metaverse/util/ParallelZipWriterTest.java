@@ -0,0 +1,217 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.util;
+
+import org.junit.After;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelZipWriterTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ExecutorService pool;
+  private ByteArrayOutputStream out;
+
+  @Before
+  public void setUp() {
+    pool = Executors.newFixedThreadPool( 4 );
+    out = new ByteArrayOutputStream();
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testEntriesInOrder() throws Exception {
+    final List<String> names = new ArrayList<>();
+    try ( ParallelZipWriter zip = new ParallelZipWriter( out, pool, Deflater.DEFAULT_COMPRESSION, 2 ) ) {
+      for ( int i = 0; i < 20; i++ ) {
+        final String name = "artifacts/" + i + ( i % 4 == 0 ? ".gz" : ".json" );
+        names.add( name );
+        zip.putEntry( name, System.currentTimeMillis(), content( i ) );
+      }
+    }
+
+    final List<String> read = new ArrayList<>();
+    try ( ZipInputStream in = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+      for ( ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry() ) {
+        final int i = read.size();
+        read.add( entry.getName() );
+        assertEquals( i % 4 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED, entry.getMethod() );
+        assertArrayEquals( bytes( i ), readAll( in ) );
+      }
+    }
+    assertEquals( names, read );
+  }
+
+  @Test
+  public void testNoCompression() throws Exception {
+    try ( ParallelZipWriter zip = new ParallelZipWriter( out, pool, Deflater.NO_COMPRESSION, 1 ) ) {
+      zip.putEntry( "profile.json", 0L, content( 3 ) );
+    }
+    try ( ZipInputStream in = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+      final ZipEntry entry = in.getNextEntry();
+      assertEquals( ZipEntry.STORED, entry.getMethod() );
+      assertArrayEquals( bytes( 3 ), readAll( in ) );
+    }
+  }
+
+  @Test
+  public void testFailedEntryIsSkipped() throws Exception {
+    try ( ParallelZipWriter zip = new ParallelZipWriter( out, pool, Deflater.BEST_SPEED, 4 ) ) {
+      zip.putEntry( "first.json", 0L, content( 1 ) );
+      zip.putEntry( "missing.json", 0L, () -> {
+        throw new IOException( "missing" );
+      } );
+      zip.putEntry( "last.json", 0L, content( 2 ) );
+    }
+
+    final List<String> read = new ArrayList<>();
+    try ( ZipInputStream in = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+      for ( ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry() ) {
+        read.add( entry.getName() );
+        readAll( in );
+      }
+    }
+    assertEquals( Arrays.asList( "first.json", "last.json" ), read );
+  }
+
+  @Test
+  public void testDuplicateEntryIsSkipped() throws Exception {
+    try ( ParallelZipWriter zip = new ParallelZipWriter( out, pool, Deflater.BEST_SPEED, 4 ) ) {
+      assertTrue( zip.putEntry( "profile.json", 0L, content( 1 ) ) );
+      assertFalse( zip.putEntry( "profile.json", 0L, content( 2 ) ) );
+    }
+    try ( ZipInputStream in = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+      assertEquals( "profile.json", in.getNextEntry().getName() );
+      assertArrayEquals( bytes( 1 ), readAll( in ) );
+      assertNull( in.getNextEntry() );
+    }
+  }
+
+  @Test
+  public void testLargeEntriesSpilled() throws Exception {
+    File file = temporaryFolder.newFile( "spilled.zip" );
+    try ( ParallelZipWriter zip = new ParallelZipWriter( new FileOutputStream( file ), pool,
+      Deflater.BEST_SPEED, 2, 1024, 0xFFFFFFFFL ) ) {
+      for ( int i = 0; i < 10; i++ ) {
+        zip.putEntry( i + ( i % 2 == 0 ? ".gz" : ".json" ), 0L, content( i * 10 ) );
+      }
+    }
+    assertZip( file, 10, 10 );
+  }
+
+  @Test
+  public void testZip64_offsets() throws Exception {
+    // zip64 records from 10000 bytes on: later entries need them for their offset, large ones for their size too
+    File file = temporaryFolder.newFile( "zip64.zip" );
+    try ( ParallelZipWriter zip = new ParallelZipWriter( new FileOutputStream( file ), pool,
+      Deflater.BEST_SPEED, 2, 1024, 10000L ) ) {
+      for ( int i = 0; i < 10; i++ ) {
+        zip.putEntry( i + ( i % 2 == 0 ? ".gz" : ".json" ), 0L, content( i * 10 ) );
+      }
+    }
+    assertZip( file, 10, 10 );
+  }
+
+  @Test
+  public void testZip64_entryCount() throws Exception {
+    File file = temporaryFolder.newFile( "many.zip" );
+    final int count = 70000;
+    try ( ParallelZipWriter zip = new ParallelZipWriter( new FileOutputStream( file ), pool,
+      Deflater.NO_COMPRESSION, 16 ) ) {
+      for ( int i = 0; i < count; i++ ) {
+        zip.putEntry( i + ".json", 0L, content( 0 ) );
+      }
+    }
+    assertZip( file, count, 1 );
+  }
+
+  /**
+   * Reads a zip back with {@link ZipFile}, which relies on the central directory and its zip64 records
+   */
+  private static void assertZip( File file, int count, int step ) throws IOException {
+    try ( ZipFile zipFile = new ZipFile( file ) ) {
+      assertEquals( count, zipFile.size() );
+      for ( int i = 0; i < count; i += step ) {
+        final int content = step == 1 ? 0 : i * 10;
+        final String name = i + ( step == 1 || i % 2 != 0 ? ".json" : ".gz" );
+        final ZipEntry entry = zipFile.getEntry( name );
+        assertEquals( bytes( content ).length, entry.getSize() );
+        try ( InputStream in = zipFile.getInputStream( entry ) ) {
+          assertArrayEquals( bytes( content ), IOUtils.toByteArray( in ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIsCompressed() {
+    assertTrue( ParallelZipWriter.isCompressed( "folder/archive.ZIP" ) );
+    assertTrue( ParallelZipWriter.isCompressed( "graph.graphml.gz" ) );
+    assertFalse( ParallelZipWriter.isCompressed( "graph.graphml" ) );
+    assertFalse( ParallelZipWriter.isCompressed( "gz" ) );
+  }
+
+  private static ParallelZipWriter.Content content( final int i ) {
+    return () -> new ByteArrayInputStream( bytes( i ) );
+  }
+
+  private static byte[] bytes( final int i ) {
+    final StringBuilder sb = new StringBuilder();
+    for ( int j = 0; j <= i * 1000; j++ ) {
+      sb.append( "{\"artifact\":" ).append( i ).append( ",\"line\":" ).append( j ).append( "}\n" );
+    }
+    return sb.toString().getBytes( StandardCharsets.UTF_8 );
+  }
+
+  private static byte[] readAll( final ZipInputStream in ) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[ 8192 ];
+    for ( int read = in.read( buffer ); read >= 0; read = in.read( buffer ) ) {
+      bytes.write( buffer, 0, read );
+    }
+    return bytes.toByteArray();
+  }
+}
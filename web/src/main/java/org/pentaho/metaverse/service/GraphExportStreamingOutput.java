@@ -0,0 +1,63 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.service;
+
+import org.pentaho.metaverse.api.IMetaverseReader;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the metaverse graph to the response as it is exported, optionally gzip-compressed, rather than building the
+ * whole export in memory first.
+ */
+public class GraphExportStreamingOutput implements StreamingOutput {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private IMetaverseReader metaverseReader;
+  private String format;
+  private boolean gzip;
+
+  public GraphExportStreamingOutput( IMetaverseReader metaverseReader, String format, boolean gzip ) {
+    this.metaverseReader = metaverseReader;
+    this.format = format;
+    this.gzip = gzip;
+  }
+
+  public boolean isGzip() {
+    return gzip;
+  }
+
+  @Override
+  public void write( OutputStream outputStream ) throws IOException, WebApplicationException {
+    if ( gzip ) {
+      // finish() writes the gzip trailer without closing the response stream
+      GZIPOutputStream gzipStream = new GZIPOutputStream( outputStream, BUFFER_SIZE );
+      OutputStream out = new BufferedOutputStream( gzipStream, BUFFER_SIZE );
+      metaverseReader.exportToStream( format, out );
+      out.flush();
+      gzipStream.finish();
+    } else {
+      OutputStream out = new BufferedOutputStream( outputStream, BUFFER_SIZE );
+      metaverseReader.exportToStream( format, out );
+      out.flush();
+    }
+    outputStream.flush();
+  }
+}
@@ -0,0 +1,177 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.pentaho.dictionary.DictionaryConst;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Writes one page of the vertices of a sub-graph, and the edges leaving them, as GraphSON-like JSON:
+ * <pre>
+ *   { "vertices": [ ... ], "edges": [ ... ], "nextCursor": "..." }
+ * </pre>
+ * Vertices are ordered by id and a page starts after the cursor id, so a page does not depend on what was returned
+ * before it. Only the vertices of the page are kept and sorted, not the whole sub-graph. An edge is returned with the
+ * page of its out vertex when its label and the type of its in vertex are returned, even if its in vertex is on
+ * another page. {@code nextCursor} is only written if there are more vertices. Element properties named like
+ * the fields of the page itself ({@code _id}, {@code _type}, {@code _outV}, {@code _inV} and {@code _label}) are not
+ * written.
+ */
+public class GraphPageStreamingOutput implements StreamingOutput {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final Comparator<Vertex> BY_ID = Comparator.comparing( vertex -> String.valueOf( vertex.getId() ) );
+
+  private static final Set<String> RESERVED_KEYS =
+    new HashSet<>( Arrays.asList( "_id", "_type", "_outV", "_inV", "_label" ) );
+
+  private final List<Vertex> page;
+  private final Set<String> nodeTypes;
+  private final Set<String> linkLabels;
+  private final String nextCursor;
+
+  /**
+   * @param graph      the sub-graph to return a page of
+   * @param nodeTypes  the types of the vertices to return, null or empty for any
+   * @param linkLabels the labels of the edges to return, null or empty for any
+   * @param pageSize   the maximum number of vertices to return
+   * @param cursor     the id of the last vertex of the previous page, null for the first page
+   */
+  public GraphPageStreamingOutput( Graph graph, Set<String> nodeTypes, Set<String> linkLabels, int pageSize,
+                                   String cursor ) {
+    this.nodeTypes = nodeTypes == null || nodeTypes.isEmpty() ? null : nodeTypes;
+    this.linkLabels = linkLabels == null || linkLabels.isEmpty() ? null : linkLabels;
+    // the lowest ids after the cursor, one more than the page size to tell whether there are more
+    PriorityQueue<Vertex> lowest = new PriorityQueue<>( pageSize + 1, BY_ID.reversed() );
+    for ( Vertex vertex : graph.getVertices() ) {
+      if ( isReturned( vertex ) && ( cursor == null || String.valueOf( vertex.getId() ).compareTo( cursor ) > 0 ) ) {
+        if ( lowest.size() <= pageSize ) {
+          lowest.add( vertex );
+        } else if ( BY_ID.compare( vertex, lowest.peek() ) < 0 ) {
+          lowest.poll();
+          lowest.add( vertex );
+        }
+      }
+    }
+    List<Vertex> vertices = new ArrayList<>( lowest );
+    Collections.sort( vertices, BY_ID );
+    if ( vertices.size() > pageSize ) {
+      page = vertices.subList( 0, pageSize );
+      nextCursor = String.valueOf( page.get( pageSize - 1 ).getId() );
+    } else {
+      page = vertices;
+      nextCursor = null;
+    }
+  }
+
+  public List<Vertex> getPage() {
+    return page;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  private boolean isReturned( Vertex vertex ) {
+    return nodeTypes == null || nodeTypes.contains( vertex.getProperty( DictionaryConst.PROPERTY_TYPE ) );
+  }
+
+  private boolean isReturned( Edge edge ) {
+    return ( linkLabels == null || linkLabels.contains( edge.getLabel() ) )
+      && isReturned( edge.getVertex( Direction.IN ) );
+  }
+
+  @Override
+  public void write( OutputStream outputStream ) throws IOException, WebApplicationException {
+    JsonGenerator json = JSON_FACTORY.createGenerator( outputStream, JsonEncoding.UTF8 );
+    json.writeStartObject();
+    json.writeArrayFieldStart( "vertices" );
+    for ( Vertex vertex : page ) {
+      json.writeStartObject();
+      writeElement( json, vertex, "vertex" );
+      json.writeEndObject();
+    }
+    json.writeEndArray();
+    json.writeArrayFieldStart( "edges" );
+    for ( Vertex vertex : page ) {
+      for ( Edge edge : vertex.getEdges( Direction.OUT ) ) {
+        if ( isReturned( edge ) ) {
+          json.writeStartObject();
+          writeElement( json, edge, "edge" );
+          json.writeStringField( "_outV", String.valueOf( vertex.getId() ) );
+          json.writeStringField( "_inV", String.valueOf( edge.getVertex( Direction.IN ).getId() ) );
+          json.writeStringField( "_label", edge.getLabel() );
+          json.writeEndObject();
+        }
+      }
+    }
+    json.writeEndArray();
+    if ( nextCursor != null ) {
+      json.writeStringField( "nextCursor", nextCursor );
+    }
+    json.writeEndObject();
+    // flushes without closing the response stream
+    json.flush();
+  }
+
+  private static void writeElement( JsonGenerator json, Element element, String type ) throws IOException {
+    json.writeStringField( "_id", String.valueOf( element.getId() ) );
+    json.writeStringField( "_type", type );
+    for ( String key : element.getPropertyKeys() ) {
+      if ( RESERVED_KEYS.contains( key ) ) {
+        continue;
+      }
+      Object value = element.getProperty( key );
+      json.writeFieldName( key );
+      if ( value == null ) {
+        json.writeNull();
+      } else if ( value instanceof Boolean ) {
+        json.writeBoolean( (Boolean) value );
+      } else if ( value instanceof Integer || value instanceof Long || value instanceof Short ) {
+        json.writeNumber( ( (Number) value ).longValue() );
+      } else if ( value instanceof Double || value instanceof Float ) {
+        json.writeNumber( ( (Number) value ).doubleValue() );
+      } else if ( value instanceof BigDecimal ) {
+        json.writeNumber( (BigDecimal) value );
+      } else if ( value instanceof BigInteger ) {
+        json.writeNumber( (BigInteger) value );
+      } else {
+        json.writeString( value.toString() );
+      }
+    }
+  }
+}
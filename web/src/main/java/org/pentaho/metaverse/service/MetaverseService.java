@@ -13,6 +13,7 @@
 
 package org.pentaho.metaverse.service;
 
+import com.tinkerpop.blueprints.Graph;
 import org.codehaus.enunciate.Facet;
 import org.codehaus.enunciate.jaxrs.ResponseCode;
 import org.codehaus.enunciate.jaxrs.StatusCodes;
@@ -28,17 +29,21 @@ import org.pentaho.metaverse.messages.Messages;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -58,8 +63,18 @@ public class MetaverseService {
 
   public static final int OK = 200;
   public static final int BAD_REQUEST = 400;
+  public static final int NOT_FOUND = 404;
   public static final int SERVER_ERROR = 500;
 
+  private static final String GZIP_ENCODING = "gzip";
+
+  private static final String DEFAULT_PAGE_SIZE = "100";
+  private static final int MAX_PAGE_SIZE = 10000;
+
+  // every page traverses the sub-graph again, so the paged endpoints do not allow unbounded traversals
+  private static final String DEFAULT_DEPTH = "10";
+  private static final int MAX_DEPTH = 100;
+
   /**
    * Creates a new metaverse service using a provided metaverse reader (to pass calls to), 
    * and locator provider (to rebuild the metaverse).
@@ -102,6 +117,8 @@ public class MetaverseService {
    *     <a href="http://graphml.graphdrawing.org/">graphml</a>
    *   </li>
    * </ul>
+   * The graph is streamed as it is exported, and gzip-compressed if the Accept-Encoding header of the request allows
+   * it.
    * If there is an error encountered, an Error status is returned
    */
   @GET
@@ -133,7 +150,160 @@ public class MetaverseService {
     if ( metaverseReader == null ) {
       return Response.serverError().entity( Messages.getString( "ERROR.MetaverseReader.IsNull" ) ).build();
     }
-    return Response.ok( metaverseReader.exportFormat( format ), mediaType ).build();
+    boolean gzip = acceptsGzip( headers );
+    Response.ResponseBuilder response =
+      Response.ok( new GraphExportStreamingOutput( metaverseReader, format, gzip ), mediaType )
+        .header( HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING );
+    if ( gzip ) {
+      response.header( HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING );
+    }
+    return response.build();
+  }
+
+  /**
+   * @return true if the Accept-Encoding header of the request lists gzip
+   */
+  protected boolean acceptsGzip( HttpHeaders headers ) {
+    List<String> encodings = headers.getRequestHeader( HttpHeaders.ACCEPT_ENCODING );
+    if ( encodings == null ) {
+      return false;
+    }
+    for ( String header : encodings ) {
+      for ( String encoding : header.split( "," ) ) {
+        String[] parts = encoding.trim().split( ";" );
+        if ( GZIP_ENCODING.equalsIgnoreCase( parts[ 0 ].trim() ) && !isZeroQuality( parts ) ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isZeroQuality( String[] parts ) {
+    for ( int i = 1; i < parts.length; i++ ) {
+      String parameter = parts[ i ].trim();
+      if ( parameter.startsWith( "q=" ) ) {
+        try {
+          return Double.parseDouble( parameter.substring( 2 ) ) <= 0;
+        } catch ( NumberFormatException e ) {
+          return false;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a page of the graph connected to one node: its upstream nodes, and its downstream nodes with their
+   * structural parents.
+   *
+   * <p><b>Example Request:</b><br />
+   *    GET pentaho-di/osgi/cxf/lineage/api/graph?id=...&amp;label=derives&amp;depth=3&amp;pageSize=500
+   * </p>
+   *
+   * @param id         the id of the node
+   * @param nodeTypes  the types of the nodes to return, all types if none are given
+   * @param linkLabels the labels of the links to follow and return, all links if none are given
+   * @param depth      the maximum number of links between the node and the nodes returned, from 1 to 100
+   * @param pageSize   the maximum number of nodes to return
+   * @param cursor     the {@code nextCursor} of the previous page, none for the first page
+   * @return JSON with the {@code vertices} of the page, the {@code edges} leaving them (their in vertices may be on
+   * other pages), and a {@code nextCursor} if there are more vertices
+   */
+  @GET
+  @Path( "/graph" )
+  @Produces( { MediaType.APPLICATION_JSON } )
+  @StatusCodes ( {
+    @ResponseCode ( code = OK, condition = "Successfully returned the page of the graph." ),
+    @ResponseCode ( code = BAD_REQUEST, condition = "Missing id or invalid depth or page size." ),
+    @ResponseCode ( code = NOT_FOUND, condition = "No node has the given id." ),
+    @ResponseCode ( code = SERVER_ERROR, condition = "Server Error." )
+  } )
+  public Response getGraph( @QueryParam( "id" ) String id,
+                            @QueryParam( "type" ) List<String> nodeTypes,
+                            @QueryParam( "label" ) List<String> linkLabels,
+                            @QueryParam( "depth" ) @DefaultValue( DEFAULT_DEPTH ) int depth,
+                            @QueryParam( "pageSize" ) @DefaultValue( DEFAULT_PAGE_SIZE ) int pageSize,
+                            @QueryParam( "cursor" ) String cursor ) {
+    if ( id == null || id.isEmpty() ) {
+      throw badRequest( "The id of a node must be provided" );
+    }
+    validatePaging( depth, pageSize );
+    prepareMetaverse();
+    if ( metaverseReader == null ) {
+      return Response.serverError().entity( Messages.getString( "ERROR.MetaverseReader.IsNull" ) ).build();
+    }
+    Set<String> labels = toSet( linkLabels );
+    Graph graph = metaverseReader.getGraph( id, depth, labels );
+    if ( graph == null ) {
+      return Response.status( Response.Status.NOT_FOUND ).build();
+    }
+    return Response.ok( new GraphPageStreamingOutput( graph, toSet( nodeTypes ), labels, pageSize, cursor ),
+      MediaType.APPLICATION_JSON ).build();
+  }
+
+  /**
+   * Returns a page of the paths from one or more nodes to the nodes of the given types, upstream and downstream.
+   *
+   * <p><b>Example Request:</b><br />
+   *    GET pentaho-di/osgi/cxf/lineage/api/search?start=...&amp;type=Transformation&amp;depth=5
+   * </p>
+   *
+   * @param startNodeIds the ids of the nodes to search from
+   * @param resultTypes  the types of the nodes to find, all types if none are given
+   * @param linkLabels   the labels of the links to follow and return, all links if none are given
+   * @param depth        the maximum number of links between a start node and a node found, from 1 to 100
+   * @param shortestOnly true to return only the shortest path to each node found
+   * @param pageSize     the maximum number of nodes to return
+   * @param cursor       the {@code nextCursor} of the previous page, none for the first page
+   * @return JSON with the {@code vertices} of the page, the {@code edges} leaving them (their in vertices may be on
+   * other pages), and a {@code nextCursor} if there are more vertices
+   */
+  @GET
+  @Path( "/search" )
+  @Produces( { MediaType.APPLICATION_JSON } )
+  @StatusCodes ( {
+    @ResponseCode ( code = OK, condition = "Successfully returned the page of the search results." ),
+    @ResponseCode ( code = BAD_REQUEST, condition = "Missing start node or invalid depth or page size." ),
+    @ResponseCode ( code = SERVER_ERROR, condition = "Server Error." )
+  } )
+  public Response search( @QueryParam( "start" ) List<String> startNodeIds,
+                          @QueryParam( "type" ) List<String> resultTypes,
+                          @QueryParam( "label" ) List<String> linkLabels,
+                          @QueryParam( "depth" ) @DefaultValue( DEFAULT_DEPTH ) int depth,
+                          @QueryParam( "shortestOnly" ) @DefaultValue( "true" ) boolean shortestOnly,
+                          @QueryParam( "pageSize" ) @DefaultValue( DEFAULT_PAGE_SIZE ) int pageSize,
+                          @QueryParam( "cursor" ) String cursor ) {
+    if ( startNodeIds == null || startNodeIds.isEmpty() ) {
+      throw badRequest( "At least one start node must be provided" );
+    }
+    validatePaging( depth, pageSize );
+    prepareMetaverse();
+    if ( metaverseReader == null ) {
+      return Response.serverError().entity( Messages.getString( "ERROR.MetaverseReader.IsNull" ) ).build();
+    }
+    Set<String> labels = toSet( linkLabels );
+    Graph graph = metaverseReader.search( resultTypes == null ? new ArrayList<String>() : resultTypes,
+      startNodeIds, shortestOnly, depth, labels );
+    return Response.ok( new GraphPageStreamingOutput( graph, null, labels, pageSize, cursor ),
+      MediaType.APPLICATION_JSON ).build();
+  }
+
+  private static void validatePaging( int depth, int pageSize ) {
+    if ( depth < 1 || depth > MAX_DEPTH ) {
+      throw badRequest( "The depth must be between 1 and " + MAX_DEPTH );
+    }
+    if ( pageSize < 1 || pageSize > MAX_PAGE_SIZE ) {
+      throw badRequest( "The page size must be between 1 and " + MAX_PAGE_SIZE );
+    }
+  }
+
+  private static BadRequestException badRequest( String message ) {
+    return new BadRequestException( Response.status( Response.Status.BAD_REQUEST ).entity( message ).build() );
+  }
+
+  private static Set<String> toSet( List<String> values ) {
+    return values == null || values.isEmpty() ? null : new HashSet<>( values );
   }
 
   /**
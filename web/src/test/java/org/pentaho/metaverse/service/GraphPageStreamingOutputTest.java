@@ -0,0 +1,133 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.metaverse.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.dictionary.DictionaryConst;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class GraphPageStreamingOutputTest {
+
+  private Graph graph;
+
+  @Before
+  public void setUp() {
+    // trans contains step1 and step2, step1 outputs field1 and field2, field1 derives field2
+    graph = new TinkerGraph();
+    Vertex trans = addVertex( "trans", DictionaryConst.NODE_TYPE_TRANS );
+    Vertex step1 = addVertex( "step1", DictionaryConst.NODE_TYPE_TRANS_STEP );
+    Vertex step2 = addVertex( "step2", DictionaryConst.NODE_TYPE_TRANS_STEP );
+    Vertex field1 = addVertex( "field1", DictionaryConst.NODE_TYPE_TRANS_FIELD );
+    Vertex field2 = addVertex( "field2", DictionaryConst.NODE_TYPE_TRANS_FIELD );
+    graph.addEdge( "e1", trans, step1, DictionaryConst.LINK_CONTAINS );
+    graph.addEdge( "e2", trans, step2, DictionaryConst.LINK_CONTAINS );
+    graph.addEdge( "e3", step1, field1, DictionaryConst.LINK_OUTPUTS );
+    graph.addEdge( "e4", step1, field2, DictionaryConst.LINK_OUTPUTS );
+    graph.addEdge( "e5", field1, field2, DictionaryConst.LINK_DERIVES );
+  }
+
+  private Vertex addVertex( String id, String type ) {
+    Vertex vertex = graph.addVertex( id );
+    vertex.setProperty( DictionaryConst.PROPERTY_TYPE, type );
+    vertex.setProperty( DictionaryConst.PROPERTY_NAME, id );
+    return vertex;
+  }
+
+  private static JsonNode write( GraphPageStreamingOutput output ) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    output.write( out );
+    return new ObjectMapper().readTree( out.toByteArray() );
+  }
+
+  @Test
+  public void testPages() throws Exception {
+    JsonNode page = write( new GraphPageStreamingOutput( graph, null, null, 3, null ) );
+    assertEquals( 3, page.get( "vertices" ).size() );
+    assertEquals( "field1", page.get( "vertices" ).get( 0 ).get( "_id" ).asText() );
+    assertEquals( "field2", page.get( "vertices" ).get( 1 ).get( "_id" ).asText() );
+    assertEquals( "step1", page.get( "vertices" ).get( 2 ).get( "_id" ).asText() );
+    assertEquals( DictionaryConst.NODE_TYPE_TRANS_STEP,
+      page.get( "vertices" ).get( 2 ).get( DictionaryConst.PROPERTY_TYPE ).asText() );
+    // the edges out of field1 and step1
+    assertEquals( 3, page.get( "edges" ).size() );
+    assertEquals( "step1", page.get( "nextCursor" ).asText() );
+
+    page = write( new GraphPageStreamingOutput( graph, null, null, 3, "step1" ) );
+    assertEquals( 2, page.get( "vertices" ).size() );
+    assertEquals( "step2", page.get( "vertices" ).get( 0 ).get( "_id" ).asText() );
+    assertEquals( "trans", page.get( "vertices" ).get( 1 ).get( "_id" ).asText() );
+    assertEquals( 2, page.get( "edges" ).size() );
+    assertFalse( page.has( "nextCursor" ) );
+  }
+
+  @Test
+  public void testPages_manyVertices() throws Exception {
+    for ( int i = 0; i < 100; i++ ) {
+      addVertex( String.format( "v%03d", 99 - i ), DictionaryConst.NODE_TYPE_TRANS_FIELD );
+    }
+    GraphPageStreamingOutput output = new GraphPageStreamingOutput( graph,
+      Collections.singleton( DictionaryConst.NODE_TYPE_TRANS_FIELD ), null, 10, "v041" );
+    assertEquals( 10, output.getPage().size() );
+    assertEquals( "v042", output.getPage().get( 0 ).getId() );
+    assertEquals( "v051", output.getPage().get( 9 ).getId() );
+    assertEquals( "v051", output.getNextCursor() );
+  }
+
+  @Test
+  public void testReservedPropertiesNotWritten() throws Exception {
+    Vertex field1 = graph.getVertex( "field1" );
+    field1.setProperty( "_id", "bogus" );
+    field1.setProperty( "_type", "bogus" );
+    graph.getEdge( "e5" ).setProperty( "_outV", "bogus" );
+
+    JsonNode page = write( new GraphPageStreamingOutput( graph,
+      Collections.singleton( DictionaryConst.NODE_TYPE_TRANS_FIELD ), null, 10, null ) );
+    JsonNode vertex = page.get( "vertices" ).get( 0 );
+    assertEquals( "field1", vertex.get( "_id" ).asText() );
+    assertEquals( "vertex", vertex.get( "_type" ).asText() );
+    assertEquals( "field1", page.get( "edges" ).get( 0 ).get( "_outV" ).asText() );
+  }
+
+  @Test
+  public void testFilters() throws Exception {
+    GraphPageStreamingOutput output = new GraphPageStreamingOutput( graph,
+      Collections.singleton( DictionaryConst.NODE_TYPE_TRANS_FIELD ), null, 10, null );
+    assertNull( output.getNextCursor() );
+    JsonNode page = write( output );
+    assertEquals( 2, page.get( "vertices" ).size() );
+    // only the edge between the two fields
+    assertEquals( 1, page.get( "edges" ).size() );
+    JsonNode edge = page.get( "edges" ).get( 0 );
+    assertEquals( "field1", edge.get( "_outV" ).asText() );
+    assertEquals( "field2", edge.get( "_inV" ).asText() );
+    assertEquals( DictionaryConst.LINK_DERIVES, edge.get( "_label" ).asText() );
+
+    page = write( new GraphPageStreamingOutput( graph, null,
+      Collections.singleton( DictionaryConst.LINK_CONTAINS ), 10, null ) );
+    assertEquals( 5, page.get( "vertices" ).size() );
+    assertEquals( 2, page.get( "edges" ).size() );
+  }
+}
@@ -13,6 +13,8 @@
 
 package org.pentaho.metaverse.service;
 
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -32,16 +34,31 @@ import javax.ws.rs.BadRequestException;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
@@ -117,46 +134,46 @@ public class MetaverseServiceTest {
 
   @Test
   public void testExport_xml() throws MetaverseLocatorException {
-    when( mockReader.exportFormat( anyString() ) ).thenReturn( TEST_XML );
+    stubExport( TEST_XML );
     when( mockProvider.getDocumentLocators() ).thenReturn( locators );
 
     Response response = service.export( mockHeadersXml );
     assertNotNull( response );
     assertEquals( 200, response.getStatus() );
     assertNotNull( response.getEntity() );
-    assertEquals( TEST_XML, response.getEntity().toString() );
+    assertEquals( TEST_XML, entityString( response ) );
     verify( mockLocator, times( 1 ) ).startScan();
   }
 
   @Test
   public void testExport_json() throws MetaverseLocatorException {
-    when( mockReader.exportFormat( anyString() ) ).thenReturn( TEST_JSON );
+    stubExport( TEST_JSON );
     when( mockProvider.getDocumentLocators() ).thenReturn( locators );
 
     Response response = service.export( mockHeadersJson );
     assertNotNull( response );
     assertEquals( 200, response.getStatus() );
     assertNotNull( response.getEntity() );
-    assertEquals( TEST_JSON, response.getEntity().toString() );
+    assertEquals( TEST_JSON, entityString( response ) );
     verify( mockLocator, times( 1 ) ).startScan();
   }
 
   @Test
   public void testExport_csv() throws MetaverseLocatorException {
-    when( mockReader.exportFormat( anyString() ) ).thenReturn( TEST_CSV );
+    stubExport( TEST_CSV );
     when( mockProvider.getDocumentLocators() ).thenReturn( locators );
 
     Response response = service.export( mockHeadersText );
     assertNotNull( response );
     assertEquals( 200, response.getStatus() );
     assertNotNull( response.getEntity() );
-    assertEquals( TEST_CSV, response.getEntity().toString() );
+    assertEquals( TEST_CSV, entityString( response ) );
     verify( mockLocator, times( 1 ) ).startScan();
   }
 
   @Test
   public void testExport_MultipleCalls() throws MetaverseLocatorException {
-    when( mockReader.exportFormat( anyString() ) ).thenReturn( TEST_XML );
+    stubExport( TEST_XML );
     when( mockProvider.getDocumentLocators() ).thenReturn( locators );
 
     Response response = service.export( mockHeadersXml );
@@ -164,7 +181,7 @@ public class MetaverseServiceTest {
     assertNotNull( response );
     assertEquals( 200, response.getStatus() );
     assertNotNull( response.getEntity() );
-    assertEquals( TEST_XML, response.getEntity().toString() );
+    assertEquals( TEST_XML, entityString( response ) );
     verify( mockLocator, times( 1 ) ).startScan();
 
     response = service.export( mockHeadersXml );
@@ -172,7 +189,7 @@ public class MetaverseServiceTest {
     assertNotNull( response );
     assertEquals( 200, response.getStatus() );
     assertNotNull( response.getEntity() );
-    assertEquals( TEST_XML, response.getEntity().toString() );
+    assertEquals( TEST_XML, entityString( response ) );
     verify( mockLocator, times( 1 ) ).startScan();
 
   }
@@ -180,18 +197,105 @@ public class MetaverseServiceTest {
 
   @Test
   public void testExport_NoLocators() throws MetaverseLocatorException {
-    when( mockReader.exportFormat( anyString() ) ).thenReturn( "" );
+    stubExport( "" );
     when( mockProvider.getDocumentLocators() ).thenReturn( null );
 
     Response response = service.export( mockHeadersXml );
     assertNotNull( response );
     assertEquals( 200, response.getStatus() );
     assertNotNull( response.getEntity() );
-    assertEquals( "", response.getEntity().toString() );
+    assertEquals( "", entityString( response ) );
 
     verify( mockLocator, times( 0 ) ).startScan();
   }
 
+  @Test
+  public void testExport_gzip() throws Exception {
+    stubExport( TEST_XML );
+    when( mockProvider.getDocumentLocators() ).thenReturn( locators );
+    when( mockHeadersXml.getRequestHeader( HttpHeaders.ACCEPT_ENCODING ) )
+      .thenReturn( Collections.singletonList( "deflate, gzip;q=0.8" ) );
+
+    Response response = service.export( mockHeadersXml );
+    assertEquals( 200, response.getStatus() );
+    assertEquals( "gzip", response.getMetadata().getFirst( HttpHeaders.CONTENT_ENCODING ) );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ( (StreamingOutput) response.getEntity() ).write( out );
+    ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+    try ( InputStream in = new GZIPInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+      byte[] buffer = new byte[ 1024 ];
+      for ( int read = in.read( buffer ); read >= 0; read = in.read( buffer ) ) {
+        unzipped.write( buffer, 0, read );
+      }
+    }
+    assertEquals( TEST_XML, new String( unzipped.toByteArray(), StandardCharsets.UTF_8 ) );
+  }
+
+  @Test
+  public void testAcceptsGzip() {
+    when( mockHeadersXml.getRequestHeader( HttpHeaders.ACCEPT_ENCODING ) ).thenReturn(
+      null, Collections.singletonList( "deflate" ), Collections.singletonList( "gzip;q=0" ),
+      Arrays.asList( "br", "GZIP" ) );
+    assertFalse( service.acceptsGzip( mockHeadersXml ) );
+    assertFalse( service.acceptsGzip( mockHeadersXml ) );
+    assertFalse( service.acceptsGzip( mockHeadersXml ) );
+    assertTrue( service.acceptsGzip( mockHeadersXml ) );
+  }
+
+  @Test
+  public void testGetGraph() throws Exception {
+    Graph graph = new TinkerGraph();
+    graph.addEdge( "e", graph.addVertex( "a" ), graph.addVertex( "b" ), "derives" );
+    when( mockReader.getGraph( "a", 2, Collections.singleton( "derives" ) ) ).thenReturn( graph );
+
+    Response response = service.getGraph( "a", null, Collections.singletonList( "derives" ), 2, 1, null );
+    assertEquals( 200, response.getStatus() );
+    GraphPageStreamingOutput page = (GraphPageStreamingOutput) response.getEntity();
+    assertEquals( 1, page.getPage().size() );
+    assertEquals( "a", page.getNextCursor() );
+  }
+
+  @Test
+  public void testGetGraph_notFound() {
+    Response response = service.getGraph( "bogus", null, null, 10, 100, null );
+    assertEquals( 404, response.getStatus() );
+    verify( mockReader ).getGraph( "bogus", 10, null );
+  }
+
+  @Test
+  public void testSearch() throws Exception {
+    Graph graph = new TinkerGraph();
+    graph.addVertex( "a" );
+    when( mockReader.search( Collections.singletonList( "type" ), Collections.singletonList( "a" ), true, 10, null ) )
+      .thenReturn( graph );
+
+    Response response = service.search( Collections.singletonList( "a" ), Collections.singletonList( "type" ), null,
+      10, true, 100, null );
+    assertEquals( 200, response.getStatus() );
+    assertEquals( 1, ( (GraphPageStreamingOutput) response.getEntity() ).getPage().size() );
+  }
+
+  @Test
+  public void testGraphQueries_badRequest() {
+    assertBadRequest( () -> service.getGraph( null, null, null, 10, 100, null ) );
+    assertBadRequest( () -> service.getGraph( "a", null, null, -1, 100, null ) );
+    // every page traverses the sub-graph again, so it cannot be unbounded
+    assertBadRequest( () -> service.getGraph( "a", null, null, 0, 100, null ) );
+    assertBadRequest( () -> service.getGraph( "a", null, null, 101, 100, null ) );
+    assertBadRequest( () -> service.getGraph( "a", null, null, 10, 0, null ) );
+    assertBadRequest( () -> service.search( Collections.<String>emptyList(), null, null, 10, true, 100, null ) );
+    assertBadRequest( () -> service.search( Collections.singletonList( "a" ), null, null, 0, true, 100, null ) );
+  }
+
+  private static void assertBadRequest( Runnable request ) {
+    try {
+      request.run();
+      fail( "Expected a bad request" );
+    } catch ( BadRequestException e ) {
+      assertEquals( 400, e.getResponse().getStatus() );
+    }
+  }
+
   @Test
   public void testExport_NullReader() throws Exception {
     when( mockProvider.getDocumentLocators() ).thenReturn( locators );
@@ -205,13 +309,13 @@ public class MetaverseServiceTest {
 
   @Test
   public void testExport_NullProvider() throws Exception {
-    when( mockReader.exportFormat( anyString() ) ).thenReturn( "" );
+    stubExport( "" );
 
     service = new MetaverseService( mockReader, null );
     Response response = service.export( mockHeadersXml );
     assertNotNull( response );
     assertEquals( 200, response.getStatus() );
-    assertEquals( "", response.getEntity().toString() );
+    assertEquals( "", entityString( response ) );
   }
 
   @Test
@@ -434,4 +538,18 @@ public class MetaverseServiceTest {
     request.setPath( path );
     Response response = service.downloadFile( request, dateString );
   }
+
+  private void stubExport( final String export ) throws IOException {
+    doAnswer( invocation -> {
+      invocation.getArgument( 1, OutputStream.class ).write( export.getBytes( StandardCharsets.UTF_8 ) );
+      return null;
+    } ).when( mockReader ).exportToStream( anyString(), any( OutputStream.class ) );
+  }
+
+  private static String entityString( Response response ) throws IOException {
+    assertNull( response.getMetadata().getFirst( HttpHeaders.CONTENT_ENCODING ) );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ( (StreamingOutput) response.getEntity() ).write( out );
+    return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+  }
 }